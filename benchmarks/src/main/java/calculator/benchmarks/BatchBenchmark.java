@@ -0,0 +1,94 @@
+package calculator.benchmarks;
+
+import calculator.Main;
+import calculator.MainTree;
+import calculator.batch.BatchProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of batch mode, in expressions per second, by engine and parallelism
+ * Scaling from 1 to N cores: java -jar benchmarks.jar BatchBenchmark -p parallelism=1,2,4,8,16,32,64
+ * Parallelism above the number of available processors measures only the overhead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchBenchmark {
+
+    private static final int LINES = 65536;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    @Param({"main", "mainTree"})
+    public String engine;
+
+    private String input;
+    private BatchProcessor batchProcessor;
+
+    @Setup
+    public void setUp() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < LINES; i++) {
+            builder.append("let(x,multi(").append(i).append(",60),let(y,add(x,17),div(multi(sub(y,x),add(y,x)),add(x,3))))");
+            builder.append('\n');
+        }
+        input = builder.toString();
+        batchProcessor = engine.equals("main")
+                ? new BatchProcessor(new Main()::calculate, parallelism)
+                : new BatchProcessor(new MainTree()::calculate, parallelism);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void batch() throws IOException {
+        batchProcessor.process(new BufferedReader(new StringReader(input)), NullWriter.INSTANCE);
+    }
+
+    /**
+     * Discards output, so the benchmark measures evaluation and ordering only
+     */
+    private static final class NullWriter extends Writer {
+        private static final NullWriter INSTANCE = new NullWriter();
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+        }
+
+        @Override
+        public void write(String string) {
+        }
+
+        @Override
+        public void write(int character) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
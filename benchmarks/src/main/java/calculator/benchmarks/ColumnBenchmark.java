@@ -0,0 +1,102 @@
+package calculator.benchmarks;
+
+import calculator.exception.CalculatorException;
+import calculator.parser.ExpressionParser;
+import calculator.vm.ColumnInterpreter;
+import calculator.vm.Compiler;
+import calculator.vm.Interpreter;
+import calculator.vm.Program;
+import calculator.vm.VectorColumnInterpreter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares evaluation of one parameterized expression over columns of rows by
+ * 1. rowByRow : Interpreter, one program execution per row
+ * 2. scalarColumns : ColumnInterpreter, scalar loops per block
+ * 3. vectorColumns : VectorColumnInterpreter, Vector API lanes per block
+ *
+ * The lane count follows the CPU: 8 ints with AVX2, 16 with AVX-512, printed at setup.
+ * Use -jvmArgsAppend -XX:UseAVX=2 to measure the AVX2 path on an AVX-512 machine.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class ColumnBenchmark {
+
+    @Param({
+            "add(x,multi(y,3))",
+            "let(a,sub(x,y),let(b,multi(a,a),sub(add(b,x),multi(y,y))))",
+            "div(multi(x,x),add(y,1))"
+    })
+    public String expression;
+
+    @Param({"65536"})
+    public int rows;
+
+    private Program program;
+    private Interpreter interpreter;
+    private ColumnInterpreter scalarColumnInterpreter;
+    private ColumnInterpreter vectorColumnInterpreter;
+    private int[][] columns;
+    private int[] results;
+    private int[] stack;
+    private int[] slots;
+
+    @Setup
+    public void setUp() throws CalculatorException {
+        program = new Compiler().compile(new ExpressionParser(expression).parse(), "x", "y");
+        interpreter = new Interpreter();
+        scalarColumnInterpreter = new ColumnInterpreter();
+        vectorColumnInterpreter = new VectorColumnInterpreter();
+        System.out.println("Vector lanes: " + VectorColumnInterpreter.getLaneCount());
+
+        Random random = new Random(42);
+        columns = new int[2][rows];
+        for (int i = 0; i < rows; i++) {
+            columns[0][i] = random.nextInt(1 << 15);
+            //Non-negative divisor column keeps add(y,1) non-zero
+            columns[1][i] = random.nextInt(1 << 15);
+        }
+        results = new int[rows];
+        stack = new int[program.getMaxStackDepth()];
+        slots = new int[program.getSlotCount()];
+    }
+
+    @Benchmark
+    public int[] rowByRow() {
+        for (int i = 0; i < rows; i++) {
+            slots[0] = columns[0][i];
+            slots[1] = columns[1][i];
+            results[i] = interpreter.execute(program, stack, slots);
+        }
+        return results;
+    }
+
+    @Benchmark
+    public int[] scalarColumns() {
+        scalarColumnInterpreter.execute(program, columns, results);
+        return results;
+    }
+
+    @Benchmark
+    public int[] vectorColumns() {
+        vectorColumnInterpreter.execute(program, columns, results);
+        return results;
+    }
+}
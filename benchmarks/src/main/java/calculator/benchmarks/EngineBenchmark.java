@@ -0,0 +1,84 @@
+package calculator.benchmarks;
+
+import calculator.Main;
+import calculator.MainTree;
+import calculator.exception.CalculatorException;
+import calculator.jit.BytecodeCompiler;
+import calculator.jit.IntExpression;
+import calculator.parser.ExpressionParser;
+import calculator.vm.Compiler;
+import calculator.vm.Interpreter;
+import calculator.vm.Program;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares evaluation of one expression by
+ * 1. Main : list and stack engine, from source string
+ * 2. MainTree : tree engine, from source string
+ * 3. Interpreter : precompiled Program on the stack machine
+ * 4. IntExpression : precompiled hidden class
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+
+    @Param({
+            "add(1,multi(2,3))",
+            "let(a,let(b,10,add(b,b)),let(b,20,add(a,b)))",
+            "let(x,multi(60,60),let(y,add(x,17),div(multi(sub(y,x),add(y,x)),add(x,3))))"
+    })
+    public String expression;
+
+    private Main main;
+    private MainTree mainTree;
+    private Program program;
+    private Interpreter interpreter;
+    private IntExpression intExpression;
+    private int[] vars;
+
+    @Setup
+    public void setUp() throws CalculatorException {
+        main = new Main();
+        mainTree = new MainTree();
+        program = new Compiler().compile(new ExpressionParser(expression).parse());
+        interpreter = new Interpreter();
+        intExpression = new BytecodeCompiler().compile(program);
+        vars = new int[0];
+    }
+
+    @Benchmark
+    public String main() throws CalculatorException {
+        return main.calculate(expression);
+    }
+
+    @Benchmark
+    public String mainTree() throws CalculatorException {
+        return mainTree.calculate(expression);
+    }
+
+    @Benchmark
+    public int interpreter() {
+        return interpreter.execute(program);
+    }
+
+    @Benchmark
+    public int hiddenClass() {
+        return intExpression.eval(vars);
+    }
+}
@@ -0,0 +1,173 @@
+package calculator.benchmarks;
+
+import calculator.ExpressionTree;
+import calculator.eval.Environment;
+import calculator.eval.ExpressionEvaluator;
+import calculator.exception.CalculatorException;
+import calculator.lexer.Lexer;
+import calculator.lexer.TokenKind;
+import calculator.parser.ExpressionParser;
+import calculator.utils.ArithmeticSymbols;
+import calculator.utils.Helper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the explicit stacks of ExpressionParser and ExpressionEvaluator on shallow expressions,
+ * against the recursive descent parser and recursive evaluator they replace (kept below as baselines)
+ * Iteration lifts the nesting depth limit of the Java call stack; it must not slow down the common case
+ * of small expressions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IterativeBenchmark {
+
+    @Param({
+            "add(1, 2)",
+            "let(a, 5, let(b, multi(a, 10), add(b, a)))",
+            "add(multi(sub(7, 2), div(9, 3)), let(a, add(1, 2, 3), multi(a, sub(a, 1), 4)), div(sub(100, 1), 3))"
+    })
+    public String inputExpression;
+
+    private final ExpressionEvaluator expressionEvaluator = new ExpressionEvaluator();
+    private final RecursiveEvaluator recursiveEvaluator = new RecursiveEvaluator();
+    private ExpressionTree expressionTree;
+
+    @Setup
+    public void setUp() throws CalculatorException {
+        expressionTree = new ExpressionParser(inputExpression).parse();
+    }
+
+    @Benchmark
+    public ExpressionTree parseIterative() throws CalculatorException {
+        return new ExpressionParser(inputExpression).parse();
+    }
+
+    @Benchmark
+    public ExpressionTree parseRecursive() throws CalculatorException {
+        return new RecursiveParser(inputExpression).parse();
+    }
+
+    @Benchmark
+    public int evaluateIterative() throws CalculatorException {
+        return expressionEvaluator.evaluate(expressionTree);
+    }
+
+    @Benchmark
+    public int evaluateRecursive() throws CalculatorException {
+        return recursiveEvaluator.evaluate(expressionTree, Environment.EMPTY);
+    }
+
+    /**
+     * Baseline: recursive descent ExpressionParser, one Java frame per nesting level
+     */
+    static final class RecursiveParser {
+        private final Lexer lexer;
+
+        RecursiveParser(CharSequence input) {
+            this.lexer = new Lexer(input);
+        }
+
+        ExpressionTree parse() throws CalculatorException {
+            lexer.next();
+            if (lexer.getKind() == TokenKind.END)
+                throw new CalculatorException(CalculatorException.INPUT_EXPRESSION_MISSING);
+            ExpressionTree root = parseExpression();
+            if (lexer.getKind() != TokenKind.END)
+                throw new CalculatorException(CalculatorException.INPUT_EXPRESSION_INVALID, lexer.getStart());
+            return root;
+        }
+
+        private ExpressionTree parseExpression() throws CalculatorException {
+            TokenKind kind = lexer.getKind();
+            ExpressionTree node = new ExpressionTree(lexer.getText(), lexer.getStart());
+            switch (kind) {
+                case NUMBER:
+                case VARIABLE:
+                    lexer.next();
+                    return node;
+                case FUNCTION: {
+                    boolean isVariadic = lexer.getSymbol().isVariadic();
+                    lexer.next();
+                    expect(node, TokenKind.OPEN_PARENTHESIS);
+                    node.addChild(parseExpression());
+                    expect(node, TokenKind.COMMA);
+                    node.addChild(parseExpression());
+                    while (isVariadic && lexer.getKind() == TokenKind.COMMA) {
+                        expect(node, TokenKind.COMMA);
+                        node.addChild(parseExpression());
+                    }
+                    expect(node, TokenKind.CLOSE_PARENTHESIS);
+                    return node;
+                }
+                case LET:
+                    lexer.next();
+                    expect(node, TokenKind.OPEN_PARENTHESIS);
+                    node.addChild(parseExpression());
+                    expect(node, TokenKind.COMMA);
+                    node.addChild(parseExpression());
+                    expect(node, TokenKind.COMMA);
+                    node.addChild(parseExpression());
+                    expect(node, TokenKind.CLOSE_PARENTHESIS);
+                    return node;
+                default:
+                    throw new CalculatorException(CalculatorException.INVALID_ARGUMENTS, lexer.getStart());
+            }
+        }
+
+        private void expect(ExpressionTree parent, TokenKind expectedKind) throws CalculatorException {
+            if (lexer.getKind() != expectedKind)
+                throw new CalculatorException(CalculatorException.INVALID_ARGUMENTS, lexer.getStart());
+            parent.addChild(new ExpressionTree(lexer.getText(), lexer.getStart()));
+            lexer.next();
+        }
+    }
+
+    /**
+     * Baseline: recursive ExpressionEvaluator, one Java frame per nesting level
+     */
+    static final class RecursiveEvaluator {
+
+        int evaluate(ExpressionTree expressionTree, Environment environment) throws CalculatorException {
+            String expression = expressionTree.getExpression();
+            if (expressionTree.isLeafNode()) {
+                if (Helper.isInteger(expression))
+                    return Integer.parseInt(expression);
+                return environment.lookup(expression);
+            }
+            List<ExpressionTree> children = expressionTree.getChildren();
+            if (ArithmeticSymbols.isLetOperator(expression)) {
+                int variableValue = evaluate(children.get(3), environment);
+                return evaluate(children.get(5), environment.bind(children.get(1).getExpression(), variableValue));
+            }
+            ArithmeticSymbols arithmeticFunction = ArithmeticSymbols.getArithmeticFunction(expression);
+            int result = evaluate(children.get(1), environment);
+            for (int i = 3; i < children.size() - 1; i += 2) {
+                int operand = evaluate(children.get(i), environment);
+                switch (arithmeticFunction) {
+                    case ADD_FUNCTION: result += operand; break;
+                    case SUB_FUNCTION: result -= operand; break;
+                    case MULTI_FUNCTION: result *= operand; break;
+                    default: result /= operand;
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package calculator.benchmarks;
+
+import calculator.utils.ArithmeticSymbols;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keyword and symbol classification per token: ArithmeticSymbols.classify against the previous
+ * toLowerCase based methods, kept here as the baseline
+ * Run with -prof gc to compare allocation per token.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeywordBenchmark {
+
+    //Mix of keywords, variables, numbers, punctuation and mixed case as found in expressions
+    private static final String[] TOKENS = {
+            "let", "x", "(", "multi", "60", ",", "ADD", "y", ")", "div", "sub", "abc", "Let", "value", "-5", "mult"
+    };
+    private static final String EXPRESSION = "let(x,multi(60,60),let(y,add(x,17),div(multi(sub(y,x),add(y,x)),add(x,3))))";
+
+    private final String[] tokens = TOKENS.clone();
+    private final String expression = EXPRESSION;
+
+    @Benchmark
+    @OperationsPerInvocation(16)
+    public void classify(Blackhole blackhole) {
+        for (String token : tokens)
+            blackhole.consume(ArithmeticSymbols.classify(token));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(16)
+    public void classifyLegacy(Blackhole blackhole) {
+        for (String token : tokens)
+            blackhole.consume(LegacySymbols.classify(token));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(16)
+    public void isParenthesisOrComma(Blackhole blackhole) {
+        for (String token : tokens)
+            blackhole.consume(ArithmeticSymbols.isParenthesisOrComma(token.charAt(0)));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(16)
+    public void isParenthesisOrCommaLegacy(Blackhole blackhole) {
+        for (String token : tokens)
+            blackhole.consume(LegacySymbols.isParenthesisOrComma(token.charAt(0)));
+    }
+
+    @Benchmark
+    public boolean containsArithmeticFunction() {
+        return ArithmeticSymbols.checkExpressionContainsArithmeticFunction(expression);
+    }
+
+    @Benchmark
+    public boolean containsArithmeticFunctionLegacy() {
+        return LegacySymbols.checkExpressionContainsArithmeticFunction(expression);
+    }
+
+    /**
+     * Previous implementation of ArithmeticSymbols classification, lower casing a copy for each comparison
+     */
+    private static final class LegacySymbols {
+
+        private static boolean equalsName(ArithmeticSymbols symbol, String nameToCheck) {
+            return symbol.toString().equals(nameToCheck.toLowerCase());
+        }
+
+        private static ArithmeticSymbols classify(String nameToCheck) {
+            if (equalsName(ArithmeticSymbols.ADD_FUNCTION, nameToCheck))
+                return ArithmeticSymbols.ADD_FUNCTION;
+            if (equalsName(ArithmeticSymbols.SUB_FUNCTION, nameToCheck))
+                return ArithmeticSymbols.SUB_FUNCTION;
+            if (equalsName(ArithmeticSymbols.MULTI_FUNCTION, nameToCheck))
+                return ArithmeticSymbols.MULTI_FUNCTION;
+            if (equalsName(ArithmeticSymbols.DIV_FUNCTION, nameToCheck))
+                return ArithmeticSymbols.DIV_FUNCTION;
+            if (equalsName(ArithmeticSymbols.LET_OPERATOR, nameToCheck.toLowerCase()))
+                return ArithmeticSymbols.LET_OPERATOR;
+            if (equalsName(ArithmeticSymbols.OPEN_PARENTHESIS, nameToCheck))
+                return ArithmeticSymbols.OPEN_PARENTHESIS;
+            if (equalsName(ArithmeticSymbols.CLOSE_PARENTHESIS, nameToCheck))
+                return ArithmeticSymbols.CLOSE_PARENTHESIS;
+            if (equalsName(ArithmeticSymbols.COMMA, nameToCheck))
+                return ArithmeticSymbols.COMMA;
+            if (equalsName(ArithmeticSymbols.NEGATIVE_SIGN, nameToCheck))
+                return ArithmeticSymbols.NEGATIVE_SIGN;
+            return null;
+        }
+
+        private static boolean isParenthesisOrComma(char character) {
+            String chString = String.valueOf(character);
+            return equalsName(ArithmeticSymbols.OPEN_PARENTHESIS, chString)
+                    || equalsName(ArithmeticSymbols.CLOSE_PARENTHESIS, chString)
+                    || equalsName(ArithmeticSymbols.COMMA, chString);
+        }
+
+        private static boolean checkExpressionContainsArithmeticFunction(String expression) {
+            String exprLowerCase = expression.toLowerCase();
+            return exprLowerCase.contains(ArithmeticSymbols.ADD_FUNCTION.toString())
+                    || exprLowerCase.contains(ArithmeticSymbols.SUB_FUNCTION.toString())
+                    || exprLowerCase.contains(ArithmeticSymbols.MULTI_FUNCTION.toString())
+                    || exprLowerCase.contains(ArithmeticSymbols.DIV_FUNCTION.toString());
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package calculator.benchmarks;
+
+import calculator.ExpressionTree;
+import calculator.Main;
+import calculator.MainTree;
+import calculator.cache.ExpressionCache;
+import calculator.exception.CalculatorException;
+import calculator.metrics.PhaseMetrics;
+import calculator.vm.Program;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of PhaseMetrics on both engines, uncached (every phase) and cached (validate and evaluate only)
+ * Engines without metrics are the baseline; phases are timed at the default sample interval of --metrics.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+
+    @Param({"false", "true"})
+    public boolean metrics;
+
+    @Param({"false", "true"})
+    public boolean cached;
+
+    private final String inputExpression =
+            "add(multi(sub(7, 2), div(9, 3)), let(a, add(1, 2, 3), multi(a, sub(a, 1), 4)), div(sub(100, 1), 3))";
+
+    private Main main;
+    private MainTree mainTree;
+
+    @Setup
+    public void setUp() {
+        PhaseMetrics phaseMetrics = metrics ? new PhaseMetrics("benchmark", PhaseMetrics.DEFAULT_SAMPLE_INTERVAL) : null;
+        main = new Main(cached ? new ExpressionCache<Program>(16) : null, false, phaseMetrics);
+        mainTree = new MainTree(cached ? new ExpressionCache<ExpressionTree>(16) : null, false, false, phaseMetrics);
+    }
+
+    @Benchmark
+    public String main() throws CalculatorException {
+        return main.calculate(inputExpression);
+    }
+
+    @Benchmark
+    public String mainTree() throws CalculatorException {
+        return mainTree.calculate(inputExpression);
+    }
+}
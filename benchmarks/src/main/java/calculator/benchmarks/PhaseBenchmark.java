@@ -0,0 +1,217 @@
+package calculator.benchmarks;
+
+import calculator.ExpressionTree;
+import calculator.Main;
+import calculator.MainTree;
+import calculator.eval.ExpressionEvaluator;
+import calculator.eval.ExpressionOptimizer;
+import calculator.exception.CalculatorException;
+import calculator.lexer.Lexer;
+import calculator.lexer.TokenKind;
+import calculator.parser.ExpressionParser;
+import calculator.parser.ProgramParser;
+import calculator.vm.Compiler;
+import calculator.vm.Interpreter;
+import calculator.vm.Program;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of each phase of both engines on the expression shapes seen in practice
+ * Phases:
+ *      tokenize : Lexer over the whole input, shared by both engines
+ *      parse    : ExpressionParser to a tree (MainTree), ProgramParser straight to a Program
+ *      let      : "let" resolution, by inlining in ExpressionOptimizer or by slots in Compiler
+ *      evaluate : arithmetic on the tree (ExpressionEvaluator) or on the Program (Interpreter)
+ *      engine   : Main and MainTree end to end from the input string
+ *
+ * Shapes, of size n:
+ *      deep       add(1, sub(add(1, sub(... 7 ..., 1)), 1))       n nested functions
+ *      wideLet    let(a, 1, let(b, add(a, 1), ... z ...))          n chained "let", each using the previous one
+ *      repeatedVariable let(x, 7, add(multi(x, x), ... ))          n uses of one variable
+ *      longLiterals add(2147483647, -2147483648, ...)              n ten digit literals
+ *      whitespace the deep shape with runs of spaces, tabs and newlines between tokens
+ *
+ * Run with allocation profiling and machine-readable results, to diff between releases:
+ *      java -jar benchmarks/target/benchmarks.jar PhaseBenchmark -prof gc -rf json -rff phase-results.json
+ * or with these options preset:
+ *      java -cp benchmarks/target/benchmarks.jar calculator.benchmarks.PhaseBenchmark [phase-results.json]
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PhaseBenchmark {
+
+    @Param({"deep", "wideLet", "repeatedVariable", "longLiterals", "whitespace"})
+    public String shape;
+
+    @Param({"16", "256"})
+    public int size;
+
+    private final ExpressionEvaluator expressionEvaluator = new ExpressionEvaluator();
+    private final ExpressionOptimizer expressionOptimizer = new ExpressionOptimizer();
+    private final Compiler compiler = new Compiler();
+    private final Interpreter interpreter = new Interpreter();
+
+    private String inputExpression;
+    private ExpressionTree expressionTree;
+    private Program program;
+    private Main main;
+    private MainTree mainTree;
+
+    @Setup
+    public void setUp() throws CalculatorException {
+        inputExpression = generate(shape, size);
+        expressionTree = new ExpressionParser(inputExpression).parse();
+        program = compiler.compile(expressionTree);
+        main = new Main();
+        mainTree = new MainTree();
+    }
+
+    @Benchmark
+    public int tokenize() throws CalculatorException {
+        Lexer lexer = new Lexer(inputExpression);
+        int tokenCount = 0;
+        while (lexer.next() != TokenKind.END)
+            tokenCount++;
+        return tokenCount;
+    }
+
+    @Benchmark
+    public ExpressionTree parseTree() throws CalculatorException {
+        return new ExpressionParser(inputExpression).parse();
+    }
+
+    @Benchmark
+    public Program parseProgram() throws CalculatorException {
+        return new ProgramParser(inputExpression).parse();
+    }
+
+    @Benchmark
+    public ExpressionTree letInline() {
+        return expressionOptimizer.optimize(expressionTree).getExpressionTree();
+    }
+
+    @Benchmark
+    public Program letSlots() throws CalculatorException {
+        return compiler.compile(expressionTree);
+    }
+
+    @Benchmark
+    public int evaluateTree() throws CalculatorException {
+        return expressionEvaluator.evaluate(expressionTree);
+    }
+
+    @Benchmark
+    public int evaluateProgram() {
+        return interpreter.execute(program);
+    }
+
+    @Benchmark
+    public String engineMain() throws CalculatorException {
+        return main.calculate(inputExpression);
+    }
+
+    @Benchmark
+    public String engineMainTree() throws CalculatorException {
+        return mainTree.calculate(inputExpression);
+    }
+
+    /**
+     * Run all phases with GC profiling and write JSON results
+     * @param args optional results file, phase-results.json by default
+     * @throws RunnerException
+     */
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PhaseBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(args.length > 0 ? args[0] : "phase-results.json")
+                .build()).run();
+    }
+
+    /**
+     * Function to generate expression of shape
+     * @param shape
+     * @param size
+     * @return
+     */
+    static String generate(String shape, int size) {
+        StringBuilder expression = new StringBuilder();
+        switch (shape) {
+            case "deep":
+                appendDeep(expression, size, " ");
+                break;
+            case "whitespace":
+                appendDeep(expression, size, "  \t\n   ");
+                break;
+            case "wideLet":
+                expression.append("let(").append(toVariableName(0)).append(", 1, ");
+                for (int i = 1; i < size; i++) {
+                    expression.append("let(").append(toVariableName(i)).append(", add(")
+                            .append(toVariableName(i - 1)).append(", 1), ");
+                }
+                expression.append(toVariableName(size - 1));
+                for (int i = 0; i < size; i++)
+                    expression.append(')');
+                break;
+            case "repeatedVariable":
+                expression.append("let(x, 7, add(");
+                for (int i = 0; i < size; i += 2)
+                    expression.append(i == 0 ? "" : ", ").append("multi(x, x)");
+                expression.append("))");
+                break;
+            case "longLiterals":
+                expression.append("add(");
+                for (int i = 0; i < size; i++)
+                    expression.append(i == 0 ? "" : ", ").append(i % 2 == 0 ? "2147483647" : "-2147483648");
+                expression.append(')');
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown shape " + shape);
+        }
+        return expression.toString();
+    }
+
+    private static void appendDeep(StringBuilder expression, int size, String space) {
+        for (int i = 0; i < size; i++)
+            expression.append(i % 2 == 0 ? "add(" : "sub(").append(space).append(i % 2 == 0 ? "1," + space : "");
+        expression.append('7');
+        for (int i = size - 1; i >= 0; i--)
+            expression.append(space).append(i % 2 == 0 ? ")" : "," + space + "1)");
+    }
+
+    /**
+     * Function to name variable i with letters only: a, b, ..., z, ba, bb, ...
+     * @param i
+     * @return
+     */
+    private static String toVariableName(int i) {
+        StringBuilder variableName = new StringBuilder();
+        do {
+            variableName.insert(0, (char) ('a' + i % 26));
+            i /= 26;
+        } while (i > 0);
+        return variableName.toString();
+    }
+}
@@ -0,0 +1,88 @@
+package calculator.benchmarks;
+
+import calculator.ExpressionTree;
+import calculator.MainTree;
+import calculator.cache.ExpressionCache;
+import calculator.server.CalculatorServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trip latency of server mode over the line protocol, one connection per benchmark thread
+ * SampleTime mode reports p50, p99 and p99.9 of request to reply, including the loopback network.
+ * Load from N clients: java -jar benchmarks.jar ServerBenchmark -t N
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class ServerBenchmark {
+
+    private static final byte[] REQUEST = "let(x,multi(7,60),let(y,add(x,17),div(multi(sub(y,x),add(y,x)),add(x,3))))\n"
+            .getBytes(StandardCharsets.US_ASCII);
+
+    private CalculatorServer server;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        server = new CalculatorServer(new MainTree(new ExpressionCache<ExpressionTree>(1000))::calculate, 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    /**
+     * Connection of one benchmark thread
+     */
+    @State(Scope.Thread)
+    public static class Client {
+        private Socket socket;
+        private OutputStream output;
+        private BufferedReader reader;
+
+        @Setup(Level.Trial)
+        public void connect(ServerBenchmark benchmark) throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), benchmark.server.getPort());
+            socket.setTcpNoDelay(true);
+            output = socket.getOutputStream();
+            reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+        }
+
+        @TearDown(Level.Trial)
+        public void disconnect() throws IOException {
+            socket.close();
+        }
+    }
+
+    @Benchmark
+    public String roundTrip(Client client) throws IOException {
+        client.output.write(REQUEST);
+        client.output.flush();
+        return client.reader.readLine();
+    }
+}
@@ -0,0 +1,162 @@
+package calculator.benchmarks;
+
+import calculator.ExpressionTree;
+import calculator.eval.AlgebraicSimplifier;
+import calculator.eval.Environment;
+import calculator.eval.ExpressionEvaluator;
+import calculator.eval.ExpressionOptimizer;
+import calculator.eval.OptimizationResult;
+import calculator.exception.CalculatorException;
+import calculator.parser.ExpressionParser;
+import calculator.vm.Compiler;
+import calculator.vm.Interpreter;
+import calculator.vm.Program;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluation work saved by AlgebraicSimplifier on a corpus of generated formulas over x and y
+ * Formulas are random trees in which a share of the operands are identities: add(e, 0), multi(e, 1),
+ * multi(e, 0), sub(e, e), div(e, 1), as left by formula generators. Each formula is evaluated before and
+ * after simplification, as a tree (ExpressionEvaluator) and as a compiled Program (Interpreter).
+ * Node counts of the corpus before and after are printed at setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimplifierBenchmark {
+
+    private static final int CORPUS_SIZE = 256;
+    private static final String[] FUNCTIONS = {"add", "sub", "multi", "div"};
+
+    /**
+     * Percentage of generated operands wrapped in an identity
+     */
+    @Param({"10", "30"})
+    public int identityPercentage;
+
+    @Param({"6"})
+    public int depth;
+
+    private final ExpressionEvaluator expressionEvaluator = new ExpressionEvaluator();
+    private final Interpreter interpreter = new Interpreter();
+    private final Environment environment = Environment.EMPTY.bind("x", 7).bind("y", 3);
+    private final int[] stack = new int[256];
+    private final int[] slots = {7, 3};
+
+    private ExpressionTree[] trees;
+    private ExpressionTree[] simplifiedTrees;
+    private Program[] programs;
+    private Program[] simplifiedPrograms;
+
+    @Setup
+    public void setUp() throws CalculatorException {
+        Random random = new Random(42);
+        AlgebraicSimplifier algebraicSimplifier = new AlgebraicSimplifier();
+        Compiler compiler = new Compiler();
+        trees = new ExpressionTree[CORPUS_SIZE];
+        simplifiedTrees = new ExpressionTree[CORPUS_SIZE];
+        programs = new Program[CORPUS_SIZE];
+        simplifiedPrograms = new Program[CORPUS_SIZE];
+        long nodeCountBefore = 0;
+        long nodeCountAfter = 0;
+        for (int i = 0; i < CORPUS_SIZE; i++) {
+            StringBuilder formula = new StringBuilder();
+            generate(formula, random, depth);
+            trees[i] = new ExpressionParser(formula).parse();
+            OptimizationResult optimizationResult = algebraicSimplifier.simplify(trees[i], "x", "y");
+            simplifiedTrees[i] = optimizationResult.getExpressionTree();
+            programs[i] = compiler.compile(trees[i], "x", "y");
+            simplifiedPrograms[i] = compiler.compile(simplifiedTrees[i], "x", "y");
+            nodeCountBefore += optimizationResult.getNodeCountBefore();
+            nodeCountAfter += ExpressionOptimizer.countNodes(simplifiedTrees[i]);
+        }
+        System.out.println("Corpus nodes: " + nodeCountBefore + " -> " + nodeCountAfter);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void evaluateTree(Blackhole blackhole) throws CalculatorException {
+        for (ExpressionTree tree : trees)
+            blackhole.consume(expressionEvaluator.evaluate(tree, environment));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void evaluateSimplifiedTree(Blackhole blackhole) throws CalculatorException {
+        for (ExpressionTree tree : simplifiedTrees)
+            blackhole.consume(expressionEvaluator.evaluate(tree, environment));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void executeProgram(Blackhole blackhole) {
+        for (Program program : programs)
+            blackhole.consume(interpreter.execute(program, stack, slots));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void executeSimplifiedProgram(Blackhole blackhole) {
+        for (Program program : simplifiedPrograms)
+            blackhole.consume(interpreter.execute(program, stack, slots));
+    }
+
+    /**
+     * Append random formula over x and y; divisors are non-zero literals so that every formula evaluates
+     * @param formula
+     * @param random
+     * @param depth
+     */
+    private void generate(StringBuilder formula, Random random, int depth) {
+        if (random.nextInt(100) < identityPercentage) {
+            generateIdentity(formula, random, depth);
+            return;
+        }
+        if (depth == 0) {
+            int leaf = random.nextInt(3);
+            formula.append(leaf == 0 ? "x" : leaf == 1 ? "y" : String.valueOf(random.nextInt(9) + 1));
+            return;
+        }
+        String function = FUNCTIONS[random.nextInt(FUNCTIONS.length)];
+        formula.append(function).append('(');
+        generate(formula, random, depth - 1);
+        formula.append(',');
+        if (function.equals("div"))
+            formula.append(random.nextInt(9) + 1);
+        else
+            generate(formula, random, depth - 1);
+        formula.append(')');
+    }
+
+    private void generateIdentity(StringBuilder formula, Random random, int depth) {
+        int identity = random.nextInt(5);
+        if (identity == 4) {
+            //sub(e, e) of one operand written twice
+            StringBuilder operand = new StringBuilder();
+            generate(operand, random, Math.max(0, depth - 1));
+            formula.append("sub(").append(operand).append(',').append(operand).append(')');
+            return;
+        }
+        formula.append(identity == 0 ? "add(" : identity == 3 ? "div(" : "multi(");
+        generate(formula, random, Math.max(0, depth - 1));
+        formula.append(identity == 0 ? ",0)" : identity == 2 ? ",0)" : ",1)");
+    }
+}
@@ -2,7 +2,9 @@ package calculator;
 
 import calculator.utils.ArithmeticSymbols;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 
 /**
@@ -39,6 +41,9 @@ public class ExpressionTree{
 
      private String expression;
 
+     //Position of expression in the input expression string, -1 if unknown
+     private int position = -1;
+
     /**
      * Constructor
      * @param expression
@@ -47,15 +52,24 @@ public class ExpressionTree{
             this.expression = expression;
      }
 
+    /**
+     * Constructor
+     * @param expression
+     * @param position position of expression in the input expression string
+     */
+     public ExpressionTree(String expression, int position) {
+            this.expression = expression;
+            this.position = position;
+     }
+
     /**
      * Check if leaf node
      * A node is a leaf node only if it is not a "let" Operator / Arithmetic Function
      * @return
      */
      public boolean isLeafNode(){
-         if(ArithmeticSymbols.isArithmeticFunction(expression) || ArithmeticSymbols.isLetOperator(expression))
-             return false;
-         return true;
+         ArithmeticSymbols symbol = ArithmeticSymbols.classify(expression);
+         return symbol == null || !(symbol.isArithmeticFunction() || symbol == ArithmeticSymbols.LET_OPERATOR);
      }
 
     /**
@@ -71,6 +85,18 @@ public class ExpressionTree{
          return child;
      }
 
+    /**
+     * Add existing node as child node
+     * @param child
+     * @return
+     */
+     public ExpressionTree addChild(ExpressionTree child){
+         if(children == null)
+             children = new ArrayList<ExpressionTree>();
+         children.add(child);
+         return child;
+     }
+
     /**
      * Check if node has no children
      * @return
@@ -87,13 +113,24 @@ public class ExpressionTree{
         return expression;
     }
 
+    /**
+     * Get position of expression in the input expression string
+     * @return position, -1 if unknown
+     */
+    public int getPosition(){
+        return position;
+    }
+
     /**
      * Check if children count reached for non-leaf nodes
      * @return
      */
     public boolean isChildrenCountReached(){
         if(!isLeafNode()){
-            if(ArithmeticSymbols.isArithmeticFunction(expression))
+            ArithmeticSymbols arithmeticFunction = ArithmeticSymbols.getArithmeticFunction(expression);
+            if(arithmeticFunction != null && arithmeticFunction.isVariadic())
+                return children.size() >= 5 && ArithmeticSymbols.isCloseParenthesis(children.get(children.size() - 1).getExpression());
+            if(arithmeticFunction != null)
                 return children.size() == 5;
             if(ArithmeticSymbols.isLetOperator(expression))
                 return children.size() == 7;
@@ -111,18 +148,24 @@ public class ExpressionTree{
 
     /**
      * Replace oldexpression in all children with new expression
+     * Walks the tree with an explicit stack, so any nesting depth is supported.
+     * Replaced children are walked too, new expressions are not.
      * @param oldExpression
      * @param newExpression
      */
     public void recursiveReplace(ExpressionTree oldExpression, ExpressionTree newExpression){
-        if(!isLeafNode()) {
-            for (int i = 0; i < children.size(); i++) {
-                ExpressionTree child = children.get(i);
-                child.recursiveReplace(oldExpression, newExpression);
-                if (child.equals(oldExpression)){
-                    children.remove(i);
-                    children.add(i, newExpression);
-                }
+        Deque<ExpressionTree> nodes = new ArrayDeque<ExpressionTree>();
+        nodes.push(this);
+        while(!nodes.isEmpty()) {
+            ExpressionTree node = nodes.pop();
+            if(node.isLeafNode())
+                continue;
+            List<ExpressionTree> nodeChildren = node.children;
+            for (int i = 0; i < nodeChildren.size(); i++) {
+                ExpressionTree child = nodeChildren.get(i);
+                nodes.push(child);
+                if (child.equals(oldExpression))
+                    nodeChildren.set(i, newExpression);
             }
         }
     }
@@ -144,15 +187,20 @@ public class ExpressionTree{
 
     /**
      * Logic to print tree as string
+     * Nodes are appended in pre-order with an explicit stack, so any nesting depth is supported.
      * @return
      */
     @Override
     public String toString(){
         StringBuilder returnString = new StringBuilder();
-        returnString.append(expression);
-        if(!isLeafNode()) {
-            for (ExpressionTree child : children) {
-                returnString.append(child.toString());
+        Deque<ExpressionTree> nodes = new ArrayDeque<ExpressionTree>();
+        nodes.push(this);
+        while(!nodes.isEmpty()) {
+            ExpressionTree node = nodes.pop();
+            returnString.append(node.expression);
+            if(!node.isLeafNode()) {
+                for (int i = node.children.size() - 1; i >= 0; i--)
+                    nodes.push(node.children.get(i));
             }
         }
         return returnString.toString();
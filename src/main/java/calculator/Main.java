@@ -1,19 +1,54 @@
 package calculator;
 
+import calculator.batch.BatchProcessor;
+import calculator.batch.MappedFileProcessor;
+import calculator.cache.ExpressionCache;
 import calculator.exception.CalculatorException;
+import calculator.lexer.Lexer;
+import calculator.lexer.TokenKind;
+import calculator.metrics.CompileEvent;
+import calculator.metrics.EvaluateEvent;
+import calculator.metrics.ExpressionEvent;
+import calculator.metrics.LetResolutionEvent;
+import calculator.metrics.ParseEvent;
+import calculator.metrics.PhaseMetrics;
+import calculator.parser.ExpressionParser;
+import calculator.server.CalculatorServer;
 import calculator.utils.ArithmeticSymbols;
+import calculator.utils.CommandLineOptions;
 import calculator.utils.Helper;
-import org.apache.log4j.*;
-
+import calculator.utils.LoggingConfiguration;
+import calculator.vm.Compiler;
+import calculator.vm.ExactInterpreter;
+import calculator.vm.Interpreter;
+import calculator.vm.Program;
+import calculator.vm.ProgramBuilder;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Stack;
+import java.util.Map;
 
 /**
  * Calculator class with list and stack implementation
  * Input expression string is first stored in an ArrayList of Strings
- * Then evaluated using Stack
+ * Then evaluated on a stack machine: the list is compiled to a Program and run by the Interpreter
+ *
+ * Evaluation state is kept in local variables only, so one instance can be reused
+ * and shared between threads.
+ *
+ * In exact mode (--exact) results are never wrapped: arithmetic runs on long and promotes to BigInteger
+ * on overflow, and integer literals outside int range are accepted. The expression is then compiled
+ * through the expression tree, as "let" values of the list are evaluated as int.
+ *
+ * With PhaseMetrics (--metrics), the time of each phase, input sizes and errors are recorded.
+ * Java Flight Recorder events (calculator.Parse, calculator.LetResolution, calculator.Compile, calculator.Evaluate)
+ * record the same phases when they last at least their threshold.
  */
 public class Main {
 
@@ -25,59 +60,162 @@ public class Main {
      * Assumption: No exception thrown for invalid level name in command line.
      */
     private static final Logger LOGGER = Logger.getLogger(Main.class);
-    private static final Level DEFAULT_LEVEL = Level.OFF;
 
     /**
-     * Stores inputExpressionString as a List
-     * Expression can be one of the following:
-     * 1. Numbers : Integer (Range: Integer.MIN_VALUE to Integer.MAX_VALUE)
-     * 2. Variables : String of characters (Range: a-z, A-Z)
-     * 3. Arithmetic Functions: add, sub, multi, div
-     * 4. "let" operator
-     * List also includes following entries
-     * 5. Parenthesis open, "(" and close, ")"
-     * 6. Comma ","
-     *
-     * Assumption: Any characters besides the ones mentioned above are considered invalid.
-     * Assumption: Any arbitrary expression, variable name or variable value are not surrounded by parenthesis
-     * Example: (a), (5), (add(5,5))
-     * Assumption: The program only works with () parenthesis and no other parenthesis
+     * Engine name in metrics and Java Flight Recorder events
+     */
+    private static final String ENGINE_NAME = "Main";
+
+    static {
+        //Logging is OFF, without appender, until a level is set
+        LoggingConfiguration.configureDefault();
+    }
+
+    /**
+     * Executes compiled expression list
      */
-    private ArrayList<String> inputExpressionList = new ArrayList<String>();
+    private final Interpreter interpreter = new Interpreter();
+
     /**
-     * The input expression stack
+     * Executes compiled expression in exact mode
      */
-    private Stack<String> inputExpressionStack = new Stack<String>();
+    private final ExactInterpreter exactInterpreter = new ExactInterpreter();
+
+    /**
+     * Exact mode: long arithmetic promoted to BigInteger on overflow, instead of wrapping int arithmetic
+     */
+    private final boolean isExact;
+
+    /**
+     * Compiled expressions by normalized input expression, null if caching is disabled
+     */
+    private final ExpressionCache<Program> expressionCache;
+
+    /**
+     * Per-phase metrics, null if metrics are disabled
+     */
+    private final PhaseMetrics phaseMetrics;
+
+    /**
+     * Compiles input expression on expression cache miss
+     */
+    private final ExpressionCache.Loader<Program> programLoader = new ExpressionCache.Loader<Program>() {
+        @Override
+        public Program load(String inputExprStr) throws CalculatorException {
+            return compileInputExpression(inputExprStr);
+        }
+    };
 
     /**
      * Default Constructor
      */
     public Main(){
-        LOGGER.setLevel(DEFAULT_LEVEL);
+        this(null);
+    }
+
+    /**
+     * Constructor with expression cache
+     * @param expressionCache cache of compiled expressions, null to disable caching
+     */
+    public Main(ExpressionCache<Program> expressionCache){
+        this(expressionCache, false);
+    }
+
+    /**
+     * Constructor with expression cache and arithmetic mode
+     * @param expressionCache cache of compiled expressions, null to disable caching
+     * @param isExact true for exact arithmetic, false for int arithmetic wrapping on overflow
+     */
+    public Main(ExpressionCache<Program> expressionCache, boolean isExact){
+        this(expressionCache, isExact, null);
     }
 
-    public static void main(String[] args) throws CalculatorException {
-        LOGGER.debug("In main method, printing arguments..." + Arrays.toString(args));
-        //Initialise main
-        Main main = new Main();
+    /**
+     * Constructor with expression cache, arithmetic mode and metrics
+     * @param expressionCache cache of compiled expressions, null to disable caching
+     * @param isExact true for exact arithmetic, false for int arithmetic wrapping on overflow
+     * @param phaseMetrics metrics recording each calculation, null to disable metrics
+     */
+    public Main(ExpressionCache<Program> expressionCache, boolean isExact, PhaseMetrics phaseMetrics){
+        this.expressionCache = expressionCache;
+        this.isExact = isExact;
+        this.phaseMetrics = phaseMetrics;
+    }
+
+    public static void main(String[] args) throws CalculatorException, IOException {
+        if(LOGGER.isDebugEnabled())
+            LOGGER.debug("In main method, printing arguments..." + Arrays.toString(args));
+        //Extract input values and options from command line args
+        CommandLineOptions options = new CommandLineOptions(args);
+
+        //Initialise main, with expression cache if enabled by --cache=maxEntries, always in server mode
+        ExpressionCache<Program> expressionCache = ExpressionCache.fromCommandLineOptions(options);
+        if(expressionCache == null && options.hasOption(CalculatorServer.SERVE_OPTION))
+            expressionCache = new ExpressionCache<Program>(CalculatorServer.DEFAULT_CACHE_ENTRIES);
+        //Exact arithmetic if enabled by --exact, metrics over JMX and periodic dump if enabled by --metrics[=seconds]
+        final PhaseMetrics phaseMetrics = PhaseMetrics.fromCommandLineOptions(options, ENGINE_NAME);
+        Main main = new Main(expressionCache, options.hasOption(ExactInterpreter.EXACT_OPTION), phaseMetrics);
+
+        //Server mode: serve expressions on localhost port until stopped; optional input : Logger Level
+        if(options.hasOption(CalculatorServer.SERVE_OPTION)) {
+            int port = CalculatorServer.getPort(options);
+            if(port == -1)
+                throw new IllegalArgumentException("Invalid or missing port for --" + CalculatorServer.SERVE_OPTION);
+            boolean isPortArgument = Helper.isNullOrEmptyString(options.getOption(CalculatorServer.SERVE_OPTION));
+            main.setLoggingLevel(options.getArgument(isPortArgument ? 1 : 0));
+            final CalculatorServer server = new CalculatorServer(main::calculate, port);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    server.close();
+                } catch (IOException e) {
+                    LOGGER.error(e.getMessage());
+                }
+                if(phaseMetrics != null)
+                    phaseMetrics.close();
+            }));
+            System.out.println("Listening on localhost:" + server.getPort());
+            try {
+                server.awaitTermination();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
+
+        //Batch mode: expressions from stdin or file, one per line, in parallel with --parallelism=N; optional input : Logger Level
+        if(options.hasOption(BatchProcessor.BATCH_OPTION)) {
+            main.setLoggingLevel(options.getArgument(0));
+            String inputFile = options.getOption(BatchProcessor.BATCH_OPTION);
+            //Memory-mapped reader for --batch=file --mmap, compiled engine semantics, int arithmetic only
+            if(options.hasOption(MappedFileProcessor.MMAP_OPTION) && !main.isExact && !Helper.isNullOrEmptyString(inputFile)) {
+                //Lines do not go through the engine, so no phase is recorded, but the dump is stopped below as well
+                MappedFileProcessor mappedFileProcessor = new MappedFileProcessor(BatchProcessor.getParallelism(options));
+                mappedFileProcessor.process(inputFile, System.out);
+                if(LOGGER.isInfoEnabled())
+                    LOGGER.info("Batch complete with " + mappedFileProcessor.getLineCount() + " lines, "
+                            + mappedFileProcessor.getErrorCount() + " errors.");
+            } else {
+                BatchProcessor batchProcessor = BatchProcessor.fromCommandLineOptions(main::calculate, options);
+                batchProcessor.process(inputFile);
+                if(LOGGER.isInfoEnabled())
+                    LOGGER.info("Batch complete with " + batchProcessor.getLineCount() + " lines, "
+                            + batchProcessor.getErrorCount() + " errors.");
+            }
+            if(phaseMetrics != null)
+                phaseMetrics.close();
+            return;
+        }
 
         //Check command line arguments not empty
         LOGGER.info("Validating command line args....");
-        if(args == null || args.length == 0) {
+        if(options.getArgumentCount() == 0) {
             main.throwCalculatorException(CalculatorException.INPUT_EXPRESSION_MISSING);
         }
 
-        //Extract input values from command line args
-        String inputExprStr = null;
-        String inputLoggerLevel = null;
-        for(int i = 0; i < args.length; i++){
-            if(i == 0){ //Required input : Expression to calculate
-                inputExprStr = args[i];
-            }
-            if(i == 1) { //Optional input : Logger Level
-                inputLoggerLevel = args[i];
-            }
-        }
+        //Required input : Expression to calculate
+        String inputExprStr = options.getArgument(0);
+        //Optional input : Logger Level
+        String inputLoggerLevel = options.getArgument(1);
 
         LOGGER.info("Setting logging level....");
         //Set Logger Verbose Level
@@ -85,12 +223,20 @@ public class Main {
 
         LOGGER.info("Computing input expression....");
         //Calculate expression
-        String outputResult = main.calculate(inputExprStr);
+        String outputResult;
+        try {
+            outputResult = main.calculate(inputExprStr);
+        } finally {
+            if(phaseMetrics != null)
+                phaseMetrics.close();
+        }
         if(Helper.isNullOrEmptyString(outputResult) || !Helper.isInteger(outputResult))
             main.throwCalculatorException(CalculatorException.ERROR_ENCOUNTERED_IN_CALCULATION);
 
-        LOGGER.debug("In main method, computing complete with result:" + outputResult + ".");
-        LOGGER.info("Computing complete with result:" + outputResult + ".");
+        if(LOGGER.isDebugEnabled())
+            LOGGER.debug("In main method, computing complete with result:" + outputResult + ".");
+        if(LOGGER.isInfoEnabled())
+            LOGGER.info("Computing complete with result:" + outputResult + ".");
         //Print output to console
         System.out.println(outputResult);
     }
@@ -100,33 +246,10 @@ public class Main {
      * @param inputLoggerLevel
      */
     public void setLoggingLevel(String inputLoggerLevel){
-        Level logLevel = DEFAULT_LEVEL;
-        //Convert string logger level to org.apache.log4j.Level
-        if(!Helper.isNullOrEmptyString(inputLoggerLevel)) {
-            String s = inputLoggerLevel.toUpperCase();
-            logLevel = s.equals("DEBUG") ? Level.DEBUG :(s.equals("INFO") ? Level.INFO :( s.equals("ERROR") ? Level.ERROR :DEFAULT_LEVEL));
-        }
-
-        Logger.getRootLogger().getLoggerRepository().resetConfiguration();
-
-        ConsoleAppender console = new ConsoleAppender(); //create appender
-        //configure the appender
-        String PATTERN = "%d [%p|%c|%C{1}] %m%n";
-        console.setLayout(new PatternLayout(PATTERN));
-        console.setThreshold(logLevel);
-        console.activateOptions();
-        Logger.getRootLogger().addAppender(console);
-
-        FileAppender fa = new FileAppender();
-        fa.setName("FileLogger");
-        fa.setFile("calculator.log");
-        fa.setLayout(new PatternLayout("%d %-5p [%c{1}] %m%n"));
-        fa.setThreshold(logLevel);
-        fa.setAppend(true);
-        fa.activateOptions();
-        Logger.getRootLogger().addAppender(fa);
-
-        LOGGER.debug("Setting log level..." + logLevel);
+        //Configured once per level: no reset of log4j nor new log file for a level already in effect
+        LoggingConfiguration.configure(inputLoggerLevel);
+        if(LOGGER.isDebugEnabled())
+            LOGGER.debug("Setting log level..." + LoggingConfiguration.getConfiguredLevel());
     }
 
     /**
@@ -135,27 +258,157 @@ public class Main {
      * @return
      */
     public String calculate(String inputExprStr) throws CalculatorException {
-        LOGGER.debug("In calculate method, printing argument..." + inputExprStr);
+        if(phaseMetrics == null)
+            return calculateExpression(inputExprStr, PhaseMetrics.NOT_SAMPLED);
+        long startTime = phaseMetrics.start();
+        try {
+            return calculateExpression(inputExprStr, startTime);
+        } catch (CalculatorException e) {
+            phaseMetrics.recordError(e);
+            throw e;
+        } catch (ArithmeticException e) {
+            phaseMetrics.recordError(e);
+            throw e;
+        } finally {
+            phaseMetrics.recordCalculation(startTime, inputExprStr == null ? 0 : inputExprStr.length());
+        }
+    }
+
+    /**
+     * Function to evaluate input expression, recording its phases from startTime
+     * @param inputExprStr
+     * @param startTime start of the calculation, PhaseMetrics.NOT_SAMPLED if not timed
+     * @return
+     */
+    private String calculateExpression(String inputExprStr, long startTime) throws CalculatorException {
+        if(LOGGER.isDebugEnabled())
+            LOGGER.debug("In calculate method, printing argument..." + inputExprStr);
         String result = null;
 
         //Step 1: Check expression input string is valid
         if(isValidInputExprString(inputExprStr)) {
-            //Step 2: Convert inputExpression String to ArrayList<String>
-            buildInputExpressionList(inputExprStr);
+            recordPhase(PhaseMetrics.Phase.VALIDATE, startTime);
+            //Step 2 to 4: Compile input expression, or get it from expression cache
+            Program program = expressionCache == null ? compileInputExpression(inputExprStr)
+                    : expressionCache.get(inputExprStr, programLoader);
+
+            //Step 5: Execute compiled arithmetic functions on stack machine
+            long time = startPhase();
+            EvaluateEvent evaluateEvent = new EvaluateEvent();
+            evaluateEvent.begin();
+            try {
+                result = isExact ? String.valueOf(exactInterpreter.execute(program)) : String.valueOf(interpreter.execute(program));
+            } catch (ArithmeticException e) {
+                evaluateEvent.commit(ENGINE_NAME, inputExprStr, e);
+                throw e;
+            }
+            evaluateEvent.commit(ENGINE_NAME, inputExprStr, null);
+            recordPhase(PhaseMetrics.Phase.EVALUATE, time);
+        }
+
+        if(LOGGER.isDebugEnabled())
+            LOGGER.debug("In calculate method, printing result..." + result);
+        return result;
+    }
 
-            //Step 3: Evaluate let Operator in inputExpressionList using Stack
-            if(inputExpressionList != null && inputExpressionList.size() > 0)
-                processLetOperatorInInputExpressionList();
 
-            //Step 4: Evaluate arithmetic functions in inputExpressionList using stack
-            if(inputExpressionList != null && inputExpressionList.size() > 0)
-                result = processArithmeticFunctionInInputExpressionList();
+    /**
+     * Method to compile input expression to a Program
+     * @param inputExprStr
+     * @return
+     * @throws CalculatorException
+     */
+    private Program compileInputExpression(String inputExprStr) throws CalculatorException {
+        if(isExact)
+            return compileExactInputExpression(inputExprStr);
+
+        //Step 2: Convert inputExpression String to ArrayList<String>
+        long time = startPhase();
+        ExpressionEvent event = new ParseEvent();
+        event.begin();
+        try {
+            List<String> inputExpressionList = buildInputExpressionList(inputExprStr);
+            event.commit(ENGINE_NAME, inputExprStr, null);
+            time = recordPhase(PhaseMetrics.Phase.TOKENIZE, time);
+
+            //Step 3: Evaluate let Operator in inputExpressionList using a stack of values per variable name
+            event = new LetResolutionEvent();
+            event.begin();
+            List<String> resultExpressionList = processLetOperatorInInputExpressionList(inputExpressionList);
+            event.commit(ENGINE_NAME, inputExprStr, null);
+            time = recordPhase(PhaseMetrics.Phase.LET, time);
+            if(phaseMetrics != null)
+                phaseMetrics.recordLetExpansion(inputExpressionList.size(), resultExpressionList.size());
+
+            //Step 4: Compile arithmetic functions in inputExpressionList for stack machine
+            event = new CompileEvent();
+            event.begin();
+            Program program = compileExpressionList(resultExpressionList);
+            event.commit(ENGINE_NAME, inputExprStr, null);
+            recordPhase(PhaseMetrics.Phase.COMPILE, time);
+            return program;
+        } catch (CalculatorException | ArithmeticException e) {
+            //Event of the phase that failed; "let" values are evaluated, so may divide by zero
+            event.commit(ENGINE_NAME, inputExprStr, e);
+            throw e;
         }
+    }
 
-        LOGGER.debug("In calculate method, printing result..." + result);
-        return result;
+    /**
+     * Function to compile input expression through the expression tree for exact mode
+     * Literals outside int range are kept in the program constant pool.
+     * @param inputExprStr
+     * @return
+     * @throws CalculatorException
+     */
+    private Program compileExactInputExpression(String inputExprStr) throws CalculatorException {
+        ExpressionTree expressionTree = null;
+        long time = startPhase();
+        ParseEvent parseEvent = new ParseEvent();
+        parseEvent.begin();
+        try {
+            expressionTree = new ExpressionParser(inputExprStr, true).parse();
+        } catch (CalculatorException e) {
+            LOGGER.error(e.getMessage());
+            parseEvent.commit(ENGINE_NAME, inputExprStr, e);
+            throw e;
+        }
+        parseEvent.commit(ENGINE_NAME, inputExprStr, null);
+        if(expressionTree.isLeafNode())
+            throwCalculatorException(CalculatorException.INPUT_EXPRESSION_INVALID);
+        time = recordPhase(PhaseMetrics.Phase.TOKENIZE, time);
+        //"let" is resolved by the compiler, with slots
+        CompileEvent compileEvent = new CompileEvent();
+        compileEvent.begin();
+        Program program = null;
+        try {
+            program = new Compiler(true).compile(expressionTree);
+        } catch (CalculatorException e) {
+            compileEvent.commit(ENGINE_NAME, inputExprStr, e);
+            throw e;
+        }
+        compileEvent.commit(ENGINE_NAME, inputExprStr, null);
+        recordPhase(PhaseMetrics.Phase.COMPILE, time);
+        return program;
     }
 
+    /**
+     * Function to get start time of a chain of phases
+     * @return start time, PhaseMetrics.NOT_SAMPLED if metrics are disabled or the chain is not sampled
+     */
+    private long startPhase() {
+        return phaseMetrics == null ? PhaseMetrics.NOT_SAMPLED : phaseMetrics.start();
+    }
+
+    /**
+     * Function to record phase that started at startTime, if metrics are enabled
+     * @param phase
+     * @param startTime
+     * @return start time of the next phase
+     */
+    private long recordPhase(PhaseMetrics.Phase phase, long startTime) {
+        return phaseMetrics == null ? PhaseMetrics.NOT_SAMPLED : phaseMetrics.record(phase, startTime);
+    }
 
     /**
      * Validates input string from command line argument.
@@ -163,7 +416,8 @@ public class Main {
      * @return
      */
     private boolean isValidInputExprString(String inputExprStr) throws CalculatorException {
-        LOGGER.debug("In isValidInputExprString method...");
+        if(LOGGER.isDebugEnabled())
+            LOGGER.debug("In isValidInputExprString method...");
         //1. Check not empty / null
         if(Helper.isNullOrEmptyString(inputExprStr))
             throwCalculatorException(CalculatorException.INPUT_EXPRESSION_MISSING);
@@ -174,241 +428,287 @@ public class Main {
     }
 
     /**
-     * Function that parses through input expression string
+     * Function that scans input expression string once using Lexer
      * and stores each expression and parenthesis and comma as an entry in an input expression list
+     * Expression can be one of the following:
+     * 1. Numbers : Integer (Range: Integer.MIN_VALUE to Integer.MAX_VALUE)
+     * 2. Variables : String of characters (Range: a-z, A-Z)
+     * 3. Arithmetic Functions: add, sub, multi, div
+     * 4. "let" operator
+     * List also includes following entries
+     * 5. Parenthesis open, "(" and close, ")"
+     * 6. Comma ","
+     *
+     * Assumption: Any characters besides the ones mentioned above are considered invalid.
+     * Assumption: Any arbitrary expression, variable name or variable value are not surrounded by parenthesis
+     * Example: (a), (5), (add(5,5))
+     * Assumption: The program only works with () parenthesis and no other parenthesis
      * @param inputExprStr
+     * @return
      */
-    private void buildInputExpressionList(String inputExprStr) throws CalculatorException {
-        LOGGER.debug("In buildInputExpressionList method, printing arguments..." + inputExprStr);
-        //Remove all whitespaces from input expression
-        inputExprStr = inputExprStr.toLowerCase().replaceAll("\\s","");
-
-        int exprLength = inputExprStr.length();
-        StringBuilder arbExpression = new StringBuilder();
+    private List<String> buildInputExpressionList(String inputExprStr) throws CalculatorException {
+        if(LOGGER.isDebugEnabled())
+            LOGGER.debug("In buildInputExpressionList method, printing arguments..." + inputExprStr);
+        List<String> inputExpressionList = new ArrayList<String>();
+        Lexer lexer = new Lexer(inputExprStr);
         int parenthesisCount = 0;
-        for (int i = 0; i < exprLength ; i++) {
-            char exprChar = inputExprStr.charAt(i);
-            String tempString = String.valueOf(exprChar);
-            if (ArithmeticSymbols.isParenthesisOrComma(exprChar)) {
-                String arbExpressionStr = arbExpression.toString();
-                if (!Helper.isNullOrEmptyString(arbExpressionStr)) {
-                    if(!isValidArbitraryExpression(arbExpressionStr)){
-                        throwCalculatorException(CalculatorException.INPUT_EXPRESSION_INVALID);
-                    }
-                    inputExpressionList.add(arbExpressionStr);
-                    arbExpression.delete(0, arbExpression.length());
-                }
-                parenthesisCount = updateParenthesesCount(tempString, parenthesisCount);
-                inputExpressionList.add(tempString);
-            } else if (Helper.isLetterOrDigit(exprChar) || ArithmeticSymbols.isNegativeSign(tempString)) {
-                arbExpression.append(exprChar);
-            } else {
-                throwCalculatorException(CalculatorException.INPUT_EXPRESSION_INVALID);
-            }
+        for (TokenKind kind = lexer.next(); kind != TokenKind.END; kind = lexer.next()) {
+            if (kind == TokenKind.OPEN_PARENTHESIS)
+                parenthesisCount++;
+            else if (kind == TokenKind.CLOSE_PARENTHESIS)
+                parenthesisCount--;
+            inputExpressionList.add(lexer.getText());
         }
         if(parenthesisCount != 0)
             throwCalculatorException(CalculatorException.PARENTHESIS_MISMATCH);
-        LOGGER.debug("In buildInputExpressionList method, printing result..." + inputExpressionList.toString());
+        if(LOGGER.isDebugEnabled())
+            LOGGER.debug("In buildInputExpressionList method, printing result..." + inputExpressionList.toString());
+        return inputExpressionList;
     }
 
     /**
-     * Function to check ValueExpression is valid
-     * Expression can be valid only if it is one of the following:
-     * 1. Numbers : Integer (Range: Integer.MIN_VALUE to Integer.MAX_VALUE)
-     * 2. Variables : String of characters (Range: a-z, A-Z)
-     * 3. Arithmetic Functions: add, sub, multi, div
-     * 4. "let" operator
-     * Examples of invalid combinations: 5a, a5
-     * @param arbExpression
+     * Method to evaluate "let" operator
+     * Scans inputExpressionList once from left to right with a stack of values per variable name, innermost last,
+     * so that each variable is replaced with one lookup whatever the "let" nesting depth:
+     * 1. The value of each "let" is evaluated once, when its second comma is reached, and bound to the variable name
+     * 2. Variables in the expression are replaced with the value of the innermost binding
+     * 3. The "let" operator, its parenthesis, variable name and value are dropped; only its expression is kept
+     * Resulting list contains only arithmetic functions, integers, parenthesis and comma.
+     * @param inputExpressionList
      * @return
+     * @throws calculator.exception.CalculatorException
      */
-    private boolean isValidArbitraryExpression(String arbExpression) {
-        LOGGER.debug("In isValidArbitraryExpression method, printing argument..." + arbExpression);
-        //Check if arbitrary expression is arithmetic function
-        if(ArithmeticSymbols.isArithmeticFunction(arbExpression))
-            return true;
-        else if(ArithmeticSymbols.isLetOperator(arbExpression))
-            return true;
-        else {
-            //Check if arbitrary expression contains digit [0-9]
-            boolean containsDigit = arbExpression.matches(".*\\d+.*");
-            if (containsDigit) {
-                //If contains true, then check arbitrary expression is a valid integer
-                //Example: 55 is valid
-                //Example: 5a or a5 is invalid
-                return Helper.isInteger(arbExpression);
+    private List<String> processLetOperatorInInputExpressionList(List<String> inputExpressionList) throws CalculatorException {
+        if(LOGGER.isDebugEnabled())
+            LOGGER.debug("In processLetOperatorInInputExpressionList method, printing inputExpressionList..." + inputExpressionList.toString());
+        ArrayList<String> resultExpressionList = new ArrayList<String>(inputExpressionList.size());
+        Deque<LetScope> letScopes = new ArrayDeque<LetScope>();
+        Map<String, VariableBinding> bindings = new HashMap<String, VariableBinding>();
+        int parenthesisCount = 0;
+        for (int i = 0; i < inputExpressionList.size(); i++) {
+            String currentExpression = inputExpressionList.get(i);
+            LetScope letScope = letScopes.peek();
+            if (ArithmeticSymbols.isLetOperator(currentExpression)) {
+                //let ( variable ,
+                if (i + 3 >= inputExpressionList.size()
+                        || !ArithmeticSymbols.isOpenParenthesis(inputExpressionList.get(i + 1))
+                        || !isVariableName(inputExpressionList.get(i + 2))
+                        || !ArithmeticSymbols.isComma(inputExpressionList.get(i + 3)))
+                    throwCalculatorException(CalculatorException.INVALID_ARGUMENTS);
+                parenthesisCount++;
+                letScopes.push(new LetScope(inputExpressionList.get(i + 2), parenthesisCount, resultExpressionList.size()));
+                i += 3;
+            } else if (letScope != null && letScope.parenthesisCount == parenthesisCount
+                    && ArithmeticSymbols.isComma(currentExpression)) {
+                //let ( variable , value ,
+                if (letScope.isValueBound)
+                    throwCalculatorException(CalculatorException.INVALID_ARGUMENTS);
+                List<String> valueExpressionList = resultExpressionList.subList(letScope.valueStartIndex, resultExpressionList.size());
+                int value = parseInteger(processArithmeticFunctionInExpressionList(valueExpressionList));
+                VariableBinding binding = bindings.get(letScope.variableName);
+                if (binding == null) {
+                    binding = new VariableBinding();
+                    bindings.put(letScope.variableName, binding);
+                }
+                binding.push(value);
+                letScope.isValueBound = true;
+            } else if (letScope != null && letScope.parenthesisCount == parenthesisCount
+                    && ArithmeticSymbols.isCloseParenthesis(currentExpression)) {
+                //let ( variable , value , expression )
+                if (!letScope.isValueBound || resultExpressionList.size() == letScope.valueStartIndex)
+                    throwCalculatorException(CalculatorException.INVALID_ARGUMENTS);
+                bindings.get(letScope.variableName).size--;
+                letScopes.pop();
+                parenthesisCount--;
             } else {
-                //Example: aaa is valid
-                //If contains false, then arbitrary expression valid string
-                return true;
+                if (ArithmeticSymbols.isOpenParenthesis(currentExpression))
+                    parenthesisCount++;
+                else if (ArithmeticSymbols.isCloseParenthesis(currentExpression))
+                    parenthesisCount--;
+                else if (isVariableName(currentExpression)) {
+                    VariableBinding binding = bindings.get(currentExpression);
+                    if (binding != null && binding.size > 0)
+                        currentExpression = String.valueOf(binding.values[binding.size - 1]);
+                }
+                resultExpressionList.add(currentExpression);
             }
         }
+        if (!letScopes.isEmpty())
+            throwCalculatorException(CalculatorException.PARENTHESIS_MISMATCH);
+        if(LOGGER.isDebugEnabled())
+            LOGGER.debug("In processLetOperatorInInputExpressionList method, printing result expression list..." + resultExpressionList.toString());
+        return resultExpressionList;
     }
 
     /**
-     * Method to evaluate "let" operator
+     * Check if expression is a variable name, i.e. starts with a letter and is not a function or "let" operator
+     * @param expression
+     * @return
+     */
+    private boolean isVariableName(String expression) {
+        return Helper.isLetter(expression.charAt(0))
+                && !ArithmeticSymbols.isArithmeticFunction(expression)
+                && !ArithmeticSymbols.isLetOperator(expression);
+    }
+
+    /**
+     * Parse integer result of an evaluated expression
+     * @param expression
+     * @return
      * @throws calculator.exception.CalculatorException
      */
-    private void processLetOperatorInInputExpressionList() throws CalculatorException {
-        LOGGER.debug("In processLetOperatorInInputExpressionList method, printing inputExpressionList..." + inputExpressionList.toString());
-        while(inputExpressionList.contains(ArithmeticSymbols.LET_OPERATOR.toString())) {
-            for (int i = (inputExpressionList.size() - 1); i >= 0; i--) {
-                String currentExpression = inputExpressionList.remove(i);
-                if (ArithmeticSymbols.isLetOperator(currentExpression)) {
-                    String letOpeningBrace = inputExpressionStack.pop();
-                    if(!ArithmeticSymbols.isOpenParenthesis(letOpeningBrace))
-                        throwCalculatorException(CalculatorException.INVALID_ARGUMENTS);
-                    String variableName = inputExpressionStack.pop();
-                    String letCommaSeparator1 = inputExpressionStack.pop();
-                    if(!ArithmeticSymbols.isComma(letCommaSeparator1))
-                        throwCalculatorException(CalculatorException.INVALID_ARGUMENTS);
-                    List<String> variableExpression = getExpressionListFromStackWithParenthesis();
-                    String letCommaSeparator2 = inputExpressionStack.pop();
-                    if(!ArithmeticSymbols.isComma(letCommaSeparator2))
-                        throwCalculatorException(CalculatorException.INVALID_ARGUMENTS);
-                    List<String> expressionToReplace = getExpressionListFromStackWithParenthesis();
-                    String letClosingBrace = inputExpressionStack.pop();
-                    if(!ArithmeticSymbols.isCloseParenthesis(letClosingBrace))
-                        throwCalculatorException(CalculatorException.INVALID_ARGUMENTS);
-                    while (expressionToReplace.indexOf(variableName) != -1) {
-                        int variableNameIndex = expressionToReplace.indexOf(variableName);
-                        expressionToReplace.remove(variableNameIndex);
-                        expressionToReplace.addAll(variableNameIndex, variableExpression);
-                    }
-                    inputExpressionList.addAll(expressionToReplace);
-                    while (!inputExpressionStack.isEmpty()) {
-                        inputExpressionList.add(inputExpressionStack.pop());
-                    }
-                    break;
-                } else {
-                    inputExpressionStack.push(currentExpression);
-                }
-            }
+    private int parseInteger(String expression) throws CalculatorException {
+        try {
+            return Integer.parseInt(expression);
+        } catch (NumberFormatException e) {
+            LOGGER.error(e.getMessage());
+            throwCalculatorException(CalculatorException.INVALID_ARGUMENTS);
         }
-        if(inputExpressionList == null || inputExpressionList.isEmpty()) {
-            inputExpressionList = new ArrayList<String>();
-            while(!inputExpressionStack.isEmpty()){
-                inputExpressionList.add(inputExpressionStack.pop());
-            }
+        return 0;
+    }
+
+    /**
+     * Values bound to one variable name by the enclosing "let" operators, innermost last
+     */
+    private static class VariableBinding {
+        private int[] values = new int[2];
+        private int size;
+
+        private void push(int value) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+    }
+
+    /**
+     * State of a "let" operator while scanning inputExpressionList
+     */
+    private static class LetScope {
+        private final String variableName;
+        //Parenthesis count inside the "let" parenthesis
+        private final int parenthesisCount;
+        //Index in resulting list where value expression starts
+        private final int valueStartIndex;
+        private boolean isValueBound;
+
+        private LetScope(String variableName, int parenthesisCount, int valueStartIndex) {
+            this.variableName = variableName;
+            this.parenthesisCount = parenthesisCount;
+            this.valueStartIndex = valueStartIndex;
         }
-        LOGGER.debug("In processLetOperatorInInputExpressionList method, printing result inputExpressionList..." + inputExpressionList.toString());
     }
 
     /**
-     * Method to pop nested expression from Stack with parenthesis
+     * Method to evaluate Arithmetic Function in given expression list
+     * Expression list is compiled to a Program and executed by the Interpreter.
+     * Entries of expressionList are consumed.
+     * @param expressionList
      * @return
      * @throws calculator.exception.CalculatorException
      */
-    private List getExpressionListFromStackWithParenthesis() throws CalculatorException {
-        LOGGER.debug("In getExpressionListFromStackWithParenthesis method...");
-        List<String> expressionList = new ArrayList<String>();
-        String tempExpression = inputExpressionStack.pop();
-        expressionList.add(tempExpression);
-        if (ArithmeticSymbols.isArithmeticFunction(tempExpression) || ArithmeticSymbols.isLetOperator(tempExpression)) {
-            expressionList.add(inputExpressionStack.pop());
-            int openBracketCount = 1;
-            while (openBracketCount != 0) {
-                if (inputExpressionStack.isEmpty() && openBracketCount != 0) {
-                    throwCalculatorException(CalculatorException.PARENTHESIS_MISMATCH);
-                }
-                String temp = inputExpressionStack.pop();
-                openBracketCount = updateParenthesesCount(temp, openBracketCount);
-                expressionList.add(temp);
-            }
-        }
-        LOGGER.debug("In getExpressionListFromStackWithParenthesis method, printing result..." + expressionList.toString());
-        return expressionList;
+    private String processArithmeticFunctionInExpressionList(List<String> expressionList) throws CalculatorException {
+        if(LOGGER.isDebugEnabled())
+            LOGGER.debug("In processArithmeticFunctionInExpressionList method, printing expressionList..." + expressionList.toString());
+        Program program = compileExpressionList(expressionList);
+        expressionList.clear();
+        String result = String.valueOf(interpreter.execute(program));
+        if(LOGGER.isDebugEnabled())
+            LOGGER.debug("In processArithmeticFunctionInExpressionList method, printing result..." + result);
+        return result;
     }
 
     /**
-     * Method to evaluate Arithmetic Function
+     * Method to compile expression list of arithmetic functions and integers to a Program
+     * Scans the list once from left to right; integers are pushed as they are read
+     * and each arithmetic function is emitted after each of its operands but the first.
+     * Example: add ( 1 , multi ( 2 , 3 ) )  ->  PUSH 1, PUSH 2, PUSH 3, MULTI, ADD
+     * Example: add ( 1 , add ( 2 , 3 ) , 4 )  ->  PUSH 1, PUSH 2, ADD, PUSH 3, ADD, PUSH 4, ADD
+     * @param expressionList
      * @return
      * @throws calculator.exception.CalculatorException
      */
-    private String processArithmeticFunctionInInputExpressionList() throws CalculatorException {
-        LOGGER.debug("In processArithmeticFunctionInInputExpressionList method, printing inputExpressionList..." + inputExpressionList.toString());
-        for(int i = (inputExpressionList.size()-1); i >= 0 ; i-- ){
-            String currentExpression = inputExpressionList.remove(i);
-            if(ArithmeticSymbols.isArithmeticFunction(currentExpression)) {
-                String arithFuncOpeningBrace = inputExpressionStack.pop();
-                if(!ArithmeticSymbols.isOpenParenthesis(arithFuncOpeningBrace))
-                    throwCalculatorException(CalculatorException.INVALID_ARGUMENTS);
-                Integer integer1 = null;
-                try {
-                    integer1 = Integer.parseInt(inputExpressionStack.pop());
-                }catch(NumberFormatException e){
-                    LOGGER.error(e.getMessage());
+    private Program compileExpressionList(List<String> expressionList) throws CalculatorException {
+        if(LOGGER.isDebugEnabled())
+            LOGGER.debug("In compileExpressionList method...");
+        ProgramBuilder programBuilder = new ProgramBuilder();
+        //Open arithmetic functions, innermost first
+        Deque<ArithmeticFunctionScope> functionScopes = new ArrayDeque<ArithmeticFunctionScope>();
+        boolean isOperandExpected = true;
+        for (int i = 0; i < expressionList.size(); i++) {
+            String currentExpression = expressionList.get(i);
+            ArithmeticSymbols arithmeticFunction = ArithmeticSymbols.getArithmeticFunction(currentExpression);
+            ArithmeticFunctionScope functionScope = functionScopes.peek();
+            if (arithmeticFunction != null) {
+                //function (
+                if (!isOperandExpected || i + 1 >= expressionList.size()
+                        || !ArithmeticSymbols.isOpenParenthesis(expressionList.get(i + 1)))
                     throwCalculatorException(CalculatorException.INVALID_ARGUMENTS);
-                }
-                String arithFuncCommaSeparator = inputExpressionStack.pop();
-                if(!ArithmeticSymbols.isComma(arithFuncCommaSeparator))
+                //add or multi called after the first operand of the same function is folded into its value
+                boolean isFolded = functionScope != null && functionScope.arithmeticFunction == arithmeticFunction
+                        && arithmeticFunction.isVariadic() && functionScope.operandCount > 0;
+                functionScopes.push(new ArithmeticFunctionScope(arithmeticFunction, isFolded));
+                i++;
+            } else if (ArithmeticSymbols.isComma(currentExpression)) {
+                //function ( operand1 , [operand2 , ... for add and multi]
+                if (isOperandExpected || functionScope == null || functionScope.operandCount == 0
+                        || (functionScope.operandCount >= 2 && !functionScope.arithmeticFunction.isVariadic()))
                     throwCalculatorException(CalculatorException.INVALID_ARGUMENTS);
-                Integer integer2 = null;
-                try {
-                    integer2 = Integer.parseInt(inputExpressionStack.pop());
-                }catch(NumberFormatException e){
-                    LOGGER.error(e.getMessage());
-                    throwCalculatorException(CalculatorException.INVALID_ARGUMENTS);
-                }
-                String arithFuncClosingBrace = inputExpressionStack.pop();
-                if(!ArithmeticSymbols.isCloseParenthesis(arithFuncClosingBrace))
+                isOperandExpected = true;
+            } else if (ArithmeticSymbols.isCloseParenthesis(currentExpression)) {
+                //function ( operand1 , operand2 [, ...] )
+                if (isOperandExpected || functionScope == null || functionScope.operandCount < 2)
                     throwCalculatorException(CalculatorException.INVALID_ARGUMENTS);
-                Integer result = null;
-                result = compute(currentExpression, integer1, integer2);
-                if(result == null)
-                    throwCalculatorException(CalculatorException.ERROR_ENCOUNTERED_IN_CALCULATION);
-                inputExpressionStack.push(result.toString());
+                functionScopes.pop();
+                if (functionScope.isFolded)
+                    functionScopes.peek().operandCount++;
+                else
+                    countOperand(functionScopes, programBuilder);
             } else {
-                inputExpressionStack.push(currentExpression);
+                //operand
+                if (!isOperandExpected)
+                    throwCalculatorException(CalculatorException.INVALID_ARGUMENTS);
+                programBuilder.emitPush(parseInteger(currentExpression));
+                isOperandExpected = false;
+                countOperand(functionScopes, programBuilder);
             }
         }
-        String result = null;
-        if(inputExpressionStack.size() == 1) {
-            result = inputExpressionStack.pop();
-        }
-        LOGGER.debug("In processArithmeticFunctionInInputExpressionList method, printing result..." + result);
-        return result;
+        if (!functionScopes.isEmpty())
+            throwCalculatorException(CalculatorException.PARENTHESIS_MISMATCH);
+        if (programBuilder.getStackDepth() != 1)
+            throwCalculatorException(CalculatorException.INVALID_ARGUMENTS);
+        return programBuilder.build();
     }
 
     /**
-     * Compute  result for Arithmetic Function given input Arguments
-     * @param arithmeticFunctionName
-     * @param integerOp1
-     * @param integerOp2
-     * @return
+     * Method to count operand read for the innermost open arithmetic function
+     * Emits the function once its value is on the stack below the operand: functions are emitted as a
+     * left fold, add(1, 2, 3) -> PUSH 1, PUSH 2, ADD, PUSH 3, ADD
+     * @param functionScopes
+     * @param programBuilder
      */
-    private Integer compute(String arithmeticFunctionName, Integer integerOp1, Integer integerOp2 ){
-        LOGGER.debug("In compute method, printing args... function name:" + arithmeticFunctionName + ", intergerOperand1: " + integerOp1 + ", integerOperand2: "+ integerOp2);
-        Integer result = null;
-        if(ArithmeticSymbols.ADD_FUNCTION.equalsName(arithmeticFunctionName)){
-            result = integerOp1 + integerOp2;
-        } else if(ArithmeticSymbols.SUB_FUNCTION.equalsName(arithmeticFunctionName)){
-            result = integerOp1 - integerOp2;
-        } else if(ArithmeticSymbols.MULTI_FUNCTION.equalsName(arithmeticFunctionName)){
-            result = integerOp1 * integerOp2;
-        } else if(ArithmeticSymbols.DIV_FUNCTION.equalsName(arithmeticFunctionName)){
-            result = integerOp1 / integerOp2;
-        }
-        LOGGER.debug("In compute method, printing result:" + result);
-        return result;
+    private void countOperand(Deque<ArithmeticFunctionScope> functionScopes, ProgramBuilder programBuilder) {
+        ArithmeticFunctionScope functionScope = functionScopes.peek();
+        if (functionScope == null)
+            return;
+        functionScope.operandCount++;
+        if (functionScope.operandCount >= 2 || functionScope.isFolded)
+            programBuilder.emitArithmeticFunction(functionScope.arithmeticFunction);
     }
 
     /**
-     * Method to update parenthesis count
-     * If opening brace, increment count
-     * If none of the above, no change in count
-     * @param parenthesesStr
-     * @param parenthesesCount
-     * @return
+     * State of an arithmetic function while compiling expression list
      */
-    private Integer updateParenthesesCount(String parenthesesStr, Integer parenthesesCount){
-        LOGGER.debug("In updateParenthesesCount method, printing args... input string:" + parenthesesStr + ", parenthesis count: " + parenthesesCount );
-        if(ArithmeticSymbols.isOpenParenthesis(parenthesesStr))
-            parenthesesCount++;
-        if(ArithmeticSymbols.isCloseParenthesis(parenthesesStr))
-            parenthesesCount--;
-        LOGGER.debug("In updateParenthesesCount method, printing result... parenthesis count: " + parenthesesCount );
-        return parenthesesCount;
+    private static class ArithmeticFunctionScope {
+        private final ArithmeticSymbols arithmeticFunction;
+        //Operands fold into the value of the enclosing call of the same function
+        private final boolean isFolded;
+        private int operandCount;
+
+        private ArithmeticFunctionScope(ArithmeticSymbols arithmeticFunction, boolean isFolded) {
+            this.arithmeticFunction = arithmeticFunction;
+            this.isFolded = isFolded;
+        }
     }
 
     /**
@@ -1,18 +1,64 @@
 package calculator;
 
+import calculator.batch.BatchProcessor;
+import calculator.batch.MappedFileProcessor;
+import calculator.cache.ExpressionCache;
+import calculator.eval.AlgebraicSimplifier;
+import calculator.eval.ExpressionEvaluator;
+import calculator.eval.ExpressionOptimizer;
+import calculator.eval.OptimizationResult;
 import calculator.exception.CalculatorException;
+import calculator.metrics.CompileEvent;
+import calculator.metrics.EvaluateEvent;
+import calculator.metrics.ExpressionEvent;
+import calculator.metrics.LetResolutionEvent;
+import calculator.metrics.ParseEvent;
+import calculator.metrics.PhaseMetrics;
+import calculator.parser.ExpressionParser;
+import calculator.server.CalculatorServer;
 import calculator.utils.ArithmeticSymbols;
+import calculator.utils.CommandLineOptions;
 import calculator.utils.Helper;
-import org.apache.log4j.*;
-
+import calculator.utils.LoggingConfiguration;
+import calculator.vm.Compiler;
+import calculator.vm.ExactInterpreter;
+import calculator.vm.Program;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Calculator class with tree implementation
+ *
+ * Evaluation state is kept in local variables only, so one instance can be reused
+ * and shared between threads.
+ *
+ * In exact mode (--exact) results are never wrapped: the validated tree is compiled and executed
+ * on long, promoted to BigInteger on overflow, and integer literals outside int range are accepted.
+ *
+ * In single-pass mode (--single-pass) the tree is evaluated as built: its structure is validated once by the
+ * parser during construction, then it is evaluated in exactly one post-order traversal, with no separate
+ * validation walk nor optimization passes. Node-visit counters (getValidatedNodeCount, getEvaluatedNodeCount)
+ * show the work of each walk; in single-pass mode no node is validated after construction and each node is
+ * evaluated once. Exact mode compiles the tree before execution, so it ignores single-pass mode.
+ *
+ * With PhaseMetrics (--metrics), the time of each phase, input sizes and errors are recorded; both the input
+ * string and the tree count as validation, and the optimization passes, which inline "let", as "let" resolution.
+ * Java Flight Recorder events (calculator.Parse, calculator.LetResolution, calculator.Compile, calculator.Evaluate)
+ * record the same phases when they last at least their threshold.
  */
 public class MainTree {
 
+    /**
+     * Command line option selecting single-pass mode
+     */
+    public static final String SINGLE_PASS_OPTION = "single-pass";
+
     /**
      * Implementing Logging feature
      * Assumption: Default Level is OFF
@@ -21,56 +67,199 @@ public class MainTree {
      * Assumption: No exception thrown for invalid level name in command line.
      */
     private static final Logger LOGGER = Logger.getLogger(Main.class);
-    private static final Level DEFAULT_LEVEL = Level.OFF;
+
+    /**
+     * Engine name in metrics and Java Flight Recorder events
+     */
+    private static final String ENGINE_NAME = "MainTree";
+
+    static {
+        //Logging is OFF, without appender, until a level is set
+        LoggingConfiguration.configureDefault();
+    }
 
 
     /**
-     * Stores inputExpressionString as a Tree
-     * Expression can be one of the following:
-     * 1. Numbers : Integer (Range: Integer.MIN_VALUE to Integer.MAX_VALUE)
-     * 2. Variables : String of characters (Range: a-z, A-Z)
-     * 3. Arithmetic Functions: add, sub, multi, div
-     * 4. "let" operator
-     * List also includes following entries
-     * 5. Parenthesis open, "(" and close, ")"
-     * 6. Comma ","
-     *
-     * Assumption: Any characters besides the ones mentioned above are considered invalid.
-     * Assumption: Any arbitrary expression, variable name or variable value are not surrounded by parenthesis
-     * Example: (a), (5), (add(5,5))
-     * Assumption: The program only works with () parenthesis and no other parenthesis
+     * Evaluates "let" operator and arithmetic functions in the tree
+     */
+    private final ExpressionEvaluator expressionEvaluator = new ExpressionEvaluator(true);
+
+    /**
+     * Folds constant subexpressions of validated tree and simplifies algebraic identities, once per tree built
+     */
+    private final ExpressionOptimizer expressionOptimizer = new ExpressionOptimizer();
+
+    /**
+     * Simplifies algebraic identities only, in exact mode
+     */
+    private final AlgebraicSimplifier algebraicSimplifier = new AlgebraicSimplifier();
+
+    /**
+     * Compiles and executes validated tree in exact mode
      */
-    private ExpressionTree inputExpressionTree;
+    private final Compiler exactCompiler = new Compiler(true);
+    private final ExactInterpreter exactInterpreter = new ExactInterpreter();
+
+    /**
+     * Exact mode: long arithmetic promoted to BigInteger on overflow, instead of wrapping int arithmetic
+     */
+    private final boolean isExact;
+
+    /**
+     * Single-pass mode: tree validated by the parser only and evaluated without optimization passes
+     */
+    private final boolean isSinglePass;
+
+    /**
+     * Nodes visited by isValidExpressionTree
+     */
+    private final LongAdder validatedNodeCount = new LongAdder();
+
+    /**
+     * Compiled expressions by normalized input expression, null if caching is disabled
+     */
+    private final ExpressionCache<ExpressionTree> expressionCache;
+
+    /**
+     * Per-phase metrics, null if metrics are disabled
+     */
+    private final PhaseMetrics phaseMetrics;
+
+    /**
+     * Builds expression tree on expression cache miss
+     */
+    private final ExpressionCache.Loader<ExpressionTree> expressionTreeLoader = new ExpressionCache.Loader<ExpressionTree>() {
+        @Override
+        public ExpressionTree load(String inputExprStr) throws CalculatorException {
+            return buildValidExpressionTree(inputExprStr);
+        }
+    };
 
     /**
      * Default Constructor
      */
     public MainTree(){
-        LOGGER.setLevel(DEFAULT_LEVEL);
+        this(null);
+    }
+
+    /**
+     * Constructor with expression cache
+     * @param expressionCache cache of compiled expressions, null to disable caching
+     */
+    public MainTree(ExpressionCache<ExpressionTree> expressionCache){
+        this(expressionCache, false);
+    }
+
+    /**
+     * Constructor with expression cache and arithmetic mode
+     * @param expressionCache cache of compiled expressions, null to disable caching
+     * @param isExact true for exact arithmetic, false for int arithmetic wrapping on overflow
+     */
+    public MainTree(ExpressionCache<ExpressionTree> expressionCache, boolean isExact){
+        this(expressionCache, isExact, false);
+    }
+
+    /**
+     * Constructor with expression cache, arithmetic mode and evaluation mode
+     * @param expressionCache cache of compiled expressions, null to disable caching
+     * @param isExact true for exact arithmetic, false for int arithmetic wrapping on overflow
+     * @param isSinglePass true to evaluate the tree as built by the parser, in int arithmetic only
+     */
+    public MainTree(ExpressionCache<ExpressionTree> expressionCache, boolean isExact, boolean isSinglePass){
+        this(expressionCache, isExact, isSinglePass, null);
+    }
+
+    /**
+     * Constructor with expression cache, arithmetic mode, evaluation mode and metrics
+     * @param expressionCache cache of compiled expressions, null to disable caching
+     * @param isExact true for exact arithmetic, false for int arithmetic wrapping on overflow
+     * @param isSinglePass true to evaluate the tree as built by the parser, in int arithmetic only
+     * @param phaseMetrics metrics recording each calculation, null to disable metrics
+     */
+    public MainTree(ExpressionCache<ExpressionTree> expressionCache, boolean isExact, boolean isSinglePass,
+                    PhaseMetrics phaseMetrics){
+        this.expressionCache = expressionCache;
+        this.isExact = isExact;
+        this.isSinglePass = isSinglePass && !isExact;
+        this.phaseMetrics = phaseMetrics;
     }
 
-    public static void main(String[] args) throws CalculatorException {
-        LOGGER.debug("In main method, printing arguments..." + Arrays.toString(args));
-        //Initialise main
-        MainTree mainTree = new MainTree();
+    public static void main(String[] args) throws CalculatorException, IOException {
+        if(LOGGER.isDebugEnabled())
+            LOGGER.debug("In main method, printing arguments..." + Arrays.toString(args));
+        //Extract input values and options from command line args
+        CommandLineOptions options = new CommandLineOptions(args);
+
+        //Initialise mainTree, with expression cache if enabled by --cache=maxEntries, always in server mode
+        ExpressionCache<ExpressionTree> expressionCache = ExpressionCache.fromCommandLineOptions(options);
+        if(expressionCache == null && options.hasOption(CalculatorServer.SERVE_OPTION))
+            expressionCache = new ExpressionCache<ExpressionTree>(CalculatorServer.DEFAULT_CACHE_ENTRIES);
+        //Exact arithmetic if enabled by --exact, single-pass evaluation if enabled by --single-pass,
+        //metrics over JMX and periodic dump if enabled by --metrics[=seconds]
+        final PhaseMetrics phaseMetrics = PhaseMetrics.fromCommandLineOptions(options, ENGINE_NAME);
+        MainTree mainTree = new MainTree(expressionCache, options.hasOption(ExactInterpreter.EXACT_OPTION),
+                options.hasOption(SINGLE_PASS_OPTION), phaseMetrics);
+
+        //Server mode: serve expressions on localhost port until stopped; optional input : Logger Level
+        if(options.hasOption(CalculatorServer.SERVE_OPTION)) {
+            int port = CalculatorServer.getPort(options);
+            if(port == -1)
+                throw new IllegalArgumentException("Invalid or missing port for --" + CalculatorServer.SERVE_OPTION);
+            boolean isPortArgument = Helper.isNullOrEmptyString(options.getOption(CalculatorServer.SERVE_OPTION));
+            mainTree.setLoggingLevel(options.getArgument(isPortArgument ? 1 : 0));
+            final CalculatorServer server = new CalculatorServer(mainTree::calculate, port);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    server.close();
+                } catch (IOException e) {
+                    LOGGER.error(e.getMessage());
+                }
+                if(phaseMetrics != null)
+                    phaseMetrics.close();
+            }));
+            System.out.println("Listening on localhost:" + server.getPort());
+            try {
+                server.awaitTermination();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
+
+        //Batch mode: expressions from stdin or file, one per line, in parallel with --parallelism=N; optional input : Logger Level
+        if(options.hasOption(BatchProcessor.BATCH_OPTION)) {
+            mainTree.setLoggingLevel(options.getArgument(0));
+            String inputFile = options.getOption(BatchProcessor.BATCH_OPTION);
+            //Memory-mapped reader for --batch=file --mmap, compiled engine semantics, int arithmetic only
+            if(options.hasOption(MappedFileProcessor.MMAP_OPTION) && !mainTree.isExact && !Helper.isNullOrEmptyString(inputFile)) {
+                //Lines do not go through the engine, so no phase is recorded, but the dump is stopped below as well
+                MappedFileProcessor mappedFileProcessor = new MappedFileProcessor(BatchProcessor.getParallelism(options));
+                mappedFileProcessor.process(inputFile, System.out);
+                if(LOGGER.isInfoEnabled())
+                    LOGGER.info("Batch complete with " + mappedFileProcessor.getLineCount() + " lines, "
+                            + mappedFileProcessor.getErrorCount() + " errors.");
+            } else {
+                BatchProcessor batchProcessor = BatchProcessor.fromCommandLineOptions(mainTree::calculate, options);
+                batchProcessor.process(inputFile);
+                if(LOGGER.isInfoEnabled())
+                    LOGGER.info("Batch complete with " + batchProcessor.getLineCount() + " lines, "
+                            + batchProcessor.getErrorCount() + " errors.");
+            }
+            if(phaseMetrics != null)
+                phaseMetrics.close();
+            return;
+        }
 
         //Check command line arguments not empty
         LOGGER.info("Validating command line args....");
-        if(args == null || args.length == 0) {
+        if(options.getArgumentCount() == 0) {
             mainTree.throwCalculatorException(CalculatorException.INPUT_EXPRESSION_MISSING);
         }
 
-        //Extract input values from command line args
-        String inputExprStr = null;
-        String inputLoggerLevel = null;
-        for(int i = 0; i < args.length; i++){
-            if(i == 0){ //Required input : Expression to calculate
-                inputExprStr = args[i];
-            }
-            if(i == 1) { //Optional input : Logger Level
-                inputLoggerLevel = args[i];
-            }
-        }
+        //Required input : Expression to calculate
+        String inputExprStr = options.getArgument(0);
+        //Optional input : Logger Level
+        String inputLoggerLevel = options.getArgument(1);
 
         LOGGER.info("Setting logging level....");
         //Set Logger Verbose Level
@@ -78,12 +267,20 @@ public class MainTree {
 
         LOGGER.info("Computing input expression....");
         //Calculate expression
-        String outputResult = mainTree.calculate(inputExprStr);
+        String outputResult;
+        try {
+            outputResult = mainTree.calculate(inputExprStr);
+        } finally {
+            if(phaseMetrics != null)
+                phaseMetrics.close();
+        }
         if(Helper.isNullOrEmptyString(outputResult))
             mainTree.throwCalculatorException(CalculatorException.ERROR_ENCOUNTERED_IN_CALCULATION);
 
-        LOGGER.debug("In main method, computing complete with result:" + outputResult + ".");
-        LOGGER.info("Computing complete with result:" + outputResult + ".");
+        if(LOGGER.isDebugEnabled())
+            LOGGER.debug("In main method, computing complete with result:" + outputResult + ".");
+        if(LOGGER.isInfoEnabled())
+            LOGGER.info("Computing complete with result:" + outputResult + ".");
         //Print output to console
         System.out.println(outputResult);
     }
@@ -93,32 +290,10 @@ public class MainTree {
      * @param inputLoggerLevel
      */
     public void setLoggingLevel(String inputLoggerLevel){
-        Level logLevel = DEFAULT_LEVEL;
-        //Convert string logger level to org.apache.log4j.Level
-        if(!Helper.isNullOrEmptyString(inputLoggerLevel)) {
-            String s = inputLoggerLevel.toUpperCase();
-            logLevel = s.equals("DEBUG") ? Level.DEBUG :(s.equals("INFO") ? Level.INFO :( s.equals("ERROR") ? Level.ERROR :DEFAULT_LEVEL));
-        }
-        Logger.getRootLogger().getLoggerRepository().resetConfiguration();
-
-        ConsoleAppender console = new ConsoleAppender(); //create appender
-        //configure the appender
-        String PATTERN = "%d [%p|%c|%C{1}] %m%n";
-        console.setLayout(new PatternLayout(PATTERN));
-        console.setThreshold(logLevel);
-        console.activateOptions();
-        Logger.getRootLogger().addAppender(console);
-
-        FileAppender fa = new FileAppender();
-        fa.setName("FileLogger");
-        fa.setFile("calculator.log");
-        fa.setLayout(new PatternLayout("%d %-5p [%c{1}] %m%n"));
-        fa.setThreshold(logLevel);
-        fa.setAppend(true);
-        fa.activateOptions();
-        Logger.getRootLogger().addAppender(fa);
-
-        LOGGER.debug("Setting log level..." + logLevel);
+        //Configured once per level: no reset of log4j nor new log file for a level already in effect
+        LoggingConfiguration.configure(inputLoggerLevel);
+        if(LOGGER.isDebugEnabled())
+            LOGGER.debug("Setting log level..." + LoggingConfiguration.getConfiguredLevel());
     }
 
     /**
@@ -127,44 +302,135 @@ public class MainTree {
      * @return
      */
     public String calculate(String inputExprStr) throws CalculatorException {
-        LOGGER.debug("In calculate method, printing argument..." + inputExprStr);
-        Integer result = null;
-        //Reset Expression Tree
-        inputExpressionTree = null;
+        if(phaseMetrics == null)
+            return calculateExpression(inputExprStr, PhaseMetrics.NOT_SAMPLED);
+        long startTime = phaseMetrics.start();
+        try {
+            return calculateExpression(inputExprStr, startTime);
+        } catch (CalculatorException e) {
+            phaseMetrics.recordError(e);
+            throw e;
+        } catch (ArithmeticException e) {
+            phaseMetrics.recordError(e);
+            throw e;
+        } finally {
+            phaseMetrics.recordCalculation(startTime, inputExprStr == null ? 0 : inputExprStr.length());
+        }
+    }
+
+    /**
+     * Function to evaluate input expression, recording its phases from startTime
+     * @param inputExprStr
+     * @param startTime start of the calculation, PhaseMetrics.NOT_SAMPLED if not timed
+     * @return
+     */
+    private String calculateExpression(String inputExprStr, long startTime) throws CalculatorException {
+        if(LOGGER.isDebugEnabled())
+            LOGGER.debug("In calculate method, printing argument..." + inputExprStr);
+        Object result = null;
 
         //Step 1: Check expression input string is valid
         if(isValidInputExprString(inputExprStr)) {
-            //Step 2: Convert inputExpression String to Tree
-            buildInputExpressionTree(inputExpressionTree, inputExprStr);
-            LOGGER.debug("Post call to buildInputExpressionTree method, printing result..." + inputExpressionTree.toString());
-
-            //Step 3: Evaluate let Operator in inputExpressionList using Stack
-            while(inputExpressionTree != null && !inputExpressionTree.isEmpty() && isValidExpressionTree(inputExpressionTree)) {
-                inputExpressionTree = processInputExpressionTree(inputExpressionTree);
-                if(Helper.isInteger(inputExpressionTree.getExpression()))
-                    break;
+            recordPhase(PhaseMetrics.Phase.VALIDATE, startTime);
+            //Step 2: Convert inputExpression String to validated Tree, or get it from expression cache
+            ExpressionTree inputExpressionTree = expressionCache == null ? buildValidExpressionTree(inputExprStr)
+                    : expressionCache.get(inputExprStr, expressionTreeLoader);
+            if(LOGGER.isDebugEnabled())
+                LOGGER.debug("Post call to buildValidExpressionTree method, printing result..." + inputExpressionTree.toString());
+
+            //Step 3: Evaluate "let" operator and arithmetic functions in Tree with scoped environment,
+            //or compile and execute them with exact arithmetic
+            long time = startPhase();
+            ExpressionEvent event = isExact ? new CompileEvent() : new EvaluateEvent();
+            event.begin();
+            try {
+                if(isExact) {
+                    Program program = exactCompiler.compile(inputExpressionTree);
+                    event.commit(ENGINE_NAME, inputExprStr, null);
+                    time = recordPhase(PhaseMetrics.Phase.COMPILE, time);
+                    event = new EvaluateEvent();
+                    event.begin();
+                    result = exactInterpreter.execute(program);
+                } else {
+                    result = expressionEvaluator.evaluate(inputExpressionTree);
+                }
+            } catch (CalculatorException | ArithmeticException e) {
+                LOGGER.error(e.getMessage());
+                event.commit(ENGINE_NAME, inputExprStr, e);
+                throw e;
             }
-            LOGGER.debug("Post call to processInputExpressionTree method, printing result..." + inputExpressionTree.toString());
+            event.commit(ENGINE_NAME, inputExprStr, null);
+            recordPhase(PhaseMetrics.Phase.EVALUATE, time);
+            if(LOGGER.isDebugEnabled())
+                LOGGER.debug("Post call to ExpressionEvaluator, printing result..." + result);
         }
 
-        try{
-            result = Integer.parseInt(inputExpressionTree.getExpression());
-        }catch(NumberFormatException e){
-            LOGGER.error(e.getMessage());
+        if(result == null)
             throwCalculatorException(CalculatorException.ERROR_ENCOUNTERED_IN_CALCULATION);
-        }
-        LOGGER.debug("In calculate method, printing result..." + result);
+        if(LOGGER.isDebugEnabled())
+            LOGGER.debug("In calculate method, printing result..." + result);
         return result.toString();
     }
 
 
+    /**
+     * Function to build expression tree, check it is valid, fold its constant subexpressions and simplify it
+     * In single-pass mode, the tree as built by the parser.
+     * @param inputExprStr
+     * @return
+     * @throws CalculatorException
+     */
+    private ExpressionTree buildValidExpressionTree(String inputExprStr) throws CalculatorException {
+        long time = startPhase();
+        ExpressionTree inputExpressionTree = buildInputExpressionTree(inputExprStr);
+        time = recordPhase(PhaseMetrics.Phase.TOKENIZE, time);
+        //Structure is validated by the parser during construction
+        if(isSinglePass)
+            return inputExpressionTree;
+        //Invalid leaf: not evaluated, nor cached
+        if(!isValidExpressionTree(inputExpressionTree))
+            throwCalculatorException(CalculatorException.INPUT_EXPRESSION_INVALID);
+        time = recordPhase(PhaseMetrics.Phase.VALIDATE, time);
+        //Exact mode does not wrap on overflow, unlike folding
+        LetResolutionEvent letResolutionEvent = new LetResolutionEvent();
+        letResolutionEvent.begin();
+        OptimizationResult optimizationResult = isExact ? algebraicSimplifier.simplify(inputExpressionTree)
+                : expressionOptimizer.optimize(inputExpressionTree);
+        letResolutionEvent.commit(ENGINE_NAME, inputExprStr, null);
+        recordPhase(PhaseMetrics.Phase.LET, time);
+        if(phaseMetrics != null)
+            phaseMetrics.recordLetExpansion(optimizationResult.getNodeCountBefore(), optimizationResult.getNodeCountAfter());
+        if(LOGGER.isDebugEnabled())
+            LOGGER.debug("Post call to ExpressionOptimizer, printing report..." + optimizationResult);
+        return optimizationResult.getExpressionTree();
+    }
+
+    /**
+     * Function to get start time of a chain of phases
+     * @return start time, PhaseMetrics.NOT_SAMPLED if metrics are disabled or the chain is not sampled
+     */
+    private long startPhase() {
+        return phaseMetrics == null ? PhaseMetrics.NOT_SAMPLED : phaseMetrics.start();
+    }
+
+    /**
+     * Function to record phase that started at startTime, if metrics are enabled
+     * @param phase
+     * @param startTime
+     * @return start time of the next phase
+     */
+    private long recordPhase(PhaseMetrics.Phase phase, long startTime) {
+        return phaseMetrics == null ? PhaseMetrics.NOT_SAMPLED : phaseMetrics.record(phase, startTime);
+    }
+
     /**
      * Validates input string from command line argument.
      * @param inputExprStr
      * @return
      */
     private boolean isValidInputExprString(String inputExprStr) throws CalculatorException {
-        LOGGER.debug("In isValidInputExprString method...");
+        if(LOGGER.isDebugEnabled())
+            LOGGER.debug("In isValidInputExprString method...");
         //1. Check not empty / null
         if(Helper.isNullOrEmptyString(inputExprStr))
             throwCalculatorException(CalculatorException.INPUT_EXPRESSION_MISSING);
@@ -175,130 +441,116 @@ public class MainTree {
     }
 
     /**
-     * Recursive function to check expression tree is valid
+     * Function to check expression tree is valid
+     * Nodes are checked in pre-order with an explicit stack, so any nesting depth is supported.
+     * Parenthesis and comma entries are checked with their parent node, so each node is visited once.
      * @param expressionTree
-     * @return
+     * @return false for a leaf that is neither an integer nor a variable name
+     * @throws CalculatorException for parenthesis mismatch or invalid arguments
      */
     private boolean isValidExpressionTree(ExpressionTree expressionTree) throws CalculatorException {
-        LOGGER.debug("In isValidExpressionTree method, printing argument..." + expressionTree.toString());
-        String expression = expressionTree.getExpression();
-        if(!expressionTree.isLeafNode()) {
-            List<ExpressionTree> children = expressionTree.getChildren();
-            //1. Parenthesis Mismatch
-            if(!ArithmeticSymbols.isOpenParenthesis(children.get(0).getExpression())
-                    || !ArithmeticSymbols.isCloseParenthesis(children.get(children.size() - 1).getExpression()))
-                throwCalculatorException(CalculatorException.PARENTHESIS_MISMATCH);
-            if (ArithmeticSymbols.isArithmeticFunction(expression)) {
-                //2. Invalid Arguments
-                if(children.size() != 5 || !ArithmeticSymbols.isComma(children.get(2).getExpression()))
-                    throwCalculatorException(CalculatorException.INVALID_ARGUMENTS);
-
-            } else if (ArithmeticSymbols.isLetOperator(expression)) {
-                //2. Invalid Arguments
-                if(children.size() != 7 || !ArithmeticSymbols.isComma(children.get(2).getExpression()) ||
-                        !ArithmeticSymbols.isComma(children.get(4).getExpression()))
-                    throwCalculatorException(CalculatorException.INVALID_ARGUMENTS);
+        Deque<ExpressionTree> nodes = new ArrayDeque<ExpressionTree>();
+        nodes.push(expressionTree);
+        long visitedNodeCount = 0;
+        try {
+            while(!nodes.isEmpty()) {
+                ExpressionTree node = nodes.pop();
+                visitedNodeCount++;
+                if(LOGGER.isDebugEnabled())
+                    LOGGER.debug("In isValidExpressionTree method, printing argument..." + node.toString());
+                String expression = node.getExpression();
+                if(!node.isLeafNode()) {
+                    List<ExpressionTree> children = node.getChildren();
+                    //1. Parenthesis Mismatch
+                    if(!ArithmeticSymbols.isOpenParenthesis(children.get(0).getExpression())
+                            || !ArithmeticSymbols.isCloseParenthesis(children.get(children.size() - 1).getExpression()))
+                        throwCalculatorException(CalculatorException.PARENTHESIS_MISMATCH);
+                    ArithmeticSymbols arithmeticFunction = ArithmeticSymbols.getArithmeticFunction(expression);
+                    if (arithmeticFunction != null) {
+                        //2. Invalid Arguments: 2 operands, or 2 or more for add and multi, separated by commas
+                        if(children.size() < 5 || children.size() % 2 == 0
+                                || (children.size() != 5 && !arithmeticFunction.isVariadic()))
+                            throwCalculatorException(CalculatorException.INVALID_ARGUMENTS);
+                        for(int i = 2; i < children.size() - 1; i += 2) {
+                            if(!ArithmeticSymbols.isComma(children.get(i).getExpression()))
+                                throwCalculatorException(CalculatorException.INVALID_ARGUMENTS);
+                        }
 
-            }
-            for(ExpressionTree child: children) {
-                if(!isValidExpressionTree(child)){
+                    } else if (ArithmeticSymbols.isLetOperator(expression)) {
+                        //2. Invalid Arguments
+                        if(children.size() != 7 || !ArithmeticSymbols.isComma(children.get(2).getExpression()) ||
+                                !ArithmeticSymbols.isComma(children.get(4).getExpression()))
+                            throwCalculatorException(CalculatorException.INVALID_ARGUMENTS);
+
+                    }
+                    //Operands are checked first to last
+                    for(int i = children.size() - 2; i > 0; i -= 2)
+                        nodes.push(children.get(i));
+                } else if(!isValidVariableNameOrValue(expression)) {
                     return false;
                 }
             }
-        } else {
-            if(ArithmeticSymbols.isOpenParenthesis(expression) ||
-                    ArithmeticSymbols.isCloseParenthesis(expression) ||
-                    ArithmeticSymbols.isComma(expression))
-                return true;
-            else
-                return isValidVariableNameOrValue(expression);
+            return true;
+        } finally {
+            validatedNodeCount.add(visitedNodeCount);
         }
-        return true;
     }
 
-
     /**
-     * Recursive function that parses through input expression string
-     * and stores each expression and parenthesis and comma as an entry in an input expression tree
-     * @param inputExprStr
+     * Get number of nodes visited by validation of the trees built, excluding parenthesis and comma entries
+     * 0 in single-pass mode, where the parser validates the tree during construction.
+     * @return
      */
-    private String buildInputExpressionTree(ExpressionTree expressionTree, String inputExprStr) throws CalculatorException {
-        LOGGER.debug("In buildInputExpressionTree method, printing arguments..." + inputExprStr);
-        //Remove all whitespaces from input expression
-        inputExprStr = inputExprStr.toLowerCase().replaceAll("\\s","");
-
-        StringBuilder arbExpression = new StringBuilder();
-        int i= 0;
-        while (i < inputExprStr.length()) {
-            char exprChar = inputExprStr.charAt(i);
-            String tempString = String.valueOf(exprChar);
-            if (Helper.isLetterOrDigit(exprChar) || ArithmeticSymbols.isNegativeSign(tempString)) {
-                arbExpression.append(exprChar);
-                String arbExpressionStr = arbExpression.toString();
-                if (!Helper.isNullOrEmptyString(arbExpressionStr)) {
-                    //If next character is not a letter or digit
-                    if (!Helper.isLetterOrDigit(inputExprStr.charAt(i + 1))) {
-                        if (!isValidArbitraryExpression(arbExpressionStr)) {
-                            throwCalculatorException(CalculatorException.INPUT_EXPRESSION_INVALID);
-                        }
+    public long getValidatedNodeCount() {
+        return validatedNodeCount.sum();
+    }
 
-                        // if string is Function or Let operator
-                        if (ArithmeticSymbols.isArithmeticFunction(arbExpressionStr)
-                                || ArithmeticSymbols.isLetOperator(arbExpressionStr)) {
-                            ExpressionTree parent = null;
-                            if (expressionTree == null) {
-                                //This indicates root node / start of expression tree building
-                                inputExpressionTree = new ExpressionTree(arbExpressionStr);
-                                parent = inputExpressionTree;
-                            } else {
-                                parent = expressionTree.addChild(arbExpressionStr);
-                            }
-                            arbExpression.delete(0, arbExpression.length());
-                            inputExprStr = buildInputExpressionTree(parent, inputExprStr.substring(i + 1));
-                            if(!Helper.isNullOrEmptyString(inputExprStr)) {
-                                i = 0;
-                                continue;
-                            }
-                        } else {
-                            expressionTree.addChild(arbExpressionStr);
-                            arbExpression.delete(0, arbExpression.length());
-                        }
-                    }
-                }
-            } else if (ArithmeticSymbols.isParenthesisOrComma(exprChar)) {
-                    expressionTree.addChild(tempString);
-            } else {
-                throwCalculatorException(CalculatorException.INPUT_EXPRESSION_INVALID);
-            }
-            if(expressionTree!= null && expressionTree.isChildrenCountReached()
-                    && !Helper.isNullOrEmptyString(inputExprStr) && (i + 1)!= inputExprStr.length())
-                return inputExprStr.substring(i + 1);
-            i++;
-        }
-        return "";
+    /**
+     * Get number of nodes visited by evaluation, each node of an evaluated tree being visited once
+     * Trees evaluated are optimized first, except in single-pass mode; compiled trees of exact mode are not counted.
+     * @return
+     */
+    public long getEvaluatedNodeCount() {
+        return expressionEvaluator.getVisitedNodeCount();
     }
 
     /**
-     * Function to check ValueExpression is valid
-     * Expression can be valid only if it is one of the following:
+     * Function that parses input expression string in one pass
+     * and stores each expression and parenthesis and comma as an entry in an input expression tree
+     * Expression can be one of the following:
      * 1. Numbers : Integer (Range: Integer.MIN_VALUE to Integer.MAX_VALUE)
      * 2. Variables : String of characters (Range: a-z, A-Z)
      * 3. Arithmetic Functions: add, sub, multi, div
      * 4. "let" operator
-     * Examples of invalid combinations: 5a, a5
-     * @param arbExpression
+     * List also includes following entries
+     * 5. Parenthesis open, "(" and close, ")"
+     * 6. Comma ","
+     *
+     * Assumption: Any characters besides the ones mentioned above are considered invalid.
+     * Assumption: Any arbitrary expression, variable name or variable value are not surrounded by parenthesis
+     * Example: (a), (5), (add(5,5))
+     * Assumption: The program only works with () parenthesis and no other parenthesis
+     * Root of the tree must be a "let" operator or an arithmetic function.
+     * @param inputExprStr
      * @return
      */
-    private boolean isValidArbitraryExpression(String arbExpression) {
-        LOGGER.debug("In isValidArbitraryExpression method, printing argument..." + arbExpression);
-        //Check if arbitrary expression is arithmetic function
-        if(ArithmeticSymbols.isArithmeticFunction(arbExpression))
-            return true;
-        else if(ArithmeticSymbols.isLetOperator(arbExpression))
-            return true;
-        else {
-            return isValidVariableNameOrValue(arbExpression);
+    private ExpressionTree buildInputExpressionTree(String inputExprStr) throws CalculatorException {
+        if(LOGGER.isDebugEnabled())
+            LOGGER.debug("In buildInputExpressionTree method, printing arguments..." + inputExprStr);
+        ExpressionTree expressionTree = null;
+        ParseEvent parseEvent = new ParseEvent();
+        parseEvent.begin();
+        try {
+            expressionTree = new ExpressionParser(inputExprStr, isExact).parse();
+        } catch (CalculatorException e) {
+            LOGGER.error(e.getMessage());
+            parseEvent.commit(ENGINE_NAME, inputExprStr, e);
+            throw e;
         }
+        parseEvent.commit(ENGINE_NAME, inputExprStr, null);
+        if (expressionTree.isLeafNode())
+            throwCalculatorException(CalculatorException.INPUT_EXPRESSION_INVALID);
+        return expressionTree;
     }
 
     /**
@@ -309,10 +561,10 @@ public class MainTree {
      * @return
      */
     private boolean isValidVariableNameOrValue(String expression){
-        LOGGER.debug("In isValidVariableNameOrValue method, printing argument..." + expression);
+        if(LOGGER.isDebugEnabled())
+            LOGGER.debug("In isValidVariableNameOrValue method, printing argument..." + expression);
         //Check if arbitrary expression contains digit [0-9]
-        boolean containsDigit = expression.matches(".*\\d+.*");
-        if (containsDigit) {
+        if (Helper.containsDigit(expression)) {
             //If contains true, then check arbitrary expression is a valid integer
             //Example: 55 is valid
             //Example: 5a or a5 is invalid
@@ -324,83 +576,6 @@ public class MainTree {
         }
     }
 
-    /**
-     * Function to process expression tree and return result
-     * @param expressionTree
-     * @return
-     * @throws calculator.exception.CalculatorException
-     */
-    private ExpressionTree processInputExpressionTree(ExpressionTree expressionTree) throws CalculatorException {
-        LOGGER.debug("In processInputExpressionTree method, printing argument..." + expressionTree.toString());
-        String currentExpression = expressionTree.getExpression();
-        if (!expressionTree.isLeafNode()){
-            List<ExpressionTree> expressionTreeChildren = expressionTree.getChildren();
-            for (int i = (expressionTreeChildren.size() - 1); i >= 0; i--) {
-                ExpressionTree child = expressionTreeChildren.get(i);
-                if (!child.isLeafNode()) {
-                    ExpressionTree newChild = processInputExpressionTree(child);
-                    expressionTreeChildren.remove(i);
-                    expressionTreeChildren.add(i, newChild);
-                }
-            }
-            if(ArithmeticSymbols.isLetOperator(currentExpression)) {
-                //Perform "let" operation
-                ExpressionTree oldExpression = expressionTreeChildren.get(1);
-                ExpressionTree newExpression = expressionTreeChildren.get(3);
-                ExpressionTree newChild = expressionTreeChildren.get(5);
-                if(newChild.equals(oldExpression)){
-                    return newExpression;
-                }else{
-                    newChild.recursiveReplace(oldExpression, newExpression);
-                    return newChild;
-                }
-            }
-            if(ArithmeticSymbols.isArithmeticFunction(currentExpression)) {
-                //Compute arithmetic function
-                String operand1Str = expressionTreeChildren.get(1).getExpression();
-                String operand2Str = expressionTreeChildren.get(3).getExpression();
-                // Check if variable names have been replaces with values
-                //i.e. "let" operation is complete
-                if(Helper.isInteger(operand1Str)&& Helper.isInteger(operand2Str)){
-                    //Evaluate Arithmetic Function
-                    try{
-                        Integer operand1 = Integer.parseInt(operand1Str);
-                        Integer operand2 = Integer.parseInt(operand2Str);
-                        Integer result = compute(currentExpression, operand1, operand2);
-                        return new ExpressionTree(result.toString());
-                    }catch(NumberFormatException e){
-                        LOGGER.error(e.getMessage());
-                        throwCalculatorException(CalculatorException.INVALID_ARGUMENTS);
-                    }
-                }
-            }
-        }
-        return expressionTree;
-    }
-
-    /**
-     * Compute result for Arithmetic Function given input arguments
-     * @param arithmeticFunctionName
-     * @param integerOp1
-     * @param integerOp2
-     * @return
-     */
-    private Integer compute(String arithmeticFunctionName, Integer integerOp1, Integer integerOp2 ){
-        LOGGER.debug("In compute method, printing args... function name:" + arithmeticFunctionName + ", intergerOperand1: " + integerOp1 + ", integerOperand2: "+ integerOp2);
-        Integer result = null;
-        if(ArithmeticSymbols.ADD_FUNCTION.equalsName(arithmeticFunctionName)){
-            result = integerOp1 + integerOp2;
-        } else if(ArithmeticSymbols.SUB_FUNCTION.equalsName(arithmeticFunctionName)){
-            result = integerOp1 - integerOp2;
-        } else if(ArithmeticSymbols.MULTI_FUNCTION.equalsName(arithmeticFunctionName)){
-            result = integerOp1 * integerOp2;
-        } else if(ArithmeticSymbols.DIV_FUNCTION.equalsName(arithmeticFunctionName)){
-            result = integerOp1 / integerOp2;
-        }
-        LOGGER.debug("In compute method, printing result:" + result);
-        return result;
-    }
-
     /**
      * Method to throw CalculatorException and log error message.
      * @param message
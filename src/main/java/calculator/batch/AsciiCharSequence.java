@@ -0,0 +1,58 @@
+package calculator.batch;
+
+import java.nio.ByteBuffer;
+
+/**
+ * CharSequence view of ASCII bytes in a ByteBuffer, one char per byte
+ * The view is moved from line to line with reset(), so reading a file allocates no view or String per line.
+ * Bytes above 0x7F map to chars above 0x7F, which the Lexer rejects as invalid.
+ */
+final class AsciiCharSequence implements CharSequence {
+
+    private ByteBuffer buffer;
+    private int offset;
+    private int length;
+
+    /**
+     * Point view at buffer [from, to)
+     * @param buffer read with absolute get only, so the buffer can be shared between threads
+     * @param from
+     * @param to
+     * @return this
+     */
+    AsciiCharSequence reset(ByteBuffer buffer, int from, int to) {
+        this.buffer = buffer;
+        this.offset = from;
+        this.length = to - from;
+        return this;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length)
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+        return (char) (buffer.get(offset + index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().substring(start, end);
+    }
+
+    /**
+     * Copy of the viewed bytes, for error messages and debugging only
+     * @return
+     */
+    @Override
+    public String toString() {
+        char[] text = new char[length];
+        for (int i = 0; i < length; i++)
+            text[i] = charAt(i);
+        return new String(text);
+    }
+}
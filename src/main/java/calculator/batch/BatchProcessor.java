@@ -0,0 +1,316 @@
+package calculator.batch;
+
+import calculator.exception.CalculatorException;
+import calculator.utils.CommandLineOptions;
+import calculator.utils.Helper;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Batch mode: evaluates newline-delimited expressions in one JVM
+ * Reads one expression per line and writes one line per input line, in the same order:
+ * the result, or "error: " followed by the error message. A bad line does not stop the run.
+ *
+ * Input is streamed line by line through buffered reader and writer, so memory use does not
+ * grow with the number of lines.
+ *
+ * With parallelism above 1, lines are read in chunks of CHUNK_SIZE and each chunk is evaluated on a
+ * work-stealing ForkJoinPool, split in halves down to SPLIT_THRESHOLD lines. Chunks are written in input
+ * order: at most 2 * parallelism chunks are in flight, and when the window is full the reader waits for
+ * the oldest chunk and writes it, so memory stays bounded however slow a single line is.
+ * The evaluator must be reentrant; Main and MainTree are.
+ *
+ * Example: java calculator.Main --batch=expressions.txt
+ *          java calculator.Main --batch --parallelism=8 < expressions.txt
+ *      add(1,2)        ->  3
+ *      div(1,0)        ->  error: / by zero
+ *      add(1,2         ->  error: Parenthesis mismatch at position 7
+ */
+public class BatchProcessor {
+
+    /**
+     * Command line option enabling batch mode: --batch reads stdin, --batch=file reads the file
+     */
+    public static final String BATCH_OPTION = "batch";
+
+    /**
+     * Prefix of output lines for expressions that could not be evaluated
+     */
+    public static final String ERROR_PREFIX = "error: ";
+
+    /**
+     * Command line option for parallel batch mode: --parallelism=N threads, --parallelism for all processors
+     */
+    public static final String PARALLELISM_OPTION = "parallelism";
+
+    /**
+     * Number of lines read and handed to the pool at once in parallel batch mode
+     */
+    public static final int CHUNK_SIZE = 1024;
+
+    //Message of int division by zero
+    private static final String DIV_BY_ZERO_MESSAGE = "/ by zero";
+
+    private static final int SPLIT_THRESHOLD = 64;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Evaluates one expression, e.g. Main::calculate or MainTree::calculate
+     */
+    public interface Evaluator {
+        String calculate(String inputExprStr) throws CalculatorException;
+    }
+
+    private final Evaluator evaluator;
+    private final int parallelism;
+    private long lineCount;
+    private long errorCount;
+
+    /**
+     * Constructor for sequential batch mode
+     * @param evaluator
+     */
+    public BatchProcessor(Evaluator evaluator) {
+        this(evaluator, 1);
+    }
+
+    /**
+     * Constructor
+     * @param evaluator
+     * @param parallelism number of threads evaluating lines, 1 to evaluate on the calling thread
+     */
+    public BatchProcessor(Evaluator evaluator, int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive");
+        this.evaluator = evaluator;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Create batch processor from command line options
+     * @param evaluator
+     * @param options
+     * @return sequential processor unless --parallelism is given
+     */
+    public static BatchProcessor fromCommandLineOptions(Evaluator evaluator, CommandLineOptions options) {
+        return new BatchProcessor(evaluator, getParallelism(options));
+    }
+
+    /**
+     * Get parallelism from command line options
+     * Assumption: No exception thrown for invalid parallelism; all available processors are used in this case.
+     * @param options
+     * @return 1 unless --parallelism is given
+     */
+    public static int getParallelism(CommandLineOptions options) {
+        if (!options.hasOption(PARALLELISM_OPTION))
+            return 1;
+        int processors = Runtime.getRuntime().availableProcessors();
+        long parallelism = options.getLongOption(PARALLELISM_OPTION, processors);
+        return parallelism < 1 || parallelism > Short.MAX_VALUE ? processors : (int) parallelism;
+    }
+
+    /**
+     * Evaluate expressions from stdin or file and write results to stdout
+     * @param inputFile file to read, empty or null for stdin
+     * @throws IOException on read or write failure
+     */
+    public void process(String inputFile) throws IOException {
+        InputStream inputStream = Helper.isNullOrEmptyString(inputFile) ? System.in : new FileInputStream(inputFile);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        try {
+            process(reader, writer);
+        } finally {
+            if (inputStream != System.in)
+                reader.close();
+        }
+    }
+
+    /**
+     * Evaluate each line of reader and write one result or error line per input line
+     * @param reader
+     * @param writer flushed, not closed, at the end
+     * @throws IOException on read or write failure
+     */
+    public void process(BufferedReader reader, Writer writer) throws IOException {
+        if (parallelism > 1) {
+            processParallel(reader, writer);
+            return;
+        }
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineCount++;
+            write(writer, evaluate(line));
+        }
+        writer.flush();
+    }
+
+    /**
+     * Evaluate chunks of lines on a ForkJoinPool, writing them in input order
+     * @param reader
+     * @param writer
+     * @throws IOException
+     */
+    private void processParallel(BufferedReader reader, Writer writer) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        //Reorder buffer: chunks in input order, oldest first
+        Deque<Chunk> inFlight = new ArrayDeque<Chunk>();
+        try {
+            Chunk chunk;
+            while ((chunk = readChunk(reader)) != null) {
+                if (inFlight.size() == 2 * parallelism)
+                    writeChunk(writer, inFlight.removeFirst());
+                chunk.task = pool.submit(new ChunkTask(chunk.lines, 0, chunk.count));
+                inFlight.addLast(chunk);
+            }
+            while (!inFlight.isEmpty())
+                writeChunk(writer, inFlight.removeFirst());
+            writer.flush();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Function to read up to CHUNK_SIZE lines
+     * @param reader
+     * @return chunk, null at end of input
+     * @throws IOException
+     */
+    private Chunk readChunk(BufferedReader reader) throws IOException {
+        String[] lines = new String[CHUNK_SIZE];
+        int count = 0;
+        String line;
+        while (count < CHUNK_SIZE && (line = reader.readLine()) != null)
+            lines[count++] = line;
+        lineCount += count;
+        return count == 0 ? null : new Chunk(lines, count);
+    }
+
+    /**
+     * Wait for chunk and write its results, which replaced its lines
+     * @param writer
+     * @param chunk
+     * @throws IOException
+     */
+    private void writeChunk(Writer writer, Chunk chunk) throws IOException {
+        chunk.task.join();
+        for (int i = 0; i < chunk.count; i++)
+            write(writer, chunk.lines[i]);
+    }
+
+    private void write(Writer writer, String result) throws IOException {
+        if (result.startsWith(ERROR_PREFIX))
+            errorCount++;
+        writer.write(result);
+        writer.write('\n');
+    }
+
+    /**
+     * Function to evaluate one line, turning failures into an error record
+     * @param line
+     * @return
+     */
+    private String evaluate(String line) {
+        try {
+            String result = evaluator.calculate(line);
+            if (!Helper.isNullOrEmptyString(result))
+                return result;
+            return ERROR_PREFIX + CalculatorException.ERROR_ENCOUNTERED_IN_CALCULATION;
+        } catch (CalculatorException | ArithmeticException e) {
+            return ERROR_PREFIX + getErrorMessage(e);
+        }
+    }
+
+    /**
+     * Get message of error record
+     * Once division is JIT-compiled, the JVM may throw a preallocated ArithmeticException without message
+     * for div by zero (-XX:+OmitStackTraceInFastThrow), so its message is filled in here.
+     * @param exception
+     * @return
+     */
+    public static String getErrorMessage(Exception exception) {
+        if (exception.getMessage() != null)
+            return exception.getMessage();
+        return exception instanceof ArithmeticException ? DIV_BY_ZERO_MESSAGE : exception.toString();
+    }
+
+    /**
+     * Get number of lines read
+     * @return
+     */
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Get number of lines written as error records
+     * @return
+     */
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * Get number of threads evaluating lines
+     * @return
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Lines read together, replaced in place by their results once the task completes
+     */
+    private static final class Chunk {
+        private final String[] lines;
+        private final int count;
+        private ForkJoinTask<?> task;
+
+        private Chunk(String[] lines, int count) {
+            this.lines = lines;
+            this.count = count;
+        }
+    }
+
+    /**
+     * Evaluates lines from (inclusive) to (exclusive), splitting in halves so idle workers can steal
+     */
+    private final class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final String[] lines;
+        private final int from;
+        private final int to;
+
+        private ChunkTask(String[] lines, int from, int to) {
+            this.lines = lines;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                for (int i = from; i < to; i++)
+                    lines[i] = evaluate(lines[i]);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ChunkTask(lines, from, middle), new ChunkTask(lines, middle, to));
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package calculator.batch;
+
+import calculator.exception.CalculatorException;
+import calculator.parser.ProgramParser;
+import calculator.utils.ArithmeticSymbols;
+import calculator.vm.Interpreter;
+import calculator.vm.Program;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Batch mode over a memory-mapped file, for expression files of many GB
+ * The file is mapped with FileChannel.map in windows of up to windowSize bytes, each ending at a newline.
+ * A window is split at newline boundaries into segments that workers of a ForkJoinPool evaluate
+ * independently; segment outputs are written in order, so output lines follow input lines as in BatchProcessor.
+ *
+ * Lines are tokenized straight from the mapped ASCII bytes through an AsciiCharSequence view and compiled
+ * by ProgramParser, and results are written as ASCII digits: a well-formed line creates no String.
+ * Only error records build their message.
+ *
+ * Lines are validated as in Main and MainTree: a line must contain an arithmetic function, so "let(a, 5, a)"
+ * and a bare number are error records. Evaluation uses int arithmetic, as the compiled engine (Calculator).
+ * Any failure of a single line, e.g. a StackOverflowError, is written as its error record and does not stop the run.
+ *
+ * Example: java calculator.Main --batch=expressions.txt --mmap --parallelism=8
+ */
+public class MappedFileProcessor {
+
+    /**
+     * Command line option selecting the memory-mapped reader for --batch=file
+     */
+    public static final String MMAP_OPTION = "mmap";
+
+    /**
+     * Default bytes mapped at once; a single line must fit in one window
+     */
+    public static final long DEFAULT_WINDOW_SIZE = 1L << 28;
+
+    private static final byte NEWLINE = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+    private static final byte[] ERROR_PREFIX = BatchProcessor.ERROR_PREFIX.getBytes(StandardCharsets.US_ASCII);
+    //Segments per worker, so idle workers can take over the segments of slow ones
+    private static final int SEGMENTS_PER_THREAD = 4;
+    private static final int MIN_SEGMENT_SIZE = 1 << 16;
+
+    private final int parallelism;
+    private final long windowSize;
+    private long lineCount;
+    private long errorCount;
+
+    /**
+     * Constructor
+     * @param parallelism number of threads evaluating lines, 1 to evaluate on the calling thread
+     */
+    public MappedFileProcessor(int parallelism) {
+        this(parallelism, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Constructor
+     * @param parallelism number of threads evaluating lines, 1 to evaluate on the calling thread
+     * @param windowSize bytes mapped at once, at most Integer.MAX_VALUE
+     */
+    public MappedFileProcessor(int parallelism, long windowSize) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive");
+        if (windowSize < 1 || windowSize > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Window size must be between 1 and " + Integer.MAX_VALUE);
+        this.parallelism = parallelism;
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Evaluate each line of input file and write one result or error line per input line
+     * @param inputFile
+     * @param outputStream flushed, not closed, at the end
+     * @throws IOException on read or write failure, or for a line longer than the window size
+     */
+    public void process(String inputFile, OutputStream outputStream) throws IOException {
+        ForkJoinPool pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        try (FileChannel channel = FileChannel.open(Paths.get(inputFile), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                long length = Math.min(windowSize, size - position);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int end = (int) length;
+                if (position + length < size) {
+                    end = lastIndexOfNewline(buffer, end) + 1;
+                    if (end == 0)
+                        throw new IOException("Line at offset " + position + " is longer than " + windowSize + " bytes");
+                }
+                List<Segment> segments = split(buffer, end);
+                if (pool == null) {
+                    for (Segment segment : segments)
+                        segment.compute();
+                } else {
+                    for (Segment segment : segments)
+                        pool.execute(segment);
+                }
+                for (Segment segment : segments) {
+                    if (pool != null)
+                        segment.join();
+                    outputStream.write(segment.output, 0, segment.outputLength);
+                    lineCount += segment.lineCount;
+                    errorCount += segment.errorCount;
+                }
+                position += end;
+            }
+            outputStream.flush();
+        } finally {
+            if (pool != null)
+                pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Get number of lines read
+     * @return
+     */
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Get number of lines written as error records
+     * @return
+     */
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * Function to split buffer [0, end) into segments ending at a newline or at end
+     * @param buffer
+     * @param end
+     * @return
+     */
+    private List<Segment> split(ByteBuffer buffer, int end) {
+        int segmentCount = parallelism == 1 ? 1 : parallelism * SEGMENTS_PER_THREAD;
+        int segmentSize = Math.max(MIN_SEGMENT_SIZE, end / segmentCount + 1);
+        List<Segment> segments = new ArrayList<Segment>(segmentCount);
+        int from = 0;
+        while (from < end) {
+            int to = from + segmentSize >= end ? end : indexOfNewline(buffer, from + segmentSize, end) + 1;
+            segments.add(new Segment(buffer, from, to));
+            from = to;
+        }
+        return segments;
+    }
+
+    private static int indexOfNewline(ByteBuffer buffer, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (buffer.get(i) == NEWLINE)
+                return i;
+        }
+        return end - 1;
+    }
+
+    private static int lastIndexOfNewline(ByteBuffer buffer, int end) {
+        for (int i = end - 1; i >= 0; i--) {
+            if (buffer.get(i) == NEWLINE)
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Lines of buffer [from, to), evaluated into an ASCII output buffer
+     */
+    private static final class Segment extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final Interpreter INTERPRETER = new Interpreter();
+
+        private final ByteBuffer buffer;
+        private final int from;
+        private final int to;
+
+        private byte[] output = new byte[256];
+        private int outputLength;
+        private long lineCount;
+        private long errorCount;
+
+        private int[] stack = new int[16];
+        private int[] slots = new int[16];
+
+        private Segment(ByteBuffer buffer, int from, int to) {
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            AsciiCharSequence line = new AsciiCharSequence();
+            int lineStart = from;
+            while (lineStart < to) {
+                int lineEnd = lineStart;
+                while (lineEnd < to && buffer.get(lineEnd) != NEWLINE)
+                    lineEnd++;
+                //"\r\n" ends a line as in BufferedReader.readLine
+                int contentEnd = lineEnd > lineStart && buffer.get(lineEnd - 1) == CARRIAGE_RETURN ? lineEnd - 1 : lineEnd;
+                evaluate(line.reset(buffer, lineStart, contentEnd));
+                lineCount++;
+                lineStart = lineEnd + 1;
+            }
+        }
+
+        /**
+         * Function to evaluate one line and append its result or error record
+         * @param line
+         */
+        private void evaluate(AsciiCharSequence line) {
+            try {
+                //Same input validation as Main and MainTree
+                if (line.length() == 0)
+                    throw new CalculatorException(CalculatorException.INPUT_EXPRESSION_MISSING);
+                if (!ArithmeticSymbols.checkExpressionContainsArithmeticFunction(line))
+                    throw new CalculatorException(CalculatorException.INPUT_EXPRESSION_INVALID);
+                Program program = new ProgramParser(line).parse();
+                if (stack.length < program.getMaxStackDepth())
+                    stack = new int[Math.max(program.getMaxStackDepth(), stack.length * 2)];
+                if (slots.length < program.getSlotCount())
+                    slots = new int[Math.max(program.getSlotCount(), slots.length * 2)];
+                appendInt(INTERPRETER.execute(program, stack, slots));
+            } catch (CalculatorException | ArithmeticException e) {
+                appendError(BatchProcessor.getErrorMessage(e));
+            } catch (RuntimeException | StackOverflowError e) {
+                //Would otherwise be rethrown by join() and stop the whole run
+                appendError(CalculatorException.ERROR_ENCOUNTERED_IN_CALCULATION);
+            }
+            ensureCapacity(1);
+            output[outputLength++] = NEWLINE;
+        }
+
+        private void appendError(String message) {
+            errorCount++;
+            append(ERROR_PREFIX);
+            append(message.getBytes(StandardCharsets.US_ASCII));
+        }
+
+        /**
+         * Append value as ASCII digits without creating a String
+         * @param value
+         */
+        private void appendInt(int value) {
+            ensureCapacity(11);
+            long remaining = value;
+            if (remaining < 0) {
+                output[outputLength++] = '-';
+                remaining = -remaining;
+            }
+            int digitsStart = outputLength;
+            do {
+                output[outputLength++] = (byte) ('0' + remaining % 10);
+                remaining /= 10;
+            } while (remaining != 0);
+            //Digits were written least significant first
+            for (int i = digitsStart, j = outputLength - 1; i < j; i++, j--) {
+                byte digit = output[i];
+                output[i] = output[j];
+                output[j] = digit;
+            }
+        }
+
+        private void append(byte[] bytes) {
+            ensureCapacity(bytes.length);
+            System.arraycopy(bytes, 0, output, outputLength, bytes.length);
+            outputLength += bytes.length;
+        }
+
+        private void ensureCapacity(int count) {
+            if (outputLength + count > output.length)
+                output = Arrays.copyOf(output, Math.max(output.length * 2, outputLength + count));
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package calculator.cache;
+
+import calculator.exception.CalculatorException;
+import calculator.utils.CommandLineOptions;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded LRU cache of compiled expressions keyed by normalized source
+ * Keys are normalized as the lexer reads them: lower case, whitespace removed,
+ * except a single space kept between two words so that "1 0" stays different from "10".
+ *
+ * Entries are spread over lock-striped segments, each an access-ordered LinkedHashMap,
+ * so lookups of different keys rarely contend. Each segment evicts its least recently used
+ * entries once it holds more than its share of maxEntries or maxWeight.
+ * Weight of an entry is the length of its normalized key.
+ *
+ * @param <V> compiled form of the expression, must be immutable and safe to share between threads
+ */
+public class ExpressionCache<V> {
+
+    /**
+     * Command line options enabling the cache: --cache=maxEntries [--cache-weight=maxWeight]
+     */
+    public static final String CACHE_OPTION = "cache";
+    public static final String CACHE_WEIGHT_OPTION = "cache-weight";
+
+    /**
+     * Default weight allowed per entry when maxWeight is not given
+     */
+    public static final long DEFAULT_WEIGHT_PER_ENTRY = 256;
+
+    private static final int SEGMENT_COUNT = 16;
+
+    /**
+     * Compiles expression on cache miss
+     * @param <V>
+     */
+    public interface Loader<V> {
+        V load(String inputExprStr) throws CalculatorException;
+    }
+
+    private final Segment<V>[] segments;
+    private final long maxEntries;
+    private final long maxWeight;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * Constructor
+     * @param maxEntries maximum number of entries
+     */
+    public ExpressionCache(long maxEntries) {
+        this(maxEntries, maxEntries * DEFAULT_WEIGHT_PER_ENTRY);
+    }
+
+    /**
+     * Constructor
+     * @param maxEntries maximum number of entries
+     * @param maxWeight maximum total length of normalized keys
+     */
+    @SuppressWarnings("unchecked")
+    public ExpressionCache(long maxEntries, long maxWeight) {
+        if (maxEntries <= 0 || maxWeight <= 0)
+            throw new IllegalArgumentException("Cache size must be positive");
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+        int segmentCount = Math.min(SEGMENT_COUNT, Integer.highestOneBit((int) Math.min(maxEntries, 1 << 30)));
+        segments = (Segment<V>[]) new Segment<?>[segmentCount];
+        for (int i = 0; i < segmentCount; i++)
+            segments[i] = new Segment<V>(divideRoundingUp(maxEntries, segmentCount), divideRoundingUp(maxWeight, segmentCount));
+    }
+
+    /**
+     * Create cache from command line options
+     * Assumption: No exception thrown for invalid sizes; cache is disabled in this case.
+     * @param options
+     * @param <V>
+     * @return cache, null if not enabled on the command line
+     */
+    public static <V> ExpressionCache<V> fromCommandLineOptions(CommandLineOptions options) {
+        long entries = options.getLongOption(CACHE_OPTION, 0);
+        if (entries <= 0)
+            return null;
+        long weight = options.getLongOption(CACHE_WEIGHT_OPTION, entries * DEFAULT_WEIGHT_PER_ENTRY);
+        return weight <= 0 ? null : new ExpressionCache<V>(entries, weight);
+    }
+
+    /**
+     * Get compiled expression for input expression, compiling it with loader on a miss
+     * Loader runs outside of any lock; concurrent misses for the same key may both compile.
+     * Failed compilations are not cached.
+     * @param inputExprStr
+     * @param loader
+     * @return
+     * @throws CalculatorException thrown by loader
+     */
+    public V get(String inputExprStr, Loader<V> loader) throws CalculatorException {
+        String key = normalize(inputExprStr);
+        Segment<V> segment = segmentFor(key);
+        V value;
+        synchronized (segment) {
+            value = segment.entries.get(key);
+        }
+        if (value != null) {
+            hitCount.increment();
+            return value;
+        }
+        missCount.increment();
+        value = loader.load(inputExprStr);
+        synchronized (segment) {
+            V existing = segment.entries.get(key);
+            if (existing != null)
+                return existing;
+            segment.entries.put(key, value);
+            segment.weight += key.length();
+            evictionCount.add(segment.evict());
+        }
+        return value;
+    }
+
+    /**
+     * Normalize input expression: lower case, whitespace removed, single space kept between two words
+     * @param inputExprStr
+     * @return
+     */
+    public static String normalize(String inputExprStr) {
+        int length = inputExprStr.length();
+        int i = 0;
+        while (i < length) {
+            char character = inputExprStr.charAt(i);
+            if (isWhitespace(character) || (character >= 'A' && character <= 'Z'))
+                break;
+            i++;
+        }
+        if (i == length)
+            return inputExprStr;
+        StringBuilder normalized = new StringBuilder(length);
+        normalized.append(inputExprStr, 0, i);
+        boolean isWhitespaceSkipped = false;
+        for (; i < length; i++) {
+            char character = inputExprStr.charAt(i);
+            if (isWhitespace(character)) {
+                isWhitespaceSkipped = true;
+                continue;
+            }
+            if (isWhitespaceSkipped && normalized.length() > 0
+                    && isWordCharacter(normalized.charAt(normalized.length() - 1)) && isWordCharacter(character))
+                normalized.append(' ');
+            isWhitespaceSkipped = false;
+            normalized.append(character >= 'A' && character <= 'Z' ? (char) (character + ('a' - 'A')) : character);
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Remove all entries, statistics are kept
+     */
+    public void clear() {
+        for (Segment<V> segment : segments) {
+            synchronized (segment) {
+                segment.entries.clear();
+                segment.weight = 0;
+            }
+        }
+    }
+
+    /**
+     * Get number of entries
+     * @return
+     */
+    public long size() {
+        long size = 0;
+        for (Segment<V> segment : segments) {
+            synchronized (segment) {
+                size += segment.entries.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Get total weight of entries
+     * @return
+     */
+    public long getWeight() {
+        long weight = 0;
+        for (Segment<V> segment : segments) {
+            synchronized (segment) {
+                weight += segment.weight;
+            }
+        }
+        return weight;
+    }
+
+    public long getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * Logic to print cache statistics
+     * @return
+     */
+    @Override
+    public String toString() {
+        return "ExpressionCache[size=" + size() + ", weight=" + getWeight() + ", hits=" + getHitCount()
+                + ", misses=" + getMissCount() + ", evictions=" + getEvictionCount() + "]";
+    }
+
+    private Segment<V> segmentFor(String key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return segments[hash & (segments.length - 1)];
+    }
+
+    private static long divideRoundingUp(long dividend, int divisor) {
+        return (dividend + divisor - 1) / divisor;
+    }
+
+    private static boolean isWhitespace(char character) {
+        return character == ' ' || character == '\t' || character == '\n'
+                || character == '\r' || character == '\f' || character == '\u000B';
+    }
+
+    private static boolean isWordCharacter(char character) {
+        return (character >= 'a' && character <= 'z') || (character >= 'A' && character <= 'Z')
+                || (character >= '0' && character <= '9') || character == '-';
+    }
+
+    /**
+     * One lock stripe of the cache
+     * @param <V>
+     */
+    private static final class Segment<V> {
+        private final LinkedHashMap<String, V> entries = new LinkedHashMap<String, V>(16, 0.75f, true);
+        private final long maxEntries;
+        private final long maxWeight;
+        private long weight;
+
+        private Segment(long maxEntries, long maxWeight) {
+            this.maxEntries = maxEntries;
+            this.maxWeight = maxWeight;
+        }
+
+        /**
+         * Evict least recently used entries until within bounds, keeping at least the newest entry
+         * @return number of entries evicted
+         */
+        private int evict() {
+            int evicted = 0;
+            Iterator<Map.Entry<String, V>> iterator = entries.entrySet().iterator();
+            while ((entries.size() > maxEntries || weight > maxWeight) && entries.size() > 1) {
+                Map.Entry<String, V> eldest = iterator.next();
+                weight -= eldest.getKey().length();
+                iterator.remove();
+                evicted++;
+            }
+            return evicted;
+        }
+    }
+}
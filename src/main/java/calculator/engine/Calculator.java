@@ -0,0 +1,144 @@
+package calculator.engine;
+
+import calculator.cache.ExpressionCache;
+import calculator.eval.ExpressionOptimizer;
+import calculator.eval.OptimizationResult;
+import calculator.exception.CalculatorException;
+import calculator.parser.ExpressionParser;
+import calculator.utils.ArithmeticSymbols;
+import calculator.utils.Helper;
+import calculator.vm.Compiler;
+import calculator.vm.Program;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Thread-safe calculator engine
+ * Compiles input expressions once into immutable CompiledExpression objects which can be evaluated
+ * concurrently. The engine holds no per-evaluation state, so a single instance can be shared by
+ * all threads of a request-handling pool.
+ *
+ * Example:
+ *      Calculator calculator = new Calculator();
+ *      CompiledExpression expression = calculator.compile("let(a, 5, add(a, a))");
+ *      int result = expression.evaluate();    // 10
+ *
+ * Expressions with free variables are compiled once with parameter names and evaluated per row:
+ *      CompiledExpression formula = calculator.compile("add(x, multi(y, 3))", "x", "y");
+ *      formula.evaluate(new int[][]{xs, ys}, results);
+ *
+ * Input is validated as in Main and MainTree: an expression without an arithmetic function, such as
+ * "let(a, 5, a)" or a bare number, is rejected as INPUT_EXPRESSION_INVALID.
+ *
+ * Expressions are optimized by ExpressionOptimizer before compiling: constant subexpressions are folded
+ * and constant "let" bindings inlined. Free variables may also be fixed at compile time:
+ *      CompiledExpression partial = calculator.compile("add(x, multi(y, 3))", Collections.singletonMap("y", 2), "x");
+ *      partial.evaluate(1);    // 7, compiled as add(x, 6)
+ */
+public class Calculator {
+
+    private final ExpressionOptimizer expressionOptimizer = new ExpressionOptimizer();
+    private final Compiler compiler = new Compiler();
+    private final ExpressionCache<CompiledExpression> expressionCache;
+
+    private final ExpressionCache.Loader<CompiledExpression> compiledExpressionLoader = new ExpressionCache.Loader<CompiledExpression>() {
+        @Override
+        public CompiledExpression load(String inputExprStr) throws CalculatorException {
+            OptimizationResult optimizationResult = expressionOptimizer.optimize(new ExpressionParser(inputExprStr).parse());
+            return new CompiledExpression(inputExprStr, compiler.compile(optimizationResult.getExpressionTree()),
+                    optimizationResult);
+        }
+    };
+
+    /**
+     * Default Constructor, without expression cache
+     */
+    public Calculator() {
+        this(null);
+    }
+
+    /**
+     * Constructor
+     * @param expressionCache cache of compiled expressions, null to compile on every call
+     */
+    public Calculator(ExpressionCache<CompiledExpression> expressionCache) {
+        this.expressionCache = expressionCache;
+    }
+
+    /**
+     * Compile input expression
+     * With expression cache, the returned CompiledExpression may be shared with earlier calls
+     * whose input normalizes to the same key, and report that call's source.
+     * @param inputExprStr
+     * @return
+     * @throws CalculatorException for missing or invalid input expression
+     */
+    public CompiledExpression compile(String inputExprStr) throws CalculatorException {
+        validateInputExpression(inputExprStr);
+        return expressionCache == null ? compiledExpressionLoader.load(inputExprStr)
+                : expressionCache.get(inputExprStr, compiledExpressionLoader);
+    }
+
+    /**
+     * Compile input expression with free variables
+     * Parameterized expressions are not cached.
+     * @param inputExprStr
+     * @param parameterNames names of the free variables, in the order arguments are given at evaluation
+     * @return
+     * @throws CalculatorException for missing or invalid input expression, invalid or duplicate parameter names
+     */
+    public CompiledExpression compile(String inputExprStr, String... parameterNames) throws CalculatorException {
+        if (parameterNames.length == 0)
+            return compile(inputExprStr);
+        return compile(inputExprStr, Collections.<String, Integer>emptyMap(), parameterNames);
+    }
+
+    /**
+     * Compile input expression with some free variables fixed, partially evaluating it
+     * The remaining free variables are parameters given at evaluation. Not cached.
+     * @param inputExprStr
+     * @param fixedVariables values of free variables known at compile time
+     * @param parameterNames names of the other free variables, in the order arguments are given at evaluation
+     * @return
+     * @throws CalculatorException for missing or invalid input expression, invalid or duplicate parameter names
+     */
+    public CompiledExpression compile(String inputExprStr, Map<String, Integer> fixedVariables,
+                                      String... parameterNames) throws CalculatorException {
+        validateInputExpression(inputExprStr);
+        //Variable names are lower case in the parsed tree
+        Map<String, Integer> fixedVariableValues = new HashMap<String, Integer>();
+        for (Map.Entry<String, Integer> fixedVariable : fixedVariables.entrySet())
+            fixedVariableValues.put(fixedVariable.getKey().trim().toLowerCase(), fixedVariable.getValue());
+        String[] variableNames = new String[parameterNames.length];
+        for (int i = 0; i < parameterNames.length; i++)
+            variableNames[i] = parameterNames[i] == null ? null : parameterNames[i].trim().toLowerCase();
+        OptimizationResult optimizationResult = expressionOptimizer.optimize(new ExpressionParser(inputExprStr).parse(),
+                fixedVariableValues, variableNames);
+        Program program = compiler.compile(optimizationResult.getExpressionTree(), parameterNames);
+        return new CompiledExpression(inputExprStr, program, variableNames, optimizationResult);
+    }
+
+    /**
+     * Function to apply the input validation of Main and MainTree before parsing
+     * @param inputExprStr
+     * @throws CalculatorException for missing input expression, or one without an arithmetic function
+     */
+    private static void validateInputExpression(String inputExprStr) throws CalculatorException {
+        if (Helper.isNullOrEmptyString(inputExprStr))
+            throw new CalculatorException(CalculatorException.INPUT_EXPRESSION_MISSING);
+        if (!ArithmeticSymbols.checkExpressionContainsArithmeticFunction(inputExprStr))
+            throw new CalculatorException(CalculatorException.INPUT_EXPRESSION_INVALID);
+    }
+
+    /**
+     * Compile and evaluate input expression
+     * @param inputExprStr
+     * @return
+     * @throws CalculatorException for missing or invalid input expression
+     */
+    public int calculate(String inputExprStr) throws CalculatorException {
+        return compile(inputExprStr).evaluate();
+    }
+}
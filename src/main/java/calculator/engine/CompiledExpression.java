@@ -0,0 +1,129 @@
+package calculator.engine;
+
+import calculator.eval.OptimizationResult;
+import calculator.vm.ColumnInterpreter;
+import calculator.vm.Interpreter;
+import calculator.vm.Program;
+
+/**
+ * Immutable compiled expression created by Calculator
+ * Can be evaluated any number of times, concurrently from any number of threads, without locking:
+ * the Program is never modified and the operand stack and "let" slots are taken from a thread-local buffer.
+ *
+ * Expressions compiled with parameters are evaluated with one argument per parameter, or in bulk
+ * over one int[] column per parameter:
+ *      CompiledExpression expression = calculator.compile("add(x, multi(y, 3))", "x", "y");
+ *      int result = expression.evaluate(1, 2);              // 7
+ *      expression.evaluate(new int[][]{xs, ys}, results);   // results[i] = xs[i] + ys[i] * 3
+ */
+public final class CompiledExpression {
+
+    private static final Interpreter INTERPRETER = new Interpreter();
+    private static final ColumnInterpreter COLUMN_INTERPRETER = ColumnInterpreter.getInstance();
+
+    private static final String[] NO_PARAMETERS = new String[0];
+
+    private final String source;
+    private final Program program;
+    private final String[] parameterNames;
+    private final OptimizationResult optimizationResult;
+
+    CompiledExpression(String source, Program program, OptimizationResult optimizationResult) {
+        this(source, program, NO_PARAMETERS, optimizationResult);
+    }
+
+    CompiledExpression(String source, Program program, String[] parameterNames, OptimizationResult optimizationResult) {
+        this.source = source;
+        this.program = program;
+        this.parameterNames = parameterNames;
+        this.optimizationResult = optimizationResult;
+    }
+
+    /**
+     * Evaluate expression without parameters
+     * @return
+     * @throws ArithmeticException for div by zero
+     * @throws IllegalArgumentException if expression has parameters
+     */
+    public int evaluate() {
+        checkArgumentCount(0);
+        EvaluationScratch scratch = EvaluationScratch.get();
+        return INTERPRETER.execute(program, scratch.getStack(program.getMaxStackDepth()),
+                scratch.getSlots(program.getSlotCount()));
+    }
+
+    /**
+     * Evaluate expression for one value per parameter
+     * @param arguments parameter values, in the order of getParameterNames()
+     * @return
+     * @throws ArithmeticException for div by zero
+     * @throws IllegalArgumentException if the number of arguments differs from the number of parameters
+     */
+    public int evaluate(int... arguments) {
+        checkArgumentCount(arguments.length);
+        EvaluationScratch scratch = EvaluationScratch.get();
+        int[] slots = scratch.getSlots(program.getSlotCount());
+        System.arraycopy(arguments, 0, slots, 0, arguments.length);
+        return INTERPRETER.execute(program, scratch.getStack(program.getMaxStackDepth()), slots);
+    }
+
+    /**
+     * Evaluate expression for every row of argument columns
+     * The expression is not parsed again; rows are evaluated in blocks by ColumnInterpreter.
+     * @param columns one column per parameter, in the order of getParameterNames(), each at least results.length long
+     * @param results column receiving one result per row
+     * @throws ArithmeticException for div by zero in any row
+     * @throws IllegalArgumentException if the number of columns differs from the number of parameters
+     *         or a column is too short
+     */
+    public void evaluate(int[][] columns, int[] results) {
+        checkArgumentCount(columns.length);
+        COLUMN_INTERPRETER.execute(program, columns, results);
+    }
+
+    /**
+     * Get expression source this was compiled from
+     * @return
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * Get names of parameters, lower case, in argument order
+     * @return
+     */
+    public String[] getParameterNames() {
+        return parameterNames.clone();
+    }
+
+    /**
+     * Get compiled program
+     * @return
+     */
+    public Program getProgram() {
+        return program;
+    }
+
+    /**
+     * Get report of the optimizations applied before compiling
+     * @return
+     */
+    public OptimizationResult getOptimizationResult() {
+        return optimizationResult;
+    }
+
+    private void checkArgumentCount(int argumentCount) {
+        if (argumentCount != parameterNames.length)
+            throw new IllegalArgumentException("Expected " + parameterNames.length + " arguments, got " + argumentCount);
+    }
+
+    /**
+     * Logic to print compiled expression as its source
+     * @return
+     */
+    @Override
+    public String toString() {
+        return source;
+    }
+}
@@ -0,0 +1,51 @@
+package calculator.engine;
+
+/**
+ * Per-thread scratch space for executing compiled expressions
+ * Buffers only grow, so after warm-up evaluation allocates nothing.
+ */
+final class EvaluationScratch {
+
+    private static final ThreadLocal<EvaluationScratch> SCRATCH = new ThreadLocal<EvaluationScratch>() {
+        @Override
+        protected EvaluationScratch initialValue() {
+            return new EvaluationScratch();
+        }
+    };
+
+    private int[] stack = new int[16];
+    private int[] slots = new int[16];
+
+    private EvaluationScratch() {
+    }
+
+    /**
+     * Get scratch space of the current thread
+     * @return
+     */
+    static EvaluationScratch get() {
+        return SCRATCH.get();
+    }
+
+    /**
+     * Get operand stack of at least given size
+     * @param size
+     * @return
+     */
+    int[] getStack(int size) {
+        if (stack.length < size)
+            stack = new int[Math.max(size, stack.length * 2)];
+        return stack;
+    }
+
+    /**
+     * Get "let" slots of at least given size
+     * @param size
+     * @return
+     */
+    int[] getSlots(int size) {
+        if (slots.length < size)
+            slots = new int[Math.max(size, slots.length * 2)];
+        return slots;
+    }
+}
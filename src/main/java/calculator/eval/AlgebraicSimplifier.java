@@ -0,0 +1,171 @@
+package calculator.eval;
+
+import calculator.ExpressionTree;
+import calculator.utils.ArithmeticSymbols;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Rule-based rewriting of an ExpressionTree with algebraic identities, until a fixpoint
+ *      add(x, 0) -> x     multi(x, 1) -> x     multi(x, 0) -> 0     sub(x, 0) -> x
+ *      sub(x, x) -> 0     div(x, 1) -> x       let(a, v, a) -> v    let(a, v, e) -> e if a is unused
+ *
+ * Rules are applied bottom-up: operands are simplified first, then the rules are applied to the node
+ * until none applies. Every rewrite removes at least one node, so simplification terminates after at
+ * most as many rewrites as the tree has nodes, whatever the set of rules.
+ * Rules never compute a value, so the result is valid for int and for exact arithmetic; div by zero and
+ * other errors are preserved as described in SimplificationRule.
+ *
+ * The input tree is not modified; unchanged subtrees are shared with the result. The tree is walked with an
+ * explicit stack, and the checks made by rules visit a bounded number of nodes, so simplification takes
+ * linear time and supports any nesting depth.
+ */
+public class AlgebraicSimplifier {
+
+    private final SimplificationRule[] rules;
+
+    /**
+     * Default Constructor, with all rules
+     */
+    public AlgebraicSimplifier() {
+        this(EnumSet.allOf(SimplificationRule.class));
+    }
+
+    /**
+     * Constructor
+     * @param rules rules to apply, in their declaration order
+     */
+    public AlgebraicSimplifier(Set<SimplificationRule> rules) {
+        EnumSet<SimplificationRule> ruleSet = EnumSet.noneOf(SimplificationRule.class);
+        ruleSet.addAll(rules);
+        this.rules = ruleSet.toArray(new SimplificationRule[0]);
+    }
+
+    /**
+     * Simplify expression tree
+     * @param expressionTree valid expression tree
+     * @param parameterNames free variables bound at evaluation; other free variables are treated as unbound
+     * @return
+     */
+    public OptimizationResult simplify(ExpressionTree expressionTree, String... parameterNames) {
+        int[] rewriteCount = new int[1];
+        ExpressionTree simplifiedTree = simplify(expressionTree, new ArrayList<String>(Arrays.asList(parameterNames)), rewriteCount);
+        return new OptimizationResult(simplifiedTree, ExpressionOptimizer.countNodes(expressionTree),
+                ExpressionOptimizer.countNodes(simplifiedTree), 0, 0, rewriteCount[0]);
+    }
+
+    /**
+     * Get rules applied
+     * @return
+     */
+    public Set<SimplificationRule> getRules() {
+        EnumSet<SimplificationRule> ruleSet = EnumSet.noneOf(SimplificationRule.class);
+        ruleSet.addAll(Arrays.asList(rules));
+        return ruleSet;
+    }
+
+    /**
+     * Function returning simplified node
+     * Operands are simplified with an explicit stack of nodes instead of recursion, so any nesting depth is
+     * supported; "let" variables are added to the scope while the expression of their node is simplified.
+     * @param expressionTree
+     * @param scope parameters and enclosing "let" variables
+     * @param rewriteCount
+     * @return
+     */
+    private ExpressionTree simplify(ExpressionTree expressionTree, List<String> scope, int[] rewriteCount) {
+        if (rules.length == 0)
+            return expressionTree;
+        Deque<Frame> frames = new ArrayDeque<Frame>();
+        ExpressionTree node = expressionTree;
+        while (true) {
+            while (!node.isLeafNode()) {
+                Frame frame = new Frame(node);
+                frames.push(frame);
+                node = frame.getOperand(0);
+            }
+            ExpressionTree simplifiedNode = node;
+            while (true) {
+                Frame frame = frames.peek();
+                if (frame == null)
+                    return simplifiedNode;
+                frame.operands[frame.operandCount++] = simplifiedNode;
+                if (frame.operandCount < frame.operands.length) {
+                    if (frame.isLet)
+                        scope.add(frame.node.getChildren().get(1).getExpression());
+                    node = frame.getOperand(frame.operandCount);
+                    break;
+                }
+                frames.pop();
+                if (frame.isLet)
+                    scope.remove(scope.size() - 1);
+                simplifiedNode = rewrite(frame, scope, rewriteCount);
+            }
+        }
+    }
+
+    /**
+     * Function to apply rules to node from its simplified operands until none applies
+     * @param frame
+     * @param scope
+     * @param rewriteCount
+     * @return
+     */
+    private ExpressionTree rewrite(Frame frame, List<String> scope, int[] rewriteCount) {
+        ExpressionTree node = frame.node;
+        if (!frame.isUnchanged()) {
+            node = frame.isLet ? ExpressionOptimizer.newNode(node, node.getChildren().get(1), frame.operands[0], frame.operands[1])
+                    : ExpressionOptimizer.newNode(node, frame.operands);
+        }
+        //Each rewrite yields a smaller node whose operands are already simplified
+        boolean isRewritten = true;
+        while (isRewritten && !node.isLeafNode()) {
+            isRewritten = false;
+            for (SimplificationRule rule : rules) {
+                ExpressionTree rewrittenNode = rule.apply(node, scope);
+                if (rewrittenNode != null) {
+                    rewriteCount[0]++;
+                    node = rewrittenNode;
+                    isRewritten = true;
+                    break;
+                }
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Function or "let" node whose operands are being simplified
+     * Operands are the function arguments, or the value and the expression of a "let" node.
+     */
+    private static final class Frame {
+        private final ExpressionTree node;
+        private final boolean isLet;
+        private final ExpressionTree[] operands;
+        private int operandCount;
+
+        private Frame(ExpressionTree node) {
+            this.node = node;
+            this.isLet = ArithmeticSymbols.isLetOperator(node.getExpression());
+            this.operands = new ExpressionTree[isLet ? 2 : node.getChildren().size() / 2];
+        }
+
+        private ExpressionTree getOperand(int index) {
+            return node.getChildren().get(isLet ? 3 + 2 * index : 1 + 2 * index);
+        }
+
+        private boolean isUnchanged() {
+            for (int i = 0; i < operands.length; i++) {
+                if (operands[i] != getOperand(i))
+                    return false;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package calculator.eval;
+
+import calculator.exception.CalculatorException;
+
+/**
+ * Scoped environment for "let" variables
+ * Each frame binds one variable name to its value and links to the enclosing frame.
+ * Frames are immutable: binding a name returns a new innermost frame, leaving the enclosing scope unchanged,
+ * so an inner "let" shadows an outer one only within its own body.
+ *
+ * Example: let(a, 5, let(b, 10, add(a, b)))
+ *         [b = 10] --> [a = 5] --> EMPTY
+ */
+public final class Environment {
+
+    /**
+     * Environment without any variable bound
+     */
+    public static final Environment EMPTY = new Environment(null, 0, null);
+
+    private final String name;
+    private final int value;
+    private final Environment parent;
+
+    private Environment(String name, int value, Environment parent) {
+        this.name = name;
+        this.value = value;
+        this.parent = parent;
+    }
+
+    /**
+     * Bind variable name to value in a new innermost frame
+     * @param variableName
+     * @param variableValue
+     * @return
+     */
+    public Environment bind(String variableName, int variableValue) {
+        return new Environment(variableName, variableValue, this);
+    }
+
+    /**
+     * Get enclosing environment
+     * @return
+     */
+    public Environment getParent() {
+        return parent;
+    }
+
+    /**
+     * Check if variable name is bound in this environment
+     * @param variableName
+     * @return
+     */
+    public boolean isBound(String variableName) {
+        for (Environment frame = this; frame != EMPTY; frame = frame.parent) {
+            if (frame.name.equals(variableName))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Get value of innermost binding for variable name
+     * @param variableName
+     * @return
+     * @throws CalculatorException if variable is not bound
+     */
+    public int lookup(String variableName) throws CalculatorException {
+        for (Environment frame = this; frame != EMPTY; frame = frame.parent) {
+            if (frame.name.equals(variableName))
+                return frame.value;
+        }
+        throw new CalculatorException(CalculatorException.INVALID_ARGUMENTS);
+    }
+}
@@ -0,0 +1,396 @@
+package calculator.eval;
+
+import calculator.ExpressionTree;
+import calculator.exception.CalculatorException;
+import calculator.utils.ArithmeticSymbols;
+import calculator.utils.Helper;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Evaluates an ExpressionTree with scoped "let" variables, free variables being looked up in an Environment
+ * Each "let" value is evaluated once and bound to its name while the body is evaluated; a variable is
+ * resolved to its innermost binding by scanning the few enclosing "let" variables, or through a hash index
+ * once more than LINEAR_LOOKUP_LIMIT are bound, so lookup stays cheap whatever the "let" nesting depth.
+ * No part of the tree is copied or replaced, so evaluation cost is linear in the size of the tree.
+ * The tree is walked with an explicit stack, so nesting depth is limited by heap only.
+ * Evaluation is one post-order traversal: each node, including the variable of a "let", is visited exactly once,
+ * as counted by getVisitedNodeCount when enabled.
+ *
+ * Children layout (see ExpressionTree):
+ *      function : ( operand1 , operand2 )            -> operands at 1 and 3
+ *      add/multi: ( operand1 , ... , operandN )      -> operands at 1, 3, ..., 2 * N - 1
+ *      let      : ( variable , value , expression )  -> variable at 1, value at 3, expression at 5
+ */
+public class ExpressionEvaluator {
+
+    /**
+     * Per-thread frames, reused so that evaluating small expressions allocates nothing
+     */
+    private static final ThreadLocal<Frames> FRAMES = new ThreadLocal<Frames>() {
+        @Override
+        protected Frames initialValue() {
+            return new Frames();
+        }
+    };
+
+    /**
+     * Nodes visited by all evaluations, added once per evaluation; null if visits are not counted
+     */
+    private final LongAdder visitedNodeCount;
+
+    /**
+     * Default Constructor, without counting visited nodes
+     */
+    public ExpressionEvaluator() {
+        this(false);
+    }
+
+    /**
+     * Constructor
+     * @param isCountingVisits true to count nodes visited, as reported by getVisitedNodeCount; costs one
+     *                         LongAdder update per evaluation
+     */
+    public ExpressionEvaluator(boolean isCountingVisits) {
+        this.visitedNodeCount = isCountingVisits ? new LongAdder() : null;
+    }
+
+    /**
+     * Evaluate expression tree with no variables bound
+     * @param expressionTree
+     * @return
+     * @throws CalculatorException
+     */
+    public int evaluate(ExpressionTree expressionTree) throws CalculatorException {
+        return evaluate(expressionTree, Environment.EMPTY);
+    }
+
+    /**
+     * Evaluate expression tree within environment
+     * Function and "let" nodes being evaluated are kept as frames on explicit stacks instead of the Java call
+     * stack: descending evaluates the first operand, each completed operand is folded into the frame on top,
+     * so any nesting depth is supported with constant memory per level.
+     * Operands are evaluated first to last, so errors are raised in the same order as by a recursive walk.
+     * @param expressionTree
+     * @param environment
+     * @return
+     * @throws CalculatorException
+     */
+    public int evaluate(ExpressionTree expressionTree, Environment environment) throws CalculatorException {
+        //Fast paths for a number or variable, and for one function of numbers and variables: no frames needed
+        if (expressionTree.isLeafNode()) {
+            if (visitedNodeCount != null)
+                visitedNodeCount.increment();
+            return evaluateLeaf(expressionTree.getExpression(), environment, null);
+        }
+        ArithmeticSymbols arithmeticFunction = ArithmeticSymbols.classify(expressionTree.getExpression());
+        if (arithmeticFunction != null && arithmeticFunction.isArithmeticFunction()
+                && hasOnlyLeafOperands(expressionTree.getChildren()))
+            return evaluateFunctionOfLeaves(arithmeticFunction, expressionTree.getChildren(), environment);
+
+        Frames frames = FRAMES.get();
+        try {
+            return evaluate(expressionTree, environment, frames);
+        } finally {
+            if (visitedNodeCount != null)
+                visitedNodeCount.add(frames.visitedNodeCount);
+            frames.clear();
+        }
+    }
+
+    /**
+     * Function to check if all operands of function node are numbers or variables
+     * @param children
+     * @return
+     */
+    private static boolean hasOnlyLeafOperands(List<ExpressionTree> children) {
+        for (int i = 1; i < children.size() - 1; i += 2) {
+            if (!children.get(i).isLeafNode())
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Function to evaluate function whose operands are all numbers or variables, first to last
+     * @param arithmeticFunction
+     * @param children
+     * @param environment
+     * @return
+     * @throws CalculatorException
+     */
+    private int evaluateFunctionOfLeaves(ArithmeticSymbols arithmeticFunction, List<ExpressionTree> children,
+                                         Environment environment) throws CalculatorException {
+        int value = evaluateLeaf(children.get(1).getExpression(), environment, null);
+        int operandIndex = 3;
+        for (; operandIndex < children.size() - 1; operandIndex += 2)
+            value = compute(arithmeticFunction, value, evaluateLeaf(children.get(operandIndex).getExpression(), environment, null));
+        //Function node and its operands
+        if (visitedNodeCount != null)
+            visitedNodeCount.add(operandIndex / 2 + 1);
+        return value;
+    }
+
+    /**
+     * Get number of nodes visited by evaluations of this evaluator, a measure of evaluation work
+     * Equals ExpressionOptimizer.countNodes of the trees evaluated, as each node is visited once.
+     * @return 0 if visits are not counted
+     */
+    public long getVisitedNodeCount() {
+        return visitedNodeCount == null ? 0 : visitedNodeCount.sum();
+    }
+
+    /**
+     * Function to evaluate expression tree on empty frames
+     * @param expressionTree
+     * @param environment
+     * @param frames
+     * @return
+     * @throws CalculatorException
+     */
+    private int evaluate(ExpressionTree expressionTree, Environment environment, Frames frames) throws CalculatorException {
+        ExpressionTree node = expressionTree;
+        while (true) {
+            //Descend to the first operand of function and "let" nodes, classifying each node once
+            while (true) {
+                ArithmeticSymbols arithmeticFunction = ArithmeticSymbols.classify(node.getExpression());
+                if (arithmeticFunction != ArithmeticSymbols.LET_OPERATOR && (arithmeticFunction == null
+                        || !arithmeticFunction.isArithmeticFunction()))
+                    break;
+                //"let" value at 3, first function operand at 1
+                int operandIndex = arithmeticFunction == ArithmeticSymbols.LET_OPERATOR ? 3 : 1;
+                frames.push(node, arithmeticFunction, operandIndex);
+                node = node.getChildren().get(operandIndex);
+            }
+            int value = evaluateLeaf(node.getExpression(), environment, frames);
+            frames.visitedNodeCount++;
+
+            //Fold value into the frames it completes
+            while (true) {
+                if (frames.top == -1)
+                    return value;
+                int top = frames.top;
+                List<ExpressionTree> children = frames.nodes[top].getChildren();
+                ArithmeticSymbols arithmeticFunction = frames.functions[top];
+                int operandIndex = frames.operandIndexes[top];
+                if (arithmeticFunction == ArithmeticSymbols.LET_OPERATOR) {
+                    if (operandIndex == 5) {
+                        frames.unbind();
+                        frames.pop();
+                        continue;
+                    }
+                    //Value is bound, the expression is evaluated next with the new binding
+                    frames.bind(children.get(1).getExpression(), value);
+                    frames.visitedNodeCount++;
+                    frames.operandIndexes[top] = 5;
+                    node = children.get(5);
+                    break;
+                }
+                frames.values[top] = operandIndex == 1 ? value : compute(arithmeticFunction, frames.values[top], value);
+                operandIndex += 2;
+                if (operandIndex < children.size() - 1) {
+                    frames.operandIndexes[top] = operandIndex;
+                    node = children.get(operandIndex);
+                    break;
+                }
+                value = frames.values[top];
+                frames.pop();
+            }
+        }
+    }
+
+    /**
+     * Function to evaluate number or variable, bound by an enclosing "let" or in environment
+     * @param expression
+     * @param environment
+     * @param frames null if no "let" variable is bound
+     * @return
+     * @throws CalculatorException
+     */
+    private static int evaluateLeaf(String expression, Environment environment, Frames frames) throws CalculatorException {
+        if (Helper.isInteger(expression)) {
+            try {
+                return Integer.parseInt(expression);
+            } catch (NumberFormatException e) {
+                throw new CalculatorException(CalculatorException.INVALID_ARGUMENTS);
+            }
+        }
+        if (frames != null) {
+            int variableIndex = frames.find(expression);
+            if (variableIndex >= 0)
+                return frames.variableValues[variableIndex];
+        }
+        return environment.lookup(expression);
+    }
+
+    /**
+     * Stack of function and "let" nodes being evaluated, as parallel arrays grown on demand
+     * Function frames keep their accumulated value. "let" variables are kept on a stack of their own, innermost
+     * last, and scanned from the innermost; past LINEAR_LOOKUP_LIMIT variables, an index by name is built so that
+     * lookup takes constant time whatever the "let" nesting depth.
+     */
+    private static final class Frames {
+        private static final int INITIAL_CAPACITY = 16;
+
+        /**
+         * Capacity above which arrays are shrunk after evaluation, so that one deep expression does not keep
+         * large arrays for the lifetime of the thread
+         */
+        private static final int MAX_RETAINED_CAPACITY = 1024;
+
+        /**
+         * Bound variables scanned without an index; a scan of a few names is cheaper than hashing the name
+         */
+        private static final int LINEAR_LOOKUP_LIMIT = 8;
+
+        private ExpressionTree[] nodes;
+        private ArithmeticSymbols[] functions;
+        private int[] operandIndexes;
+        private int[] values;
+        private int top = -1;
+        private long visitedNodeCount;
+
+        private String[] variableNames = new String[INITIAL_CAPACITY];
+        private int[] variableValues = new int[INITIAL_CAPACITY];
+        private int variableCount;
+        //Indexes into variableNames by name, innermost last; null until more than LINEAR_LOOKUP_LIMIT are bound
+        private Map<String, Binding> variableIndex;
+
+        private Frames() {
+            allocate(INITIAL_CAPACITY);
+        }
+
+        private void allocate(int capacity) {
+            nodes = new ExpressionTree[capacity];
+            functions = new ArithmeticSymbols[capacity];
+            operandIndexes = new int[capacity];
+            values = new int[capacity];
+        }
+
+        private void push(ExpressionTree node, ArithmeticSymbols function, int operandIndex) {
+            if (++top == nodes.length) {
+                int capacity = nodes.length * 2;
+                nodes = Arrays.copyOf(nodes, capacity);
+                functions = Arrays.copyOf(functions, capacity);
+                operandIndexes = Arrays.copyOf(operandIndexes, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            visitedNodeCount++;
+            nodes[top] = node;
+            functions[top] = function;
+            operandIndexes[top] = operandIndex;
+        }
+
+        private void pop() {
+            nodes[top] = null;
+            top--;
+        }
+
+        private void bind(String variableName, int value) {
+            if (variableCount == variableNames.length) {
+                variableNames = Arrays.copyOf(variableNames, variableCount * 2);
+                variableValues = Arrays.copyOf(variableValues, variableCount * 2);
+            }
+            variableNames[variableCount] = variableName;
+            variableValues[variableCount] = value;
+            if (variableIndex != null) {
+                index(variableName, variableCount);
+            } else if (variableCount == LINEAR_LOOKUP_LIMIT) {
+                variableIndex = new HashMap<String, Binding>();
+                for (int i = 0; i <= variableCount; i++)
+                    index(variableNames[i], i);
+            }
+            variableCount++;
+        }
+
+        private void index(String variableName, int index) {
+            Binding binding = variableIndex.get(variableName);
+            if (binding == null) {
+                binding = new Binding();
+                variableIndex.put(variableName, binding);
+            }
+            if (binding.size == binding.indexes.length)
+                binding.indexes = Arrays.copyOf(binding.indexes, binding.size * 2);
+            binding.indexes[binding.size++] = index;
+        }
+
+        //Innermost variable, bound by the "let" completed
+        private void unbind() {
+            variableCount--;
+            if (variableIndex != null)
+                variableIndex.get(variableNames[variableCount]).size--;
+            variableNames[variableCount] = null;
+        }
+
+        /**
+         * Find innermost binding of variable name
+         * @param variableName
+         * @return index into variableValues, -1 if not bound by an enclosing "let"
+         */
+        private int find(String variableName) {
+            if (variableIndex != null) {
+                Binding binding = variableIndex.get(variableName);
+                return binding == null || binding.size == 0 ? -1 : binding.indexes[binding.size - 1];
+            }
+            for (int i = variableCount - 1; i >= 0; i--) {
+                if (variableNames[i].equals(variableName))
+                    return i;
+            }
+            return -1;
+        }
+
+        /**
+         * Release frames and variables left by an error, and arrays grown over MAX_RETAINED_CAPACITY, and reset
+         * visit count
+         */
+        private void clear() {
+            visitedNodeCount = 0;
+            variableIndex = null;
+            if (variableNames.length > MAX_RETAINED_CAPACITY) {
+                variableNames = new String[INITIAL_CAPACITY];
+                variableValues = new int[INITIAL_CAPACITY];
+            } else {
+                Arrays.fill(variableNames, 0, variableCount, null);
+            }
+            variableCount = 0;
+            if (nodes.length > MAX_RETAINED_CAPACITY) {
+                allocate(INITIAL_CAPACITY);
+                top = -1;
+            }
+            while (top >= 0)
+                pop();
+        }
+    }
+
+    /**
+     * Indexes of the variables bound to one name by the enclosing "let" nodes, innermost last
+     */
+    private static final class Binding {
+        private int[] indexes = new int[2];
+        private int size;
+    }
+
+    /**
+     * Compute result for Arithmetic Function given input arguments
+     * @param arithmeticFunction
+     * @param operand1
+     * @param operand2
+     * @return
+     */
+    private int compute(ArithmeticSymbols arithmeticFunction, int operand1, int operand2) {
+        switch (arithmeticFunction) {
+            case ADD_FUNCTION:
+                return operand1 + operand2;
+            case SUB_FUNCTION:
+                return operand1 - operand2;
+            case MULTI_FUNCTION:
+                return operand1 * operand2;
+            default:
+                return operand1 / operand2;
+        }
+    }
+}
@@ -0,0 +1,378 @@
+package calculator.eval;
+
+import calculator.ExpressionTree;
+import calculator.utils.ArithmeticSymbols;
+import calculator.utils.Helper;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Constant folding and partial evaluation of an ExpressionTree, run once at compile time
+ * 1. Arithmetic functions whose operands are all constants are replaced by their result:
+ *      multi(60, 60) -> 3600
+ * 2. Constant operands of add and multi are folded into one, including the constant of a nested call of the
+ *    same function:
+ *      add(x, 1, add(2, y)) -> add(x, y, 3)      add(x, add(y, add(z, 1)), 2) -> add(x, add(y, z), 3)
+ * 3. "let" bindings whose value is constant are inlined into their expression and removed:
+ *      let(a, 5, add(a, x)) -> add(x, 5)
+ * 4. Variables fixed by the caller are replaced by their value before folding (partial evaluation):
+ *      add(x, multi(y, 3)) with y = 2 -> add(x, 6)
+ * 5. Algebraic identities are then applied by an AlgebraicSimplifier, folding again if it rewrote anything:
+ *      add(multi(x, 0), sub(y, 0), 3) -> add(y, 3)
+ *
+ * Results use int arithmetic, wrapping on overflow as at evaluation; reordering constants of add and
+ * multi is exact, as + and * are associative and commutative in two's complement. div by zero is never
+ * folded, and "let" bindings whose value is not constant are kept, so every error the original
+ * expression raises is still raised, by the same node, when the optimized one is evaluated.
+ * Not for exact mode, whose results do not wrap.
+ *
+ * The input tree is not modified; unchanged subtrees are shared with the result. The tree is walked with an
+ * explicit stack, so nesting depth is limited by heap only.
+ */
+public class ExpressionOptimizer {
+
+    private final AlgebraicSimplifier algebraicSimplifier;
+
+    /**
+     * Default Constructor, with all simplification rules
+     */
+    public ExpressionOptimizer() {
+        this(EnumSet.allOf(SimplificationRule.class));
+    }
+
+    /**
+     * Constructor
+     * @param simplificationRules algebraic identities applied after folding, empty for constant folding only
+     */
+    public ExpressionOptimizer(Set<SimplificationRule> simplificationRules) {
+        this.algebraicSimplifier = new AlgebraicSimplifier(simplificationRules);
+    }
+
+    /**
+     * Optimize expression tree with no variables fixed
+     * @param expressionTree valid expression tree
+     * @return
+     */
+    public OptimizationResult optimize(ExpressionTree expressionTree) {
+        return optimize(expressionTree, Collections.<String, Integer>emptyMap());
+    }
+
+    /**
+     * Optimize expression tree with some free variables fixed to a value
+     * @param expressionTree valid expression tree
+     * @param fixedVariables values of free variables, shadowed by "let" variables of the same name
+     * @param parameterNames other free variables, bound at evaluation; the rest are treated as unbound
+     * @return
+     */
+    public OptimizationResult optimize(ExpressionTree expressionTree, Map<String, Integer> fixedVariables,
+                                       String... parameterNames) {
+        Scope scope = new Scope();
+        for (Map.Entry<String, Integer> fixedVariable : fixedVariables.entrySet())
+            scope.bind(fixedVariable.getKey(), toExpression(fixedVariable.getValue()));
+        Counters counters = new Counters();
+        ExpressionTree optimizedTree = optimize(expressionTree, scope, counters);
+        OptimizationResult simplificationResult = algebraicSimplifier.simplify(optimizedTree, parameterNames);
+        //Identities may leave constant operands to fold, e.g. add(multi(x, 0), 3)
+        if (simplificationResult.getRewriteCount() > 0)
+            optimizedTree = optimize(simplificationResult.getExpressionTree(), scope, counters);
+        return new OptimizationResult(optimizedTree, countNodes(expressionTree), countNodes(optimizedTree),
+                counters.foldedFunctionCount, counters.inlinedLetCount, simplificationResult.getRewriteCount());
+    }
+
+    /**
+     * Count operand nodes of tree: numbers, variables, functions and "let" operators
+     * Parenthesis and comma entries are not counted.
+     * @param expressionTree
+     * @return
+     */
+    public static int countNodes(ExpressionTree expressionTree) {
+        Deque<ExpressionTree> nodes = new ArrayDeque<ExpressionTree>();
+        nodes.push(expressionTree);
+        int count = 0;
+        while (!nodes.isEmpty()) {
+            ExpressionTree node = nodes.pop();
+            count++;
+            if (!node.isLeafNode()) {
+                List<ExpressionTree> children = node.getChildren();
+                for (int i = 1; i < children.size() - 1; i += 2)
+                    nodes.push(children.get(i));
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Function returning optimized tree
+     * Nodes are optimized bottom-up with an explicit stack of frames instead of recursion, so any nesting
+     * depth is supported: a frame collects the optimized operands of its node, then the node is rewritten.
+     * @param expressionTree
+     * @param scope enclosing "let" variables and fixed variables; restored before returning
+     * @param counters
+     * @return
+     */
+    private ExpressionTree optimize(ExpressionTree expressionTree, Scope scope, Counters counters) {
+        Deque<Frame> frames = new ArrayDeque<Frame>();
+        ExpressionTree node = expressionTree;
+        while (true) {
+            while (!node.isLeafNode()) {
+                Frame frame = new Frame(node);
+                frames.push(frame);
+                node = frame.getOperand(0);
+            }
+            ExpressionTree optimizedNode = optimizeLeaf(node, scope);
+            while (true) {
+                Frame frame = frames.peek();
+                if (frame == null)
+                    return optimizedNode;
+                frame.operands[frame.operandCount++] = optimizedNode;
+                if (frame.operandCount < frame.operands.length) {
+                    if (frame.isLet) {
+                        //A constant value cannot raise an error, so the binding is inlined; otherwise it shadows outer constants
+                        String value = getConstant(optimizedNode) != null ? optimizedNode.getExpression() : null;
+                        scope.bind(frame.node.getChildren().get(1).getExpression(), value);
+                    }
+                    node = frame.getOperand(frame.operandCount);
+                    break;
+                }
+                frames.pop();
+                if (frame.isLet)
+                    scope.unbind(frame.node.getChildren().get(1).getExpression());
+                optimizedNode = optimizeNode(frame, counters);
+            }
+        }
+    }
+
+    /**
+     * Function to replace variable by its constant value if it has one
+     * @param expressionTree
+     * @param scope
+     * @return
+     */
+    private static ExpressionTree optimizeLeaf(ExpressionTree expressionTree, Scope scope) {
+        String expression = expressionTree.getExpression();
+        if (Helper.isInteger(expression))
+            return expressionTree;
+        String value = scope.lookup(expression);
+        return value == null ? expressionTree : new ExpressionTree(value, expressionTree.getPosition());
+    }
+
+    /**
+     * Function returning optimized function or "let" node from its optimized operands
+     * @param frame
+     * @param counters
+     * @return
+     */
+    private static ExpressionTree optimizeNode(Frame frame, Counters counters) {
+        ExpressionTree expressionTree = frame.node;
+        ExpressionTree[] operands = frame.operands;
+        if (frame.isLet) {
+            if (getConstant(operands[0]) != null) {
+                counters.inlinedLetCount++;
+                return operands[1];
+            }
+            if (frame.isUnchanged())
+                return expressionTree;
+            return newNode(expressionTree, expressionTree.getChildren().get(1), operands[0], operands[1]);
+        }
+        ArithmeticSymbols arithmeticFunction = ArithmeticSymbols.getArithmeticFunction(expressionTree.getExpression());
+        if (arithmeticFunction.isVariadic())
+            return optimizeVariadic(frame, arithmeticFunction, counters);
+
+        Integer value1 = getConstant(operands[0]);
+        Integer value2 = getConstant(operands[1]);
+        //div by zero is left to evaluation
+        if (value1 != null && value2 != null && !(arithmeticFunction == ArithmeticSymbols.DIV_FUNCTION && value2 == 0)) {
+            counters.foldedFunctionCount++;
+            int result = arithmeticFunction == ArithmeticSymbols.SUB_FUNCTION ? value1 - value2 : value1 / value2;
+            return new ExpressionTree(toExpression(result), expressionTree.getPosition());
+        }
+        if (frame.isUnchanged())
+            return expressionTree;
+        return newNode(expressionTree, operands);
+    }
+
+    /**
+     * Function to optimize add or multi node from its optimized operands: constant operands are folded into one,
+     * kept after the other operands, and an operand calling the same function gives up its constant to it
+     * Nested calls are not flattened otherwise, so the work per node stays proportional to its own operands.
+     * @param frame
+     * @param arithmeticFunction ADD_FUNCTION or MULTI_FUNCTION
+     * @param counters
+     * @return
+     */
+    private static ExpressionTree optimizeVariadic(Frame frame, ArithmeticSymbols arithmeticFunction, Counters counters) {
+        ExpressionTree expressionTree = frame.node;
+        List<ExpressionTree> operands = new ArrayList<ExpressionTree>(frame.operands.length);
+        int constantCount = 0;
+        int constant = arithmeticFunction == ArithmeticSymbols.ADD_FUNCTION ? 0 : 1;
+        boolean isChanged = !frame.isUnchanged();
+        for (ExpressionTree operand : frame.operands) {
+            Integer value = getConstant(operand);
+            if (value == null && !operand.isLeafNode()
+                    && ArithmeticSymbols.getArithmeticFunction(operand.getExpression()) == arithmeticFunction) {
+                //Optimized operand of the same function has at most one constant, its last operand
+                List<ExpressionTree> nestedOperands = getOperands(operand);
+                value = getConstant(nestedOperands.get(nestedOperands.size() - 1));
+                if (value != null) {
+                    nestedOperands.remove(nestedOperands.size() - 1);
+                    operands.add(nestedOperands.size() == 1 ? nestedOperands.get(0)
+                            : newNode(operand, nestedOperands.toArray(new ExpressionTree[0])));
+                    isChanged = true;
+                } else {
+                    operands.add(operand);
+                }
+            } else if (value == null) {
+                operands.add(operand);
+            }
+            if (value != null) {
+                constantCount++;
+                constant = arithmeticFunction == ArithmeticSymbols.ADD_FUNCTION ? constant + value : constant * value;
+            }
+        }
+        if (operands.isEmpty()) {
+            counters.foldedFunctionCount++;
+            return new ExpressionTree(toExpression(constant), expressionTree.getPosition());
+        }
+        if (constantCount > 1)
+            counters.foldedFunctionCount++;
+        //Unchanged with at most one constant, already last
+        if (!isChanged && (constantCount == 0
+                || (constantCount == 1 && getConstant(frame.operands[frame.operands.length - 1]) != null)))
+            return expressionTree;
+        if (constantCount > 0)
+            operands.add(new ExpressionTree(toExpression(constant), expressionTree.getPosition()));
+        if (operands.size() == 1)
+            return operands.get(0);
+        return newNode(expressionTree, operands.toArray(new ExpressionTree[0]));
+    }
+
+    /**
+     * Get operands of function node, children 1, 3, ...
+     * @param expressionTree
+     * @return
+     */
+    static List<ExpressionTree> getOperands(ExpressionTree expressionTree) {
+        List<ExpressionTree> children = expressionTree.getChildren();
+        List<ExpressionTree> operands = new ArrayList<ExpressionTree>(children.size() / 2);
+        for (int i = 1; i < children.size() - 1; i += 2)
+            operands.add(children.get(i));
+        return operands;
+    }
+
+    /**
+     * Function to create node of same function or "let" operator as expressionTree with new operands
+     * @param expressionTree
+     * @param operands
+     * @return
+     */
+    static ExpressionTree newNode(ExpressionTree expressionTree, ExpressionTree... operands) {
+        ExpressionTree node = new ExpressionTree(expressionTree.getExpression(), expressionTree.getPosition());
+        List<ExpressionTree> children = expressionTree.getChildren();
+        node.addChild(children.get(0));
+        for (int i = 0; i < operands.length; i++) {
+            if (i > 0)
+                node.addChild(i * 2 < children.size() - 1 ? children.get(i * 2) : new ExpressionTree(ArithmeticSymbols.COMMA.toString()));
+            node.addChild(operands[i]);
+        }
+        node.addChild(children.get(children.size() - 1));
+        return node;
+    }
+
+    /**
+     * Get value of node if it is an int literal
+     * @param expressionTree
+     * @return value, null for other nodes and for literals outside int range
+     */
+    static Integer getConstant(ExpressionTree expressionTree) {
+        if (!expressionTree.isLeafNode() || !Helper.isInteger(expressionTree.getExpression()))
+            return null;
+        try {
+            return Integer.parseInt(expressionTree.getExpression());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String toExpression(int value) {
+        return String.valueOf(value);
+    }
+
+    /**
+     * Variables in scope, with the values of their bindings, innermost last; value is null for variables
+     * that are not constant
+     * Lookup takes constant time whatever the number of enclosing "let" operators.
+     */
+    private static final class Scope {
+        private final Map<String, List<String>> bindings = new HashMap<String, List<String>>();
+
+        private void bind(String name, String value) {
+            List<String> values = bindings.get(name);
+            if (values == null) {
+                values = new ArrayList<String>(1);
+                bindings.put(name, values);
+            }
+            values.add(value);
+        }
+
+        private void unbind(String name) {
+            List<String> values = bindings.get(name);
+            values.remove(values.size() - 1);
+        }
+
+        private String lookup(String name) {
+            List<String> values = bindings.get(name);
+            return values == null || values.isEmpty() ? null : values.get(values.size() - 1);
+        }
+    }
+
+    /**
+     * Function or "let" node whose operands are being optimized
+     * Operands are the function arguments, or the value and the expression of a "let" node.
+     */
+    private static final class Frame {
+        private final ExpressionTree node;
+        private final boolean isLet;
+        private final ExpressionTree[] operands;
+        private int operandCount;
+
+        private Frame(ExpressionTree node) {
+            this.node = node;
+            this.isLet = ArithmeticSymbols.isLetOperator(node.getExpression());
+            this.operands = new ExpressionTree[isLet ? 2 : node.getChildren().size() / 2];
+        }
+
+        /**
+         * Get operand in the input tree
+         * @param index
+         * @return
+         */
+        private ExpressionTree getOperand(int index) {
+            return node.getChildren().get(isLet ? 3 + 2 * index : 1 + 2 * index);
+        }
+
+        /**
+         * Check if optimized operands are the operands of the input tree
+         * @return
+         */
+        private boolean isUnchanged() {
+            for (int i = 0; i < operands.length; i++) {
+                if (operands[i] != getOperand(i))
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    private static final class Counters {
+        private int foldedFunctionCount;
+        private int inlinedLetCount;
+    }
+}
@@ -0,0 +1,93 @@
+package calculator.eval;
+
+import calculator.ExpressionTree;
+
+/**
+ * Optimized expression tree with a report of what ExpressionOptimizer or AlgebraicSimplifier eliminated
+ * Node counts include numbers, variables, functions and "let" operators, not parenthesis and comma entries.
+ */
+public final class OptimizationResult {
+
+    private final ExpressionTree expressionTree;
+    private final int nodeCountBefore;
+    private final int nodeCountAfter;
+    private final int foldedFunctionCount;
+    private final int inlinedLetCount;
+    private final int rewriteCount;
+
+    OptimizationResult(ExpressionTree expressionTree, int nodeCountBefore, int nodeCountAfter,
+                       int foldedFunctionCount, int inlinedLetCount, int rewriteCount) {
+        this.expressionTree = expressionTree;
+        this.nodeCountBefore = nodeCountBefore;
+        this.nodeCountAfter = nodeCountAfter;
+        this.foldedFunctionCount = foldedFunctionCount;
+        this.inlinedLetCount = inlinedLetCount;
+        this.rewriteCount = rewriteCount;
+    }
+
+    /**
+     * Get optimized expression tree
+     * @return
+     */
+    public ExpressionTree getExpressionTree() {
+        return expressionTree;
+    }
+
+    /**
+     * Get number of nodes of the input tree
+     * @return
+     */
+    public int getNodeCountBefore() {
+        return nodeCountBefore;
+    }
+
+    /**
+     * Get number of nodes of the optimized tree
+     * @return
+     */
+    public int getNodeCountAfter() {
+        return nodeCountAfter;
+    }
+
+    /**
+     * Get number of nodes eliminated
+     * @return
+     */
+    public int getEliminatedNodeCount() {
+        return nodeCountBefore - nodeCountAfter;
+    }
+
+    /**
+     * Get number of function calls whose constant operands were folded
+     * @return
+     */
+    public int getFoldedFunctionCount() {
+        return foldedFunctionCount;
+    }
+
+    /**
+     * Get number of "let" bindings inlined
+     * @return
+     */
+    public int getInlinedLetCount() {
+        return inlinedLetCount;
+    }
+
+    /**
+     * Get number of algebraic simplification rules applied
+     * @return
+     */
+    public int getRewriteCount() {
+        return rewriteCount;
+    }
+
+    /**
+     * Logic to print report
+     * @return
+     */
+    @Override
+    public String toString() {
+        return "nodes=" + nodeCountBefore + "->" + nodeCountAfter + " eliminated=" + getEliminatedNodeCount()
+                + " folded=" + foldedFunctionCount + " inlinedLets=" + inlinedLetCount + " rewrites=" + rewriteCount;
+    }
+}
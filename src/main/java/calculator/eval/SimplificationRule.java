@@ -0,0 +1,329 @@
+package calculator.eval;
+
+import calculator.ExpressionTree;
+import calculator.utils.ArithmeticSymbols;
+import calculator.utils.Helper;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Algebraic identities applied by AlgebraicSimplifier
+ * Every rule replaces a node by one of its operands or by a literal, so each rewrite removes at least
+ * one node: the simplifier reaches a fixpoint after at most as many rewrites as the tree has nodes.
+ *
+ * Identities hold both for int arithmetic wrapping on overflow and for exact arithmetic. A rule dropping an
+ * operand that is evaluated by the original expression applies only if that operand cannot fail, that is
+ * contains no div by a divisor other than a non-zero literal, no unbound variable and no literal outside
+ * int range; so div by zero and invalid argument errors are raised exactly as before.
+ * Checks over operands visit at most MAX_VISITED_NODES nodes and otherwise leave the node unchanged.
+ */
+public enum SimplificationRule {
+
+    /**
+     * add(x, 0) -> x; zero operands of add are removed
+     */
+    ADD_ZERO {
+        @Override
+        ExpressionTree apply(ExpressionTree expressionTree, List<String> scope) {
+            return removeOperands(expressionTree, ArithmeticSymbols.ADD_FUNCTION, 0);
+        }
+    },
+
+    /**
+     * multi(x, 1) -> x; one operands of multi are removed
+     */
+    MULTI_ONE {
+        @Override
+        ExpressionTree apply(ExpressionTree expressionTree, List<String> scope) {
+            return removeOperands(expressionTree, ArithmeticSymbols.MULTI_FUNCTION, 1);
+        }
+    },
+
+    /**
+     * multi(x, 0) -> 0, if no other operand can fail
+     */
+    MULTI_ZERO {
+        @Override
+        ExpressionTree apply(ExpressionTree expressionTree, List<String> scope) {
+            if (getFunction(expressionTree) != ArithmeticSymbols.MULTI_FUNCTION)
+                return null;
+            List<ExpressionTree> operands = ExpressionOptimizer.getOperands(expressionTree);
+            ExpressionTree zero = null;
+            for (ExpressionTree operand : operands) {
+                if (isLiteral(operand, 0)) {
+                    zero = operand;
+                    break;
+                }
+            }
+            if (zero == null)
+                return null;
+            for (ExpressionTree operand : operands) {
+                if (operand != zero && canFail(operand, scope))
+                    return null;
+            }
+            return zero;
+        }
+    },
+
+    /**
+     * sub(x, 0) -> x
+     */
+    SUB_ZERO {
+        @Override
+        ExpressionTree apply(ExpressionTree expressionTree, List<String> scope) {
+            if (getFunction(expressionTree) != ArithmeticSymbols.SUB_FUNCTION || !isLiteral(expressionTree.getChildren().get(3), 0))
+                return null;
+            return expressionTree.getChildren().get(1);
+        }
+    },
+
+    /**
+     * sub(x, x) -> 0, if x cannot fail
+     */
+    SUB_SELF {
+        @Override
+        ExpressionTree apply(ExpressionTree expressionTree, List<String> scope) {
+            if (getFunction(expressionTree) != ArithmeticSymbols.SUB_FUNCTION)
+                return null;
+            ExpressionTree operand1 = expressionTree.getChildren().get(1);
+            ExpressionTree operand2 = expressionTree.getChildren().get(3);
+            //Same tree in the same scope is the same value
+            if (!isEqual(operand1, operand2) || canFail(operand1, scope))
+                return null;
+            return new ExpressionTree("0", expressionTree.getPosition());
+        }
+    },
+
+    /**
+     * div(x, 1) -> x
+     */
+    DIV_ONE {
+        @Override
+        ExpressionTree apply(ExpressionTree expressionTree, List<String> scope) {
+            if (getFunction(expressionTree) != ArithmeticSymbols.DIV_FUNCTION || !isLiteral(expressionTree.getChildren().get(3), 1))
+                return null;
+            return expressionTree.getChildren().get(1);
+        }
+    },
+
+    /**
+     * let(a, value, a) -> value
+     */
+    LET_IDENTITY {
+        @Override
+        ExpressionTree apply(ExpressionTree expressionTree, List<String> scope) {
+            if (!ArithmeticSymbols.isLetOperator(expressionTree.getExpression()))
+                return null;
+            List<ExpressionTree> children = expressionTree.getChildren();
+            ExpressionTree body = children.get(5);
+            if (!body.isLeafNode() || !body.getExpression().equals(children.get(1).getExpression()))
+                return null;
+            return children.get(3);
+        }
+    },
+
+    /**
+     * let(a, value, expression) -> expression, if a is not used in expression and value cannot fail
+     */
+    LET_UNUSED {
+        @Override
+        ExpressionTree apply(ExpressionTree expressionTree, List<String> scope) {
+            if (!ArithmeticSymbols.isLetOperator(expressionTree.getExpression()))
+                return null;
+            List<ExpressionTree> children = expressionTree.getChildren();
+            String variableName = children.get(1).getExpression();
+            if (isUsed(variableName, children.get(5)) || canFail(children.get(3), scope))
+                return null;
+            return children.get(5);
+        }
+    };
+
+    /**
+     * Rewrite node if the rule applies to it
+     * @param expressionTree function or "let" node whose operands are already simplified
+     * @param scope variables bound around the node: parameters and enclosing "let" variables
+     * @return node with fewer nodes, null if the rule does not apply
+     */
+    abstract ExpressionTree apply(ExpressionTree expressionTree, List<String> scope);
+
+    /**
+     * Maximum number of nodes visited by a check made by a rule; beyond it the check gives the answer for which
+     * the rule does not apply, so that each rule application takes bounded time whatever the tree size
+     */
+    static final int MAX_VISITED_NODES = 1024;
+
+    /**
+     * Check if evaluating tree may throw: div by a divisor other than a non-zero literal, unbound variable,
+     * or literal outside int range
+     * Trees over MAX_VISITED_NODES nodes are assumed to fail.
+     * @param expressionTree
+     * @param scope bound variables
+     * @return
+     */
+    static boolean canFail(ExpressionTree expressionTree, List<String> scope) {
+        //Each pending node comes with the "let" variables bound around it, innermost first
+        Deque<ExpressionTree> nodes = new ArrayDeque<ExpressionTree>();
+        Deque<Binding> bindings = new ArrayDeque<Binding>();
+        nodes.push(expressionTree);
+        bindings.push(Binding.NONE);
+        for (int visitedCount = 0; !nodes.isEmpty(); visitedCount++) {
+            if (visitedCount == MAX_VISITED_NODES)
+                return true;
+            ExpressionTree node = nodes.pop();
+            Binding binding = bindings.pop();
+            String expression = node.getExpression();
+            if (node.isLeafNode()) {
+                boolean canFail = Helper.isInteger(expression) ? ExpressionOptimizer.getConstant(node) == null
+                        : !binding.contains(expression) && !scope.contains(expression);
+                if (canFail)
+                    return true;
+                continue;
+            }
+            List<ExpressionTree> children = node.getChildren();
+            if (ArithmeticSymbols.isLetOperator(expression)) {
+                nodes.push(children.get(5));
+                bindings.push(new Binding(children.get(1).getExpression(), binding));
+                nodes.push(children.get(3));
+                bindings.push(binding);
+                continue;
+            }
+            if (getFunction(node) == ArithmeticSymbols.DIV_FUNCTION) {
+                Integer divisor = ExpressionOptimizer.getConstant(children.get(3));
+                if (divisor == null || divisor == 0)
+                    return true;
+            }
+            for (int i = children.size() - 2; i > 0; i -= 2) {
+                nodes.push(children.get(i));
+                bindings.push(binding);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check if variable is used in tree, outside of "let" expressions rebinding it
+     * Trees over MAX_VISITED_NODES nodes are assumed to use it.
+     * @param variableName
+     * @param expressionTree
+     * @return
+     */
+    static boolean isUsed(String variableName, ExpressionTree expressionTree) {
+        Deque<ExpressionTree> nodes = new ArrayDeque<ExpressionTree>();
+        nodes.push(expressionTree);
+        for (int visitedCount = 0; !nodes.isEmpty(); visitedCount++) {
+            if (visitedCount == MAX_VISITED_NODES)
+                return true;
+            ExpressionTree node = nodes.pop();
+            if (node.isLeafNode()) {
+                if (node.getExpression().equals(variableName))
+                    return true;
+                continue;
+            }
+            List<ExpressionTree> children = node.getChildren();
+            if (ArithmeticSymbols.isLetOperator(node.getExpression())) {
+                if (!children.get(1).getExpression().equals(variableName))
+                    nodes.push(children.get(5));
+                nodes.push(children.get(3));
+                continue;
+            }
+            for (int i = children.size() - 2; i > 0; i -= 2)
+                nodes.push(children.get(i));
+        }
+        return false;
+    }
+
+    /**
+     * Check if trees have the same nodes
+     * Trees over MAX_VISITED_NODES nodes are assumed to differ.
+     * @param expressionTree1
+     * @param expressionTree2
+     * @return
+     */
+    static boolean isEqual(ExpressionTree expressionTree1, ExpressionTree expressionTree2) {
+        Deque<ExpressionTree> nodes = new ArrayDeque<ExpressionTree>();
+        nodes.push(expressionTree1);
+        nodes.push(expressionTree2);
+        for (int visitedCount = 0; !nodes.isEmpty(); visitedCount++) {
+            if (visitedCount == MAX_VISITED_NODES)
+                return false;
+            ExpressionTree node2 = nodes.pop();
+            ExpressionTree node1 = nodes.pop();
+            if (node1 == node2)
+                continue;
+            if (!node1.getExpression().equals(node2.getExpression()) || node1.isLeafNode() != node2.isLeafNode())
+                return false;
+            if (node1.isLeafNode())
+                continue;
+            List<ExpressionTree> children1 = node1.getChildren();
+            List<ExpressionTree> children2 = node2.getChildren();
+            if (children1.size() != children2.size())
+                return false;
+            for (int i = 1; i < children1.size() - 1; i += 2) {
+                nodes.push(children1.get(i));
+                nodes.push(children2.get(i));
+            }
+        }
+        return true;
+    }
+
+    private static ArithmeticSymbols getFunction(ExpressionTree expressionTree) {
+        return ArithmeticSymbols.getArithmeticFunction(expressionTree.getExpression());
+    }
+
+    private static boolean isLiteral(ExpressionTree expressionTree, int value) {
+        Integer constant = ExpressionOptimizer.getConstant(expressionTree);
+        return constant != null && constant == value;
+    }
+
+    /**
+     * Function to remove identity operands of add or multi node
+     * @param expressionTree
+     * @param arithmeticFunction
+     * @param identity
+     * @return node without identity operands, its only remaining operand, or null if it has no identity operand
+     */
+    private static ExpressionTree removeOperands(ExpressionTree expressionTree, ArithmeticSymbols arithmeticFunction, int identity) {
+        if (getFunction(expressionTree) != arithmeticFunction)
+            return null;
+        List<ExpressionTree> operands = ExpressionOptimizer.getOperands(expressionTree);
+        List<ExpressionTree> keptOperands = new ArrayList<ExpressionTree>(operands.size());
+        for (ExpressionTree operand : operands) {
+            if (!isLiteral(operand, identity))
+                keptOperands.add(operand);
+        }
+        if (keptOperands.size() == operands.size())
+            return null;
+        //Only identities: one of them is the result
+        if (keptOperands.isEmpty())
+            return operands.get(0);
+        if (keptOperands.size() == 1)
+            return keptOperands.get(0);
+        return ExpressionOptimizer.newNode(expressionTree, keptOperands.toArray(new ExpressionTree[0]));
+    }
+
+    /**
+     * Immutable list of "let" variables bound around a node, shared by the nodes of the same scope
+     */
+    private static final class Binding {
+        private static final Binding NONE = new Binding(null, null);
+
+        private final String name;
+        private final Binding parent;
+
+        private Binding(String name, Binding parent) {
+            this.name = name;
+            this.parent = parent;
+        }
+
+        private boolean contains(String variableName) {
+            for (Binding binding = this; binding != NONE; binding = binding.parent) {
+                if (binding.name.equals(variableName))
+                    return true;
+            }
+            return false;
+        }
+    }
+}
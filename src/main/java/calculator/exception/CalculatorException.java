@@ -14,11 +14,35 @@ public class CalculatorException extends Exception {
     public static final String INVALID_ARGUMENTS = "Invalid/Missing arguments for let operator or arithmetic function";
     public static final String ERROR_ENCOUNTERED_IN_CALCULATION = "Error encountered in calculation";
 
+    /**
+     * Position in the input expression where the error was found, -1 if unknown
+     */
+    private final int position;
+
     /**
      * Constructor
      * @param message
      */
     public CalculatorException(String message) {
         super(message);
+        this.position = -1;
+    }
+
+    /**
+     * Constructor for errors found at a character position in the input expression
+     * @param message
+     * @param position
+     */
+    public CalculatorException(String message, int position) {
+        super(message + " at position " + position);
+        this.position = position;
+    }
+
+    /**
+     * Get position in the input expression where the error was found
+     * @return position, -1 if unknown
+     */
+    public int getPosition() {
+        return position;
     }
 }
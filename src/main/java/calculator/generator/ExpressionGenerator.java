@@ -0,0 +1,390 @@
+package calculator.generator;
+
+import calculator.utils.ArithmeticSymbols;
+import calculator.utils.CommandLineOptions;
+import calculator.utils.Helper;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Seeded generator of random expressions in the calculator grammar, valid or deliberately invalid
+ * The same seed and settings give the same expressions on every machine and JVM: SplittableRandom is
+ * specified as SplitMix64, and generation depends on nothing else.
+ *
+ * Settings:
+ *      maxDepth          nesting depth of functions and "let" operators; every expression reaches it
+ *      maxFanOut         maximum number of operands of add and multi, at least 2
+ *      letPercentage     share of function nodes replaced by a "let" operator
+ *      reusePercentage   share of operands using a variable of an enclosing "let" instead of a literal
+ *      minLiteral, maxLiteral  range of literals; outside int range they are valid in exact mode only
+ *      errorPercentage   share of expressions made invalid by one error: missing parenthesis, extra or missing
+ *                        argument, unbound variable or invalid character
+ * Divisors are non-zero literals, so valid expressions always evaluate. Valid expressions hold at least one
+ * function, which Main and MainTree require of their input: a node at depth 1 is a function until one is appended.
+ *
+ * Command line, one expression per line to stdout or to a file:
+ *      java calculator.generator.ExpressionGenerator --count=1000000 --seed=42 --depth=8 --fan-out=4
+ *              --let=20 --reuse=50 --min-literal=-100 --max-literal=100 --errors=5 --output=corpus.txt
+ */
+public class ExpressionGenerator {
+
+    public static final String COUNT_OPTION = "count";
+    public static final String SEED_OPTION = "seed";
+    public static final String DEPTH_OPTION = "depth";
+    public static final String FAN_OUT_OPTION = "fan-out";
+    public static final String LET_OPTION = "let";
+    public static final String REUSE_OPTION = "reuse";
+    public static final String MIN_LITERAL_OPTION = "min-literal";
+    public static final String MAX_LITERAL_OPTION = "max-literal";
+    public static final String ERRORS_OPTION = "errors";
+    public static final String OUTPUT_OPTION = "output";
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final String[] FUNCTIONS = {"add", "sub", "multi", "div"};
+
+    /**
+     * Names of the first "let" variables of an expression, not to build them again
+     */
+    private static final String[] VARIABLE_NAMES = createVariableNames(1024);
+
+    private final SplittableRandom random;
+    private final int maxDepth;
+    private final int maxFanOut;
+    private final int letPercentage;
+    private final int reusePercentage;
+    private final long minLiteral;
+    private final long maxLiteral;
+    private final int errorPercentage;
+
+    /**
+     * Variables of the enclosing "let" operators while an expression is generated, innermost last
+     */
+    private final List<String> scope = new ArrayList<String>();
+    private int variableCount;
+    private boolean hasFunction;
+
+    /**
+     * Pending steps while an expression is generated, empty between expressions
+     */
+    private final Deque<Task> tasks = new ArrayDeque<Task>();
+
+    /**
+     * Constructor
+     * @param seed
+     * @param maxDepth at least 1
+     * @param maxFanOut at least 2
+     * @param letPercentage 0 to 100
+     * @param reusePercentage 0 to 100
+     * @param minLiteral
+     * @param maxLiteral at least minLiteral
+     * @param errorPercentage 0 to 100
+     */
+    public ExpressionGenerator(long seed, int maxDepth, int maxFanOut, int letPercentage, int reusePercentage,
+                               long minLiteral, long maxLiteral, int errorPercentage) {
+        if (maxDepth < 1 || maxFanOut < 2 || !isPercentage(letPercentage) || !isPercentage(reusePercentage)
+                || minLiteral > maxLiteral || !isPercentage(errorPercentage))
+            throw new IllegalArgumentException("Invalid generator settings");
+        this.random = new SplittableRandom(seed);
+        this.maxDepth = maxDepth;
+        this.maxFanOut = maxFanOut;
+        this.letPercentage = letPercentage;
+        this.reusePercentage = reusePercentage;
+        this.minLiteral = minLiteral;
+        this.maxLiteral = maxLiteral;
+        this.errorPercentage = errorPercentage;
+    }
+
+    /**
+     * Create generator from command line options, with defaults for options not given
+     * Assumption: No exception thrown for invalid number; default value is used in this case.
+     * @param options
+     * @return
+     */
+    public static ExpressionGenerator fromCommandLineOptions(CommandLineOptions options) {
+        return new ExpressionGenerator(options.getLongOption(SEED_OPTION, 1),
+                (int) options.getLongOption(DEPTH_OPTION, 6), (int) options.getLongOption(FAN_OUT_OPTION, 3),
+                (int) options.getLongOption(LET_OPTION, 20), (int) options.getLongOption(REUSE_OPTION, 50),
+                options.getLongOption(MIN_LITERAL_OPTION, -100), options.getLongOption(MAX_LITERAL_OPTION, 100),
+                (int) options.getLongOption(ERRORS_OPTION, 0));
+    }
+
+    public static void main(String[] args) throws IOException {
+        CommandLineOptions options = new CommandLineOptions(args);
+        ExpressionGenerator expressionGenerator = fromCommandLineOptions(options);
+        long count = options.getLongOption(COUNT_OPTION, 1000);
+        String outputFile = options.getOption(OUTPUT_OPTION);
+        if (Helper.isNullOrEmptyString(outputFile)) {
+            expressionGenerator.write(System.out, count);
+            System.out.flush();
+            return;
+        }
+        try (OutputStream outputStream = new FileOutputStream(outputFile)) {
+            expressionGenerator.write(outputStream, count);
+        }
+    }
+
+    /**
+     * Generate next expression
+     * @return
+     */
+    public String next() {
+        StringBuilder expression = new StringBuilder();
+        next(expression);
+        return expression.toString();
+    }
+
+    /**
+     * Append next expression, without line separator
+     * @param expression
+     */
+    public void next(StringBuilder expression) {
+        if (random.nextInt(100) >= errorPercentage) {
+            appendExpression(expression, maxDepth);
+            return;
+        }
+        appendInvalidExpression(expression);
+    }
+
+    /**
+     * Write expressions in US-ASCII, one per line
+     * Lines are encoded in blocks of about BUFFER_SIZE bytes written at once, so output is limited by the
+     * generation rate, not by the stream.
+     * @param outputStream not closed
+     * @param count number of expressions
+     * @throws IOException
+     */
+    public void write(OutputStream outputStream, long count) throws IOException {
+        StringBuilder lines = new StringBuilder(BUFFER_SIZE + 1024);
+        byte[] buffer = new byte[0];
+        for (long i = 0; i < count; i++) {
+            next(lines);
+            lines.append('\n');
+            if (lines.length() >= BUFFER_SIZE || i == count - 1) {
+                if (buffer.length < lines.length())
+                    buffer = new byte[lines.length()];
+                //Expressions are ASCII only
+                for (int j = 0; j < lines.length(); j++)
+                    buffer[j] = (byte) lines.charAt(j);
+                outputStream.write(buffer, 0, lines.length());
+                lines.setLength(0);
+            }
+        }
+    }
+
+    /**
+     * Function to append valid expression of given depth
+     * The first operand reaches the depth, others have a random smaller depth, so the size stays polynomial
+     * in depth and fan-out. Nodes are expanded from an explicit stack of tasks, so any depth is supported.
+     * @param expression
+     * @param depth
+     */
+    private void appendExpression(StringBuilder expression, int depth) {
+        variableCount = 0;
+        hasFunction = false;
+        tasks.push(new Task(Task.EXPRESSION, depth, null));
+        while (!tasks.isEmpty()) {
+            Task task = tasks.pop();
+            switch (task.kind) {
+                case Task.EXPRESSION:
+                    expand(expression, (int) task.value, tasks);
+                    break;
+                case Task.LITERAL:
+                    expression.append(task.value);
+                    break;
+                case Task.TEXT:
+                    expression.append(task.text);
+                    break;
+                case Task.BIND:
+                    scope.add(task.text);
+                    break;
+                default:
+                    scope.remove(scope.size() - 1);
+            }
+        }
+    }
+
+    /**
+     * Function to append operand if depth is 0, or the start of a function or "let" node and push the tasks
+     * appending the rest of it
+     * @param expression
+     * @param depth
+     * @param tasks
+     */
+    private void expand(StringBuilder expression, int depth, Deque<Task> tasks) {
+        if (depth == 0) {
+            appendOperand(expression);
+            return;
+        }
+        //Tasks run in reverse order of pushing; "let" at depth 1 binds operands only, so is a function until one exists
+        if (random.nextInt(100) < letPercentage && (depth > 1 || hasFunction)) {
+            String variableName = getVariableName(variableCount++);
+            expression.append("let(").append(variableName).append(", ");
+            tasks.push(Task.CLOSE_PARENTHESIS);
+            tasks.push(Task.UNBIND_VARIABLE);
+            tasks.push(new Task(Task.EXPRESSION, depth - 1, null));
+            tasks.push(new Task(Task.BIND, 0, variableName));
+            tasks.push(Task.COMMA);
+            tasks.push(new Task(Task.EXPRESSION, random.nextInt(depth), null));
+            return;
+        }
+        String function = FUNCTIONS[random.nextInt(FUNCTIONS.length)];
+        hasFunction = true;
+        int operandCount = function.equals("add") || function.equals("multi") ? 2 + random.nextInt(maxFanOut - 1) : 2;
+        expression.append(function).append('(');
+        Task[] operands = new Task[operandCount];
+        operands[0] = new Task(Task.EXPRESSION, depth - 1, null);
+        for (int i = 1; i < operandCount; i++) {
+            operands[i] = function.equals("div") ? new Task(Task.LITERAL, nextDivisor(), null)
+                    : new Task(Task.EXPRESSION, random.nextInt(depth), null);
+        }
+        tasks.push(Task.CLOSE_PARENTHESIS);
+        for (int i = operandCount - 1; i >= 0; i--) {
+            tasks.push(operands[i]);
+            if (i > 0)
+                tasks.push(Task.COMMA);
+        }
+    }
+
+    /**
+     * Function to append variable of an enclosing "let" or literal
+     * @param expression
+     */
+    private void appendOperand(StringBuilder expression) {
+        if (!scope.isEmpty() && random.nextInt(100) < reusePercentage)
+            expression.append(scope.get(random.nextInt(scope.size())));
+        else
+            expression.append(nextLiteral());
+    }
+
+    /**
+     * Function to append expression with one error
+     * @param expression
+     */
+    private void appendInvalidExpression(StringBuilder expression) {
+        int start = expression.length();
+        switch (random.nextInt(5)) {
+            case 0:
+                //Missing parenthesis: last one dropped
+                appendExpression(expression, maxDepth);
+                expression.setLength(expression.length() - 1);
+                break;
+            case 1:
+                //Extra argument
+                expression.append("sub(");
+                appendExpression(expression, maxDepth - 1);
+                expression.append(", 1, 2)");
+                break;
+            case 2:
+                //Missing argument
+                expression.append("div(");
+                appendExpression(expression, maxDepth - 1);
+                expression.append(')');
+                break;
+            case 3:
+                //Unbound variable, named beyond any "let" variable
+                expression.append("add(");
+                appendExpression(expression, maxDepth - 1);
+                expression.append(", unbound)");
+                break;
+            default:
+                //Invalid character anywhere
+                appendExpression(expression, maxDepth);
+                expression.insert(start + random.nextInt(expression.length() - start + 1), '#');
+        }
+    }
+
+    private long nextLiteral() {
+        if (minLiteral == Long.MIN_VALUE && maxLiteral == Long.MAX_VALUE)
+            return random.nextLong();
+        return maxLiteral == Long.MAX_VALUE ? random.nextLong(minLiteral - 1, maxLiteral) + 1
+                : random.nextLong(minLiteral, maxLiteral + 1);
+    }
+
+    /**
+     * Function returning non-zero literal, 1 if the range holds zero only
+     * @return
+     */
+    private long nextDivisor() {
+        for (int i = 0; i < 16; i++) {
+            long divisor = nextLiteral();
+            if (divisor != 0)
+                return divisor;
+        }
+        return minLiteral < 0 && maxLiteral <= 0 ? -1 : 1;
+    }
+
+    /**
+     * Function to name variable i of an expression with letters only: a, b, ..., z, ba, bb, ...
+     * @param i
+     * @return
+     */
+    private static String getVariableName(int i) {
+        if (i < VARIABLE_NAMES.length)
+            return VARIABLE_NAMES[i];
+        String variableName = toLetters(i);
+        //Keywords are shorter than the names beyond the cache, except multi
+        return ArithmeticSymbols.classify(variableName) == null ? variableName : variableName + 'a';
+    }
+
+    private static String[] createVariableNames(int count) {
+        String[] variableNames = new String[count];
+        int index = 0;
+        for (int i = 0; i < count; i++) {
+            do {
+                variableNames[i] = toLetters(index++);
+            } while (ArithmeticSymbols.classify(variableNames[i]) != null);
+        }
+        return variableNames;
+    }
+
+    private static String toLetters(int index) {
+        StringBuilder letters = new StringBuilder();
+        do {
+            letters.insert(0, (char) ('a' + index % 26));
+            index /= 26;
+        } while (index > 0);
+        return letters.toString();
+    }
+
+    private static boolean isPercentage(int percentage) {
+        return percentage >= 0 && percentage <= 100;
+    }
+
+    /**
+     * Pending step of the generation
+     *      EXPRESSION: append expression of depth value
+     *      LITERAL: append literal value
+     *      TEXT: append text
+     *      BIND: add "let" variable to the scope
+     *      UNBIND: remove innermost "let" variable from the scope
+     */
+    private static final class Task {
+        private static final int EXPRESSION = 0;
+        private static final int TEXT = 1;
+        private static final int BIND = 2;
+        private static final int UNBIND = 3;
+        private static final int LITERAL = 4;
+
+        //Tasks without state, shared
+        private static final Task COMMA = new Task(TEXT, 0, ", ");
+        private static final Task CLOSE_PARENTHESIS = new Task(TEXT, 0, ")");
+        private static final Task UNBIND_VARIABLE = new Task(UNBIND, 0, null);
+
+        private final int kind;
+        private final long value;
+        private final String text;
+
+        private Task(int kind, long value, String text) {
+            this.kind = kind;
+            this.value = value;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package calculator.jit;
+
+import calculator.ExpressionTree;
+import calculator.exception.CalculatorException;
+import calculator.vm.Compiler;
+import calculator.vm.OpCode;
+import calculator.vm.Program;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Translates a Program to JVM bytecode and loads it as a hidden class implementing IntExpression
+ * Each stack machine instruction maps to one JVM instruction and "let" slots become local variables,
+ * so the JIT compiler sees plain int arithmetic it can inline and optimize.
+ *
+ * Hidden classes are defined without ClassOption.STRONG: a generated class is unloaded once
+ * its IntExpression instance is no longer reachable, e.g. after eviction from a cache.
+ *
+ * Example: let(a, 5, add(a, 3))
+ *         PUSH 5, STORE 0, LOAD 0, PUSH 3, ADD  ->  iconst_5, istore_2, iload_2, iconst_3, iadd, ireturn
+ *
+ * Parameters of the program are copied from the vars argument into their local variables on entry.
+ */
+public class BytecodeCompiler {
+
+    /**
+     * JVM limit on bytecode length of a method
+     */
+    public static final int MAX_METHOD_CODE_LENGTH = 65535;
+
+    private static final String CLASS_NAME = BytecodeCompiler.class.getPackage().getName().replace('.', '/')
+            + "/GeneratedExpression";
+
+    //Local variable 0 is "this", 1 is the vars argument
+    private static final int FIRST_SLOT_LOCAL = 2;
+    private static final int MAX_CONSTANT_POOL_COUNT = 65535;
+
+    private static final int ICONST_0 = 0x03;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC = 0x12;
+    private static final int LDC_W = 0x13;
+    private static final int ILOAD = 0x15;
+    private static final int ALOAD_1 = 0x2B;
+    private static final int IALOAD = 0x2E;
+    private static final int ISTORE = 0x36;
+    private static final int IADD = 0x60;
+    private static final int ISUB = 0x64;
+    private static final int IMUL = 0x68;
+    private static final int IDIV = 0x6C;
+    private static final int IRETURN = 0xAC;
+    private static final int WIDE = 0xC4;
+
+    private final MethodHandles.Lookup lookup = MethodHandles.lookup();
+    private final Compiler compiler = new Compiler();
+
+    /**
+     * Compile expression tree to a hidden class
+     * @param expressionTree
+     * @return
+     * @throws CalculatorException
+     */
+    public IntExpression compile(ExpressionTree expressionTree) throws CalculatorException {
+        return compile(compiler.compile(expressionTree));
+    }
+
+    /**
+     * Compile program to a hidden class
+     * @param program
+     * @return
+     * @throws IllegalArgumentException if program exceeds JVM method limits
+     */
+    public IntExpression compile(Program program) {
+        byte[] classBytes = generate(program);
+        try {
+            MethodHandles.Lookup hiddenClassLookup = lookup.defineHiddenClass(classBytes, true);
+            return (IntExpression) hiddenClassLookup
+                    .findConstructor(hiddenClassLookup.lookupClass(), MethodType.methodType(void.class))
+                    .invoke();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Could not load generated expression class", e);
+        }
+    }
+
+    /**
+     * Generate class file bytes for program
+     * @param program
+     * @return
+     * @throws IllegalArgumentException if program exceeds JVM method limits
+     */
+    byte[] generate(Program program) {
+        ClassFileWriter classFileWriter = new ClassFileWriter(CLASS_NAME);
+        ByteArrayOutputStream evalCode = new ByteArrayOutputStream();
+        for (int parameter = 0; parameter < program.getParameterCount(); parameter++) {
+            evalCode.write(ALOAD_1);
+            writePush(evalCode, classFileWriter, parameter);
+            evalCode.write(IALOAD);
+            writeLocalVariableInstruction(evalCode, ISTORE, FIRST_SLOT_LOCAL + parameter);
+        }
+        int[] code = program.getCode();
+        for (int pc = 0; pc < code.length; pc++) {
+            switch (code[pc]) {
+                case OpCode.PUSH:
+                    writePush(evalCode, classFileWriter, code[++pc]);
+                    break;
+                case OpCode.LOAD:
+                    writeLocalVariableInstruction(evalCode, ILOAD, FIRST_SLOT_LOCAL + code[++pc]);
+                    break;
+                case OpCode.STORE:
+                    writeLocalVariableInstruction(evalCode, ISTORE, FIRST_SLOT_LOCAL + code[++pc]);
+                    break;
+                case OpCode.ADD:
+                    evalCode.write(IADD);
+                    break;
+                case OpCode.SUB:
+                    evalCode.write(ISUB);
+                    break;
+                case OpCode.MULTI:
+                    evalCode.write(IMUL);
+                    break;
+                case OpCode.DIV:
+                    evalCode.write(IDIV);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Invalid instruction " + code[pc] + " at " + pc);
+            }
+        }
+        evalCode.write(IRETURN);
+        int maxLocals = FIRST_SLOT_LOCAL + program.getSlotCount();
+        //Copying a parameter needs the vars array and the index on the stack
+        int maxStack = program.getParameterCount() == 0 ? program.getMaxStackDepth() : Math.max(2, program.getMaxStackDepth());
+        if (evalCode.size() > MAX_METHOD_CODE_LENGTH || maxStack > MAX_METHOD_CODE_LENGTH
+                || maxLocals > MAX_METHOD_CODE_LENGTH || classFileWriter.getConstantPoolCount() > MAX_CONSTANT_POOL_COUNT)
+            throw new IllegalArgumentException("Program exceeds JVM method limits");
+        return classFileWriter.toByteArray(evalCode.toByteArray(), maxStack, maxLocals);
+    }
+
+    private void writePush(ByteArrayOutputStream evalCode, ClassFileWriter classFileWriter, int value) {
+        if (value >= -1 && value <= 5) {
+            evalCode.write(ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            evalCode.write(BIPUSH);
+            evalCode.write(value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            evalCode.write(SIPUSH);
+            evalCode.write(value >> 8);
+            evalCode.write(value);
+        } else {
+            int index = classFileWriter.addInteger(value);
+            if (index <= 0xFF) {
+                evalCode.write(LDC);
+                evalCode.write(index);
+            } else {
+                evalCode.write(LDC_W);
+                evalCode.write(index >> 8);
+                evalCode.write(index);
+            }
+        }
+    }
+
+    private void writeLocalVariableInstruction(ByteArrayOutputStream evalCode, int instruction, int local) {
+        if (local <= 0xFF) {
+            evalCode.write(instruction);
+            evalCode.write(local);
+        } else {
+            evalCode.write(WIDE);
+            evalCode.write(instruction);
+            evalCode.write(local >> 8);
+            evalCode.write(local);
+        }
+    }
+}
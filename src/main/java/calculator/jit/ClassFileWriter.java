@@ -0,0 +1,176 @@
+package calculator.jit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Minimal class file writer for generated IntExpression classes
+ * Writes a final class implementing IntExpression with a no-argument constructor and a single
+ * straight-line eval([I)I method. The method has no branches, so no StackMapTable is needed.
+ */
+class ClassFileWriter {
+
+    private static final int CLASS_FILE_MAGIC = 0xCAFEBABE;
+    private static final int JAVA_17_MAJOR_VERSION = 61;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int ALOAD_0 = 0x2A;
+    private static final int INVOKESPECIAL = 0xB7;
+    private static final int RETURN = 0xB1;
+
+    private final ByteArrayOutputStream constantPoolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream constantPool = new DataOutputStream(constantPoolBytes);
+    private final Map<Integer, Integer> integerConstants = new HashMap<Integer, Integer>();
+    private int constantPoolCount = 1;
+
+    private final int thisClass;
+    private final int superClass;
+    private final int interfaceClass;
+    private final int objectConstructor;
+    private final int constructorName;
+    private final int constructorDescriptor;
+    private final int evalName;
+    private final int evalDescriptor;
+    private final int codeAttributeName;
+
+    /**
+     * Constructor
+     * @param className internal name of the class, e.g. calculator/jit/GeneratedExpression
+     */
+    ClassFileWriter(String className) {
+        thisClass = addClass(className);
+        superClass = addClass("java/lang/Object");
+        interfaceClass = addClass(IntExpression.class.getName().replace('.', '/'));
+        constructorName = addUtf8("<init>");
+        constructorDescriptor = addUtf8("()V");
+        objectConstructor = addConstant(CONSTANT_METHODREF, superClass,
+                addConstant(CONSTANT_NAME_AND_TYPE, constructorName, constructorDescriptor));
+        evalName = addUtf8("eval");
+        evalDescriptor = addUtf8("([I)I");
+        codeAttributeName = addUtf8("Code");
+    }
+
+    /**
+     * Get constant pool index for int constant, adding it if missing
+     * @param value
+     * @return
+     */
+    int addInteger(int value) {
+        Integer index = integerConstants.get(value);
+        if (index == null) {
+            try {
+                constantPool.writeByte(CONSTANT_INTEGER);
+                constantPool.writeInt(value);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            index = constantPoolCount++;
+            integerConstants.put(value, index);
+        }
+        return index;
+    }
+
+    /**
+     * Get number of constant pool entries, including the unused entry 0
+     * @return
+     */
+    int getConstantPoolCount() {
+        return constantPoolCount;
+    }
+
+    /**
+     * Write class file with given eval method body
+     * @param evalCode bytecode of eval([I)I
+     * @param maxStack
+     * @param maxLocals
+     * @return class file bytes
+     */
+    byte[] toByteArray(byte[] evalCode, int maxStack, int maxLocals) {
+        try {
+            ByteArrayOutputStream classBytes = new ByteArrayOutputStream(evalCode.length + 256);
+            DataOutputStream classFile = new DataOutputStream(classBytes);
+            classFile.writeInt(CLASS_FILE_MAGIC);
+            classFile.writeShort(0);
+            classFile.writeShort(JAVA_17_MAJOR_VERSION);
+            classFile.writeShort(constantPoolCount);
+            constantPool.flush();
+            constantPoolBytes.writeTo(classFile);
+            classFile.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            classFile.writeShort(thisClass);
+            classFile.writeShort(superClass);
+            classFile.writeShort(1);
+            classFile.writeShort(interfaceClass);
+            classFile.writeShort(0); //fields
+            classFile.writeShort(2); //methods
+            byte[] constructorCode = {(byte) ALOAD_0, (byte) INVOKESPECIAL,
+                    (byte) (objectConstructor >> 8), (byte) objectConstructor, (byte) RETURN};
+            writeMethod(classFile, constructorName, constructorDescriptor, constructorCode, 1, 1);
+            writeMethod(classFile, evalName, evalDescriptor, evalCode, maxStack, maxLocals);
+            classFile.writeShort(0); //attributes
+            classFile.flush();
+            return classBytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeMethod(DataOutputStream classFile, int name, int descriptor, byte[] code,
+                             int maxStack, int maxLocals) throws IOException {
+        classFile.writeShort(ACC_PUBLIC);
+        classFile.writeShort(name);
+        classFile.writeShort(descriptor);
+        classFile.writeShort(1);
+        classFile.writeShort(codeAttributeName);
+        classFile.writeInt(12 + code.length);
+        classFile.writeShort(maxStack);
+        classFile.writeShort(maxLocals);
+        classFile.writeInt(code.length);
+        classFile.write(code);
+        classFile.writeShort(0); //exception table
+        classFile.writeShort(0); //attributes
+    }
+
+    private int addUtf8(String value) {
+        try {
+            constantPool.writeByte(CONSTANT_UTF8);
+            constantPool.writeUTF(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return constantPoolCount++;
+    }
+
+    private int addClass(String internalName) {
+        int name = addUtf8(internalName);
+        try {
+            constantPool.writeByte(CONSTANT_CLASS);
+            constantPool.writeShort(name);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return constantPoolCount++;
+    }
+
+    private int addConstant(int tag, int index1, int index2) {
+        try {
+            constantPool.writeByte(tag);
+            constantPool.writeShort(index1);
+            constantPool.writeShort(index2);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return constantPoolCount++;
+    }
+}
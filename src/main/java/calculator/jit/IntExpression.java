@@ -0,0 +1,15 @@
+package calculator.jit;
+
+/**
+ * Expression compiled to JVM bytecode
+ * Implementations are generated by BytecodeCompiler and loaded as hidden classes.
+ */
+public interface IntExpression {
+
+    /**
+     * Evaluate expression
+     * @param vars values of the program parameters, in parameter slot order; unused by expressions without parameters
+     * @return
+     */
+    int eval(int[] vars);
+}
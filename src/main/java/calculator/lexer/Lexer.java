@@ -0,0 +1,286 @@
+package calculator.lexer;
+
+import calculator.exception.CalculatorException;
+import calculator.utils.ArithmeticSymbols;
+
+/**
+ * Single pass tokenizer for input expressions
+ * Scans the input once from left to right and exposes the current token as
+ * kind, start/end offset, pre-parsed int value (numbers) and symbol (functions, "let", parenthesis, comma).
+ *
+ * Whitespace between tokens is skipped. Keywords are matched case-insensitively.
+ * No String is created while scanning; getText() builds one on demand.
+ *
+ * Example: let(a, 5, add(a, a))
+ *         LET OPEN_PARENTHESIS VARIABLE COMMA NUMBER COMMA FUNCTION OPEN_PARENTHESIS
+ *         VARIABLE COMMA VARIABLE CLOSE_PARENTHESIS CLOSE_PARENTHESIS END
+ */
+public class Lexer {
+
+    private final CharSequence input;
+    private final int limit;
+    private final boolean isExact;
+    private int position;
+
+    //Current token
+    private TokenKind kind;
+    private int start;
+    private int end;
+    private int intValue;
+    private boolean isIntValue;
+    private ArithmeticSymbols symbol;
+
+    /**
+     * Constructor
+     * @param input
+     */
+    public Lexer(CharSequence input) {
+        this(input, 0, input.length());
+    }
+
+    /**
+     * Constructor for a region of the input
+     * @param input
+     * @param from start offset (inclusive)
+     * @param to end offset (exclusive)
+     */
+    public Lexer(CharSequence input, int from, int to) {
+        this(input, from, to, false);
+    }
+
+    /**
+     * Constructor for exact arithmetic, accepting integer literals of any length
+     * NUMBER tokens outside int range have isIntValue() false; their value is read from getText().
+     * @param input
+     * @param isExact
+     */
+    public Lexer(CharSequence input, boolean isExact) {
+        this(input, 0, input.length(), isExact);
+    }
+
+    /**
+     * Constructor for a region of the input
+     * @param input
+     * @param from start offset (inclusive)
+     * @param to end offset (exclusive)
+     * @param isExact true to accept integer literals outside int range
+     */
+    public Lexer(CharSequence input, int from, int to, boolean isExact) {
+        this.input = input;
+        this.position = from;
+        this.limit = to;
+        this.isExact = isExact;
+    }
+
+    /**
+     * Advance to the next token
+     * @return kind of the token read, END once input is exhausted
+     * @throws CalculatorException for characters or words which are not valid tokens
+     */
+    public TokenKind next() throws CalculatorException {
+        while (position < limit && isWhitespace(input.charAt(position)))
+            position++;
+        start = position;
+        symbol = null;
+        if (position >= limit) {
+            end = position;
+            kind = TokenKind.END;
+            return kind;
+        }
+        char character = input.charAt(position);
+        switch (character) {
+            case '(':
+                return singleCharacterToken(TokenKind.OPEN_PARENTHESIS, ArithmeticSymbols.OPEN_PARENTHESIS);
+            case ')':
+                return singleCharacterToken(TokenKind.CLOSE_PARENTHESIS, ArithmeticSymbols.CLOSE_PARENTHESIS);
+            case ',':
+                return singleCharacterToken(TokenKind.COMMA, ArithmeticSymbols.COMMA);
+            default:
+                if (!isWordCharacter(character))
+                    throw new CalculatorException(CalculatorException.INPUT_EXPRESSION_INVALID, position);
+        }
+        while (position < limit && isWordCharacter(input.charAt(position)))
+            position++;
+        end = position;
+        kind = classifyWord();
+        return kind;
+    }
+
+    /**
+     * Kind of the current token
+     * @return
+     */
+    public TokenKind getKind() {
+        return kind;
+    }
+
+    /**
+     * Start offset (inclusive) of the current token in the input
+     * @return
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * End offset (exclusive) of the current token in the input
+     * @return
+     */
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * Value of the current NUMBER token
+     * @return
+     */
+    public int getIntValue() {
+        return intValue;
+    }
+
+    /**
+     * Check if the current NUMBER token is within int range, always true unless exact
+     * @return
+     */
+    public boolean isIntValue() {
+        return isIntValue;
+    }
+
+    /**
+     * Symbol of the current FUNCTION, LET, parenthesis or COMMA token, null otherwise
+     * @return
+     */
+    public ArithmeticSymbols getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * Get the input this lexer reads from
+     * @return
+     */
+    public CharSequence getInput() {
+        return input;
+    }
+
+    /**
+     * Text of the current token
+     * Symbols return their shared constant name, variables are returned in lower case.
+     * @return
+     */
+    public String getText() {
+        if (symbol != null)
+            return symbol.toString();
+        if (kind == TokenKind.NUMBER)
+            return input.subSequence(start, end).toString();
+        char[] text = new char[end - start];
+        for (int i = start; i < end; i++)
+            text[i - start] = toLowerCase(input.charAt(i));
+        return new String(text);
+    }
+
+    private TokenKind singleCharacterToken(TokenKind tokenKind, ArithmeticSymbols tokenSymbol) {
+        position++;
+        end = position;
+        symbol = tokenSymbol;
+        kind = tokenKind;
+        return kind;
+    }
+
+    /**
+     * Classify word [start, end) as a keyword, number or variable
+     * Examples of invalid words: 5a, a5, -a, 5-
+     * @return
+     * @throws CalculatorException
+     */
+    private TokenKind classifyWord() throws CalculatorException {
+        char first = input.charAt(start);
+        if (first == '-' || isDigit(first)) {
+            intValue = parseInteger();
+            return TokenKind.NUMBER;
+        }
+        for (int i = start; i < end; i++) {
+            if (!isLetter(input.charAt(i)))
+                throw new CalculatorException(CalculatorException.INPUT_EXPRESSION_INVALID, start);
+        }
+        symbol = matchKeyword();
+        if (symbol == null)
+            return TokenKind.VARIABLE;
+        return symbol == ArithmeticSymbols.LET_OPERATOR ? TokenKind.LET : TokenKind.FUNCTION;
+    }
+
+    /**
+     * Parse [start, end) as an integer within Integer.MIN_VALUE to Integer.MAX_VALUE
+     * Accumulates negatively so that Integer.MIN_VALUE does not overflow.
+     * If exact, an integer out of that range is accepted with isIntValue false.
+     * @return
+     * @throws CalculatorException
+     */
+    private int parseInteger() throws CalculatorException {
+        isIntValue = true;
+        int i = start;
+        boolean negative = input.charAt(i) == '-';
+        if (negative)
+            i++;
+        if (i == end)
+            throw new CalculatorException(CalculatorException.INPUT_EXPRESSION_INVALID, start);
+        int limitValue = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+        int multiplyMin = limitValue / 10;
+        int result = 0;
+        for (; i < end; i++) {
+            char character = input.charAt(i);
+            if (!isDigit(character))
+                throw new CalculatorException(CalculatorException.INPUT_EXPRESSION_INVALID, start);
+            int digit = character - '0';
+            if (result < multiplyMin || result * 10 < limitValue + digit)
+                return outOfRange(i + 1);
+            result = result * 10 - digit;
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * Function to handle integer out of int range, checking the digits from index on
+     * @param index
+     * @return 0, the value being read from getText()
+     * @throws CalculatorException if not exact, or for a non digit character
+     */
+    private int outOfRange(int index) throws CalculatorException {
+        if (!isExact)
+            throw new CalculatorException(CalculatorException.INPUT_EXPRESSION_INVALID, start);
+        for (int i = index; i < end; i++) {
+            if (!isDigit(input.charAt(i)))
+                throw new CalculatorException(CalculatorException.INPUT_EXPRESSION_INVALID, start);
+        }
+        isIntValue = false;
+        return 0;
+    }
+
+    /**
+     * Match [start, end) against keywords ignoring case
+     * @return keyword symbol or null
+     */
+    private ArithmeticSymbols matchKeyword() {
+        return ArithmeticSymbols.classify(input, start, end);
+    }
+
+    private static boolean isWhitespace(char character) {
+        return character == ' ' || character == '\t' || character == '\n'
+                || character == '\r' || character == '\f' || character == '\u000B';
+    }
+
+    private static boolean isWordCharacter(char character) {
+        return isLetter(character) || isDigit(character) || character == '-';
+    }
+
+    private static boolean isLetter(char character) {
+        return (character >= 'a' && character <= 'z') || (character >= 'A' && character <= 'Z');
+    }
+
+    private static boolean isDigit(char character) {
+        return character >= '0' && character <= '9';
+    }
+
+    private static char toLowerCase(char character) {
+        return (character >= 'A' && character <= 'Z') ? (char) (character + ('a' - 'A')) : character;
+    }
+}
@@ -0,0 +1,22 @@
+package calculator.lexer;
+
+/**
+ * Kinds of tokens produced by the Lexer
+ * 1. FUNCTION : Arithmetic Functions: add, sub, multi, div
+ * 2. LET : "let" operator
+ * 3. OPEN_PARENTHESIS, CLOSE_PARENTHESIS : "(" and ")"
+ * 4. COMMA : ","
+ * 5. NUMBER : Integer (Range: Integer.MIN_VALUE to Integer.MAX_VALUE)
+ * 6. VARIABLE : String of characters (Range: a-z, A-Z)
+ * 7. END : End of input expression
+ */
+public enum TokenKind {
+    FUNCTION,
+    LET,
+    OPEN_PARENTHESIS,
+    CLOSE_PARENTHESIS,
+    COMMA,
+    NUMBER,
+    VARIABLE,
+    END
+}
@@ -0,0 +1,14 @@
+package calculator.metrics;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event: Expression list or tree compiled to a Program, for the stack machine or exact mode
+ */
+@Name("calculator.Compile")
+@Label("Compile")
+@Description("Expression list or tree compiled to a Program, for the stack machine or exact mode")
+public class CompileEvent extends ExpressionEvent {
+}
@@ -0,0 +1,14 @@
+package calculator.metrics;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event: Arithmetic evaluated on the compiled Program or the expression tree
+ */
+@Name("calculator.Evaluate")
+@Label("Evaluate")
+@Description("Arithmetic evaluated on the compiled Program or the expression tree")
+public class EvaluateEvent extends ExpressionEvent {
+}
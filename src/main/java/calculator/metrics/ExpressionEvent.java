@@ -0,0 +1,102 @@
+package calculator.metrics;
+
+import calculator.batch.BatchProcessor;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Java Flight Recorder event for one phase of a calculation, subclassed by phase
+ * Events are recorded only while a recording runs, and only for phases lasting at least their threshold,
+ * 1 ms by default, so slow expressions can be correlated with GC and JIT activity in JDK Mission Control.
+ * Depth and node count are computed from the input expression for events recorded only.
+ *
+ * Usage, around a phase:
+ *      ExpressionEvent event = new ParseEvent();
+ *      event.begin();
+ *      ...
+ *      event.commit("MainTree", inputExprStr, null);    (or the CalculatorException or ArithmeticException thrown by the phase)
+ *
+ * Example: java -XX:StartFlightRecording:filename=calculator.jfr calculator.MainTree --batch=input.txt
+ *          jfr print --events calculator.Evaluate calculator.jfr
+ * Thresholds are settings of the recording, e.g. in a copy of default.jfc:
+ *      <event name="calculator.Evaluate"><setting name="enabled">true</setting><setting name="threshold">100 us</setting></event>
+ */
+@Category("Calculator")
+@StackTrace(false)
+@Threshold(ExpressionEvent.DEFAULT_THRESHOLD)
+public abstract class ExpressionEvent extends Event {
+
+    /**
+     * Threshold of all calculator events unless set by the recording
+     */
+    public static final String DEFAULT_THRESHOLD = "1 ms";
+
+    /**
+     * Status of phases that completed
+     */
+    public static final String OK_STATUS = "OK";
+
+    @Label("Engine")
+    @Description("Main or MainTree")
+    String engine;
+
+    @Label("Expression Length")
+    @Description("Characters of the input expression")
+    int expressionLength;
+
+    @Label("Depth")
+    @Description("Maximum parenthesis nesting of the input expression")
+    int depth;
+
+    @Label("Node Count")
+    @Description("Numbers, variables, functions and let operators of the input expression")
+    int nodeCount;
+
+    @Label("Status")
+    @Description("OK, or the message of the CalculatorException or ArithmeticException thrown by the phase")
+    String status;
+
+    /**
+     * End event and commit it if it is enabled and lasted at least its threshold
+     * @param engine
+     * @param inputExprStr input expression, null if missing
+     * @param exception CalculatorException or ArithmeticException thrown by the phase, null if it completed
+     */
+    public void commit(String engine, String inputExprStr, Exception exception) {
+        end();
+        if (!shouldCommit())
+            return;
+        this.engine = engine;
+        this.status = exception == null ? OK_STATUS : BatchProcessor.getErrorMessage(exception);
+        if (inputExprStr != null) {
+            this.expressionLength = inputExprStr.length();
+            measure(inputExprStr);
+        }
+        commit();
+    }
+
+    /**
+     * Function to set depth and node count of input expression, scanning it once
+     * Each run of letters, digits and minus signs is one node.
+     * @param inputExprStr
+     */
+    private void measure(String inputExprStr) {
+        int currentDepth = 0;
+        boolean isInNode = false;
+        for (int i = 0; i < inputExprStr.length(); i++) {
+            char c = inputExprStr.charAt(i);
+            boolean isNodeChar = Character.isLetterOrDigit(c) || c == '-';
+            if (isNodeChar && !isInNode)
+                nodeCount++;
+            isInNode = isNodeChar;
+            if (c == '(')
+                depth = Math.max(depth, ++currentDepth);
+            else if (c == ')')
+                currentDepth--;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package calculator.metrics;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event: "let" operators resolved, by Main's scan of the expression list or MainTree's optimization passes
+ */
+@Name("calculator.LetResolution")
+@Label("Let Resolution")
+@Description("\"let\" operators resolved, by Main's scan of the expression list or MainTree's optimization passes")
+public class LetResolutionEvent extends ExpressionEvent {
+}
@@ -0,0 +1,14 @@
+package calculator.metrics;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event: Input expression tokenized and parsed to an expression list (Main) or expression tree (MainTree)
+ */
+@Name("calculator.Parse")
+@Label("Parse")
+@Description("Input expression tokenized and parsed to an expression list (Main) or expression tree (MainTree)")
+public class ParseEvent extends ExpressionEvent {
+}
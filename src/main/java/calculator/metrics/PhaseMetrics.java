@@ -0,0 +1,466 @@
+package calculator.metrics;
+
+import calculator.batch.BatchProcessor;
+import calculator.exception.CalculatorException;
+import calculator.utils.CommandLineOptions;
+import org.apache.log4j.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.Closeable;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-phase instrumentation of Main.calculate and MainTree.calculate
+ * Each engine records the time of its phases, size of its inputs and its errors here, safe from any number of
+ * threads: counters are LongAdders and latencies and sizes go to lock-free LatencyHistograms. Engines given no
+ * PhaseMetrics check one null field per phase and record nothing.
+ *
+ * Calculations and errors are counted on every calculation. Phases are timed, and input lengths recorded, on a
+ * random sample of one in sampleInterval chains of phases, as a System.nanoTime() call and a histogram increment
+ * per phase cost more than a few percent of a cached calculation; counts and totals of phases are those of the
+ * sample. Node counts and "let" expansion are recorded on every compilation, which costs far more.
+ *
+ * Phases:
+ *      validate : checks of the input string, and of the tree in MainTree
+ *      tokenize : input string to expression list (Main) or expression tree (MainTree)
+ *      let      : "let" resolution, by Main's scan of the list or MainTree's optimization passes
+ *      compile  : expression list or tree to a Program, for the stack machine or exact mode
+ *      evaluate : arithmetic on the Program or the tree
+ * Cache hits skip tokenize, let and compile.
+ *
+ * Sizes: input length in characters; node count of compiled expressions, entries of the expression list in Main
+ * and nodes of the tree in MainTree; "let" expansion factor, size after "let" resolution in percent of the size
+ * before. Sizes are kept in LatencyHistograms too, so their percentiles are within 12.5%.
+ *
+ * Published as the MXBean calculator:type=PhaseMetrics,name=<engine> and, if a period is given, dumped as text
+ * at that period.
+ * Example: java calculator.MainTree --batch=input.txt --metrics=10    (JMX, and a dump to stderr every 10 seconds)
+ *          java calculator.MainTree --serve 8080 --metrics=0         (JMX only)
+ *          java calculator.MainTree --serve 8080 --metrics=0 --metrics-sample=1    (every phase timed)
+ */
+public class PhaseMetrics implements PhaseMetricsMXBean, Closeable {
+
+    /**
+     * Command line option enabling metrics: --metrics, or --metrics=seconds between dumps, 0 for no dump
+     */
+    public static final String METRICS_OPTION = "metrics";
+
+    /**
+     * Seconds between dumps when --metrics is given without a period
+     */
+    public static final long DEFAULT_DUMP_PERIOD_SECONDS = 60;
+
+    /**
+     * Command line option setting the sample interval of phase timing: --metrics-sample=n, one in n chains of phases
+     */
+    public static final String METRICS_SAMPLE_OPTION = "metrics-sample";
+
+    /**
+     * Sample interval of phase timing when --metrics-sample is not given
+     */
+    public static final int DEFAULT_SAMPLE_INTERVAL = 16;
+
+    /**
+     * Start time of a chain of phases that is not timed
+     */
+    public static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+    private static final Logger LOGGER = Logger.getLogger(PhaseMetrics.class);
+
+    private static final String POSITION_SUFFIX = " at position ";
+    private static final int MAX_ERROR_MESSAGES = 64;
+    private static final String OTHER_ERROR_MESSAGE = "other";
+    private static final String ARITHMETIC_ERROR_PREFIX = "ArithmeticException: ";
+
+    /**
+     * Phases of a calculation, in order
+     */
+    public enum Phase {
+        VALIDATE, TOKENIZE, LET, COMPILE, EVALUATE;
+
+        private final String displayName = name().toLowerCase(Locale.ROOT);
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final String name;
+    private final int sampleInterval;
+    private final LongAdder calculationCount = new LongAdder();
+    private final LatencyHistogram calculationLatency = new LatencyHistogram();
+    private final LongAdder errorCount = new LongAdder();
+    private final LatencyHistogram[] phaseLatencies = new LatencyHistogram[PHASES.length];
+    private final LongAdder[] phaseNanos = new LongAdder[PHASES.length];
+    private final LatencyHistogram inputLengths = new LatencyHistogram();
+    private final LatencyHistogram nodeCounts = new LatencyHistogram();
+    private final LatencyHistogram letExpansionPercents = new LatencyHistogram();
+    private final ConcurrentHashMap<String, LongAdder> errorCounts = new ConcurrentHashMap<String, LongAdder>();
+
+    private ObjectName objectName;
+    private ScheduledExecutorService dumpExecutor;
+    private PrintStream dumpStream;
+
+    /**
+     * Constructor timing every phase
+     * @param name engine name, part of the JMX object name and first line of the dump
+     */
+    public PhaseMetrics(String name) {
+        this(name, 1);
+    }
+
+    /**
+     * Constructor with sample interval of phase timing
+     * @param name engine name, part of the JMX object name and first line of the dump
+     * @param sampleInterval one in sampleInterval chains of phases is timed, 1 for all
+     */
+    public PhaseMetrics(String name, int sampleInterval) {
+        if (sampleInterval < 1)
+            throw new IllegalArgumentException("Sample interval must be at least 1");
+        this.name = name;
+        this.sampleInterval = sampleInterval;
+        for (int i = 0; i < PHASES.length; i++) {
+            phaseLatencies[i] = new LatencyHistogram();
+            phaseNanos[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Create metrics from command line options, registered over JMX and dumped to stderr at the given period
+     * Assumption: No exception thrown for invalid period; metrics are published over JMX only in this case.
+     * Assumption: No exception thrown for invalid sample interval; the default is used in this case.
+     * @param options
+     * @param name engine name
+     * @return metrics, null if not enabled on the command line
+     */
+    public static PhaseMetrics fromCommandLineOptions(CommandLineOptions options, String name) {
+        if (!options.hasOption(METRICS_OPTION))
+            return null;
+        long sampleInterval = options.getLongOption(METRICS_SAMPLE_OPTION, DEFAULT_SAMPLE_INTERVAL);
+        PhaseMetrics phaseMetrics = new PhaseMetrics(name,
+                sampleInterval < 1 || sampleInterval > Integer.MAX_VALUE ? DEFAULT_SAMPLE_INTERVAL : (int) sampleInterval);
+        phaseMetrics.register();
+        String period = options.getOption(METRICS_OPTION);
+        long periodSeconds = period == null || period.isEmpty() ? DEFAULT_DUMP_PERIOD_SECONDS
+                : options.getLongOption(METRICS_OPTION, 0);
+        if (periodSeconds > 0)
+            phaseMetrics.startDump(periodSeconds, TimeUnit.SECONDS, System.err);
+        return phaseMetrics;
+    }
+
+    /**
+     * Register as MXBean in the platform MBean server
+     * Assumption: No exception thrown if registration fails, e.g. for a name already registered; the error is logged.
+     * @return true if registered
+     */
+    public synchronized boolean register() {
+        if (objectName != null)
+            return true;
+        try {
+            ObjectName newObjectName = new ObjectName("calculator:type=PhaseMetrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, newObjectName);
+            objectName = newObjectName;
+            return true;
+        } catch (JMException e) {
+            LOGGER.error("Metrics not registered over JMX: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Write report to stream at a fixed period, from a daemon thread
+     * @param period
+     * @param unit
+     * @param stream
+     */
+    public synchronized void startDump(long period, TimeUnit unit, PrintStream stream) {
+        if (dumpExecutor != null)
+            dumpExecutor.shutdownNow();
+        dumpStream = stream;
+        dumpExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "calculator-metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumpExecutor.scheduleAtFixedRate(() -> stream.println(getReport()), period, period, unit);
+    }
+
+    /**
+     * Stop the periodic dump, writing a last report, and unregister from JMX
+     */
+    @Override
+    public synchronized void close() {
+        if (dumpExecutor != null) {
+            dumpExecutor.shutdownNow();
+            try {
+                //A dump in progress completes before the last one
+                dumpExecutor.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            dumpStream.println(getReport());
+            dumpStream.flush();
+            dumpExecutor = null;
+        }
+        if (objectName != null) {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            try {
+                mBeanServer.unregisterMBean(objectName);
+            } catch (JMException e) {
+                LOGGER.error("Metrics not unregistered from JMX: " + e.getMessage());
+            }
+            objectName = null;
+        }
+    }
+
+    /**
+     * Start a chain of phases, timed if sampled
+     * @return System.nanoTime() if sampled, NOT_SAMPLED otherwise
+     */
+    public long start() {
+        if (sampleInterval > 1 && ThreadLocalRandom.current().nextInt(sampleInterval) != 0)
+            return NOT_SAMPLED;
+        return System.nanoTime();
+    }
+
+    /**
+     * Record phase that started at startNanos and ends now
+     * Phases of a calculation are chained: the end of one is the start of the next.
+     * @param phase
+     * @param startNanos start of the phase, from start() or from the previous phase
+     * @return System.nanoTime() at the end of the phase, NOT_SAMPLED if the chain is not sampled
+     */
+    public long record(Phase phase, long startNanos) {
+        if (startNanos == NOT_SAMPLED)
+            return NOT_SAMPLED;
+        long endNanos = System.nanoTime();
+        long nanos = endNanos - startNanos;
+        phaseLatencies[phase.ordinal()].record(nanos);
+        phaseNanos[phase.ordinal()].add(nanos);
+        return endNanos;
+    }
+
+    /**
+     * Record calculation that started at startNanos and ends now
+     * @param startNanos start of the calculation, from start()
+     * @param inputLength length of the input expression, 0 if missing
+     */
+    public void recordCalculation(long startNanos, int inputLength) {
+        calculationCount.increment();
+        if (startNanos == NOT_SAMPLED)
+            return;
+        calculationLatency.record(System.nanoTime() - startNanos);
+        inputLengths.record(inputLength);
+    }
+
+    /**
+     * Record sizes of a compiled expression before and after "let" resolution
+     * @param nodeCountBefore
+     * @param nodeCountAfter
+     */
+    public void recordLetExpansion(long nodeCountBefore, long nodeCountAfter) {
+        nodeCounts.record(nodeCountBefore);
+        if (nodeCountBefore > 0)
+            letExpansionPercents.record(nodeCountAfter * 100 / nodeCountBefore);
+    }
+
+    /**
+     * Record error of a calculation, by message without position
+     * Assumption: Messages beyond the 64 first distinct ones are counted as "other".
+     * @param e
+     */
+    public void recordError(CalculatorException e) {
+        String message = e.getMessage();
+        if (message == null)
+            message = OTHER_ERROR_MESSAGE;
+        else if (e.getPosition() >= 0 && message.lastIndexOf(POSITION_SUFFIX) > 0)
+            message = message.substring(0, message.lastIndexOf(POSITION_SUFFIX));
+        countError(message);
+    }
+
+    /**
+     * Record arithmetic error of a calculation, e.g. div by zero, as "ArithmeticException: <message>"
+     * @param e
+     */
+    public void recordError(ArithmeticException e) {
+        countError(ARITHMETIC_ERROR_PREFIX + BatchProcessor.getErrorMessage(e));
+    }
+
+    /**
+     * Function to count error under message
+     * @param message
+     */
+    private void countError(String message) {
+        errorCount.increment();
+        LongAdder counter = errorCounts.get(message);
+        if (counter == null) {
+            if (errorCounts.size() >= MAX_ERROR_MESSAGES)
+                message = OTHER_ERROR_MESSAGE;
+            counter = errorCounts.computeIfAbsent(message, key -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    @Override
+    public long getCalculationCount() {
+        return calculationCount.sum();
+    }
+
+    @Override
+    public int getSampleInterval() {
+        return sampleInterval;
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    @Override
+    public long getCalculationP50Nanos() {
+        return calculationLatency.getPercentile(50);
+    }
+
+    @Override
+    public long getCalculationP99Nanos() {
+        return calculationLatency.getPercentile(99);
+    }
+
+    @Override
+    public Map<String, Long> getPhaseCounts() {
+        Map<String, Long> phaseCounts = new LinkedHashMap<String, Long>();
+        for (Phase phase : PHASES)
+            phaseCounts.put(phase.displayName, phaseLatencies[phase.ordinal()].getCount());
+        return phaseCounts;
+    }
+
+    @Override
+    public Map<String, Long> getPhaseTotalNanos() {
+        Map<String, Long> phaseTotalNanos = new LinkedHashMap<String, Long>();
+        for (Phase phase : PHASES)
+            phaseTotalNanos.put(phase.displayName, phaseNanos[phase.ordinal()].sum());
+        return phaseTotalNanos;
+    }
+
+    @Override
+    public Map<String, Long> getPhaseP50Nanos() {
+        return getPhasePercentiles(50);
+    }
+
+    @Override
+    public Map<String, Long> getPhaseP99Nanos() {
+        return getPhasePercentiles(99);
+    }
+
+    @Override
+    public long getInputLengthP50() {
+        return inputLengths.getPercentile(50);
+    }
+
+    @Override
+    public long getInputLengthP99() {
+        return inputLengths.getPercentile(99);
+    }
+
+    @Override
+    public long getNodeCountP50() {
+        return nodeCounts.getPercentile(50);
+    }
+
+    @Override
+    public long getNodeCountP99() {
+        return nodeCounts.getPercentile(99);
+    }
+
+    @Override
+    public long getLetExpansionPercentP50() {
+        return letExpansionPercents.getPercentile(50);
+    }
+
+    @Override
+    public long getLetExpansionPercentP99() {
+        return letExpansionPercents.getPercentile(99);
+    }
+
+    @Override
+    public Map<String, Long> getErrorCounts() {
+        Map<String, Long> counts = new TreeMap<String, Long>();
+        for (Map.Entry<String, LongAdder> entry : errorCounts.entrySet())
+            counts.put(entry.getKey(), entry.getValue().sum());
+        return counts;
+    }
+
+    /**
+     * Logic to print all metrics, one line per phase
+     * Example:
+     *      metrics MainTree: calculations=1000 errors=2 sample=1/16 p50=1791ns p99=4095ns
+     *        validate count=1000 total=61000us p50=55ns p99=119ns
+     *        ...
+     *        inputLength p50=47 p99=95 nodeCount p50=13 p99=27 letExpansion p50=79% p99=100%
+     *        error "Parenthesis mismatch"=2
+     * @return
+     */
+    @Override
+    public String getReport() {
+        StringBuilder report = new StringBuilder();
+        report.append("metrics ").append(name).append(": calculations=").append(getCalculationCount())
+                .append(" errors=").append(getErrorCount()).append(" sample=1/").append(sampleInterval)
+                .append(" p50=").append(getCalculationP50Nanos()).append("ns p99=").append(getCalculationP99Nanos()).append("ns");
+        for (Phase phase : PHASES) {
+            LatencyHistogram phaseLatency = phaseLatencies[phase.ordinal()];
+            report.append("\n  ").append(phase.displayName).append(" count=").append(phaseLatency.getCount())
+                    .append(" total=").append(phaseNanos[phase.ordinal()].sum() / 1000).append("us")
+                    .append(" p50=").append(phaseLatency.getPercentile(50)).append("ns")
+                    .append(" p99=").append(phaseLatency.getPercentile(99)).append("ns");
+        }
+        report.append("\n  inputLength p50=").append(getInputLengthP50()).append(" p99=").append(getInputLengthP99())
+                .append(" nodeCount p50=").append(getNodeCountP50()).append(" p99=").append(getNodeCountP99())
+                .append(" letExpansion p50=").append(getLetExpansionPercentP50())
+                .append("% p99=").append(getLetExpansionPercentP99()).append('%');
+        for (Map.Entry<String, Long> entry : getErrorCounts().entrySet())
+            report.append("\n  error \"").append(entry.getKey()).append("\"=").append(entry.getValue());
+        return report.toString();
+    }
+
+    @Override
+    public void reset() {
+        calculationCount.reset();
+        calculationLatency.reset();
+        errorCount.reset();
+        for (int i = 0; i < PHASES.length; i++) {
+            phaseLatencies[i].reset();
+            phaseNanos[i].reset();
+        }
+        inputLengths.reset();
+        nodeCounts.reset();
+        letExpansionPercents.reset();
+        errorCounts.clear();
+    }
+
+    /**
+     * Logic to print report
+     * @return
+     */
+    @Override
+    public String toString() {
+        return getReport();
+    }
+
+    private Map<String, Long> getPhasePercentiles(double percentile) {
+        Map<String, Long> phasePercentiles = new LinkedHashMap<String, Long>();
+        for (Phase phase : PHASES)
+            phasePercentiles.put(phase.displayName, phaseLatencies[phase.ordinal()].getPercentile(percentile));
+        return phasePercentiles;
+    }
+}
@@ -0,0 +1,118 @@
+package calculator.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of PhaseMetrics, published as calculator:type=PhaseMetrics,name=<engine>
+ * Latencies are in nanoseconds; maps are keyed by lower case phase name or by error message.
+ */
+public interface PhaseMetricsMXBean {
+
+    /**
+     * Get number of calculations, successful or not
+     * @return
+     */
+    long getCalculationCount();
+
+    /**
+     * Get sample interval of phase timing: one in sampleInterval chains of phases is timed
+     * @return
+     */
+    int getSampleInterval();
+
+    /**
+     * Get number of calculations that threw CalculatorException or ArithmeticException
+     * @return
+     */
+    long getErrorCount();
+
+    /**
+     * Get median latency of whole calculations, sampled
+     * @return
+     */
+    long getCalculationP50Nanos();
+
+    /**
+     * Get 99th percentile latency of whole calculations, sampled
+     * @return
+     */
+    long getCalculationP99Nanos();
+
+    /**
+     * Get number of times each phase was timed
+     * @return
+     */
+    Map<String, Long> getPhaseCounts();
+
+    /**
+     * Get time spent in each phase when timed
+     * @return
+     */
+    Map<String, Long> getPhaseTotalNanos();
+
+    /**
+     * Get median latency of each phase
+     * @return
+     */
+    Map<String, Long> getPhaseP50Nanos();
+
+    /**
+     * Get 99th percentile latency of each phase
+     * @return
+     */
+    Map<String, Long> getPhaseP99Nanos();
+
+    /**
+     * Get median length of input expressions, in characters, sampled
+     * @return
+     */
+    long getInputLengthP50();
+
+    /**
+     * Get 99th percentile length of input expressions, in characters, sampled
+     * @return
+     */
+    long getInputLengthP99();
+
+    /**
+     * Get median node count of compiled expressions
+     * @return
+     */
+    long getNodeCountP50();
+
+    /**
+     * Get 99th percentile node count of compiled expressions
+     * @return
+     */
+    long getNodeCountP99();
+
+    /**
+     * Get median size after "let" resolution, in percent of the size before
+     * @return
+     */
+    long getLetExpansionPercentP50();
+
+    /**
+     * Get 99th percentile size after "let" resolution, in percent of the size before
+     * @return
+     */
+    long getLetExpansionPercentP99();
+
+    /**
+     * Get number of errors by CalculatorException message, without position, and by
+     * "ArithmeticException: <message>" for arithmetic errors such as div by zero
+     * @return
+     */
+    Map<String, Long> getErrorCounts();
+
+    /**
+     * Get all metrics as text, as written by the periodic dump
+     * @return
+     */
+    String getReport();
+
+    /**
+     * Remove all recorded metrics
+     */
+    void reset();
+}
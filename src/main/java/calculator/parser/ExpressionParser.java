@@ -0,0 +1,184 @@
+package calculator.parser;
+
+import calculator.ExpressionTree;
+import calculator.exception.CalculatorException;
+import calculator.lexer.Lexer;
+import calculator.lexer.TokenKind;
+import calculator.utils.ArithmeticSymbols;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Parser building an ExpressionTree in one left-to-right pass over the tokens
+ * Each token is read exactly once, so parsing is O(n) in input length.
+ * Descent into nested functions uses an explicit stack instead of recursion, so nesting depth is limited by
+ * heap only, not by the thread stack.
+ *
+ * Grammar:
+ *      expression := FUNCTION "(" expression "," expression ")"
+ *                  | ("add" | "multi") "(" expression ("," expression)+ ")"
+ *                  | LET "(" VARIABLE "," expression "," expression ")"
+ *                  | NUMBER
+ *                  | VARIABLE
+ *
+ * The tree has the same shape as the one MainTree builds: parenthesis and comma are kept as children,
+ * so function nodes have 5 children, 2 * N + 1 for add and multi of N arguments, and "let" nodes have 7.
+ * Errors are reported with the character position of the offending token:
+ * 1. Input ends before a parenthesis is closed : PARENTHESIS_MISMATCH
+ * 2. Unexpected token within a function or "let" : INVALID_ARGUMENTS
+ * 3. Unexpected token after the expression : INPUT_EXPRESSION_INVALID (PARENTHESIS_MISMATCH for ")")
+ */
+public class ExpressionParser {
+
+    private final Lexer lexer;
+
+    /**
+     * Constructor
+     * @param inputExprStr
+     */
+    public ExpressionParser(CharSequence inputExprStr) {
+        this(inputExprStr, false);
+    }
+
+    /**
+     * Constructor
+     * @param inputExprStr
+     * @param isExact true to accept integer literals outside int range, for exact arithmetic
+     */
+    public ExpressionParser(CharSequence inputExprStr, boolean isExact) {
+        this.lexer = new Lexer(inputExprStr, isExact);
+    }
+
+    /**
+     * Parse the whole input expression
+     * @return root of the expression tree
+     * @throws CalculatorException
+     */
+    public ExpressionTree parse() throws CalculatorException {
+        lexer.next();
+        if (lexer.getKind() == TokenKind.END)
+            throw new CalculatorException(CalculatorException.INPUT_EXPRESSION_MISSING);
+        ExpressionTree root = parseExpression();
+        if (lexer.getKind() == TokenKind.CLOSE_PARENTHESIS)
+            throw new CalculatorException(CalculatorException.PARENTHESIS_MISMATCH, lexer.getStart());
+        if (lexer.getKind() != TokenKind.END)
+            throw new CalculatorException(CalculatorException.INPUT_EXPRESSION_INVALID, lexer.getStart());
+        return root;
+    }
+
+    /**
+     * Parse expression starting at the current token and advance past it
+     * Function and "let" nodes whose operands are being parsed are kept on an explicit stack instead of
+     * the Java call stack, so any nesting depth is supported with one Frame per open parenthesis.
+     * @return
+     * @throws CalculatorException
+     */
+    private ExpressionTree parseExpression() throws CalculatorException {
+        Deque<Frame> frames = new ArrayDeque<Frame>();
+        ExpressionTree node = startExpression(frames);
+        while (true) {
+            //Parse operands until one is complete
+            while (node == null) {
+                Frame frame = frames.peek();
+                if (frame.isLet && frame.operandCount == 0) {
+                    if (lexer.getKind() != TokenKind.VARIABLE)
+                        throw unexpectedToken();
+                } else {
+                    checkOperand();
+                }
+                node = startExpression(frames);
+            }
+            Frame frame = frames.peek();
+            if (frame == null)
+                return node;
+            frame.node.addChild(node);
+            frame.operandCount++;
+            node = null;
+            if (frame.isLet ? frame.operandCount < 3
+                    : frame.operandCount == 1 || (frame.isVariadic && lexer.getKind() == TokenKind.COMMA)) {
+                expect(frame.node, TokenKind.COMMA);
+            } else {
+                expect(frame.node, TokenKind.CLOSE_PARENTHESIS);
+                frames.pop();
+                node = frame.node;
+            }
+        }
+    }
+
+    /**
+     * Function to start expression at the current token
+     * @param frames
+     * @return complete NUMBER or VARIABLE node, or null after pushing the frame of a function or "let" node
+     * @throws CalculatorException
+     */
+    private ExpressionTree startExpression(Deque<Frame> frames) throws CalculatorException {
+        TokenKind kind = lexer.getKind();
+        switch (kind) {
+            case NUMBER:
+            case VARIABLE: {
+                ExpressionTree node = new ExpressionTree(lexer.getText(), lexer.getStart());
+                lexer.next();
+                return node;
+            }
+            case FUNCTION:
+            case LET: {
+                ArithmeticSymbols symbol = lexer.getSymbol();
+                ExpressionTree node = new ExpressionTree(symbol.toString(), lexer.getStart());
+                lexer.next();
+                expect(node, TokenKind.OPEN_PARENTHESIS);
+                frames.push(new Frame(node, kind == TokenKind.LET, symbol.isVariadic()));
+                return null;
+            }
+            default:
+                throw unexpectedToken();
+        }
+    }
+
+    /**
+     * Check current token can start an argument of a function or "let" operator
+     * @throws CalculatorException
+     */
+    private void checkOperand() throws CalculatorException {
+        TokenKind kind = lexer.getKind();
+        if (kind == TokenKind.END || kind == TokenKind.OPEN_PARENTHESIS
+                || kind == TokenKind.CLOSE_PARENTHESIS || kind == TokenKind.COMMA)
+            throw unexpectedToken();
+    }
+
+    /**
+     * Check current token is of expected kind, add it as child to parent and advance
+     * @param parent
+     * @param expectedKind
+     * @throws CalculatorException
+     */
+    private void expect(ExpressionTree parent, TokenKind expectedKind) throws CalculatorException {
+        if (lexer.getKind() != expectedKind)
+            throw unexpectedToken();
+        //Parenthesis and comma share the symbol String
+        parent.addChild(new ExpressionTree(lexer.getSymbol().toString(), lexer.getStart()));
+        lexer.next();
+    }
+
+    /**
+     * Function or "let" node whose operands are being parsed
+     */
+    private static final class Frame {
+        private final ExpressionTree node;
+        private final boolean isLet;
+        private final boolean isVariadic;
+        private int operandCount;
+
+        private Frame(ExpressionTree node, boolean isLet, boolean isVariadic) {
+            this.node = node;
+            this.isLet = isLet;
+            this.isVariadic = isVariadic;
+        }
+    }
+
+    private CalculatorException unexpectedToken() {
+        if (lexer.getKind() == TokenKind.END)
+            return new CalculatorException(CalculatorException.PARENTHESIS_MISMATCH, lexer.getStart());
+        return new CalculatorException(CalculatorException.INVALID_ARGUMENTS, lexer.getStart());
+    }
+}
@@ -0,0 +1,272 @@
+package calculator.parser;
+
+import calculator.exception.CalculatorException;
+import calculator.lexer.Lexer;
+import calculator.lexer.TokenKind;
+import calculator.utils.ArithmeticSymbols;
+import calculator.vm.Program;
+import calculator.vm.ProgramBuilder;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Parser emitting a Program directly from the tokens, without an ExpressionTree
+ * Descent into nested functions uses an explicit stack instead of recursion, as in ExpressionParser, so nesting
+ * depth is limited by heap only, not by the thread stack.
+ * Same grammar and error messages as ExpressionParser, same Program as Compiler. "let" variables are kept
+ * as [start, end) offsets into the input and compared in place, ignoring case, so a well-formed
+ * expression is compiled without creating any String.
+ *
+ * Variables not bound by an enclosing "let" are reported after the whole input is parsed,
+ * so syntax errors take precedence as with ExpressionParser followed by Compiler.
+ *
+ * Example: parse bytes of a memory-mapped file through a CharSequence view
+ *      Program program = new ProgramParser(asciiView).parse();
+ */
+public class ProgramParser {
+
+    private final Lexer lexer;
+    private final CharSequence input;
+    private final ProgramBuilder programBuilder = new ProgramBuilder();
+
+    //Enclosing "let" variables, index is the slot
+    private int[] scopeStarts = new int[8];
+    private int[] scopeEnds = new int[8];
+    private int scopeSize;
+
+    //Position of the first variable not bound by an enclosing "let", -1 if none
+    private int unboundVariablePosition = -1;
+
+    /**
+     * Constructor
+     * @param inputExprStr
+     */
+    public ProgramParser(CharSequence inputExprStr) {
+        this.lexer = new Lexer(inputExprStr);
+        this.input = inputExprStr;
+    }
+
+    /**
+     * Parse and compile the whole input expression
+     * @return
+     * @throws CalculatorException for invalid input expression and variables not bound by an enclosing "let"
+     */
+    public Program parse() throws CalculatorException {
+        lexer.next();
+        if (lexer.getKind() == TokenKind.END)
+            throw new CalculatorException(CalculatorException.INPUT_EXPRESSION_MISSING);
+        parseExpression();
+        if (lexer.getKind() == TokenKind.CLOSE_PARENTHESIS)
+            throw new CalculatorException(CalculatorException.PARENTHESIS_MISMATCH, lexer.getStart());
+        if (lexer.getKind() != TokenKind.END)
+            throw new CalculatorException(CalculatorException.INPUT_EXPRESSION_INVALID, lexer.getStart());
+        if (unboundVariablePosition != -1)
+            throw new CalculatorException(CalculatorException.INVALID_ARGUMENTS, unboundVariablePosition);
+        return programBuilder.build();
+    }
+
+    /**
+     * Parse expression starting at the current token, emit its instructions and advance past it
+     * Function and "let" operators whose arguments are being parsed are kept on an explicit stack instead of
+     * the Java call stack, so any nesting depth is supported with one Frame per open parenthesis.
+     * @throws CalculatorException
+     */
+    private void parseExpression() throws CalculatorException {
+        Deque<Frame> frames = new ArrayDeque<Frame>();
+        boolean isComplete = startExpression(frames);
+        //Completed argument was folded into the accumulated value of its parent
+        boolean isFolded = false;
+        while (true) {
+            while (!isComplete)
+                isComplete = startOperand(frames);
+            Frame frame = frames.peek();
+            if (frame == null)
+                return;
+            isComplete = completeOperand(frame, isFolded);
+            isFolded = false;
+            if (isComplete) {
+                frames.pop();
+                isFolded = frame.isAccumulated;
+            }
+        }
+    }
+
+    /**
+     * Function to start expression at the current token
+     * @param frames
+     * @return true for a NUMBER or VARIABLE, emitted; false after pushing the frame of a function or "let" operator
+     * @throws CalculatorException
+     */
+    private boolean startExpression(Deque<Frame> frames) throws CalculatorException {
+        switch (lexer.getKind()) {
+            case NUMBER:
+                programBuilder.emitPush(lexer.getIntValue());
+                lexer.next();
+                return true;
+            case VARIABLE:
+                emitLoad(lexer.getStart(), lexer.getEnd());
+                lexer.next();
+                return true;
+            case FUNCTION: {
+                ArithmeticSymbols arithmeticFunction = lexer.getSymbol();
+                lexer.next();
+                expect(TokenKind.OPEN_PARENTHESIS);
+                frames.push(new Frame(arithmeticFunction, false, -1, -1));
+                return false;
+            }
+            case LET: {
+                lexer.next();
+                expect(TokenKind.OPEN_PARENTHESIS);
+                if (lexer.getKind() != TokenKind.VARIABLE)
+                    throw unexpectedToken();
+                int variableStart = lexer.getStart();
+                int variableEnd = lexer.getEnd();
+                lexer.next();
+                expect(TokenKind.COMMA);
+                frames.push(new Frame(null, false, variableStart, variableEnd));
+                return false;
+            }
+            default:
+                throw unexpectedToken();
+        }
+    }
+
+    /**
+     * Function to start next argument of the innermost frame
+     * An argument calling the same add or multi function as an accumulated argument is flattened into the fold,
+     * as Compiler does: its frame folds every argument, the first included, into the value on top of the stack.
+     * @param frames
+     * @return true if the argument is complete
+     * @throws CalculatorException
+     */
+    private boolean startOperand(Deque<Frame> frames) throws CalculatorException {
+        Frame frame = frames.peek();
+        if (frame.arithmeticFunction != null && frame.isAccumulatedOperand() && frame.arithmeticFunction.isVariadic()
+                && lexer.getKind() == TokenKind.FUNCTION && lexer.getSymbol() == frame.arithmeticFunction) {
+            lexer.next();
+            expect(TokenKind.OPEN_PARENTHESIS);
+            frames.push(new Frame(frame.arithmeticFunction, true, -1, -1));
+            return false;
+        }
+        return startExpression(frames);
+    }
+
+    /**
+     * Function to complete argument of frame, emit what follows it and advance past its separator
+     * Arguments of functions are emitted as a left fold; the value of "let" is stored in the next slot.
+     * @param frame
+     * @param isFolded true if the argument was already folded into the accumulated value
+     * @return true if the frame is complete, its closing parenthesis read
+     * @throws CalculatorException
+     */
+    private boolean completeOperand(Frame frame, boolean isFolded) throws CalculatorException {
+        if (frame.arithmeticFunction == null) {
+            if (frame.operandCount++ == 0) {
+                programBuilder.emitStore(scopeSize);
+                pushScope(frame.variableStart, frame.variableEnd);
+                expect(TokenKind.COMMA);
+                return false;
+            }
+            expect(TokenKind.CLOSE_PARENTHESIS);
+            scopeSize--;
+            return true;
+        }
+        if (!isFolded && frame.isAccumulatedOperand())
+            programBuilder.emitArithmeticFunction(frame.arithmeticFunction);
+        frame.operandCount++;
+        if (frame.operandCount == 1) {
+            expect(TokenKind.COMMA);
+            return false;
+        }
+        if (frame.arithmeticFunction.isVariadic() && lexer.getKind() == TokenKind.COMMA) {
+            lexer.next();
+            return false;
+        }
+        expect(TokenKind.CLOSE_PARENTHESIS);
+        return true;
+    }
+
+    /**
+     * Function or "let" operator whose arguments are being parsed
+     */
+    private static final class Frame {
+        //null for "let"
+        private final ArithmeticSymbols arithmeticFunction;
+        //Arguments fold into the accumulated value of the enclosing call of the same function
+        private final boolean isAccumulated;
+        //"let" variable as [start, end) offsets into the input
+        private final int variableStart;
+        private final int variableEnd;
+        private int operandCount;
+
+        private Frame(ArithmeticSymbols arithmeticFunction, boolean isAccumulated, int variableStart, int variableEnd) {
+            this.arithmeticFunction = arithmeticFunction;
+            this.isAccumulated = isAccumulated;
+            this.variableStart = variableStart;
+            this.variableEnd = variableEnd;
+        }
+
+        //Next argument is folded into the accumulated value on top of the stack
+        private boolean isAccumulatedOperand() {
+            return operandCount > 0 || isAccumulated;
+        }
+    }
+
+    /**
+     * Check current token is of expected kind and advance
+     * @param expectedKind
+     * @throws CalculatorException
+     */
+    private void expect(TokenKind expectedKind) throws CalculatorException {
+        if (lexer.getKind() != expectedKind)
+            throw unexpectedToken();
+        lexer.next();
+    }
+
+    /**
+     * Emit load of the innermost "let" variable named by input [start, end)
+     * @param start
+     * @param end
+     */
+    private void emitLoad(int start, int end) {
+        for (int slot = scopeSize - 1; slot >= 0; slot--) {
+            if (regionEqualsIgnoreCase(scopeStarts[slot], scopeEnds[slot], start, end)) {
+                programBuilder.emitLoad(slot);
+                return;
+            }
+        }
+        if (unboundVariablePosition == -1)
+            unboundVariablePosition = start;
+        //Keep the stack depth right until the error is thrown
+        programBuilder.emitPush(0);
+    }
+
+    private void pushScope(int start, int end) {
+        if (scopeSize == scopeStarts.length) {
+            scopeStarts = Arrays.copyOf(scopeStarts, scopeSize * 2);
+            scopeEnds = Arrays.copyOf(scopeEnds, scopeSize * 2);
+        }
+        scopeStarts[scopeSize] = start;
+        scopeEnds[scopeSize] = end;
+        scopeSize++;
+    }
+
+    //Variable names are letters only, so setting bit 0x20 folds case
+    private boolean regionEqualsIgnoreCase(int start1, int end1, int start2, int end2) {
+        if (end1 - start1 != end2 - start2)
+            return false;
+        for (int i = 0; i < end1 - start1; i++) {
+            if ((input.charAt(start1 + i) | 0x20) != (input.charAt(start2 + i) | 0x20))
+                return false;
+        }
+        return true;
+    }
+
+    private CalculatorException unexpectedToken() {
+        if (lexer.getKind() == TokenKind.END)
+            return new CalculatorException(CalculatorException.PARENTHESIS_MISMATCH, lexer.getStart());
+        return new CalculatorException(CalculatorException.INVALID_ARGUMENTS, lexer.getStart());
+    }
+}
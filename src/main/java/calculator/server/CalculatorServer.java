@@ -0,0 +1,350 @@
+package calculator.server;
+
+import calculator.batch.BatchProcessor;
+import calculator.exception.CalculatorException;
+import calculator.metrics.LatencyHistogram;
+import calculator.utils.CommandLineOptions;
+import org.apache.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server mode: evaluates expressions sent over localhost connections by one warm engine
+ * The server listens on the loopback address only. Each connection runs on its own thread, a virtual
+ * thread when the JVM supports them (Java 21+), a platform thread otherwise, and does blocking I/O on
+ * its SocketChannel. The engine is created once and shared, so its caches stay warm across connections.
+ *
+ * Two protocols are told apart by the first line of a connection:
+ * 1. Line protocol: one expression per line, one result or "error: message" line back per line.
+ *    Replies are flushed once no further request is buffered, so pipelined requests share a write.
+ *      add(1,2)            ->  3
+ * 2. HTTP/1.1, keep-alive supported:
+ *      GET /calculate?expr=add(1,2)       ->  200 "3"
+ *      POST /calculate with body add(1,2) ->  200 "3"
+ *      GET /stats                         ->  200 "count=... p50=...us p99=...us p999=...us"
+ *    Invalid expressions answer 400 with the error message.
+ *
+ * Latency of every evaluation is recorded in a LatencyHistogram, reported by GET /stats and on close.
+ *
+ * Example: java calculator.MainTree --serve 8080
+ *          echo "add(1,2)" | nc localhost 8080
+ *          curl "localhost:8080/calculate?expr=add(1,2)"
+ */
+public class CalculatorServer implements Closeable {
+
+    /**
+     * Command line option enabling server mode: --serve=port or --serve port
+     */
+    public static final String SERVE_OPTION = "serve";
+
+    private static final Logger LOGGER = Logger.getLogger(CalculatorServer.class);
+
+    private static final int MAX_LINE_LENGTH = 1 << 20;
+    private static final int BUFFER_SIZE = 8192;
+    private static final String CALCULATE_PATH = "/calculate";
+    private static final String STATS_PATH = "/stats";
+    private static final String EXPRESSION_PARAMETER = "expr=";
+
+    /**
+     * Expression cache entries of the server engine when --cache is not given
+     */
+    public static final long DEFAULT_CACHE_ENTRIES = 10000;
+
+    private final BatchProcessor.Evaluator evaluator;
+    private final ServerSocketChannel serverChannel;
+    private final ExecutorService connectionExecutor;
+    private final LatencyHistogram latencyHistogram = new LatencyHistogram();
+    private final Thread acceptThread;
+    private volatile boolean closed;
+
+    /**
+     * Start server on localhost
+     * @param evaluator engine evaluating expressions, must be reentrant
+     * @param port TCP port, 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public CalculatorServer(BatchProcessor.Evaluator evaluator, int port) throws IOException {
+        this.evaluator = evaluator;
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        this.connectionExecutor = newConnectionExecutor();
+        this.acceptThread = new Thread(this::acceptConnections, "calculator-server-accept");
+        acceptThread.start();
+        LOGGER.info("Listening on " + serverChannel.getLocalAddress());
+    }
+
+    /**
+     * Get port from command line options
+     * Assumption: No exception thrown for invalid port; -1 is returned in this case.
+     * @param options
+     * @return port given as --serve=port or as first argument after --serve, -1 if invalid or missing
+     */
+    public static int getPort(CommandLineOptions options) {
+        String port = options.getOption(SERVE_OPTION);
+        if (port == null || port.isEmpty())
+            port = options.getArgument(0);
+        try {
+            int value = port == null ? -1 : Integer.parseInt(port);
+            return value >= 0 && value <= 0xFFFF ? value : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Get port the server listens on
+     * @return
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Get latencies of evaluations so far
+     * @return
+     */
+    public LatencyHistogram getLatencyHistogram() {
+        return latencyHistogram;
+    }
+
+    /**
+     * Wait until the server is closed
+     * @throws InterruptedException
+     */
+    public void awaitTermination() throws InterruptedException {
+        acceptThread.join();
+    }
+
+    /**
+     * Stop accepting connections and close open ones
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverChannel.close();
+        connectionExecutor.shutdownNow();
+        try {
+            connectionExecutor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        LOGGER.info("Closed with latency " + latencyHistogram);
+    }
+
+    /**
+     * Function to create an executor running each connection on a new virtual thread, or on a
+     * new platform thread before Java 21
+     * @return
+     */
+    private static ExecutorService newConnectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "calculator-server-connection");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private void acceptConnections() {
+        while (!closed) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                connectionExecutor.execute(() -> serve(channel));
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                LOGGER.error("Accept failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Serve one connection until the client closes it
+     * @param channel
+     */
+    private void serve(SocketChannel channel) {
+        try (SocketChannel socketChannel = channel) {
+            InputStream input = new BufferedInputStream(Channels.newInputStream(socketChannel), BUFFER_SIZE);
+            OutputStream output = new BufferedOutputStream(Channels.newOutputStream(socketChannel), BUFFER_SIZE);
+            String line = readLine(input);
+            if (line == null)
+                return;
+            if (isHttpRequestLine(line))
+                serveHttp(line, input, output);
+            else
+                serveLines(line, input, output);
+        } catch (IOException e) {
+            if (!closed && LOGGER.isDebugEnabled())
+                LOGGER.debug("Connection closed: " + e.getMessage());
+        }
+    }
+
+    private void serveLines(String line, InputStream input, OutputStream output) throws IOException {
+        while (line != null) {
+            output.write(evaluate(line).getBytes(StandardCharsets.UTF_8));
+            output.write('\n');
+            if (input.available() == 0)
+                output.flush();
+            line = readLine(input);
+        }
+        output.flush();
+    }
+
+    private void serveHttp(String requestLine, InputStream input, OutputStream output) throws IOException {
+        while (requestLine != null) {
+            String[] request = requestLine.split(" ");
+            String method = request[0];
+            String target = request[1];
+            boolean keepAlive = request[2].equals("HTTP/1.1");
+            int contentLength = 0;
+            String header;
+            while ((header = readLine(input)) != null && !header.isEmpty()) {
+                int separator = header.indexOf(':');
+                if (separator == -1)
+                    continue;
+                String name = header.substring(0, separator).trim().toLowerCase(Locale.ROOT);
+                String value = header.substring(separator + 1).trim();
+                if (name.equals("content-length"))
+                    contentLength = parseContentLength(value);
+                else if (name.equals("connection"))
+                    keepAlive = !value.equalsIgnoreCase("close");
+            }
+            if (contentLength < 0 || contentLength > MAX_LINE_LENGTH) {
+                writeHttpResponse(output, 400, "Bad Request", "Invalid Content-Length", false);
+                return;
+            }
+            byte[] body = input.readNBytes(contentLength);
+
+            String path = target;
+            String query = "";
+            int queryStart = target.indexOf('?');
+            if (queryStart != -1) {
+                path = target.substring(0, queryStart);
+                query = target.substring(queryStart + 1);
+            }
+            if (path.equals(STATS_PATH) && method.equals("GET")) {
+                writeHttpResponse(output, 200, "OK", latencyHistogram.toString(), keepAlive);
+            } else if (path.equals(CALCULATE_PATH) && (method.equals("GET") || method.equals("POST"))) {
+                String expression = method.equals("POST") ? new String(body, StandardCharsets.UTF_8).trim()
+                        : getExpressionParameter(query);
+                String result = evaluate(expression);
+                if (result.startsWith(BatchProcessor.ERROR_PREFIX))
+                    writeHttpResponse(output, 400, "Bad Request", result.substring(BatchProcessor.ERROR_PREFIX.length()), keepAlive);
+                else
+                    writeHttpResponse(output, 200, "OK", result, keepAlive);
+            } else {
+                writeHttpResponse(output, 404, "Not Found", "Not found: " + method + " " + path, keepAlive);
+            }
+            if (!keepAlive)
+                return;
+            requestLine = readLine(input);
+            if (requestLine != null && !isHttpRequestLine(requestLine))
+                return;
+        }
+    }
+
+    /**
+     * Evaluate expression, recording its latency
+     * @param expression
+     * @return result, or error record
+     */
+    private String evaluate(String expression) {
+        long start = System.nanoTime();
+        String result;
+        try {
+            result = evaluator.calculate(expression);
+        } catch (CalculatorException | ArithmeticException e) {
+            result = BatchProcessor.ERROR_PREFIX + BatchProcessor.getErrorMessage(e);
+        }
+        latencyHistogram.record(System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Get decoded expr parameter of query string
+     * @param query
+     * @return expression, empty if missing or not decodable
+     */
+    private static String getExpressionParameter(String query) {
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith(EXPRESSION_PARAMETER)) {
+                try {
+                    return URLDecoder.decode(parameter.substring(EXPRESSION_PARAMETER.length()), StandardCharsets.UTF_8);
+                } catch (IllegalArgumentException e) {
+                    return "";
+                }
+            }
+        }
+        return "";
+    }
+
+    private static int parseContentLength(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void writeHttpResponse(OutputStream output, int status, String reason, String body,
+                                          boolean keepAlive) throws IOException {
+        byte[] content = (body + "\n").getBytes(StandardCharsets.UTF_8);
+        String head = "HTTP/1.1 " + status + " " + reason + "\r\n"
+                + "Content-Type: text/plain; charset=utf-8\r\n"
+                + "Content-Length: " + content.length + "\r\n"
+                + (keepAlive ? "" : "Connection: close\r\n")
+                + "\r\n";
+        output.write(head.getBytes(StandardCharsets.US_ASCII));
+        output.write(content);
+        output.flush();
+    }
+
+    private static boolean isHttpRequestLine(String line) {
+        String[] parts = line.split(" ");
+        return parts.length == 3 && parts[1].startsWith("/") && parts[2].startsWith("HTTP/1.")
+                && (parts[0].equals("GET") || parts[0].equals("POST"));
+    }
+
+    /**
+     * Read line terminated by LF or CRLF
+     * @param input
+     * @return line without terminator, null at end of input
+     * @throws IOException also for lines longer than MAX_LINE_LENGTH
+     */
+    private static String readLine(InputStream input) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int character;
+        while ((character = input.read()) != -1 && character != '\n') {
+            if (line.length() == MAX_LINE_LENGTH)
+                throw new IOException("Line longer than " + MAX_LINE_LENGTH + " characters");
+            line.append((char) character);
+        }
+        if (character == -1 && line.length() == 0)
+            return null;
+        int length = line.length();
+        if (length > 0 && line.charAt(length - 1) == '\r')
+            line.setLength(length - 1);
+        return line.toString();
+    }
+}
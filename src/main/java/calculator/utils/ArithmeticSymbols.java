@@ -2,11 +2,14 @@ package calculator.utils;
 
 /**
  * Enum for arithmetic symbols
- * 1. Arithmetic Functions: add, sub, multi, div
+ * 1. Arithmetic Functions: add, sub, multi, div (add and multi take 2 or more arguments)
  * 2. Parenthesis: ( )
  * 3. Comma: ,
  * 4. "let" operator
  * 5. Negative Sign for integers: -
+ *
+ * Classification never allocates: classify switches on the length and first character of a span
+ * and compares it in place, ignoring case.
  */
 public enum ArithmeticSymbols {
 
@@ -31,13 +34,111 @@ public enum ArithmeticSymbols {
     }
 
     /**
-     * Method to check symbol name equality
+     * Method to check symbol name equality, ignoring case
      * @param nameToCheck
      * @return
      */
     public boolean equalsName(String nameToCheck) {
-        String funcNameToCheckLowerCase = nameToCheck.toLowerCase();
-        return symbolName.equals(funcNameToCheckLowerCase);
+        return classify(nameToCheck) == this;
+    }
+
+    /**
+     * Classify a whole string as a symbol, ignoring case
+     * @param nameToCheck
+     * @return symbol, or null if nameToCheck is not exactly one symbol
+     */
+    public static ArithmeticSymbols classify(String nameToCheck) {
+        return classify(nameToCheck, 0, nameToCheck.length());
+    }
+
+    /**
+     * Classify span [start, end) of input as a symbol, ignoring case, without allocation
+     * Switches on the span length, then on its first character, and compares the remaining characters
+     * of the one candidate keyword, so each character is read at most once.
+     * @param input
+     * @param start
+     * @param end
+     * @return symbol, or null if the span is not exactly one symbol
+     */
+    public static ArithmeticSymbols classify(CharSequence input, int start, int end) {
+        switch (end - start) {
+            case 1:
+                return classify(input.charAt(start));
+            case 3:
+                switch (toLowerCase(input.charAt(start))) {
+                    case 'a':
+                        return matchesRest(input, start, ADD_FUNCTION) ? ADD_FUNCTION : null;
+                    case 's':
+                        return matchesRest(input, start, SUB_FUNCTION) ? SUB_FUNCTION : null;
+                    case 'd':
+                        return matchesRest(input, start, DIV_FUNCTION) ? DIV_FUNCTION : null;
+                    case 'l':
+                        return matchesRest(input, start, LET_OPERATOR) ? LET_OPERATOR : null;
+                    default:
+                        return null;
+                }
+            case 5:
+                return toLowerCase(input.charAt(start)) == 'm' && matchesRest(input, start, MULTI_FUNCTION)
+                        ? MULTI_FUNCTION : null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Classify a single character as a symbol
+     * @param character
+     * @return OPEN_PARENTHESIS, CLOSE_PARENTHESIS, COMMA, NEGATIVE_SIGN or null
+     */
+    public static ArithmeticSymbols classify(char character) {
+        switch (character) {
+            case '(':
+                return OPEN_PARENTHESIS;
+            case ')':
+                return CLOSE_PARENTHESIS;
+            case ',':
+                return COMMA;
+            case '-':
+                return NEGATIVE_SIGN;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Check if symbol is one of the Arithmetic Functions
+     * @return
+     */
+    public boolean isArithmeticFunction() {
+        return this == ADD_FUNCTION || this == SUB_FUNCTION || this == MULTI_FUNCTION || this == DIV_FUNCTION;
+    }
+
+    /**
+     * Check if Arithmetic Function accepts more than 2 arguments
+     * add and multi are associative, so add(a, b, c) is add(add(a, b), c) and nested chains of the same
+     * function can be flattened.
+     * @return
+     */
+    public boolean isVariadic() {
+        return this == ADD_FUNCTION || this == MULTI_FUNCTION;
+    }
+
+    /**
+     * Function to compare characters after the first one of span starting at start with keyword, ignoring case
+     * Caller has checked the span length and first character.
+     */
+    private static boolean matchesRest(CharSequence input, int start, ArithmeticSymbols keyword) {
+        String name = keyword.symbolName;
+        for (int i = 1; i < name.length(); i++) {
+            if (toLowerCase(input.charAt(start + i)) != name.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    //Only ASCII letters are folded, as String.toLowerCase does for the keyword letters
+    private static char toLowerCase(char character) {
+        return (character >= 'A' && character <= 'Z') ? (char) (character + ('a' - 'A')) : character;
     }
 
     /**
@@ -54,16 +155,17 @@ public enum ArithmeticSymbols {
      * @return
      */
     public static boolean isArithmeticFunction(String funcNameToCheck) {
-        if(ADD_FUNCTION.equalsName(funcNameToCheck))
-            return true;
-        else if(SUB_FUNCTION.equalsName(funcNameToCheck))
-            return true;
-        else if(MULTI_FUNCTION.equalsName(funcNameToCheck))
-            return true;
-        else if(DIV_FUNCTION.equalsName(funcNameToCheck))
-            return true;
-        else
-            return false;
+        return getArithmeticFunction(funcNameToCheck) != null;
+    }
+
+    /**
+     * Get Arithmetic Function for given function name
+     * @param funcNameToCheck
+     * @return ADD_FUNCTION, SUB_FUNCTION, MULTI_FUNCTION, DIV_FUNCTION or null if not an arithmetic function
+     */
+    public static ArithmeticSymbols getArithmeticFunction(String funcNameToCheck) {
+        ArithmeticSymbols symbol = classify(funcNameToCheck);
+        return symbol != null && symbol.isArithmeticFunction() ? symbol : null;
     }
 
     /**
@@ -107,17 +209,35 @@ public enum ArithmeticSymbols {
      * @param expression
      * @return
      */
-    public static boolean checkExpressionContainsArithmeticFunction(String expression){
-        String exprLowerCase = expression.toLowerCase();
-        if(exprLowerCase.indexOf(ADD_FUNCTION.toString()) != -1)
-            return true;
-        else if(exprLowerCase.indexOf(SUB_FUNCTION.toString()) != -1)
-            return true;
-        else if(exprLowerCase.indexOf(MULTI_FUNCTION.toString()) != -1)
-            return true;
-        else if(exprLowerCase.indexOf(DIV_FUNCTION.toString()) != -1)
-            return true;
-        else return false;
+    public static boolean checkExpressionContainsArithmeticFunction(CharSequence expression){
+        //One pass, dispatching on the first letter instead of lower casing a copy and searching it four times
+        for (int i = 0; i + DIV_FUNCTION.symbolName.length() <= expression.length(); i++) {
+            switch (toLowerCase(expression.charAt(i))) {
+                case 'a':
+                    if (containsAt(expression, i, ADD_FUNCTION))
+                        return true;
+                    break;
+                case 's':
+                    if (containsAt(expression, i, SUB_FUNCTION))
+                        return true;
+                    break;
+                case 'm':
+                    if (containsAt(expression, i, MULTI_FUNCTION))
+                        return true;
+                    break;
+                case 'd':
+                    if (containsAt(expression, i, DIV_FUNCTION))
+                        return true;
+                    break;
+                default:
+                    break;
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsAt(CharSequence expression, int index, ArithmeticSymbols keyword) {
+        return index + keyword.symbolName.length() <= expression.length() && matchesRest(expression, index, keyword);
     }
 
     /**
@@ -162,7 +282,7 @@ public enum ArithmeticSymbols {
      * @return
      */
     public static boolean isLetOperator(String letOperatorStr){
-        return LET_OPERATOR.equalsName(letOperatorStr.toLowerCase());
+        return LET_OPERATOR.equalsName(letOperatorStr);
     }
 
     /**
@@ -171,10 +291,7 @@ public enum ArithmeticSymbols {
      * @return
      */
     public static boolean isParenthesisOrComma(char character){
-        String chString = String.valueOf(character);
-        if(isOpenParenthesis(chString) || isCloseParenthesis(chString) || isComma(chString))
-            return true;
-        return false;
+        return character == '(' || character == ')' || character == ',';
     }
 
 
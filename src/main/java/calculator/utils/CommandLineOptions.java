@@ -0,0 +1,94 @@
+package calculator.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command line arguments split into positional arguments and options
+ * Options are given as --name or --name=value, anywhere on the command line.
+ * Example: "add(1,2)" debug --cache=1000
+ *          arguments: add(1,2), debug
+ *          options: cache=1000
+ */
+public class CommandLineOptions {
+
+    private static final String OPTION_PREFIX = "--";
+
+    private final List<String> arguments = new ArrayList<String>();
+    private final Map<String, String> options = new HashMap<String, String>();
+
+    /**
+     * Constructor
+     * @param args command line arguments, may be null
+     */
+    public CommandLineOptions(String[] args) {
+        if (args == null)
+            return;
+        for (String arg : args) {
+            if (arg != null && arg.startsWith(OPTION_PREFIX) && arg.length() > OPTION_PREFIX.length()) {
+                int separatorIndex = arg.indexOf('=');
+                if (separatorIndex == -1)
+                    options.put(arg.substring(OPTION_PREFIX.length()), "");
+                else
+                    options.put(arg.substring(OPTION_PREFIX.length(), separatorIndex), arg.substring(separatorIndex + 1));
+            } else {
+                arguments.add(arg);
+            }
+        }
+    }
+
+    /**
+     * Get number of positional arguments
+     * @return
+     */
+    public int getArgumentCount() {
+        return arguments.size();
+    }
+
+    /**
+     * Get positional argument
+     * @param index
+     * @return argument, null if not given
+     */
+    public String getArgument(int index) {
+        return index < arguments.size() ? arguments.get(index) : null;
+    }
+
+    /**
+     * Check if option is given
+     * @param name
+     * @return
+     */
+    public boolean hasOption(String name) {
+        return options.containsKey(name);
+    }
+
+    /**
+     * Get option value
+     * @param name
+     * @return value, empty for options given without value, null if not given
+     */
+    public String getOption(String name) {
+        return options.get(name);
+    }
+
+    /**
+     * Get option value as long
+     * Assumption: No exception thrown for invalid number; default value is used in this case.
+     * @param name
+     * @param defaultValue
+     * @return
+     */
+    public long getLongOption(String name, long defaultValue) {
+        String value = options.get(name);
+        if (Helper.isNullOrEmptyString(value))
+            return defaultValue;
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
@@ -40,6 +40,18 @@ public class Helper {
         return Character.isLetterOrDigit(character);
     }
 
+    /**
+     * Method to check given string contains at least one Digit[0-9]
+     * @param inputStr
+     * @return
+     */
+    public static boolean containsDigit(String inputStr){
+        for(int i = 0 ; i < inputStr.length() ; i++){
+            if(isDigit(inputStr.charAt(i)))
+                return true;
+        }
+        return false;
+    }
 
     /**
      * Function to check if String is valid integer
@@ -0,0 +1,160 @@
+package calculator.utils;
+
+import org.apache.log4j.AsyncAppender;
+import org.apache.log4j.ConsoleAppender;
+import org.apache.log4j.FileAppender;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PatternLayout;
+
+/**
+ * Process-wide log4j configuration of the calculator
+ * log4j is configured once per level: setting the level already in effect does nothing, so callers may
+ * set it on every run without resetting the repository or reopening files.
+ *
+ * Level OFF, the default, leaves the root logger with no appender and no file open; every guarded
+ * log call then costs one level check. Any other level routes the console and calculator.log appenders
+ * through one non-blocking AsyncAppender, so evaluation threads hand events over to the dispatcher
+ * thread instead of writing to disk; events are dropped, and counted in a summary, if its buffer is full.
+ *
+ * Assumption: Accepts level name in case-insensitive format
+ * Assumption: Accepts only 3 levels DEBUG, INFO, and ERROR
+ * Assumption: No exception thrown for invalid level name; Default level is used in this case.
+ * Assumption: A log4j configuration found by log4j itself (log4j.properties) is kept until a level is set.
+ */
+public final class LoggingConfiguration {
+
+    /**
+     * Level when none or an invalid one is given
+     */
+    public static final Level DEFAULT_LEVEL = Level.OFF;
+
+    /**
+     * File written when logging is enabled, in the working directory
+     */
+    public static final String LOG_FILE = "calculator.log";
+
+    //No caller location (%C, %L): events cross threads without it, and it costs a stack walk
+    private static final String CONSOLE_PATTERN = "%d [%p|%c] %m%n";
+    private static final String FILE_PATTERN = "%d %-5p [%c{1}] %m%n";
+    private static final int BUFFER_SIZE = 8192;
+
+    private static Level configuredLevel;
+    private static AsyncAppender asyncAppender;
+    private static boolean isShutdownHookAdded;
+
+    private LoggingConfiguration() {
+    }
+
+    /**
+     * Turn logging off unless log4j was configured by a configuration file or a previous call
+     * Called when the calculator classes are loaded, so log calls made before a level is set neither
+     * print log4j warnings nor pay for formatting.
+     */
+    public static synchronized void configureDefault() {
+        if (configuredLevel == null && !Logger.getRootLogger().getAllAppenders().hasMoreElements())
+            configure(DEFAULT_LEVEL);
+    }
+
+    /**
+     * Set level from its name
+     * @param inputLoggerLevel level name, null or empty for the default level
+     */
+    public static void configure(String inputLoggerLevel) {
+        configure(toLevel(inputLoggerLevel));
+    }
+
+    /**
+     * Set level of all calculator loggers; does nothing if the level is already in effect
+     * @param level
+     */
+    public static synchronized void configure(Level level) {
+        if (level.equals(configuredLevel))
+            return;
+        Logger rootLogger = Logger.getRootLogger();
+        if (configuredLevel == null)
+            rootLogger.getLoggerRepository().resetConfiguration();
+        rootLogger.setLevel(level);
+        if (level.equals(Level.OFF)) {
+            closeAppenders();
+        } else if (asyncAppender == null) {
+            openAppenders();
+        }
+        configuredLevel = level;
+    }
+
+    /**
+     * Get level set by configure
+     * @return level, null if not configured yet
+     */
+    public static synchronized Level getConfiguredLevel() {
+        return configuredLevel;
+    }
+
+    /**
+     * Get whether the log file is open
+     * @return
+     */
+    public static synchronized boolean isLogFileOpen() {
+        return asyncAppender != null;
+    }
+
+    /**
+     * Convert level name to org.apache.log4j.Level
+     * @param inputLoggerLevel
+     * @return DEBUG, INFO or ERROR, DEFAULT_LEVEL otherwise
+     */
+    public static Level toLevel(String inputLoggerLevel) {
+        if (Helper.isNullOrEmptyString(inputLoggerLevel))
+            return DEFAULT_LEVEL;
+        String s = inputLoggerLevel.toUpperCase();
+        return s.equals("DEBUG") ? Level.DEBUG : (s.equals("INFO") ? Level.INFO : (s.equals("ERROR") ? Level.ERROR : DEFAULT_LEVEL));
+    }
+
+    /**
+     * Function to attach console and file appenders behind one AsyncAppender
+     */
+    private static void openAppenders() {
+        ConsoleAppender console = new ConsoleAppender();
+        console.setLayout(new PatternLayout(CONSOLE_PATTERN));
+        console.activateOptions();
+
+        FileAppender fa = new FileAppender();
+        fa.setName("FileLogger");
+        fa.setFile(LOG_FILE);
+        fa.setLayout(new PatternLayout(FILE_PATTERN));
+        fa.setAppend(true);
+        fa.activateOptions();
+
+        asyncAppender = new AsyncAppender();
+        asyncAppender.setName("AsyncLogger");
+        asyncAppender.setBufferSize(BUFFER_SIZE);
+        //Never block the logging thread on a full buffer
+        asyncAppender.setBlocking(false);
+        asyncAppender.addAppender(console);
+        asyncAppender.addAppender(fa);
+        Logger.getRootLogger().addAppender(asyncAppender);
+
+        //Deliver buffered events before the JVM exits
+        if (!isShutdownHookAdded) {
+            Runtime.getRuntime().addShutdownHook(new Thread(LoggingConfiguration::shutdown, "calculator-logging-shutdown"));
+            isShutdownHookAdded = true;
+        }
+    }
+
+    /**
+     * Function to detach and close appenders, delivering buffered events and closing the log file
+     */
+    private static void closeAppenders() {
+        if (asyncAppender == null)
+            return;
+        Logger.getRootLogger().removeAppender(asyncAppender);
+        //Closes the nested appenders once the buffer is delivered
+        asyncAppender.close();
+        asyncAppender = null;
+    }
+
+    private static synchronized void shutdown() {
+        closeAppenders();
+    }
+}
@@ -0,0 +1,185 @@
+package calculator.vm;
+
+import java.util.Arrays;
+
+/**
+ * Stack machine executing a parameterized Program over columns of arguments
+ * Rows are processed in blocks of BLOCK_SIZE: each instruction is dispatched once per block and then
+ * applied to every row of the block in a plain int[] loop, so the per-row cost is a few array
+ * operations the JIT compiler can unroll, with no dispatch, boxing or String per row.
+ *
+ * Operand stack entries and "let" slots are blocks of BLOCK_SIZE values. STORE swaps the block
+ * on top of the stack into its slot instead of copying it.
+ * Arithmetic wraps on overflow like Java int arithmetic; div by zero throws ArithmeticException.
+ *
+ * Example: add(x, multi(y, 3)) with parameters x, y
+ *         results[i] = columns[0][i] + columns[1][i] * 3
+ *
+ * Subclasses can replace the arithmetic loops, see VectorColumnInterpreter; use getInstance()
+ * to get the fastest implementation available in the running JVM.
+ */
+public class ColumnInterpreter {
+
+    /**
+     * System property disabling VectorColumnInterpreter when set to false
+     */
+    public static final String VECTOR_PROPERTY = "calculator.vector";
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_CLASS_NAME = "calculator.vm.VectorColumnInterpreter";
+
+    /**
+     * Number of rows evaluated per instruction dispatch
+     */
+    public static final int BLOCK_SIZE = 1024;
+
+    private static final ColumnInterpreter INSTANCE = createInstance();
+
+    /**
+     * Get shared column interpreter: VectorColumnInterpreter if the JVM was started with
+     * --add-modules jdk.incubator.vector, scalar ColumnInterpreter otherwise
+     * @return
+     */
+    public static ColumnInterpreter getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Function to create VectorColumnInterpreter by reflection, so this class loads without the incubator module
+     * @return
+     */
+    private static ColumnInterpreter createInstance() {
+        if (!Boolean.parseBoolean(System.getProperty(VECTOR_PROPERTY, "true"))
+                || ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty())
+            return new ColumnInterpreter();
+        try {
+            return (ColumnInterpreter) Class.forName(VECTOR_CLASS_NAME).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new ColumnInterpreter();
+        }
+    }
+
+    /**
+     * Execute program for every row of the results column
+     * @param program
+     * @param columns argument columns, one per program parameter, each at least results.length long
+     * @param results column receiving one result per row
+     * @throws IllegalArgumentException if fewer columns than parameters are given or a column is too short
+     */
+    public void execute(Program program, int[][] columns, int[] results) {
+        execute(program, columns, results, 0, results.length);
+    }
+
+    /**
+     * Execute program for rows from (inclusive) to (exclusive)
+     * @param program
+     * @param columns argument columns, one per program parameter, each at least to long
+     * @param results column receiving one result per row, at least to long
+     * @param from first row
+     * @param to row after the last one
+     * @throws IllegalArgumentException if fewer columns than parameters are given or a column is too short
+     */
+    public void execute(Program program, int[][] columns, int[] results, int from, int to) {
+        if (from < 0 || from > to || to > results.length)
+            throw new IllegalArgumentException("Invalid row range " + from + " to " + to);
+        if (columns.length < program.parameterCount)
+            throw new IllegalArgumentException("Expected " + program.parameterCount + " columns, got " + columns.length);
+        for (int i = 0; i < program.parameterCount; i++) {
+            if (columns[i].length < to)
+                throw new IllegalArgumentException("Column " + i + " is shorter than " + to + " rows");
+        }
+        if (from == to)
+            return;
+
+        int blockSize = Math.min(BLOCK_SIZE, to - from);
+        int[][] stack = new int[program.maxStackDepth][blockSize];
+        int[][] slots = new int[program.slotCount][];
+        for (int slot = program.parameterCount; slot < program.slotCount; slot++)
+            slots[slot] = new int[blockSize];
+
+        for (int start = from; start < to; start += blockSize) {
+            int length = Math.min(blockSize, to - start);
+            executeBlock(program, columns, stack, slots, start, length);
+            System.arraycopy(stack[0], 0, results, start, length);
+        }
+    }
+
+    /**
+     * Execute program for one block of rows, leaving the results on stack[0]
+     */
+    private void executeBlock(Program program, int[][] columns, int[][] stack, int[][] slots, int start, int length) {
+        int[] code = program.code;
+        int parameterCount = program.parameterCount;
+        int top = -1;
+        int pc = 0;
+        while (pc < code.length) {
+            switch (code[pc++]) {
+                case OpCode.PUSH:
+                    Arrays.fill(stack[++top], 0, length, code[pc++]);
+                    break;
+                case OpCode.LOAD: {
+                    int slot = code[pc++];
+                    if (slot < parameterCount)
+                        System.arraycopy(columns[slot], start, stack[++top], 0, length);
+                    else
+                        System.arraycopy(slots[slot], 0, stack[++top], 0, length);
+                    break;
+                }
+                case OpCode.STORE: {
+                    int slot = code[pc++];
+                    int[] block = slots[slot];
+                    slots[slot] = stack[top];
+                    stack[top--] = block;
+                    break;
+                }
+                case OpCode.ADD:
+                    add(stack[top - 1], stack[top--], length);
+                    break;
+                case OpCode.SUB:
+                    sub(stack[top - 1], stack[top--], length);
+                    break;
+                case OpCode.MULTI:
+                    multi(stack[top - 1], stack[top--], length);
+                    break;
+                case OpCode.DIV:
+                    div(stack[top - 1], stack[top--], length);
+                    break;
+                default:
+                    throw new IllegalStateException("Invalid instruction " + code[pc - 1] + " at " + (pc - 1));
+            }
+        }
+    }
+
+    /**
+     * operand1[i] = operand1[i] + operand2[i] for i below length
+     */
+    protected void add(int[] operand1, int[] operand2, int length) {
+        for (int i = 0; i < length; i++)
+            operand1[i] += operand2[i];
+    }
+
+    /**
+     * operand1[i] = operand1[i] - operand2[i] for i below length
+     */
+    protected void sub(int[] operand1, int[] operand2, int length) {
+        for (int i = 0; i < length; i++)
+            operand1[i] -= operand2[i];
+    }
+
+    /**
+     * operand1[i] = operand1[i] * operand2[i] for i below length
+     */
+    protected void multi(int[] operand1, int[] operand2, int length) {
+        for (int i = 0; i < length; i++)
+            operand1[i] *= operand2[i];
+    }
+
+    /**
+     * operand1[i] = operand1[i] / operand2[i] for i below length
+     * @throws ArithmeticException for div by zero
+     */
+    protected void div(int[] operand1, int[] operand2, int length) {
+        for (int i = 0; i < length; i++)
+            operand1[i] /= operand2[i];
+    }
+}
@@ -0,0 +1,259 @@
+package calculator.vm;
+
+import calculator.ExpressionTree;
+import calculator.exception.CalculatorException;
+import calculator.lexer.Lexer;
+import calculator.lexer.TokenKind;
+import calculator.utils.ArithmeticSymbols;
+import calculator.utils.Helper;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lowers an ExpressionTree to a Program
+ * Operands are emitted before their function (post-order), so the program runs on a stack machine.
+ * Each "let" variable gets a slot numbered by the "let" nesting depth; variables are resolved to the
+ * innermost enclosing "let" at compile time, so the Interpreter never looks up names.
+ *
+ * Example: let(a, 5, add(a, 3))
+ *         PUSH 5, STORE 0, LOAD 0, PUSH 3, ADD
+ *
+ * Variables not bound by any "let" can be declared as parameters; they take the first slots,
+ * in declaration order, and are bound by the caller at evaluation time.
+ *
+ * Example: add(x, multi(y, 3)) with parameters x, y
+ *         LOAD 0, LOAD 1, PUSH 3, MULTI, ADD
+ *
+ * add and multi are emitted as a left fold over all their operands, including those of nested calls
+ * of the same function.
+ * Example: add(1, add(2, 3), 4)
+ *         PUSH 1, PUSH 2, ADD, PUSH 3, ADD, PUSH 4, ADD
+ *
+ * The tree is walked with an explicit stack, so nesting depth is limited by heap only.
+ */
+public class Compiler {
+
+    private final boolean isExact;
+
+    /**
+     * Default Constructor, for int arithmetic
+     */
+    public Compiler() {
+        this(false);
+    }
+
+    /**
+     * Constructor
+     * @param isExact true to accept integer literals outside int range, for the ExactInterpreter
+     */
+    public Compiler(boolean isExact) {
+        this.isExact = isExact;
+    }
+
+    /**
+     * Compile expression tree
+     * @param expressionTree
+     * @return
+     * @throws CalculatorException for variables not bound by an enclosing "let"
+     */
+    public Program compile(ExpressionTree expressionTree) throws CalculatorException {
+        ProgramBuilder programBuilder = new ProgramBuilder();
+        compile(expressionTree, programBuilder, new ArrayList<String>());
+        return programBuilder.build();
+    }
+
+    /**
+     * Compile expression tree with free variables
+     * @param expressionTree
+     * @param parameterNames names of the free variables, case-insensitive; index is the parameter slot
+     * @return
+     * @throws CalculatorException for invalid or duplicate parameter names and variables neither
+     *         declared as parameter nor bound by an enclosing "let"
+     */
+    public Program compile(ExpressionTree expressionTree, String... parameterNames) throws CalculatorException {
+        List<String> scope = new ArrayList<String>(parameterNames.length);
+        for (String parameterName : parameterNames) {
+            String variableName = toVariableName(parameterName);
+            if (scope.contains(variableName))
+                throw new CalculatorException(CalculatorException.INVALID_ARGUMENTS);
+            scope.add(variableName);
+        }
+        ProgramBuilder programBuilder = new ProgramBuilder(parameterNames.length);
+        compile(expressionTree, programBuilder, scope);
+        return programBuilder.build();
+    }
+
+    /**
+     * Function to read parameter name as a variable name, in the form the parser gives it
+     * @param parameterName
+     * @return
+     * @throws CalculatorException if parameter name is not a single variable name
+     */
+    private String toVariableName(String parameterName) throws CalculatorException {
+        if (parameterName == null)
+            throw new CalculatorException(CalculatorException.INVALID_ARGUMENTS);
+        Lexer lexer = new Lexer(parameterName);
+        if (lexer.next() != TokenKind.VARIABLE)
+            throw new CalculatorException(CalculatorException.INVALID_ARGUMENTS);
+        String variableName = lexer.getText();
+        if (lexer.next() != TokenKind.END)
+            throw new CalculatorException(CalculatorException.INVALID_ARGUMENTS);
+        return variableName;
+    }
+
+    /**
+     * Function emitting instructions for expression tree
+     * Nodes are compiled from an explicit stack of tasks instead of recursion, so any nesting depth is supported.
+     * @param expressionTree
+     * @param programBuilder
+     * @param scope names of parameters and enclosing "let" variables, index is the slot
+     * @throws CalculatorException
+     */
+    private void compile(ExpressionTree expressionTree, ProgramBuilder programBuilder, List<String> scope) throws CalculatorException {
+        //Slots of each variable name, innermost last, so that lookup does not depend on the "let" nesting depth
+        Map<String, List<Integer>> slots = new HashMap<String, List<Integer>>();
+        for (int slot = 0; slot < scope.size(); slot++)
+            bind(slots, scope.get(slot), slot);
+        Deque<Task> tasks = new ArrayDeque<Task>();
+        tasks.push(new Task(Task.COMPILE, expressionTree, null));
+        while (!tasks.isEmpty()) {
+            Task task = tasks.pop();
+            switch (task.kind) {
+                case Task.COMPILE:
+                    compileNode(task.expressionTree, programBuilder, slots, tasks);
+                    break;
+                case Task.EMIT:
+                    programBuilder.emitArithmeticFunction(task.arithmeticFunction);
+                    break;
+                case Task.BIND:
+                    programBuilder.emitStore(scope.size());
+                    bind(slots, task.expressionTree.getExpression(), scope.size());
+                    scope.add(task.expressionTree.getExpression());
+                    break;
+                default:
+                    List<Integer> variableSlots = slots.get(scope.remove(scope.size() - 1));
+                    variableSlots.remove(variableSlots.size() - 1);
+            }
+        }
+    }
+
+    /**
+     * Function emitting instructions for leaf node, or pushing the tasks compiling function or "let" node
+     * @param expressionTree
+     * @param programBuilder
+     * @param slots slots of each variable name, innermost last
+     * @param tasks
+     * @throws CalculatorException
+     */
+    private void compileNode(ExpressionTree expressionTree, ProgramBuilder programBuilder, Map<String, List<Integer>> slots,
+                             Deque<Task> tasks) throws CalculatorException {
+        String expression = expressionTree.getExpression();
+        if (expressionTree.isLeafNode()) {
+            if (Helper.isInteger(expression)) {
+                try {
+                    programBuilder.emitPush(Integer.parseInt(expression));
+                } catch (NumberFormatException e) {
+                    if (!isExact)
+                        throw new CalculatorException(CalculatorException.INVALID_ARGUMENTS, expressionTree.getPosition());
+                    programBuilder.emitPush(new BigInteger(expression));
+                }
+            } else {
+                List<Integer> variableSlots = slots.get(expression);
+                if (variableSlots == null || variableSlots.isEmpty())
+                    throw new CalculatorException(CalculatorException.INVALID_ARGUMENTS, expressionTree.getPosition());
+                programBuilder.emitLoad(variableSlots.get(variableSlots.size() - 1));
+            }
+            return;
+        }
+        List<ExpressionTree> children = expressionTree.getChildren();
+        if (ArithmeticSymbols.isLetOperator(expression)) {
+            tasks.push(new Task(Task.UNBIND, null, null));
+            tasks.push(new Task(Task.COMPILE, children.get(5), null));
+            tasks.push(new Task(Task.BIND, children.get(1), null));
+            tasks.push(new Task(Task.COMPILE, children.get(3), null));
+            return;
+        }
+        pushArithmeticFunction(expressionTree, ArithmeticSymbols.getArithmeticFunction(expression), tasks);
+    }
+
+    /**
+     * Function pushing the tasks compiling arithmetic function node as a left fold over its operands
+     * For add and multi, operands that are themselves the same function are flattened into the fold,
+     * so a chain add(a, add(b, add(c, d))) emits a, b, ADD, c, ADD, d, ADD: a stack depth of 2 instead
+     * of the chain length. Exact for int, as + and * are associative and commutative in two's complement.
+     * @param expressionTree
+     * @param arithmeticFunction
+     * @param tasks
+     */
+    private static void pushArithmeticFunction(ExpressionTree expressionTree, ArithmeticSymbols arithmeticFunction,
+                                               Deque<Task> tasks) {
+        List<ExpressionTree> foldOperands = new ArrayList<ExpressionTree>();
+        Deque<ExpressionTree> operands = new ArrayDeque<ExpressionTree>();
+        pushOperands(expressionTree, operands);
+        while (!operands.isEmpty()) {
+            ExpressionTree operand = operands.pop();
+            if (arithmeticFunction.isVariadic() && !operand.isLeafNode()
+                    && ArithmeticSymbols.getArithmeticFunction(operand.getExpression()) == arithmeticFunction) {
+                pushOperands(operand, operands);
+                continue;
+            }
+            foldOperands.add(operand);
+        }
+        //Tasks run in reverse order of pushing
+        for (int i = foldOperands.size() - 1; i >= 0; i--) {
+            if (i > 0)
+                tasks.push(new Task(Task.EMIT, null, arithmeticFunction));
+            tasks.push(new Task(Task.COMPILE, foldOperands.get(i), null));
+        }
+    }
+
+    private static void bind(Map<String, List<Integer>> slots, String variableName, int slot) {
+        List<Integer> variableSlots = slots.get(variableName);
+        if (variableSlots == null) {
+            variableSlots = new ArrayList<Integer>(1);
+            slots.put(variableName, variableSlots);
+        }
+        variableSlots.add(slot);
+    }
+
+    /**
+     * Push operands of function node, children 1, 3, ..., so that the first operand is on top
+     * @param expressionTree
+     * @param operands
+     */
+    private static void pushOperands(ExpressionTree expressionTree, Deque<ExpressionTree> operands) {
+        List<ExpressionTree> children = expressionTree.getChildren();
+        for (int i = children.size() - 2; i >= 1; i -= 2)
+            operands.push(children.get(i));
+    }
+
+    /**
+     * Pending step of the compilation
+     *      COMPILE: emit instructions of node
+     *      EMIT: emit arithmetic function instruction
+     *      BIND: store value of "let" node and add its variable to the scope
+     *      UNBIND: remove innermost "let" variable from the scope
+     */
+    private static final class Task {
+        private static final int COMPILE = 0;
+        private static final int EMIT = 1;
+        private static final int BIND = 2;
+        private static final int UNBIND = 3;
+
+        private final int kind;
+        private final ExpressionTree expressionTree;
+        private final ArithmeticSymbols arithmeticFunction;
+
+        private Task(int kind, ExpressionTree expressionTree, ArithmeticSymbols arithmeticFunction) {
+            this.kind = kind;
+            this.expressionTree = expressionTree;
+            this.arithmeticFunction = arithmeticFunction;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package calculator.vm;
+
+import java.math.BigInteger;
+
+/**
+ * Stack machine executing a Program with exact integer arithmetic
+ * Operands are kept as long on a primitive long[] stack; add, sub and multi use Math.addExact,
+ * subtractExact and multiplyExact, and only a result overflowing long is promoted to BigInteger.
+ * BigInteger values live in shadow arrays, allocated on the first promotion, at the same index as
+ * their long slot; a BigInteger result fitting long again is demoted back to the long fast path.
+ * Expressions staying within long range therefore execute with no allocation but the scratch space.
+ *
+ * Division truncates toward zero as Java integer division; div by zero throws ArithmeticException.
+ *
+ * Example: multi(2147483647, 2147483647) returns 4611686014132420609 instead of wrapping to 1.
+ */
+public class ExactInterpreter {
+
+    /**
+     * Command line option selecting exact arithmetic
+     */
+    public static final String EXACT_OPTION = "exact";
+
+    /**
+     * Execute program
+     * @param program
+     * @return value left on top of the stack, a Long if it fits long, a BigInteger otherwise
+     */
+    public Number execute(Program program) {
+        long[] stack = new long[program.maxStackDepth];
+        long[] slots = new long[program.slotCount];
+        BigInteger[] bigStack = null;
+        BigInteger[] bigSlots = null;
+        BigInteger[] constants = program.constants;
+        int[] code = program.code;
+        int top = -1;
+        int pc = 0;
+        while (pc < code.length) {
+            int opCode = code[pc++];
+            switch (opCode) {
+                case OpCode.PUSH:
+                    stack[++top] = code[pc++];
+                    if (bigStack != null)
+                        bigStack[top] = null;
+                    break;
+                case OpCode.PUSH_CONSTANT:
+                    if (bigStack == null)
+                        bigStack = new BigInteger[stack.length];
+                    bigStack[++top] = constants[code[pc++]];
+                    break;
+                case OpCode.LOAD: {
+                    int slot = code[pc++];
+                    stack[++top] = slots[slot];
+                    if (bigSlots != null && bigSlots[slot] != null) {
+                        if (bigStack == null)
+                            bigStack = new BigInteger[stack.length];
+                        bigStack[top] = bigSlots[slot];
+                    } else if (bigStack != null) {
+                        bigStack[top] = null;
+                    }
+                    break;
+                }
+                case OpCode.STORE: {
+                    int slot = code[pc++];
+                    slots[slot] = stack[top];
+                    if (bigStack != null && bigStack[top] != null) {
+                        if (bigSlots == null)
+                            bigSlots = new BigInteger[slots.length];
+                        bigSlots[slot] = bigStack[top];
+                    } else if (bigSlots != null) {
+                        bigSlots[slot] = null;
+                    }
+                    top--;
+                    break;
+                }
+                case OpCode.ADD:
+                case OpCode.SUB:
+                case OpCode.MULTI:
+                case OpCode.DIV: {
+                    top--;
+                    if (bigStack == null || (bigStack[top] == null && bigStack[top + 1] == null)) {
+                        try {
+                            stack[top] = computeExact(opCode, stack[top], stack[top + 1]);
+                            break;
+                        } catch (ArithmeticException e) {
+                            //Overflow of long; div by zero is thrown again by compute
+                            if (bigStack == null)
+                                bigStack = new BigInteger[stack.length];
+                        }
+                    }
+                    BigInteger result = compute(opCode, toBigInteger(stack, bigStack, top), toBigInteger(stack, bigStack, top + 1));
+                    if (result.bitLength() < Long.SIZE) {
+                        stack[top] = result.longValue();
+                        bigStack[top] = null;
+                    } else {
+                        bigStack[top] = result;
+                    }
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Invalid instruction " + code[pc - 1] + " at " + (pc - 1));
+            }
+        }
+        if (bigStack != null && bigStack[top] != null)
+            return bigStack[top];
+        return stack[top];
+    }
+
+    /**
+     * Function to compute arithmetic instruction on long operands
+     * @param opCode
+     * @param left
+     * @param right
+     * @return
+     * @throws ArithmeticException on long overflow, or for div by zero
+     */
+    private static long computeExact(int opCode, long left, long right) {
+        switch (opCode) {
+            case OpCode.ADD: return Math.addExact(left, right);
+            case OpCode.SUB: return Math.subtractExact(left, right);
+            case OpCode.MULTI: return Math.multiplyExact(left, right);
+            default:
+                //Only Long.MIN_VALUE / -1 overflows
+                if (left == Long.MIN_VALUE && right == -1)
+                    throw new ArithmeticException("long overflow");
+                return left / right;
+        }
+    }
+
+    /**
+     * Function to compute arithmetic instruction on BigInteger operands
+     * @param opCode
+     * @param left
+     * @param right
+     * @return
+     */
+    private static BigInteger compute(int opCode, BigInteger left, BigInteger right) {
+        switch (opCode) {
+            case OpCode.ADD: return left.add(right);
+            case OpCode.SUB: return left.subtract(right);
+            case OpCode.MULTI: return left.multiply(right);
+            default:
+                if (right.signum() == 0)
+                    throw new ArithmeticException("/ by zero");
+                return left.divide(right);
+        }
+    }
+
+    private static BigInteger toBigInteger(long[] stack, BigInteger[] bigStack, int index) {
+        BigInteger value = bigStack[index];
+        return value != null ? value : BigInteger.valueOf(stack[index]);
+    }
+}
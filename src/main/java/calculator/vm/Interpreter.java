@@ -0,0 +1,64 @@
+package calculator.vm;
+
+/**
+ * Stack machine executing a Program
+ * Operands are kept on a primitive int[] stack and "let" variables in an int[] of slots,
+ * so executing an instruction involves no boxing, no String and no allocation.
+ * Arithmetic wraps on overflow like Java int arithmetic; div by zero throws ArithmeticException.
+ */
+public class Interpreter {
+
+    /**
+     * Execute program
+     * @param program
+     * @return value left on top of the stack
+     */
+    public int execute(Program program) {
+        return execute(program, new int[program.maxStackDepth], new int[program.slotCount]);
+    }
+
+    /**
+     * Execute program with caller provided scratch space
+     * @param program
+     * @param stack operand stack, at least program.getMaxStackDepth() long
+     * @param slots "let" variable slots, at least program.getSlotCount() long
+     * @return value left on top of the stack
+     */
+    public int execute(Program program, int[] stack, int[] slots) {
+        int[] code = program.code;
+        int top = -1;
+        int pc = 0;
+        while (pc < code.length) {
+            switch (code[pc++]) {
+                case OpCode.PUSH:
+                    stack[++top] = code[pc++];
+                    break;
+                case OpCode.LOAD:
+                    stack[++top] = slots[code[pc++]];
+                    break;
+                case OpCode.STORE:
+                    slots[code[pc++]] = stack[top--];
+                    break;
+                case OpCode.ADD:
+                    stack[top - 1] = stack[top - 1] + stack[top];
+                    top--;
+                    break;
+                case OpCode.SUB:
+                    stack[top - 1] = stack[top - 1] - stack[top];
+                    top--;
+                    break;
+                case OpCode.MULTI:
+                    stack[top - 1] = stack[top - 1] * stack[top];
+                    top--;
+                    break;
+                case OpCode.DIV:
+                    stack[top - 1] = stack[top - 1] / stack[top];
+                    top--;
+                    break;
+                default:
+                    throw new IllegalStateException("Invalid instruction " + code[pc - 1] + " at " + (pc - 1));
+            }
+        }
+        return stack[top];
+    }
+}
@@ -0,0 +1,65 @@
+package calculator.vm;
+
+/**
+ * Instruction set of the calculator stack machine
+ * Each instruction is one int, followed by one int operand for PUSH, LOAD, STORE and PUSH_CONSTANT.
+ * Arithmetic instructions pop operand2 then operand1 and push the result.
+ *
+ * Example: let(a, 5, add(a, 3))
+ *         PUSH 5, STORE 0, LOAD 0, PUSH 3, ADD
+ */
+public final class OpCode {
+
+    /**
+     * Push constant operand
+     */
+    public static final int PUSH = 0;
+    /**
+     * Push value of "let" variable slot operand
+     */
+    public static final int LOAD = 1;
+    /**
+     * Pop value into "let" variable slot operand
+     */
+    public static final int STORE = 2;
+    public static final int ADD = 3;
+    public static final int SUB = 4;
+    public static final int MULTI = 5;
+    public static final int DIV = 6;
+    /**
+     * Push constant of the program constant pool at index operand, for integers outside int range
+     * Emitted only for exact arithmetic and executed only by the ExactInterpreter.
+     */
+    public static final int PUSH_CONSTANT = 7;
+
+    private OpCode() {
+    }
+
+    /**
+     * Check if instruction is followed by an operand
+     * @param opCode
+     * @return
+     */
+    public static boolean hasOperand(int opCode) {
+        return opCode == PUSH || opCode == LOAD || opCode == STORE || opCode == PUSH_CONSTANT;
+    }
+
+    /**
+     * Get instruction name, used for printing programs
+     * @param opCode
+     * @return
+     */
+    public static String getName(int opCode) {
+        switch (opCode) {
+            case PUSH: return "PUSH";
+            case LOAD: return "LOAD";
+            case STORE: return "STORE";
+            case ADD: return "ADD";
+            case SUB: return "SUB";
+            case MULTI: return "MULTI";
+            case DIV: return "DIV";
+            case PUSH_CONSTANT: return "PUSH_CONSTANT";
+            default: return "UNKNOWN(" + opCode + ")";
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package calculator.vm;
+
+import java.math.BigInteger;
+
+/**
+ * Compiled expression: flat int[] of OpCode instructions
+ * Along with the code, the program records the operand stack depth and number of variable slots
+ * the Interpreter has to provide, so execution needs no bounds growth.
+ * Slots 0 to parameterCount - 1 hold the free variables of a parameterized expression,
+ * "let" variables follow them.
+ * Integers outside int range, accepted only for exact arithmetic, are kept in a constant pool.
+ * Programs are immutable once built.
+ */
+public final class Program {
+
+    final int[] code;
+    final int maxStackDepth;
+    final int slotCount;
+    final int parameterCount;
+    final BigInteger[] constants;
+
+    Program(int[] code, int maxStackDepth, int slotCount, int parameterCount, BigInteger[] constants) {
+        this.code = code;
+        this.maxStackDepth = maxStackDepth;
+        this.slotCount = slotCount;
+        this.parameterCount = parameterCount;
+        this.constants = constants;
+    }
+
+    /**
+     * Get copy of the instructions
+     * @return
+     */
+    public int[] getCode() {
+        return code.clone();
+    }
+
+    /**
+     * Get maximum operand stack depth reached while executing
+     * @return
+     */
+    public int getMaxStackDepth() {
+        return maxStackDepth;
+    }
+
+    /**
+     * Get number of variable slots, parameters included
+     * @return
+     */
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    /**
+     * Get number of parameters, the free variables bound by the caller
+     * @return
+     */
+    public int getParameterCount() {
+        return parameterCount;
+    }
+
+    /**
+     * Get integers outside int range pushed by PUSH_CONSTANT, empty unless compiled for exact arithmetic
+     * @return
+     */
+    public BigInteger[] getConstants() {
+        return constants.clone();
+    }
+
+    /**
+     * Logic to print program as one instruction per line
+     * @return
+     */
+    @Override
+    public String toString() {
+        StringBuilder returnString = new StringBuilder();
+        for (int pc = 0; pc < code.length; pc++) {
+            int opCode = code[pc];
+            returnString.append(OpCode.getName(opCode));
+            if (OpCode.hasOperand(opCode))
+                returnString.append(' ').append(code[++pc]);
+            returnString.append('\n');
+        }
+        return returnString.toString();
+    }
+}
@@ -0,0 +1,143 @@
+package calculator.vm;
+
+import calculator.utils.ArithmeticSymbols;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Emits instructions for a Program and tracks operand stack depth and slot usage
+ */
+public class ProgramBuilder {
+
+    private int[] code = new int[16];
+    private int length;
+    private int stackDepth;
+    private int maxStackDepth;
+    private int slotCount;
+    private final int parameterCount;
+    private final List<BigInteger> constants = new ArrayList<BigInteger>();
+
+    /**
+     * Constructor for program without parameters
+     */
+    public ProgramBuilder() {
+        this(0);
+    }
+
+    /**
+     * Constructor
+     * @param parameterCount number of parameter slots, reserved ahead of "let" slots
+     */
+    public ProgramBuilder(int parameterCount) {
+        this.parameterCount = parameterCount;
+        this.slotCount = parameterCount;
+    }
+
+    /**
+     * Emit push of constant value
+     * @param value
+     */
+    public void emitPush(int value) {
+        emit(OpCode.PUSH, value);
+        updateStackDepth(1);
+    }
+
+    /**
+     * Emit push of constant value of any size
+     * Values within int range are pushed as with emitPush(int), others through the constant pool.
+     * @param value
+     */
+    public void emitPush(BigInteger value) {
+        if (value.bitLength() < Integer.SIZE) {
+            emitPush(value.intValue());
+            return;
+        }
+        emit(OpCode.PUSH_CONSTANT, constants.size());
+        constants.add(value);
+        updateStackDepth(1);
+    }
+
+    /**
+     * Emit load of parameter or "let" variable slot
+     * @param slot
+     */
+    public void emitLoad(int slot) {
+        emit(OpCode.LOAD, slot);
+        updateStackDepth(1);
+    }
+
+    /**
+     * Emit store into "let" variable slot
+     * @param slot
+     */
+    public void emitStore(int slot) {
+        emit(OpCode.STORE, slot);
+        slotCount = Math.max(slotCount, slot + 1);
+        updateStackDepth(-1);
+    }
+
+    /**
+     * Emit arithmetic function
+     * @param arithmeticFunction ADD_FUNCTION, SUB_FUNCTION, MULTI_FUNCTION or DIV_FUNCTION
+     */
+    public void emitArithmeticFunction(ArithmeticSymbols arithmeticFunction) {
+        emit(toOpCode(arithmeticFunction));
+        updateStackDepth(-1);
+    }
+
+    /**
+     * Get current operand stack depth
+     * @return
+     */
+    public int getStackDepth() {
+        return stackDepth;
+    }
+
+    /**
+     * Build program from emitted instructions
+     * @return
+     */
+    public Program build() {
+        return new Program(Arrays.copyOf(code, length), maxStackDepth, slotCount, parameterCount,
+                constants.toArray(new BigInteger[0]));
+    }
+
+    /**
+     * Get opcode for arithmetic function
+     * @param arithmeticFunction
+     * @return
+     */
+    public static int toOpCode(ArithmeticSymbols arithmeticFunction) {
+        switch (arithmeticFunction) {
+            case ADD_FUNCTION: return OpCode.ADD;
+            case SUB_FUNCTION: return OpCode.SUB;
+            case MULTI_FUNCTION: return OpCode.MULTI;
+            case DIV_FUNCTION: return OpCode.DIV;
+            default: throw new IllegalArgumentException("Not an arithmetic function: " + arithmeticFunction);
+        }
+    }
+
+    private void emit(int opCode) {
+        ensureCapacity(1);
+        code[length++] = opCode;
+    }
+
+    private void emit(int opCode, int operand) {
+        ensureCapacity(2);
+        code[length++] = opCode;
+        code[length++] = operand;
+    }
+
+    private void ensureCapacity(int count) {
+        if (length + count > code.length)
+            code = Arrays.copyOf(code, Math.max(code.length * 2, length + count));
+    }
+
+    private void updateStackDepth(int delta) {
+        stackDepth += delta;
+        maxStackDepth = Math.max(maxStackDepth, stackDepth);
+    }
+}
@@ -0,0 +1,69 @@
+package calculator.vm;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * ColumnInterpreter computing add, sub and multi with the Vector API
+ * Each arithmetic instruction processes a whole vector of rows per operation, e.g. 8 ints with AVX2
+ * or 16 ints with AVX-512; the lane count is the preferred species of the running CPU.
+ * Rows after the last full vector of a block are computed by the scalar loop.
+ *
+ * div is not overridden: x86 has no packed integer division, and both lanewise DIV and division
+ * in double lanes measured slower than the scalar idiv loop (see ColumnBenchmark). The scalar loop
+ * also throws ArithmeticException for div by zero at the same row as ColumnInterpreter.
+ *
+ * Requires the JVM option --add-modules jdk.incubator.vector; ColumnInterpreter.getInstance()
+ * only creates this class when the module is present.
+ */
+public class VectorColumnInterpreter extends ColumnInterpreter {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    /**
+     * Get number of int lanes processed per vector operation
+     * @return
+     */
+    public static int getLaneCount() {
+        return SPECIES.length();
+    }
+
+    @Override
+    protected void add(int[] operand1, int[] operand2, int length) {
+        int upperBound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < upperBound; i += SPECIES.length()) {
+            IntVector.fromArray(SPECIES, operand1, i)
+                    .add(IntVector.fromArray(SPECIES, operand2, i))
+                    .intoArray(operand1, i);
+        }
+        for (; i < length; i++)
+            operand1[i] += operand2[i];
+    }
+
+    @Override
+    protected void sub(int[] operand1, int[] operand2, int length) {
+        int upperBound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < upperBound; i += SPECIES.length()) {
+            IntVector.fromArray(SPECIES, operand1, i)
+                    .sub(IntVector.fromArray(SPECIES, operand2, i))
+                    .intoArray(operand1, i);
+        }
+        for (; i < length; i++)
+            operand1[i] -= operand2[i];
+    }
+
+    @Override
+    protected void multi(int[] operand1, int[] operand2, int length) {
+        int upperBound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < upperBound; i += SPECIES.length()) {
+            IntVector.fromArray(SPECIES, operand1, i)
+                    .mul(IntVector.fromArray(SPECIES, operand2, i))
+                    .intoArray(operand1, i);
+        }
+        for (; i < length; i++)
+            operand1[i] *= operand2[i];
+    }
+}
@@ -45,6 +45,33 @@ public class MainTest {
         testCalculate(expectedResult, "add(-7, -3)");
     }
 
+    @Test
+    public void shouldAddAndMultiMoreThanTwoIntegers() throws CalculatorException {
+        testCalculate(1 + 2 + 3 + 4, "add(1, 2, 3, 4)");
+        testCalculate(2 * 3 * 4, "multi(2, 3, 4)");
+        testCalculate(1 + 2 * 3 * 4 + 5, "add(1, multi(2, 3, 4), 5)");
+        testCalculate(1 + 2 + 3 + 4, "add(1, add(2, 3), 4)");
+        testCalculate(Integer.MAX_VALUE + 2 + (-3), "add(" + Integer.MAX_VALUE + ", 2, -3)");
+        testCalculate(3 * 7, "let(a, 3, multi(a, let(b, 7, b), 1))");
+    }
+
+    @Test
+    public void shouldCalculateLongChainOfSameFunction() throws CalculatorException {
+        int depth = 500;
+        StringBuilder inputExpression = new StringBuilder();
+        for (int i = 0; i < depth; i++)
+            inputExpression.append("add(").append(i).append(", ");
+        inputExpression.append(depth);
+        for (int i = 0; i < depth; i++)
+            inputExpression.append(')');
+        testCalculate(depth * (depth + 1) / 2, inputExpression.toString());
+    }
+
+    @Test
+    public void shouldThrowException_MoreThanTwoArgsForSubFunc() throws CalculatorException {
+        testCalculateWithException(CalculatorException.INVALID_ARGUMENTS, "sub(5, 2, 1)");
+    }
+
     @Test
     public void shouldSubtractIntegers() throws CalculatorException {
         Integer expectedResult = Integer.MIN_VALUE - Integer.MAX_VALUE;
@@ -113,6 +140,44 @@ public class MainTest {
         testCalculate(40, "let(a,let(b,10,add(b,b)),let(b,20,add(a,b)))");
     }
 
+    @Test
+    public void shouldCalculateToExpectedResult_ShadowedVariable() throws CalculatorException {
+        testCalculate(12, "let(a,5,let(a,add(a,1),multi(a,2)))");
+
+        testCalculate(1, "let(a,1,let(b,a,let(a,2,add(b,0))))");
+    }
+
+    @Test
+    public void shouldCalculateToExpectedResult_NestedLetReusingVariable() throws CalculatorException {
+        //Textual substitution would expand to 2^30 copies of the innermost value
+        int depth = 30;
+        StringBuilder expression = new StringBuilder();
+        expression.append("let(a,1,");
+        for (int i = 0; i < depth; i++)
+            expression.append("let(a,add(a,a),");
+        expression.append("a");
+        for (int i = 0; i <= depth; i++)
+            expression.append(")");
+        testCalculate(1 << depth, expression.toString());
+    }
+
+    @Test
+    public void shouldCalculateToExpectedResult_DeepLetReusingOuterVariable() throws CalculatorException {
+        //Each level reads the outermost variable: one lookup per use, not a walk through the enclosing scopes
+        int depth = 80000;
+        StringBuilder expression = new StringBuilder("let(x,5,");
+        for (int i = 0; i < depth; i++)
+            expression.append("let(y,x,sub(y,");
+        expression.append("1");
+        int expectedResult = 1;
+        for (int i = 0; i < depth; i++) {
+            expression.append("))");
+            expectedResult = 5 - expectedResult;
+        }
+        expression.append(")");
+        testCalculate(expectedResult, expression.toString());
+    }
+
     @Test
     public void shouldCalculateToExpectedResult_CaseInsensitive() throws CalculatorException {
         testCalculate(40, "LET(A,LET(B,10,ADD(B,b)),LET(B,20,ADD(A,b)))");
@@ -158,6 +223,22 @@ public class MainTest {
         testCalculateWithException(expectedExceptionMessage, "add(55)");
     }
 
+    @Test
+    public void shouldCalculateExactlyInExactMode() throws CalculatorException {
+        Main exactMain = new Main(null, true);
+        assertEquals("4611686014132420609", exactMain.calculate("multi(2147483647, 2147483647)"));
+        assertEquals("-4294967295", exactMain.calculate("sub(" + Integer.MIN_VALUE + "," + Integer.MAX_VALUE + ")"));
+        assertEquals("100000000000000000000", exactMain.calculate("let(a, 10000000000, multi(a, a))"));
+        //Default mode keeps wrapping int arithmetic
+        testCalculate(1, "multi(2147483647, 2147483647)");
+    }
+
+    @Test
+    public void shouldThrowException_DivByZeroInExactMode() throws CalculatorException {
+        exception.expect(ArithmeticException.class);
+        new Main(null, true).calculate("div(10000000000, sub(5, 5))");
+    }
+
     @Test
     public void shouldThrowException_InvalidVariableExpression_a5() throws CalculatorException {
         //Invalid variable name / variable value
@@ -45,6 +45,89 @@ public class MainTreeTest {
         testCalculate(expectedResult, "add(-7, -3)");
     }
 
+    @Test
+    public void shouldAddAndMultiMoreThanTwoIntegers() throws CalculatorException {
+        testCalculate(1 + 2 + 3 + 4, "add(1, 2, 3, 4)");
+        testCalculate(2 * 3 * 4, "multi(2, 3, 4)");
+        testCalculate(1 + 2 * 3 * 4 + 5, "add(1, multi(2, 3, 4), 5)");
+        testCalculate(1 + 2 + 3 + 4, "add(1, add(2, 3), 4)");
+        testCalculate(Integer.MAX_VALUE + 2 + (-3), "add(" + Integer.MAX_VALUE + ", 2, -3)");
+        testCalculate(3 * 7, "let(a, 3, multi(a, let(b, 7, b), 1))");
+    }
+
+    @Test
+    public void shouldCalculateLongChainOfSameFunction() throws CalculatorException {
+        int depth = 500;
+        StringBuilder inputExpression = new StringBuilder();
+        for (int i = 0; i < depth; i++)
+            inputExpression.append("add(").append(i).append(", ");
+        inputExpression.append(depth);
+        for (int i = 0; i < depth; i++)
+            inputExpression.append(')');
+        testCalculate(depth * (depth + 1) / 2, inputExpression.toString());
+    }
+
+    @Test
+    public void shouldCalculateExpressionNestedOneMillionDeep() throws CalculatorException {
+        int depth = 1000000;
+        StringBuilder inputExpression = new StringBuilder("let(x, 5, ");
+        for (int i = 0; i < depth; i++)
+            inputExpression.append(i % 2 == 0 ? "multi(1," : "let(y,x,sub(y,");
+        inputExpression.append('x');
+        for (int i = depth - 1; i >= 0; i--)
+            inputExpression.append(i % 2 == 0 ? ")" : "))");
+        inputExpression.append(')');
+        //multi(1, let(y, x, sub(y, e))) is 5 - e, applied an even number of times
+        testCalculate(5, inputExpression.toString());
+        assertEquals("5", new MainTree(null, true).calculate(inputExpression.toString()));
+    }
+
+    @Test
+    public void shouldEvaluateInSinglePass() throws CalculatorException {
+        MainTree singlePassMainTree = new MainTree(null, false, true);
+        //Nodes: let, a, 5, add, a, multi, a, 3
+        assertEquals("20", singlePassMainTree.calculate("let(a, 5, add(a, multi(a, 3)))"));
+        assertEquals(0, singlePassMainTree.getValidatedNodeCount());
+        assertEquals(8, singlePassMainTree.getEvaluatedNodeCount());
+
+        //Default mode validates each node once, then evaluates the folded tree
+        assertEquals("20", mainTree.calculate("let(a, 5, add(a, multi(a, 3)))"));
+        assertEquals(8, mainTree.getValidatedNodeCount());
+        assertEquals(1, mainTree.getEvaluatedNodeCount());
+    }
+
+    @Test
+    public void shouldVisitEachNodeOnceInSinglePass() throws CalculatorException {
+        MainTree singlePassMainTree = new MainTree(null, false, true);
+        for (int depth = 1000; depth <= 100000; depth *= 10) {
+            long evaluatedNodeCount = singlePassMainTree.getEvaluatedNodeCount();
+            StringBuilder inputExpression = new StringBuilder("let(x, 2, ");
+            for (int i = 0; i < depth; i++)
+                inputExpression.append(i % 2 == 0 ? "let(y, add(x, 1), sub(" : "div(add(multi(y, x), ");
+            inputExpression.append('x');
+            for (int i = depth - 1; i >= 0; i--)
+                inputExpression.append(i % 2 == 0 ? ", y))" : "), 3)");
+            inputExpression.append(')');
+
+            singlePassMainTree.calculate(inputExpression.toString());
+
+            //let, x, 2 and innermost x; let, y, add, x, 1, sub, y per "let" level; div, add, multi, y, x, 3 per "div" level
+            assertEquals(4 + depth / 2 * 13, singlePassMainTree.getEvaluatedNodeCount() - evaluatedNodeCount);
+        }
+        assertEquals(0, singlePassMainTree.getValidatedNodeCount());
+    }
+
+    @Test
+    public void shouldThrowException_InvalidExpressionInSinglePass() throws CalculatorException {
+        mainTree = new MainTree(null, false, true);
+        testCalculateWithException(CalculatorException.INVALID_ARGUMENTS, "add(5, 2, )");
+    }
+
+    @Test
+    public void shouldThrowException_MoreThanTwoArgsForSubFunc() throws CalculatorException {
+        testCalculateWithException(CalculatorException.INVALID_ARGUMENTS, "sub(5, 2, 1)");
+    }
+
     @Test
     public void shouldSubtractIntegers() throws CalculatorException {
         Integer expectedResult = Integer.MIN_VALUE - Integer.MAX_VALUE;
@@ -113,6 +196,27 @@ public class MainTreeTest {
         testCalculate(40, "let(a,let(b,10,add(b,b)),let(b,20,add(a,b)))");
     }
 
+    @Test
+    public void shouldCalculateToExpectedResult_ShadowedVariable() throws CalculatorException {
+        testCalculate(12, "let(a,5,let(a,add(a,1),multi(a,2)))");
+
+        testCalculate(1, "let(a,1,let(b,a,let(a,2,add(b,0))))");
+    }
+
+    @Test
+    public void shouldCalculateToExpectedResult_NestedLetReusingVariable() throws CalculatorException {
+        //Textual substitution would expand to 2^30 copies of the innermost value
+        int depth = 30;
+        StringBuilder expression = new StringBuilder();
+        expression.append("let(a,1,");
+        for (int i = 0; i < depth; i++)
+            expression.append("let(a,add(a,a),");
+        expression.append("a");
+        for (int i = 0; i <= depth; i++)
+            expression.append(")");
+        testCalculate(1 << depth, expression.toString());
+    }
+
     @Test
     public void shouldCalculateToExpectedResult_CaseInsensitive() throws CalculatorException {
         testCalculate(40, "LET(A,LET(B,10,ADD(B,b)),LET(B,20,ADD(A,b)))");
@@ -158,6 +262,22 @@ public class MainTreeTest {
         testCalculateWithException(expectedExceptionMessage, "add(55)");
     }
 
+    @Test
+    public void shouldCalculateExactlyInExactMode() throws CalculatorException {
+        MainTree exactMainTree = new MainTree(null, true);
+        assertEquals("4611686014132420609", exactMainTree.calculate("multi(2147483647, 2147483647)"));
+        assertEquals("-4294967295", exactMainTree.calculate("sub(" + Integer.MIN_VALUE + "," + Integer.MAX_VALUE + ")"));
+        assertEquals("100000000000000000000", exactMainTree.calculate("let(a, 10000000000, multi(a, a))"));
+        //Default mode keeps wrapping int arithmetic
+        testCalculate(1, "multi(2147483647, 2147483647)");
+    }
+
+    @Test
+    public void shouldThrowException_DivByZeroInExactMode() throws CalculatorException {
+        exception.expect(ArithmeticException.class);
+        new MainTree(null, true).calculate("div(10000000000, sub(5, 5))");
+    }
+
     @Test
     public void shouldThrowException_InvalidVariableExpression_a5() throws CalculatorException {
         //Invalid variable name / variable value
@@ -0,0 +1,148 @@
+package calculator.batch;
+
+import calculator.Main;
+import calculator.MainTree;
+import calculator.exception.CalculatorException;
+import calculator.utils.CommandLineOptions;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test Case for
+ * BatchProcessor class
+ */
+public class BatchProcessorTest {
+
+    private static final String INPUT = "add(1,2)\n"
+            + "div(1,0)\n"
+            + "add(1,2\n"
+            + "\n"
+            + "let(a,5,add(a,a))\n";
+
+    @Test
+    public void shouldWriteOneResultOrErrorPerLine_Main() throws IOException {
+        BatchProcessor batchProcessor = new BatchProcessor(new Main()::calculate);
+        StringWriter writer = new StringWriter();
+
+        batchProcessor.process(new BufferedReader(new StringReader(INPUT)), writer);
+
+        assertEquals("3\n"
+                + "error: / by zero\n"
+                + "error: " + CalculatorException.PARENTHESIS_MISMATCH + "\n"
+                + "error: " + CalculatorException.INPUT_EXPRESSION_MISSING + "\n"
+                + "10\n", writer.toString());
+        assertEquals(5, batchProcessor.getLineCount());
+        assertEquals(3, batchProcessor.getErrorCount());
+    }
+
+    @Test
+    public void shouldWriteOneResultOrErrorPerLine_MainTree() throws IOException {
+        BatchProcessor batchProcessor = new BatchProcessor(new MainTree()::calculate);
+        StringWriter writer = new StringWriter();
+
+        batchProcessor.process(new BufferedReader(new StringReader(INPUT)), writer);
+
+        String[] lines = writer.toString().split("\n");
+        assertEquals(5, lines.length);
+        assertEquals("3", lines[0]);
+        assertEquals("error: " + CalculatorException.PARENTHESIS_MISMATCH + " at position 7", lines[2]);
+        assertEquals("10", lines[4]);
+    }
+
+    @Test
+    public void shouldWriteResultsInInputOrder_Parallel() throws IOException {
+        //Several chunks with a window of 2 * parallelism, so chunks are written while others are in flight
+        int lineCount = BatchProcessor.CHUNK_SIZE * 10 + 3;
+        StringBuilder input = new StringBuilder();
+        StringBuilder expectedOutput = new StringBuilder();
+        for (int i = 0; i < lineCount; i++) {
+            if (i % 100 == 0) {
+                input.append("div(").append(i).append(",0)\n");
+                expectedOutput.append("error: / by zero\n");
+            } else {
+                input.append("let(a,").append(i).append(",add(a,1))\n");
+                expectedOutput.append(i + 1).append('\n');
+            }
+        }
+        BatchProcessor batchProcessor = new BatchProcessor(new MainTree()::calculate, 3);
+        StringWriter writer = new StringWriter();
+
+        batchProcessor.process(new BufferedReader(new StringReader(input.toString())), writer);
+
+        assertEquals(expectedOutput.toString(), writer.toString());
+        assertEquals(lineCount, batchProcessor.getLineCount());
+        assertEquals((lineCount + 99) / 100, batchProcessor.getErrorCount());
+    }
+
+    @Test
+    public void shouldCreateParallelProcessorFromCommandLineOptions() {
+        assertEquals(1, BatchProcessor.fromCommandLineOptions(new Main()::calculate,
+                new CommandLineOptions(new String[]{"--batch"})).getParallelism());
+        assertEquals(4, BatchProcessor.fromCommandLineOptions(new Main()::calculate,
+                new CommandLineOptions(new String[]{"--batch", "--parallelism=4"})).getParallelism());
+        assertEquals(Runtime.getRuntime().availableProcessors(), BatchProcessor.fromCommandLineOptions(new Main()::calculate,
+                new CommandLineOptions(new String[]{"--batch", "--parallelism"})).getParallelism());
+    }
+
+    @Test
+    public void shouldStreamWithoutHoldingInput() throws IOException {
+        final int lineCount = 50000;
+        //Generates lines on demand, so the input is never held in memory
+        Reader reader = new Reader() {
+            private final String line = "let(a,5,add(a,a))\n";
+            private long position;
+
+            @Override
+            public int read(char[] buffer, int offset, int length) {
+                if (position >= (long) lineCount * line.length())
+                    return -1;
+                int count = 0;
+                while (count < length && position < (long) lineCount * line.length())
+                    buffer[offset + count++] = line.charAt((int) (position++ % line.length()));
+                return count;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        //Checks each result as it is written and keeps nothing
+        Writer writer = new Writer() {
+            private final StringBuilder line = new StringBuilder();
+
+            @Override
+            public void write(char[] buffer, int offset, int length) {
+                for (int i = offset; i < offset + length; i++) {
+                    if (buffer[i] == '\n') {
+                        assertEquals("10", line.toString());
+                        line.setLength(0);
+                    } else {
+                        line.append(buffer[i]);
+                    }
+                }
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        BatchProcessor batchProcessor = new BatchProcessor(new Main()::calculate);
+
+        batchProcessor.process(new BufferedReader(reader), writer);
+
+        assertEquals(lineCount, batchProcessor.getLineCount());
+        assertEquals(0, batchProcessor.getErrorCount());
+    }
+}
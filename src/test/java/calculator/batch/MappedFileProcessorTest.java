@@ -0,0 +1,109 @@
+package calculator.batch;
+
+import calculator.engine.Calculator;
+import calculator.exception.CalculatorException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test Case for
+ * MappedFileProcessor class
+ */
+public class MappedFileProcessorTest {
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void shouldWriteOneResultOrErrorPerLine() throws IOException {
+        File file = write("add(1,2)\r\ndiv(1,0)\nadd(1,2\n\nLET(a,5,add(A,a))\nsub(-2147483648,1)\nlet(a,5,a)\n7\r\n\r\nadd(1,2)");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        MappedFileProcessor mappedFileProcessor = new MappedFileProcessor(1);
+
+        mappedFileProcessor.process(file.getPath(), output);
+
+        assertEquals("3\n"
+                + "error: / by zero\n"
+                + "error: " + CalculatorException.PARENTHESIS_MISMATCH + " at position 7\n"
+                + "error: " + CalculatorException.INPUT_EXPRESSION_MISSING + "\n"
+                + "10\n"
+                + Integer.MAX_VALUE + "\n"
+                + "error: " + CalculatorException.INPUT_EXPRESSION_INVALID + "\n"
+                + "error: " + CalculatorException.INPUT_EXPRESSION_INVALID + "\n"
+                + "error: " + CalculatorException.INPUT_EXPRESSION_MISSING + "\n"
+                + "3\n", output.toString("US-ASCII"));
+        assertEquals(10, mappedFileProcessor.getLineCount());
+        assertEquals(6, mappedFileProcessor.getErrorCount());
+    }
+
+    @Test
+    public void shouldMatchBatchProcessorAcrossWindowsAndSegments() throws IOException {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            if (i % 97 == 0)
+                input.append("div(").append(i).append(",0)\n");
+            else
+                input.append("let(x,").append(i).append(",multi(sub(x,").append(i % 13).append("),-3))\n");
+        }
+        //Same semantics as the compiled engine
+        final Calculator calculator = new Calculator();
+        BatchProcessor batchProcessor = new BatchProcessor(new BatchProcessor.Evaluator() {
+            @Override
+            public String calculate(String inputExprStr) throws CalculatorException {
+                return String.valueOf(calculator.calculate(inputExprStr));
+            }
+        });
+        StringWriter expectedOutput = new StringWriter();
+        batchProcessor.process(new BufferedReader(new StringReader(input.toString())), expectedOutput);
+        File file = write(input.toString());
+
+        //Small windows and parallel segments, each cut at a newline
+        for (int parallelism : new int[]{1, 4}) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            new MappedFileProcessor(parallelism, 100000).process(file.getPath(), output);
+            assertEquals(expectedOutput.toString(), output.toString("US-ASCII"));
+        }
+    }
+
+    @Test
+    public void shouldEvaluateDeeplyNestedLine() throws IOException {
+        int depth = 100000;
+        StringBuilder input = new StringBuilder("add(1,2)\n");
+        for (int i = 0; i < depth; i++)
+            input.append("sub(1,");
+        input.append("0");
+        for (int i = 0; i < depth; i++)
+            input.append(")");
+        input.append("\nadd(3,4)\n");
+        File file = write(input.toString());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        new MappedFileProcessor(1).process(file.getPath(), output);
+
+        assertEquals("3\n0\n7\n", output.toString("US-ASCII"));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldThrowException_LineLongerThanWindow() throws IOException {
+        File file = write("add(1,2)\nadd(100000,200000)\n");
+        new MappedFileProcessor(1, 12).process(file.getPath(), new ByteArrayOutputStream());
+    }
+
+    private File write(String content) throws IOException {
+        File file = temporaryFolder.newFile("expressions.txt");
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.US_ASCII));
+        return file;
+    }
+}
@@ -0,0 +1,116 @@
+package calculator.cache;
+
+import calculator.ExpressionTree;
+import calculator.Main;
+import calculator.MainTree;
+import calculator.engine.Calculator;
+import calculator.engine.CompiledExpression;
+import calculator.exception.CalculatorException;
+import calculator.utils.CommandLineOptions;
+import calculator.vm.Program;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test Case for
+ * ExpressionCache class
+ */
+public class ExpressionCacheTest {
+
+    @Rule
+    public final ExpectedException exception = ExpectedException.none();
+
+    private final ExpressionCache.Loader<String> identityLoader = new ExpressionCache.Loader<String>() {
+        @Override
+        public String load(String inputExprStr) {
+            return inputExprStr;
+        }
+    };
+
+    @Test
+    public void shouldNormalizeInputExpression() {
+        assertEquals("let(a,5,add(a,a))", ExpressionCache.normalize(" LET ( a , 5,\tADD(a, a) )"));
+        assertEquals("add(1 0,2)", ExpressionCache.normalize("add(1 0, 2)"));
+        assertEquals("add(10,2)", ExpressionCache.normalize("add(10,2)"));
+    }
+
+    @Test
+    public void shouldCountHitsAndMisses() throws CalculatorException {
+        ExpressionCache<String> expressionCache = new ExpressionCache<String>(10);
+
+        assertEquals("add(1,2)", expressionCache.get("add(1,2)", identityLoader));
+        assertEquals("add(1,2)", expressionCache.get("ADD( 1, 2 )", identityLoader));
+        expressionCache.get("add(1 0,2)", identityLoader);
+        expressionCache.get("add(10,2)", identityLoader);
+
+        assertEquals(1, expressionCache.getHitCount());
+        assertEquals(3, expressionCache.getMissCount());
+        assertEquals(3, expressionCache.size());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedEntry() throws CalculatorException {
+        ExpressionCache<String> expressionCache = new ExpressionCache<String>(1);
+
+        expressionCache.get("add(1,2)", identityLoader);
+        expressionCache.get("add(3,4)", identityLoader);
+        expressionCache.get("add(3,4)", identityLoader);
+
+        assertEquals(1, expressionCache.size());
+        assertEquals(1, expressionCache.getEvictionCount());
+        assertEquals(1, expressionCache.getHitCount());
+    }
+
+    @Test
+    public void shouldEvictByWeight() throws CalculatorException {
+        ExpressionCache<String> expressionCache = new ExpressionCache<String>(1, 10);
+
+        expressionCache.get("add(1,2)", identityLoader);
+        expressionCache.get("add(3,4)", identityLoader);
+
+        assertTrue(expressionCache.getWeight() <= 10);
+        assertEquals(1, expressionCache.getEvictionCount());
+    }
+
+    @Test
+    public void shouldNotCacheFailedCompilation() throws CalculatorException {
+        MainTree mainTree = new MainTree(new ExpressionCache<ExpressionTree>(10));
+        try {
+            mainTree.calculate("add(1,2");
+        } catch (CalculatorException e) {
+            //expected
+        }
+        exception.expect(CalculatorException.class);
+        exception.expectMessage(CalculatorException.PARENTHESIS_MISMATCH);
+        mainTree.calculate("add(1,2");
+    }
+
+    @Test
+    public void shouldCalculateWithCache() throws CalculatorException {
+        ExpressionCache<Program> programCache = new ExpressionCache<Program>(10);
+        Main main = new Main(programCache);
+        assertEquals("40", main.calculate("let(a,let(b,10,add(b,b)),let(b,20,add(a,b)))"));
+        assertEquals("40", main.calculate("let(a, let(b, 10, add(b, b)), let(b, 20, add(a, b)))"));
+        assertEquals(1, programCache.getHitCount());
+
+        ExpressionCache<CompiledExpression> compiledExpressionCache = new ExpressionCache<CompiledExpression>(10);
+        Calculator calculator = new Calculator(compiledExpressionCache);
+        assertSame(calculator.compile("add(1,2)"), calculator.compile("ADD(1, 2)"));
+    }
+
+    @Test
+    public void shouldCreateCacheFromCommandLineOptions() {
+        ExpressionCache<String> expressionCache = ExpressionCache.fromCommandLineOptions(
+                new CommandLineOptions(new String[]{"add(1,2)", "--cache=100", "--cache-weight=5000"}));
+        assertEquals(100, expressionCache.getMaxEntries());
+        assertEquals(5000, expressionCache.getMaxWeight());
+
+        assertNull(ExpressionCache.fromCommandLineOptions(new CommandLineOptions(new String[]{"add(1,2)"})));
+    }
+}
@@ -0,0 +1,162 @@
+package calculator.engine;
+
+import calculator.exception.CalculatorException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Test Case for
+ * Calculator engine and CompiledExpression classes
+ */
+public class CalculatorTest {
+
+    @Rule
+    public final ExpectedException exception = ExpectedException.none();
+
+    private final Calculator calculator = new Calculator();
+
+    @Test
+    public void shouldCalculateToExpectedResult() throws CalculatorException {
+        assertEquals(3, calculator.calculate("add(1,2)"));
+        assertEquals(55, calculator.calculate("let(a,5,let(b,multi(a,10),add(b,a)))"));
+        assertEquals(40, calculator.calculate(" LET (a , let( b,    10, add ( b , b ) ) , let ( b, 20 , ADD ( a , b )))"));
+    }
+
+    @Test
+    public void shouldEvaluateCompiledExpressionRepeatedly() throws CalculatorException {
+        CompiledExpression compiledExpression = calculator.compile("let(a, 5, add(a, a))");
+
+        assertEquals(10, compiledExpression.evaluate());
+        assertEquals(10, compiledExpression.evaluate());
+        assertEquals("let(a, 5, add(a, a))", compiledExpression.getSource());
+    }
+
+    @Test
+    public void shouldEvaluateParameterizedExpression() throws CalculatorException {
+        CompiledExpression compiledExpression = calculator.compile("add(x, multi(y, 3))", "X", "y");
+        int[] results = new int[3];
+        compiledExpression.evaluate(new int[][]{{1, 2, 3}, {10, 20, 30}}, results);
+
+        assertEquals(7, compiledExpression.evaluate(1, 2));
+        assertArrayEquals(new int[]{31, 62, 93}, results);
+        assertArrayEquals(new String[]{"x", "y"}, compiledExpression.getParameterNames());
+    }
+
+    @Test
+    public void shouldFoldConstantsBeforeCompiling() throws CalculatorException {
+        CompiledExpression compiledExpression = calculator.compile("let(a, multi(60, 60), add(x, a))", "x");
+
+        assertEquals("LOAD 0\nPUSH 3600\nADD\n", compiledExpression.getProgram().toString());
+        assertEquals(5, compiledExpression.getOptimizationResult().getEliminatedNodeCount());
+        assertEquals(3601, compiledExpression.evaluate(1));
+    }
+
+    @Test
+    public void shouldPartiallyEvaluateFixedVariables() throws CalculatorException {
+        CompiledExpression compiledExpression = calculator.compile("add(x, multi(y, 3))", Collections.singletonMap("Y", 2), "x");
+
+        assertEquals("LOAD 0\nPUSH 6\nADD\n", compiledExpression.getProgram().toString());
+        assertEquals(7, compiledExpression.evaluate(1));
+    }
+
+    @Test
+    public void shouldThrowException_MissingArgument() throws CalculatorException {
+        exception.expect(IllegalArgumentException.class);
+        calculator.compile("add(x, 1)", "x").evaluate();
+    }
+
+    @Test
+    public void shouldEvaluateConcurrently() throws Exception {
+        final CompiledExpression[] compiledExpressions = {
+                calculator.compile("let(a,let(b,10,add(b,b)),let(b,20,add(a,b)))"),
+                calculator.compile("multi(add(2,2),div(9,3))"),
+                calculator.compile("let(a,1,let(b,2,let(c,3,let(d,4,add(add(a,b),add(c,d))))))")
+        };
+        final int[] expectedResults = {40, 12, 10};
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+            for (int thread = 0; thread < 8; thread++) {
+                futures.add(executorService.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        for (int i = 0; i < 100000; i++) {
+                            int index = i % compiledExpressions.length;
+                            if (compiledExpressions[index].evaluate() != expectedResults[index])
+                                return false;
+                        }
+                        return true;
+                    }
+                }));
+            }
+            for (Future<Boolean> future : futures)
+                assertEquals(Boolean.TRUE, future.get());
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldThrowException_EmptyInputExpression() throws CalculatorException {
+        exception.expect(CalculatorException.class);
+        exception.expectMessage(CalculatorException.INPUT_EXPRESSION_MISSING);
+        calculator.compile("");
+    }
+
+    @Test
+    public void shouldEvaluateNestedCallOfSameFunction() throws CalculatorException {
+        assertEquals(33, calculator.compile("add(add(x,y),3)", "x", "y").evaluate(10, 20));
+        assertEquals(50, calculator.compile("multi(multi(x,x),2)", "x").evaluate(5));
+        int[] results = new int[2];
+        calculator.compile("add(add(x,y),3)", "x", "y").evaluate(new int[][]{{10, 1}, {20, 2}}, results);
+        assertArrayEquals(new int[]{33, 6}, results);
+        assertEquals(36, calculator.compile("add(add(x,z),3)", Collections.singletonMap("z", 3), "x").evaluate(30));
+    }
+
+    @Test
+    public void shouldThrowException_UnboundVariableInNestedCall() throws CalculatorException {
+        exception.expect(CalculatorException.class);
+        exception.expectMessage(CalculatorException.INVALID_ARGUMENTS);
+        calculator.calculate("multi(multi(a,a),1,2)");
+    }
+
+    @Test
+    public void shouldThrowException_InvalidInputExpression() {
+        //Rejected by Main and MainTree as well: no arithmetic function
+        String[] inputExpressions = {"let(a,5,a)", "let(c,-2,4)", "7"};
+        for (String inputExpression : inputExpressions) {
+            try {
+                calculator.calculate(inputExpression);
+                fail("Expected CalculatorException for " + inputExpression);
+            } catch (CalculatorException e) {
+                assertEquals(CalculatorException.INPUT_EXPRESSION_INVALID, e.getMessage());
+            }
+        }
+        try {
+            calculator.compile("let(a,5,x)", Collections.singletonMap("x", 1));
+            fail("Expected CalculatorException");
+        } catch (CalculatorException e) {
+            assertEquals(CalculatorException.INPUT_EXPRESSION_INVALID, e.getMessage());
+        }
+    }
+
+    @Test
+    public void shouldThrowException_ParenthesisMismatch() throws CalculatorException {
+        exception.expect(CalculatorException.class);
+        exception.expectMessage(CalculatorException.PARENTHESIS_MISMATCH);
+        calculator.compile("let(a,5,add(a,a)");
+    }
+}
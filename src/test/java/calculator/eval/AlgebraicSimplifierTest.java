@@ -0,0 +1,108 @@
+package calculator.eval;
+
+import calculator.ExpressionTree;
+import calculator.exception.CalculatorException;
+import calculator.parser.ExpressionParser;
+import org.junit.Test;
+
+import java.util.EnumSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test Case for
+ * AlgebraicSimplifier and SimplificationRule classes
+ */
+public class AlgebraicSimplifierTest {
+
+    private final AlgebraicSimplifier algebraicSimplifier = new AlgebraicSimplifier();
+    private final ExpressionEvaluator expressionEvaluator = new ExpressionEvaluator();
+
+    @Test
+    public void shouldApplyIdentities() throws CalculatorException {
+        testSimplify("x", "add(x, 0)", "x");
+        testSimplify("add(x,y)", "add(0, x, 0, y)", "x", "y");
+        testSimplify("x", "multi(1, x)", "x");
+        testSimplify("0", "multi(x, 0, y)", "x", "y");
+        testSimplify("x", "sub(x, 0)", "x");
+        testSimplify("0", "sub(add(x, y), add(x, y))", "x", "y");
+        testSimplify("x", "div(x, 1)", "x");
+        testSimplify("add(x,1)", "let(a, add(x, 1), a)", "x");
+        testSimplify("x", "let(a, multi(x, 2), x)", "x");
+    }
+
+    @Test
+    public void shouldSimplifyUntilFixpoint() throws CalculatorException {
+        OptimizationResult optimizationResult = testSimplify("y", "add(multi(x, sub(y, y)), div(sub(y, 0), 1))", "x", "y");
+        assertEquals(5, optimizationResult.getRewriteCount());
+        assertEquals(10, optimizationResult.getEliminatedNodeCount());
+        //Shadowed "let" variable
+        testSimplify("2", "let(a, 1, let(a, 2, a))");
+
+        OptimizationResult again = algebraicSimplifier.simplify(optimizationResult.getExpressionTree(), "x", "y");
+        assertEquals(0, again.getRewriteCount());
+    }
+
+    @Test
+    public void shouldPreserveErrors() throws CalculatorException {
+        //Operands that may divide by zero or use an unbound variable are never dropped
+        testSimplify("multi(div(x,y),0)", "multi(div(x, y), 0)", "x", "y");
+        testSimplify("multi(z,0)", "multi(z, 0)", "x");
+        testSimplify("sub(div(1,x),div(1,x))", "sub(div(1, x), div(1, x))", "x");
+        testSimplify("let(a,div(1,0),5)", "let(a, div(1, 0), 5)");
+        testSimplify("0", "multi(div(x, 2), 0)", "x");
+        //Kept value still raises its error
+        testSimplify("div(1,0)", "let(a, div(1, 0), a)");
+    }
+
+    @Test
+    public void shouldApplyConfiguredRulesOnly() throws CalculatorException {
+        AlgebraicSimplifier addZeroSimplifier = new AlgebraicSimplifier(EnumSet.of(SimplificationRule.ADD_ZERO));
+        ExpressionTree expressionTree = new ExpressionParser("multi(add(x, 0), 1)").parse();
+        assertEquals("multi(x,1)", addZeroSimplifier.simplify(expressionTree, "x").getExpressionTree().toString());
+        assertEquals(EnumSet.of(SimplificationRule.ADD_ZERO), addZeroSimplifier.getRules());
+
+        AlgebraicSimplifier noSimplifier = new AlgebraicSimplifier(EnumSet.noneOf(SimplificationRule.class));
+        assertEquals(0, noSimplifier.simplify(expressionTree, "x").getRewriteCount());
+    }
+
+    @Test
+    public void shouldShrinkTreeWithEveryRewrite() throws CalculatorException {
+        String[] expressions = {
+                "add(x, 0)", "multi(x, 1)", "multi(x, 0)", "sub(x, 0)", "sub(x, x)", "div(x, 1)",
+                "let(a, x, a)", "let(a, x, 1)", "add(0, 0)", "multi(1, 1, 1)"
+        };
+        for (SimplificationRule rule : SimplificationRule.values()) {
+            AlgebraicSimplifier ruleSimplifier = new AlgebraicSimplifier(EnumSet.of(rule));
+            for (String expression : expressions) {
+                OptimizationResult optimizationResult = ruleSimplifier.simplify(new ExpressionParser(expression).parse(), "x");
+                assertTrue(rule + " " + expression,
+                        optimizationResult.getEliminatedNodeCount() >= optimizationResult.getRewriteCount());
+            }
+        }
+    }
+
+    @Test
+    public void shouldEvaluateToSameResult() throws CalculatorException {
+        String[] expressions = {
+                "add(multi(x, 1), sub(y, y), div(x, 1))",
+                "let(a, add(x, 0), let(b, multi(a, 0), sub(a, b)))",
+                "multi(add(x, " + Integer.MAX_VALUE + ", 0), 1, 2)",
+                "div(sub(x, 0), sub(y, multi(y, 0)))"
+        };
+        Environment environment = Environment.EMPTY.bind("x", 7).bind("y", -3);
+        for (String expression : expressions) {
+            ExpressionTree expressionTree = new ExpressionParser(expression).parse();
+            ExpressionTree simplifiedTree = algebraicSimplifier.simplify(expressionTree, "x", "y").getExpressionTree();
+            assertEquals(expression, expressionEvaluator.evaluate(expressionTree, environment),
+                    expressionEvaluator.evaluate(simplifiedTree, environment));
+        }
+    }
+
+    private OptimizationResult testSimplify(String expectedTree, String expression, String... parameterNames) throws CalculatorException {
+        OptimizationResult optimizationResult = algebraicSimplifier.simplify(new ExpressionParser(expression).parse(), parameterNames);
+        assertEquals(expectedTree, optimizationResult.getExpressionTree().toString());
+        return optimizationResult;
+    }
+}
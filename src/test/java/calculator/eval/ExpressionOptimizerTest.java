@@ -0,0 +1,134 @@
+package calculator.eval;
+
+import calculator.ExpressionTree;
+import calculator.exception.CalculatorException;
+import calculator.parser.ExpressionParser;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.Collections;
+import java.util.EnumSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Test Case for
+ * ExpressionOptimizer class
+ */
+public class ExpressionOptimizerTest {
+
+    @Rule
+    public final ExpectedException exception = ExpectedException.none();
+
+    private final ExpressionOptimizer expressionOptimizer = new ExpressionOptimizer();
+    private final ExpressionEvaluator expressionEvaluator = new ExpressionEvaluator();
+
+    @Test
+    public void shouldFoldConstantSubexpressions() throws CalculatorException {
+        OptimizationResult optimizationResult = testOptimize("3600", "multi(60, 60)");
+        assertEquals(3, optimizationResult.getNodeCountBefore());
+        assertEquals(1, optimizationResult.getNodeCountAfter());
+        assertEquals(2, optimizationResult.getEliminatedNodeCount());
+        assertEquals(1, optimizationResult.getFoldedFunctionCount());
+
+        testOptimize("add(x,3600)", "add(x, multi(60, 60))");
+        testOptimize("div(x,2)", "div(x, sub(5, 3))");
+        testOptimize("add(x,y,3)", "add(x, 1, add(2, y))");
+        testOptimize("multi(x,24)", "multi(2, x, multi(3, 4))");
+        //int arithmetic wraps as at evaluation
+        testOptimize(String.valueOf(Integer.MAX_VALUE + 1), "add(" + Integer.MAX_VALUE + ", 1)");
+    }
+
+    @Test
+    public void shouldInlineConstantLetBindings() throws CalculatorException {
+        OptimizationResult optimizationResult = testOptimize("add(x,5)", "let(a, 5, add(a, x))");
+        assertEquals(1, optimizationResult.getInlinedLetCount());
+        assertEquals(3, optimizationResult.getEliminatedNodeCount());
+
+        testOptimize("55", "let(a, 5, let(b, multi(a, 10), add(b, a)))");
+        //Inner "let" with a value that is not constant shadows the outer constant
+        testOptimize("let(a,x,add(a,1))", "let(a, 5, let(a, x, add(a, 1)))");
+        testOptimize("let(b,div(x,2),add(b,b))", "let(a, 10, let(b, div(x, sub(a, 8)), add(b, b)))");
+    }
+
+    @Test
+    public void shouldPartiallyEvaluateFixedVariables() throws CalculatorException {
+        ExpressionTree expressionTree = new ExpressionParser("add(x, multi(y, 3))").parse();
+        OptimizationResult optimizationResult = expressionOptimizer.optimize(expressionTree, Collections.singletonMap("y", 2));
+        assertEquals("add(x,6)", optimizationResult.getExpressionTree().toString());
+
+        //"let" variables shadow fixed variables
+        expressionTree = new ExpressionParser("let(y, 4, add(x, y))").parse();
+        optimizationResult = expressionOptimizer.optimize(expressionTree, Collections.singletonMap("y", 2));
+        assertEquals("add(x,4)", optimizationResult.getExpressionTree().toString());
+    }
+
+    @Test
+    public void shouldFoldAgainAfterSimplification() throws CalculatorException {
+        ExpressionTree expressionTree = new ExpressionParser("add(multi(x, 0), sub(y, 0), 3)").parse();
+        OptimizationResult optimizationResult = expressionOptimizer.optimize(expressionTree,
+                Collections.<String, Integer>emptyMap(), "x", "y");
+        assertEquals("add(y,3)", optimizationResult.getExpressionTree().toString());
+        assertEquals(3, optimizationResult.getRewriteCount());
+
+        //Constant folding only
+        ExpressionOptimizer foldingOptimizer = new ExpressionOptimizer(EnumSet.noneOf(SimplificationRule.class));
+        assertEquals("add(multi(x,0),sub(y,0),3)", foldingOptimizer.optimize(expressionTree).getExpressionTree().toString());
+    }
+
+    @Test
+    public void shouldKeepTreeWithNothingToFold() throws CalculatorException {
+        ExpressionTree expressionTree = new ExpressionParser("add(x, sub(y, 1))").parse();
+        OptimizationResult optimizationResult = expressionOptimizer.optimize(expressionTree);
+        assertSame(expressionTree, optimizationResult.getExpressionTree());
+        assertEquals(0, optimizationResult.getEliminatedNodeCount());
+    }
+
+    @Test
+    public void shouldEvaluateToSameResult() throws CalculatorException {
+        String[] expressions = {
+                "let(a, let(b, 10, add(b, b)), let(b, 20, add(a, b)))",
+                "let(a, 5, let(a, add(a, 1), multi(a, 2)))",
+                "multi(" + Integer.MAX_VALUE + ", 3, sub(" + Integer.MIN_VALUE + ", 1))",
+                "div(" + Integer.MIN_VALUE + ", -1)",
+                "add(1, multi(2, add(3, 4)), let(c, 7, div(c, 2)))"
+        };
+        for (String expression : expressions) {
+            ExpressionTree expressionTree = new ExpressionParser(expression).parse();
+            assertEquals(expression, expressionEvaluator.evaluate(expressionTree),
+                    expressionEvaluator.evaluate(expressionOptimizer.optimize(expressionTree).getExpressionTree()));
+        }
+    }
+
+    @Test
+    public void shouldKeepNestedCallOfSameFunctionWithoutConstant() throws CalculatorException {
+        testOptimize("add(add(x,y),3)", "add(add(x, y), 3)");
+        testOptimize("multi(multi(x,x),2)", "multi(multi(x, x), 1, 2)");
+        //Constant of the nested call is still moved up
+        testOptimize("add(add(x,y),4)", "add(add(x, y, 1), 3)");
+    }
+
+    @Test
+    public void shouldThrowException_UnboundVariableInNestedCall() throws CalculatorException {
+        ExpressionTree expressionTree = expressionOptimizer.optimize(new ExpressionParser("add(add(a, b), 3)").parse())
+                .getExpressionTree();
+        exception.expect(CalculatorException.class);
+        exception.expectMessage(CalculatorException.INVALID_ARGUMENTS);
+        expressionEvaluator.evaluate(expressionTree);
+    }
+
+    @Test
+    public void shouldKeepDivByZeroForEvaluation() throws CalculatorException {
+        ExpressionTree expressionTree = testOptimize("div(1,0)", "let(a, 2, div(1, sub(a, 2)))").getExpressionTree();
+        exception.expect(ArithmeticException.class);
+        expressionEvaluator.evaluate(expressionTree);
+    }
+
+    private OptimizationResult testOptimize(String expectedTree, String expression) throws CalculatorException {
+        OptimizationResult optimizationResult = expressionOptimizer.optimize(new ExpressionParser(expression).parse());
+        assertEquals(expectedTree, optimizationResult.getExpressionTree().toString());
+        return optimizationResult;
+    }
+}
@@ -0,0 +1,99 @@
+package calculator.generator;
+
+import calculator.ExpressionTree;
+import calculator.Main;
+import calculator.MainTree;
+import calculator.exception.CalculatorException;
+import calculator.parser.ExpressionParser;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/**
+ * Test Case for
+ * ExpressionGenerator class
+ */
+public class ExpressionGeneratorTest {
+
+    @Test
+    public void shouldGenerateSameExpressionsForSameSeed() {
+        ExpressionGenerator expressionGenerator1 = new ExpressionGenerator(42, 5, 3, 30, 50, -100, 100, 10);
+        ExpressionGenerator expressionGenerator2 = new ExpressionGenerator(42, 5, 3, 30, 50, -100, 100, 10);
+        ExpressionGenerator expressionGenerator3 = new ExpressionGenerator(43, 5, 3, 30, 50, -100, 100, 10);
+        for (int i = 0; i < 100; i++) {
+            String expression = expressionGenerator1.next();
+            assertEquals(expression, expressionGenerator2.next());
+            assertFalse(expression.equals(expressionGenerator3.next()));
+        }
+        //Fixed output for the seed, on every machine
+        assertEquals("let(a, div(-60, 42), multi(add(a, 99), a))",
+                new ExpressionGenerator(1, 3, 3, 20, 50, -100, 100, 0).next());
+    }
+
+    @Test
+    public void shouldGenerateValidExpressionsOfMaxDepth() throws CalculatorException {
+        Main main = new Main();
+        MainTree mainTree = new MainTree();
+        //Up to "let" operators only, but for the function required by the engines
+        for (int letPercentage : new int[]{0, 30, 90, 100}) {
+            for (int depth : new int[]{1, 2, 6}) {
+                ExpressionGenerator expressionGenerator = new ExpressionGenerator(7, depth, 4, letPercentage, 70, -1000, 1000, 0);
+                for (int i = 0; i < 200; i++) {
+                    String expression = expressionGenerator.next();
+                    assertEquals(expression, depth, getDepth(new ExpressionParser(expression).parse()));
+                    //Both engines evaluate every expression, to the same value
+                    assertEquals(expression, main.calculate(expression), mainTree.calculate(expression));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void shouldGenerateInvalidExpressions() {
+        ExpressionGenerator expressionGenerator = new ExpressionGenerator(7, 4, 3, 30, 50, -100, 100, 100);
+        MainTree mainTree = new MainTree();
+        for (int i = 0; i < 500; i++) {
+            String expression = expressionGenerator.next();
+            try {
+                mainTree.calculate(expression);
+                fail("Expected CalculatorException for " + expression);
+            } catch (CalculatorException e) {
+                //Expected
+            }
+        }
+    }
+
+    @Test
+    public void shouldWriteOneExpressionPerLine() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        new ExpressionGenerator(3, 4, 3, 20, 50, Integer.MIN_VALUE, Integer.MAX_VALUE, 5).write(outputStream, 10000);
+
+        String[] lines = outputStream.toString(StandardCharsets.US_ASCII.name()).split("\n");
+        assertEquals(10000, lines.length);
+        ExpressionGenerator expressionGenerator = new ExpressionGenerator(3, 4, 3, 20, 50, Integer.MIN_VALUE, Integer.MAX_VALUE, 5);
+        for (String line : lines)
+            assertEquals(expressionGenerator.next(), line);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowException_InvalidSettings() {
+        new ExpressionGenerator(1, 4, 1, 20, 50, -100, 100, 0);
+    }
+
+    private static int getDepth(ExpressionTree expressionTree) {
+        if (expressionTree.isLeafNode())
+            return 0;
+        List<ExpressionTree> children = expressionTree.getChildren();
+        int depth = 0;
+        for (int i = 1; i < children.size() - 1; i += 2)
+            depth = Math.max(depth, getDepth(children.get(i)));
+        return depth + 1;
+    }
+}
@@ -0,0 +1,78 @@
+package calculator.jit;
+
+import calculator.exception.CalculatorException;
+import calculator.parser.ExpressionParser;
+import calculator.vm.Compiler;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test Case for
+ * BytecodeCompiler class
+ */
+public class BytecodeCompilerTest {
+
+    @Rule
+    public final ExpectedException exception = ExpectedException.none();
+
+    private final BytecodeCompiler bytecodeCompiler = new BytecodeCompiler();
+
+    @Test
+    public void shouldEvaluateGeneratedExpression() throws CalculatorException {
+        testEval(3, "add(1,2)");
+        testEval(7, "add(1,multi(2,3))");
+        testEval(12, "multi(add(2,2),div(9,3))");
+        testEval(55, "let(a,5,let(b,multi(a,10),add(b,a)))");
+        testEval(40, "let(a,let(b,10,add(b,b)),let(b,20,add(a,b)))");
+        testEval(-1 - 128, "sub(-1, 128)");
+        testEval(32767 * -32768, "multi(32767, -32768)");
+        testEval(Integer.MIN_VALUE - Integer.MAX_VALUE, "sub(" + Integer.MIN_VALUE + "," + Integer.MAX_VALUE + ")");
+    }
+
+    @Test
+    public void shouldLoadAsHiddenClass() throws CalculatorException {
+        IntExpression intExpression = compile("add(1,2)");
+
+        assertTrue(intExpression.getClass().isHidden());
+    }
+
+    @Test
+    public void shouldUseWideLocalsForManySlots() throws CalculatorException {
+        int depth = 300;
+        StringBuilder expression = new StringBuilder();
+        for (int i = 0; i < depth; i++)
+            expression.append("let(a,add(1,").append(i).append("),");
+        expression.append("add(a,0)");
+        for (int i = 0; i < depth; i++)
+            expression.append(')');
+
+        testEval(depth, expression.toString());
+    }
+
+    @Test
+    public void shouldEvaluateParameters() throws CalculatorException {
+        IntExpression intExpression = bytecodeCompiler.compile(
+                new Compiler().compile(new ExpressionParser("let(a, x, add(a, multi(y, 3)))").parse(), "x", "y"));
+
+        assertEquals(7, intExpression.eval(new int[]{1, 2}));
+        assertEquals(-30, intExpression.eval(new int[]{0, -10}));
+    }
+
+    @Test
+    public void shouldThrowException_DivByZero() throws CalculatorException {
+        exception.expect(ArithmeticException.class);
+        compile("div(1, 0)").eval(new int[0]);
+    }
+
+    private void testEval(int expectedResult, String expression) throws CalculatorException {
+        assertEquals(expectedResult, compile(expression).eval(new int[0]));
+    }
+
+    private IntExpression compile(String expression) throws CalculatorException {
+        return bytecodeCompiler.compile(new ExpressionParser(expression).parse());
+    }
+}
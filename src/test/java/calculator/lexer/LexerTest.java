@@ -0,0 +1,105 @@
+package calculator.lexer;
+
+import calculator.exception.CalculatorException;
+import calculator.utils.ArithmeticSymbols;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Test Case for
+ * Lexer class
+ */
+public class LexerTest {
+
+    @Rule
+    public final ExpectedException exception = ExpectedException.none();
+
+    @Test
+    public void shouldTokenizeExpression() throws CalculatorException {
+        Lexer lexer = new Lexer(" LET (a , -5, Multi(a,10))");
+
+        assertToken(lexer, TokenKind.LET, 1, 4);
+        assertSame(ArithmeticSymbols.LET_OPERATOR, lexer.getSymbol());
+        assertToken(lexer, TokenKind.OPEN_PARENTHESIS, 5, 6);
+        assertToken(lexer, TokenKind.VARIABLE, 6, 7);
+        assertEquals("a", lexer.getText());
+        assertToken(lexer, TokenKind.COMMA, 8, 9);
+        assertToken(lexer, TokenKind.NUMBER, 10, 12);
+        assertEquals(-5, lexer.getIntValue());
+        assertToken(lexer, TokenKind.COMMA, 12, 13);
+        assertToken(lexer, TokenKind.FUNCTION, 14, 19);
+        assertSame(ArithmeticSymbols.MULTI_FUNCTION, lexer.getSymbol());
+        assertEquals("multi", lexer.getText());
+        assertToken(lexer, TokenKind.OPEN_PARENTHESIS, 19, 20);
+        assertToken(lexer, TokenKind.VARIABLE, 20, 21);
+        assertToken(lexer, TokenKind.COMMA, 21, 22);
+        assertToken(lexer, TokenKind.NUMBER, 22, 24);
+        assertEquals(10, lexer.getIntValue());
+        assertToken(lexer, TokenKind.CLOSE_PARENTHESIS, 24, 25);
+        assertToken(lexer, TokenKind.CLOSE_PARENTHESIS, 25, 26);
+        assertToken(lexer, TokenKind.END, 26, 26);
+    }
+
+    @Test
+    public void shouldParseIntegerRange() throws CalculatorException {
+        Lexer lexer = new Lexer(Integer.MIN_VALUE + " " + Integer.MAX_VALUE);
+
+        assertEquals(TokenKind.NUMBER, lexer.next());
+        assertEquals(Integer.MIN_VALUE, lexer.getIntValue());
+        assertEquals(TokenKind.NUMBER, lexer.next());
+        assertEquals(Integer.MAX_VALUE, lexer.getIntValue());
+    }
+
+    @Test
+    public void shouldMatchKeywordsCaseInsensitive() throws CalculatorException {
+        Lexer lexer = new Lexer("ADD sUb DiV lEt mULTI adds");
+
+        assertSame(ArithmeticSymbols.ADD_FUNCTION, nextSymbol(lexer));
+        assertSame(ArithmeticSymbols.SUB_FUNCTION, nextSymbol(lexer));
+        assertSame(ArithmeticSymbols.DIV_FUNCTION, nextSymbol(lexer));
+        assertSame(ArithmeticSymbols.LET_OPERATOR, nextSymbol(lexer));
+        assertSame(ArithmeticSymbols.MULTI_FUNCTION, nextSymbol(lexer));
+        assertEquals(TokenKind.VARIABLE, lexer.next());
+    }
+
+    @Test
+    public void shouldThrowException_IntegerOutOfRange() throws CalculatorException {
+        testNextWithException("2147483648");
+    }
+
+    @Test
+    public void shouldThrowException_InvalidVariable_a5() throws CalculatorException {
+        testNextWithException("a5");
+    }
+
+    @Test
+    public void shouldThrowException_InvalidVariable_5a() throws CalculatorException {
+        testNextWithException("5a");
+    }
+
+    @Test
+    public void shouldThrowException_InvalidCharacter() throws CalculatorException {
+        testNextWithException("/");
+    }
+
+    private void assertToken(Lexer lexer, TokenKind expectedKind, int expectedStart, int expectedEnd) throws CalculatorException {
+        assertEquals(expectedKind, lexer.next());
+        assertEquals(expectedStart, lexer.getStart());
+        assertEquals(expectedEnd, lexer.getEnd());
+    }
+
+    private ArithmeticSymbols nextSymbol(Lexer lexer) throws CalculatorException {
+        lexer.next();
+        return lexer.getSymbol();
+    }
+
+    private void testNextWithException(String expression) throws CalculatorException {
+        exception.expect(CalculatorException.class);
+        exception.expectMessage(CalculatorException.INPUT_EXPRESSION_INVALID);
+        new Lexer(expression).next();
+    }
+}
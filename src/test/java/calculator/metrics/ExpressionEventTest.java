@@ -0,0 +1,153 @@
+package calculator.metrics;
+
+import calculator.Main;
+import calculator.MainTree;
+import calculator.exception.CalculatorException;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test Case for
+ * ExpressionEvent class and its Java Flight Recorder events
+ */
+public class ExpressionEventTest {
+
+    private static final String[] EVENT_NAMES = {
+            "calculator.Parse", "calculator.LetResolution", "calculator.Compile", "calculator.Evaluate"};
+
+    @Test
+    public void shouldRecordEventOfEachPhase() throws Exception {
+        String errorMessage = null;
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            for (String eventName : EVENT_NAMES)
+                recording.enable(eventName).withThreshold(Duration.ZERO);
+            recording.start();
+            new Main().calculate("let(a, 5, add(a, 1))");
+            new MainTree(null, true).calculate("let(a, 5, add(a, 1))");
+            try {
+                new MainTree().calculate("add(1, 2");
+                fail("Expected CalculatorException");
+            } catch (CalculatorException e) {
+                errorMessage = e.getMessage();
+            }
+            recording.stop();
+            events = readEvents(recording);
+        }
+
+        assertEquals(9, events.size());
+        for (String eventName : EVENT_NAMES) {
+            assertEquals(eventName, 1, getEvents(events, "Main", eventName).size());
+            assertEquals(eventName, eventName.equals("calculator.Parse") ? 2 : 1,
+                    getEvents(events, "MainTree", eventName).size());
+        }
+        for (RecordedEvent event : getEvents(events, "Main", "calculator.Evaluate")) {
+            assertEquals("let(a, 5, add(a, 1))".length(), event.getInt("expressionLength"));
+            assertEquals(2, event.getInt("depth"));
+            assertEquals(6, event.getInt("nodeCount"));
+            assertEquals(ExpressionEvent.OK_STATUS, event.getString("status"));
+        }
+        List<String> parseStatuses = new ArrayList<String>();
+        for (RecordedEvent event : getEvents(events, "MainTree", "calculator.Parse"))
+            parseStatuses.add(event.getString("status"));
+        assertTrue(parseStatuses.toString(), parseStatuses.contains(ExpressionEvent.OK_STATUS));
+        assertTrue(parseStatuses.toString(), parseStatuses.contains(errorMessage));
+    }
+
+    @Test
+    public void shouldRecordEventOfPhaseThrowingArithmeticException() throws Exception {
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            for (String eventName : EVENT_NAMES)
+                recording.enable(eventName).withThreshold(Duration.ZERO);
+            recording.start();
+            //Evaluated by the stack machine, by the "let" resolution of Main and by the tree evaluator
+            String[] inputExpressions = {"div(1, 0)", "let(a, div(1, 0), add(a, 1))"};
+            for (String inputExpression : inputExpressions)
+                calculateWithArithmeticException(new Main(), inputExpression);
+            calculateWithArithmeticException(new MainTree(), "div(1, sub(1, 1))");
+            recording.stop();
+            events = readEvents(recording);
+        }
+
+        List<RecordedEvent> failedEvents = new ArrayList<RecordedEvent>();
+        for (RecordedEvent event : events) {
+            if (!ExpressionEvent.OK_STATUS.equals(event.getString("status")))
+                failedEvents.add(event);
+        }
+        assertEquals(3, failedEvents.size());
+        assertEquals(1, getEvents(failedEvents, "Main", "calculator.Evaluate").size());
+        assertEquals(1, getEvents(failedEvents, "Main", "calculator.LetResolution").size());
+        assertEquals(1, getEvents(failedEvents, "MainTree", "calculator.Evaluate").size());
+        for (RecordedEvent event : failedEvents)
+            assertEquals("/ by zero", event.getString("status"));
+    }
+
+    @Test
+    public void shouldNotRecordEventBelowThreshold() throws Exception {
+        try (Recording recording = new Recording()) {
+            for (String eventName : EVENT_NAMES)
+                recording.enable(eventName).withThreshold(Duration.ofSeconds(10));
+            recording.start();
+            new Main().calculate("let(a, 5, add(a, 1))");
+            new MainTree().calculate("let(a, 5, add(a, 1))");
+            recording.stop();
+            assertEquals(0, readEvents(recording).size());
+        }
+    }
+
+    private static void calculateWithArithmeticException(Main main, String inputExpression) throws CalculatorException {
+        try {
+            main.calculate(inputExpression);
+            fail("Expected ArithmeticException for " + inputExpression);
+        } catch (ArithmeticException e) {
+            //Expected
+        }
+    }
+
+    private static void calculateWithArithmeticException(MainTree mainTree, String inputExpression) throws CalculatorException {
+        try {
+            mainTree.calculate(inputExpression);
+            fail("Expected ArithmeticException for " + inputExpression);
+        } catch (ArithmeticException e) {
+            //Expected
+        }
+    }
+
+    private static List<RecordedEvent> readEvents(Recording recording) throws IOException {
+        Path file = Files.createTempFile("calculator", ".jfr");
+        try {
+            recording.dump(file);
+            List<RecordedEvent> events = new ArrayList<RecordedEvent>();
+            for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                if (event.getEventType().getName().startsWith("calculator."))
+                    events.add(event);
+            }
+            return events;
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static List<RecordedEvent> getEvents(List<RecordedEvent> events, String engine, String eventName) {
+        List<RecordedEvent> matchingEvents = new ArrayList<RecordedEvent>();
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals(eventName) && engine.equals(event.getString("engine")))
+                matchingEvents.add(event);
+        }
+        return matchingEvents;
+    }
+}
@@ -0,0 +1,45 @@
+package calculator.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test Case for
+ * LatencyHistogram class
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void shouldReportPercentilesWithinBucketPrecision() {
+        LatencyHistogram latencyHistogram = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 100000; nanos++)
+            latencyHistogram.record(nanos);
+
+        assertEquals(100000, latencyHistogram.getCount());
+        assertWithin(50000, latencyHistogram.getPercentile(50));
+        assertWithin(99000, latencyHistogram.getPercentile(99));
+        assertWithin(100000, latencyHistogram.getPercentile(100));
+    }
+
+    @Test
+    public void shouldMapEveryValueToBucketContainingIt() {
+        long[] values = {0, 1, 7, 8, 9, 15, 16, 17, 1000, 123456789, Long.MAX_VALUE / 3, Long.MAX_VALUE};
+        for (long value : values) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(value + " above bucket", value <= LatencyHistogram.bucketUpperBound(index));
+            assertTrue(value + " below bucket", index == 0 || value > LatencyHistogram.bucketUpperBound(index - 1));
+        }
+    }
+
+    @Test
+    public void shouldReturnZeroWhenEmpty() {
+        assertEquals(0, new LatencyHistogram().getPercentile(99));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue("expected about " + expected + " but was " + actual,
+                actual >= expected && actual <= expected + expected / 8);
+    }
+}
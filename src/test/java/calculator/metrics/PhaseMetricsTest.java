@@ -0,0 +1,153 @@
+package calculator.metrics;
+
+import calculator.ExpressionTree;
+import calculator.Main;
+import calculator.MainTree;
+import calculator.cache.ExpressionCache;
+import calculator.exception.CalculatorException;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test Case for
+ * PhaseMetrics class
+ */
+public class PhaseMetricsTest {
+
+    @Test
+    public void shouldRecordPhasesOfMain() throws CalculatorException {
+        PhaseMetrics phaseMetrics = new PhaseMetrics("Main");
+        Main main = new Main(null, false, phaseMetrics);
+        assertEquals("6", main.calculate("let(a, 5, add(a, 1))"));
+        assertEquals("3", main.calculate("add(1, 2)"));
+        calculateWithException(main, "add(1, 2");
+
+        assertEquals(3, phaseMetrics.getCalculationCount());
+        assertEquals(1, phaseMetrics.getErrorCount());
+        Map<String, Long> phaseCounts = phaseMetrics.getPhaseCounts();
+        assertEquals(3L, (long) phaseCounts.get("validate"));
+        //Phases that fail are not recorded
+        assertEquals(2L, (long) phaseCounts.get("tokenize"));
+        assertEquals(2L, (long) phaseCounts.get("let"));
+        assertEquals(2L, (long) phaseCounts.get("compile"));
+        assertEquals(2L, (long) phaseCounts.get("evaluate"));
+        //let ( a , 5 , add ( a , 1 ) ) -> add ( 5 , 1 ): 13 entries to 6
+        assertEquals(13, phaseMetrics.getNodeCountP99());
+        assertEquals(LatencyHistogram.bucketUpperBound(LatencyHistogram.bucketIndex(6 * 100 / 13)),
+                phaseMetrics.getLetExpansionPercentP50());
+        assertEquals(1L, (long) phaseMetrics.getErrorCounts().get(CalculatorException.PARENTHESIS_MISMATCH));
+    }
+
+    @Test
+    public void shouldRecordPhasesOfMainTree() throws CalculatorException {
+        PhaseMetrics phaseMetrics = new PhaseMetrics("MainTree");
+        MainTree mainTree = new MainTree(new ExpressionCache<ExpressionTree>(10), false, false, phaseMetrics);
+        assertEquals("6", mainTree.calculate("let(a, 5, add(a, 1))"));
+        //Cache hit: no tokenize, let nor tree validation
+        assertEquals("6", mainTree.calculate("let(a, 5, add(a, 1))"));
+        calculateWithException(mainTree, "add(1, 2, #)");
+        calculateWithException(mainTree, "add(1, 2, #, 3)");
+
+        assertEquals(4, phaseMetrics.getCalculationCount());
+        assertEquals(2, phaseMetrics.getErrorCount());
+        Map<String, Long> phaseCounts = phaseMetrics.getPhaseCounts();
+        assertEquals(5L, (long) phaseCounts.get("validate"));
+        assertEquals(1L, (long) phaseCounts.get("tokenize"));
+        assertEquals(1L, (long) phaseCounts.get("let"));
+        assertEquals(0L, (long) phaseCounts.get("compile"));
+        assertEquals(2L, (long) phaseCounts.get("evaluate"));
+        //Errors at different positions are counted under one message
+        assertEquals(1, phaseMetrics.getErrorCounts().size());
+        assertEquals(2L, (long) phaseMetrics.getErrorCounts().values().iterator().next());
+        assertTrue(phaseMetrics.getInputLengthP99() >= "add(1, 2, #, 3)".length());
+    }
+
+    @Test
+    public void shouldRecordArithmeticErrors() throws CalculatorException {
+        PhaseMetrics phaseMetrics = new PhaseMetrics("arithmetic-test");
+        Main main = new Main(null, false, phaseMetrics);
+        MainTree mainTree = new MainTree(null, false, false, phaseMetrics);
+        for (String inputExpression : new String[]{"div(1, 0)", "let(a, div(1, 0), add(a, 1))"}) {
+            try {
+                main.calculate(inputExpression);
+                fail("Expected ArithmeticException for " + inputExpression);
+            } catch (ArithmeticException e) {
+                //Expected
+            }
+        }
+        try {
+            mainTree.calculate("div(1, sub(1, 1))");
+            fail("Expected ArithmeticException");
+        } catch (ArithmeticException e) {
+            //Expected
+        }
+
+        assertEquals(3, phaseMetrics.getCalculationCount());
+        assertEquals(3, phaseMetrics.getErrorCount());
+        assertEquals(1, phaseMetrics.getErrorCounts().size());
+        assertEquals(3L, (long) phaseMetrics.getErrorCounts().get("ArithmeticException: / by zero"));
+    }
+
+    @Test
+    public void shouldPublishOverJmx() throws Exception {
+        PhaseMetrics phaseMetrics = new PhaseMetrics("jmx-test");
+        assertTrue(phaseMetrics.register());
+        new Main(null, false, phaseMetrics).calculate("add(1, 2)");
+
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName("calculator:type=PhaseMetrics,name=\"jmx-test\"");
+        assertEquals(1L, mBeanServer.getAttribute(objectName, "CalculationCount"));
+        mBeanServer.invoke(objectName, "reset", new Object[0], new String[0]);
+        assertEquals(0, phaseMetrics.getCalculationCount());
+
+        phaseMetrics.close();
+        assertFalse(mBeanServer.isRegistered(objectName));
+    }
+
+    @Test
+    public void shouldDumpReportPeriodically() throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        PhaseMetrics phaseMetrics = new PhaseMetrics("dump-test");
+        phaseMetrics.startDump(10, TimeUnit.MILLISECONDS, new PrintStream(outputStream, true, "UTF-8"));
+        new MainTree(null, false, false, phaseMetrics).calculate("add(1, 2)");
+        Thread.sleep(100);
+        phaseMetrics.close();
+
+        String dump = outputStream.toString("UTF-8");
+        assertTrue(dump, dump.startsWith("metrics dump-test: calculations=1 errors=0"));
+        assertTrue(dump, dump.contains("\n  evaluate count=1 "));
+        int length = dump.length();
+        Thread.sleep(50);
+        assertEquals(length, outputStream.toString("UTF-8").length());
+    }
+
+    private static void calculateWithException(Main main, String inputExpression) {
+        try {
+            main.calculate(inputExpression);
+            fail("Expected CalculatorException for " + inputExpression);
+        } catch (CalculatorException e) {
+            //Expected
+        }
+    }
+
+    private static void calculateWithException(MainTree mainTree, String inputExpression) {
+        try {
+            mainTree.calculate(inputExpression);
+            fail("Expected CalculatorException for " + inputExpression);
+        } catch (CalculatorException e) {
+            //Expected
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package calculator.parser;
+
+import calculator.ExpressionTree;
+import calculator.eval.Environment;
+import calculator.eval.ExpressionEvaluator;
+import calculator.exception.CalculatorException;
+import calculator.vm.Compiler;
+import calculator.vm.Interpreter;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Test Case for
+ * ExpressionParser class
+ */
+public class ExpressionParserTest {
+
+    @Test
+    public void shouldBuildExpressionTree() throws CalculatorException {
+        ExpressionTree expressionTree = new ExpressionParser("LET(a, 5, add(a, A))").parse();
+
+        assertEquals("let(a,5,add(a,a))", expressionTree.toString());
+        assertEquals(7, expressionTree.getChildren().size());
+        ExpressionTree addFunction = expressionTree.getChildren().get(5);
+        assertEquals("add", addFunction.getExpression());
+        assertEquals(10, addFunction.getPosition());
+        assertEquals(5, addFunction.getChildren().size());
+        assertEquals(17, addFunction.getChildren().get(3).getPosition());
+    }
+
+    @Test
+    public void shouldBuildVariadicFunctionNode() throws CalculatorException {
+        ExpressionTree expressionTree = new ExpressionParser("multi(1, 2, add(3, 4, 5))").parse();
+
+        assertEquals("multi(1,2,add(3,4,5))", expressionTree.toString());
+        assertEquals(7, expressionTree.getChildren().size());
+        assertEquals(7, expressionTree.getChildren().get(5).getChildren().size());
+        testParseWithException(CalculatorException.INVALID_ARGUMENTS, 8, "div(1, 2, 3)");
+    }
+
+    @Test
+    public void shouldParseLongInputInOnePass() throws CalculatorException {
+        int depth = 1000;
+        StringBuilder inputExpression = new StringBuilder();
+        for (int i = 0; i < depth; i++)
+            inputExpression.append("add(1, ");
+        inputExpression.append('1');
+        for (int i = 0; i < depth; i++)
+            inputExpression.append(')');
+
+        ExpressionTree expressionTree = new ExpressionParser(inputExpression).parse();
+
+        int actualDepth = 0;
+        while (!expressionTree.isLeafNode()) {
+            expressionTree = expressionTree.getChildren().get(3);
+            actualDepth++;
+        }
+        assertEquals(depth, actualDepth);
+    }
+
+    @Test
+    public void shouldParseAndEvaluateExpressionNestedOneMillionDeep() throws CalculatorException {
+        int depth = 1000000;
+        //add(1, sub(add(1, sub(... x ..., 1)), 1)) is x
+        StringBuilder inputExpression = new StringBuilder();
+        for (int i = 0; i < depth; i++)
+            inputExpression.append(i % 2 == 0 ? "add(1," : "sub(");
+        inputExpression.append('x');
+        for (int i = depth - 1; i >= 0; i--)
+            inputExpression.append(i % 2 == 0 ? ")" : ",1)");
+
+        ExpressionTree expressionTree = new ExpressionParser(inputExpression).parse();
+
+        assertEquals(inputExpression.toString(), expressionTree.toString());
+        assertEquals(5, new ExpressionEvaluator().evaluate(expressionTree, Environment.EMPTY.bind("x", 5)));
+        assertEquals(5, new Interpreter().execute(new Compiler().compile(expressionTree, "x"), new int[depth + 1], new int[]{5}));
+    }
+
+    @Test
+    public void shouldReportPosition_ParenthesisMismatch() {
+        testParseWithException(CalculatorException.PARENTHESIS_MISMATCH, 16, "let(a,5,add(a,a)");
+    }
+
+    @Test
+    public void shouldReportPosition_ExtraParenthesis() {
+        testParseWithException(CalculatorException.PARENTHESIS_MISMATCH, 8, "add(1,2))");
+    }
+
+    @Test
+    public void shouldReportPosition_MissingArgsForLetOperator() {
+        testParseWithException(CalculatorException.INVALID_ARGUMENTS, 14, "let(a,add(a,a))");
+    }
+
+    @Test
+    public void shouldReportPosition_MissingArgsForArithFunc() {
+        testParseWithException(CalculatorException.INVALID_ARGUMENTS, 6, "add(55)");
+    }
+
+    @Test
+    public void shouldReportPosition_InvalidVariableExpression() {
+        testParseWithException(CalculatorException.INPUT_EXPRESSION_INVALID, 7, "add(5, 5a)");
+    }
+
+    private void testParseWithException(String exceptionMessage, int position, String expression) {
+        try {
+            new ExpressionParser(expression).parse();
+            fail("Expected CalculatorException for " + expression);
+        } catch (CalculatorException e) {
+            assertEquals(exceptionMessage + " at position " + position, e.getMessage());
+            assertEquals(position, e.getPosition());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package calculator.parser;
+
+import calculator.exception.CalculatorException;
+import calculator.vm.Compiler;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test Case for
+ * ProgramParser class
+ */
+public class ProgramParserTest {
+
+    @Rule
+    public final ExpectedException exception = ExpectedException.none();
+
+    @Test
+    public void shouldEmitSameProgramAsCompiler() throws CalculatorException {
+        String[] expressions = {
+                "add(1,2)",
+                "let(a, 5, add(a, 3))",
+                "let(a,let(b,10,add(b,b)),let(b,20,add(a,b)))",
+                "LET(A, 5, let(a, add(a, 1), multi(A, 2)))",
+                "add(let(a, 1, a), let(b, 2, b))",
+                "div(sub(" + Integer.MIN_VALUE + ", 1), " + Integer.MAX_VALUE + ")",
+                "7",
+                "add(1, add(2, 3), 4)",
+                "add(add(1, 2), add(3, add(4, 5)))",
+                "multi(add(1, 2, 3), multi(2, multi(3, 4)), let(a, 5, multi(a, a)))",
+                "sub(add(1, 2, 3), div(9, 3))"
+        };
+        for (String expression : expressions) {
+            assertEquals(expression, new Compiler().compile(new ExpressionParser(expression).parse()).toString(),
+                    new ProgramParser(expression).parse().toString());
+        }
+    }
+
+    @Test
+    public void shouldParseDeeplyNestedExpression() throws CalculatorException {
+        int depth = 100000;
+        StringBuilder expression = new StringBuilder();
+        for (int i = 0; i < depth; i++)
+            expression.append(i % 2 == 0 ? "sub(let(a, 1, a), " : "add(1, add(2, ");
+        expression.append("3");
+        for (int i = 0; i < depth; i++)
+            expression.append(i % 2 == 0 ? ")" : "))");
+        String expressionStr = expression.toString();
+
+        assertEquals(new Compiler().compile(new ExpressionParser(expressionStr).parse()).toString(),
+                new ProgramParser(expressionStr).parse().toString());
+    }
+
+    @Test
+    public void shouldThrowException_UnboundVariable() throws CalculatorException {
+        exception.expect(CalculatorException.class);
+        exception.expectMessage(CalculatorException.INVALID_ARGUMENTS + " at position 10");
+        new ProgramParser("let(a, 5, b)").parse();
+    }
+
+    @Test
+    public void shouldReportSyntaxErrorBeforeUnboundVariable() throws CalculatorException {
+        exception.expect(CalculatorException.class);
+        exception.expectMessage(CalculatorException.PARENTHESIS_MISMATCH + " at position 8");
+        new ProgramParser("add(b, 1").parse();
+    }
+
+    @Test
+    public void shouldThrowException_InvalidArguments() throws CalculatorException {
+        exception.expect(CalculatorException.class);
+        exception.expectMessage(CalculatorException.INVALID_ARGUMENTS + " at position 4");
+        new ProgramParser("let(5, 5, 5)").parse();
+    }
+}
@@ -0,0 +1,142 @@
+package calculator.server;
+
+import calculator.ExpressionTree;
+import calculator.MainTree;
+import calculator.cache.ExpressionCache;
+import calculator.exception.CalculatorException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test Case for
+ * CalculatorServer class
+ */
+public class CalculatorServerTest {
+
+    private CalculatorServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new CalculatorServer(new MainTree(new ExpressionCache<ExpressionTree>(100))::calculate, 0);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void shouldAnswerLineProtocol() throws IOException {
+        try (Socket socket = connect()) {
+            Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+            BufferedReader reader = reader(socket);
+            //Pipelined requests
+            writer.write("add(1,2)\ndiv(1,0)\r\nlet(a,5,add(a,a))\n");
+            writer.flush();
+
+            assertEquals("3", reader.readLine());
+            assertEquals("error: / by zero", reader.readLine());
+            assertEquals("10", reader.readLine());
+
+            writer.write("add(1,2\n");
+            writer.flush();
+            assertEquals("error: " + CalculatorException.PARENTHESIS_MISMATCH + " at position 7", reader.readLine());
+        }
+        assertEquals(4, server.getLatencyHistogram().getCount());
+    }
+
+    @Test
+    public void shouldAnswerHttpWithKeepAlive() throws IOException {
+        try (Socket socket = connect()) {
+            OutputStream output = socket.getOutputStream();
+            BufferedReader reader = reader(socket);
+
+            output.write("GET /calculate?expr=let(a%2C5%2Cadd(a%2Ca)) HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+            output.flush();
+            assertEquals("HTTP/1.1 200 OK", reader.readLine());
+            assertEquals("10", readBody(reader));
+
+            output.write("POST /calculate HTTP/1.1\r\nContent-Length: 7\r\n\r\nadd(1,2"
+                    .getBytes(StandardCharsets.US_ASCII));
+            output.flush();
+            assertEquals("HTTP/1.1 400 Bad Request", reader.readLine());
+            assertEquals(CalculatorException.PARENTHESIS_MISMATCH + " at position 7", readBody(reader));
+
+            output.write("GET /stats HTTP/1.1\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            output.flush();
+            assertEquals("HTTP/1.1 200 OK", reader.readLine());
+            assertTrue(readBody(reader).startsWith("count=2 p50="));
+        }
+    }
+
+    @Test
+    public void shouldServeConcurrentConnections() throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+            for (int client = 0; client < 8; client++) {
+                final int value = client;
+                futures.add(executorService.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws IOException {
+                        try (Socket socket = connect()) {
+                            Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+                            BufferedReader reader = reader(socket);
+                            for (int i = 0; i < 200; i++) {
+                                writer.write("let(a," + value + ",add(a," + i + "))\n");
+                                writer.flush();
+                                if (!reader.readLine().equals(String.valueOf(value + i)))
+                                    return false;
+                            }
+                        }
+                        return true;
+                    }
+                }));
+            }
+            for (Future<Boolean> future : futures)
+                assertEquals(Boolean.TRUE, future.get());
+        } finally {
+            executorService.shutdown();
+        }
+        assertEquals(1600, server.getLatencyHistogram().getCount());
+    }
+
+    private Socket connect() throws IOException {
+        return new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+    }
+
+    private static BufferedReader reader(Socket socket) throws IOException {
+        return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Skip headers after the status line and read the one-line body
+     */
+    private static String readBody(BufferedReader reader) throws IOException {
+        while (!reader.readLine().isEmpty()) {
+            //Headers are not checked
+        }
+        return reader.readLine();
+    }
+}
@@ -0,0 +1,63 @@
+package calculator.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test Case for
+ * ArithmeticSymbols class
+ */
+public class ArithmeticSymbolsTest {
+
+    @Test
+    public void shouldClassifyEverySymbolIgnoringCase() {
+        for (ArithmeticSymbols symbol : ArithmeticSymbols.values()) {
+            assertEquals(symbol, ArithmeticSymbols.classify(symbol.toString()));
+            assertEquals(symbol, ArithmeticSymbols.classify(symbol.toString().toUpperCase()));
+            assertTrue(symbol.equalsName(symbol.toString().toUpperCase()));
+        }
+        assertEquals(ArithmeticSymbols.MULTI_FUNCTION, ArithmeticSymbols.classify("mUlTi"));
+    }
+
+    @Test
+    public void shouldClassifySpanOfInput() {
+        String input = "let(x,MULTI(x,2))";
+        assertEquals(ArithmeticSymbols.LET_OPERATOR, ArithmeticSymbols.classify(input, 0, 3));
+        assertEquals(ArithmeticSymbols.OPEN_PARENTHESIS, ArithmeticSymbols.classify(input, 3, 4));
+        assertNull(ArithmeticSymbols.classify(input, 4, 5));
+        assertEquals(ArithmeticSymbols.MULTI_FUNCTION, ArithmeticSymbols.classify(input, 6, 11));
+        assertNull(ArithmeticSymbols.classify(input, 6, 10));
+    }
+
+    @Test
+    public void shouldNotClassifyOtherWords() {
+        String[] words = {"", "ad", "addd", "adv", "sum", "mult", "multiply", "lit", "a", "5", "-5", "ádd"};
+        for (String word : words)
+            assertNull(word, ArithmeticSymbols.classify(word));
+        assertFalse(ArithmeticSymbols.isArithmeticFunction("let"));
+        assertFalse(ArithmeticSymbols.isLetOperator("add"));
+    }
+
+    @Test
+    public void shouldFindArithmeticFunctionAnywhereInExpression() {
+        assertTrue(ArithmeticSymbols.checkExpressionContainsArithmeticFunction("let(a,5,ADD(a,a))"));
+        assertTrue(ArithmeticSymbols.checkExpressionContainsArithmeticFunction("xdiv"));
+        assertTrue(ArithmeticSymbols.checkExpressionContainsArithmeticFunction("mmulti"));
+        assertFalse(ArithmeticSymbols.checkExpressionContainsArithmeticFunction("let(a,5,a)"));
+        assertFalse(ArithmeticSymbols.checkExpressionContainsArithmeticFunction("mult"));
+        assertFalse(ArithmeticSymbols.checkExpressionContainsArithmeticFunction(""));
+    }
+
+    @Test
+    public void shouldClassifyParenthesisAndComma() {
+        assertTrue(ArithmeticSymbols.isParenthesisOrComma('('));
+        assertTrue(ArithmeticSymbols.isParenthesisOrComma(')'));
+        assertTrue(ArithmeticSymbols.isParenthesisOrComma(','));
+        assertFalse(ArithmeticSymbols.isParenthesisOrComma('-'));
+        assertEquals(ArithmeticSymbols.NEGATIVE_SIGN, ArithmeticSymbols.classify('-'));
+    }
+}
@@ -0,0 +1,62 @@
+package calculator.utils;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test Case for
+ * LoggingConfiguration class
+ */
+public class LoggingConfigurationTest {
+
+    @After
+    public void tearDown() {
+        LoggingConfiguration.configure(LoggingConfiguration.DEFAULT_LEVEL);
+    }
+
+    @Test
+    public void shouldOpenNoAppenderWhenOff() {
+        LoggingConfiguration.configure("off");
+
+        assertEquals(Level.OFF, LoggingConfiguration.getConfiguredLevel());
+        assertFalse(LoggingConfiguration.isLogFileOpen());
+        assertFalse(Logger.getRootLogger().getAllAppenders().hasMoreElements());
+        assertFalse(Logger.getLogger(LoggingConfigurationTest.class).isDebugEnabled());
+        assertFalse(Logger.getLogger(LoggingConfigurationTest.class).isEnabledFor(Level.ERROR));
+    }
+
+    @Test
+    public void shouldConfigureOnceForSameLevel() {
+        LoggingConfiguration.configure("DEBUG");
+        Object appender = Logger.getRootLogger().getAllAppenders().nextElement();
+        LoggingConfiguration.configure("debug");
+
+        assertTrue(LoggingConfiguration.isLogFileOpen());
+        assertSame(appender, Logger.getRootLogger().getAppender("AsyncLogger"));
+        assertTrue(Logger.getLogger(LoggingConfigurationTest.class).isDebugEnabled());
+
+        //Changing level keeps the appenders
+        LoggingConfiguration.configure("error");
+        assertSame(appender, Logger.getRootLogger().getAppender("AsyncLogger"));
+        assertFalse(Logger.getLogger(LoggingConfigurationTest.class).isInfoEnabled());
+
+        LoggingConfiguration.configure((String) null);
+        assertFalse(LoggingConfiguration.isLogFileOpen());
+    }
+
+    @Test
+    public void shouldConvertLevelNames() {
+        assertEquals(Level.DEBUG, LoggingConfiguration.toLevel("Debug"));
+        assertEquals(Level.INFO, LoggingConfiguration.toLevel("INFO"));
+        assertEquals(Level.ERROR, LoggingConfiguration.toLevel("error"));
+        assertEquals(LoggingConfiguration.DEFAULT_LEVEL, LoggingConfiguration.toLevel("WARN"));
+        assertEquals(LoggingConfiguration.DEFAULT_LEVEL, LoggingConfiguration.toLevel(""));
+    }
+}
@@ -0,0 +1,142 @@
+package calculator.vm;
+
+import calculator.exception.CalculatorException;
+import calculator.parser.ExpressionParser;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test Case for
+ * ColumnInterpreter class and compiling with parameters
+ */
+public class ColumnInterpreterTest {
+
+    @Rule
+    public final ExpectedException exception = ExpectedException.none();
+
+    private final ColumnInterpreter columnInterpreter = new ColumnInterpreter();
+    private final Interpreter interpreter = new Interpreter();
+
+    @Test
+    public void shouldCompileParametersToFirstSlots() throws CalculatorException {
+        Program program = compile("let(a, X, add(a, multi(y, 3)))", "x", "Y");
+
+        assertEquals("LOAD 0\nSTORE 2\nLOAD 2\nLOAD 1\nPUSH 3\nMULTI\nADD\n", program.toString());
+        assertEquals(2, program.getParameterCount());
+        assertEquals(3, program.getSlotCount());
+    }
+
+    @Test
+    public void shouldExecuteOverColumns() throws CalculatorException {
+        Program program = compile("add(x, multi(y, 3))", "x", "y");
+        int[] results = new int[3];
+
+        columnInterpreter.execute(program, new int[][]{{1, 2, 3}, {10, 20, 30}}, results);
+
+        assertArrayEquals(new int[]{31, 62, 93}, results);
+    }
+
+    @Test
+    public void shouldMatchInterpreterAcrossBlocks() throws CalculatorException {
+        Program program = compile("let(a, sub(x, y), let(b, multi(a, a), div(add(b, x), add(multi(y, y), 1))))", "x", "y");
+        int rows = ColumnInterpreter.BLOCK_SIZE * 2 + 17;
+        Random random = new Random(42);
+        int[][] columns = new int[2][rows];
+        for (int i = 0; i < rows; i++) {
+            columns[0][i] = random.nextInt();
+            columns[1][i] = random.nextInt(1000);
+        }
+        int[] results = new int[rows];
+
+        columnInterpreter.execute(program, columns, results);
+
+        int[] stack = new int[program.getMaxStackDepth()];
+        int[] slots = new int[program.getSlotCount()];
+        for (int i = 0; i < rows; i++) {
+            slots[0] = columns[0][i];
+            slots[1] = columns[1][i];
+            assertEquals(interpreter.execute(program, stack, slots), results[i]);
+        }
+    }
+
+    @Test
+    public void shouldMatchScalarColumnsWithVectorLanes() throws CalculatorException {
+        Program program = compile("let(a, sub(x, y), sub(multi(a, a), div(add(x, 7), add(y, 1))))", "x", "y");
+        ColumnInterpreter vectorColumnInterpreter = new VectorColumnInterpreter();
+        Random random = new Random(7);
+        //Row counts around the lane count exercise the scalar tail
+        for (int rows = 0; rows <= VectorColumnInterpreter.getLaneCount() * 2 + 1; rows++) {
+            int[][] columns = new int[2][rows];
+            for (int i = 0; i < rows; i++) {
+                columns[0][i] = random.nextInt();
+                columns[1][i] = random.nextInt(Integer.MAX_VALUE);
+            }
+            int[] expectedResults = new int[rows];
+            int[] results = new int[rows];
+
+            columnInterpreter.execute(program, columns, expectedResults);
+            vectorColumnInterpreter.execute(program, columns, results);
+
+            assertArrayEquals(expectedResults, results);
+        }
+    }
+
+    @Test
+    public void shouldUseVectorLanesWhenModuleIsPresent() {
+        assertTrue(ColumnInterpreter.getInstance() instanceof VectorColumnInterpreter);
+    }
+
+    @Test
+    public void shouldThrowException_UndeclaredVariable() throws CalculatorException {
+        exception.expect(CalculatorException.class);
+        exception.expectMessage(CalculatorException.INVALID_ARGUMENTS + " at position 7");
+        compile("add(x, z)", "x", "y");
+    }
+
+    @Test
+    public void shouldThrowException_DuplicateParameter() throws CalculatorException {
+        exception.expect(CalculatorException.class);
+        exception.expectMessage(CalculatorException.INVALID_ARGUMENTS);
+        compile("add(x, x)", "x", "X");
+    }
+
+    @Test
+    public void shouldThrowException_InvalidParameterName() throws CalculatorException {
+        exception.expect(CalculatorException.class);
+        exception.expectMessage(CalculatorException.INVALID_ARGUMENTS);
+        compile("add(x, x)", "add");
+    }
+
+    @Test
+    public void shouldThrowException_MissingColumn() throws CalculatorException {
+        exception.expect(IllegalArgumentException.class);
+        columnInterpreter.execute(compile("add(x, y)", "x", "y"), new int[][]{{1}}, new int[1]);
+    }
+
+    @Test
+    public void shouldThrowException_DivByZero() throws CalculatorException {
+        exception.expect(ArithmeticException.class);
+        columnInterpreter.execute(compile("div(1, x)", "x"), new int[][]{{1, 0}}, new int[2]);
+    }
+
+    @Test
+    public void shouldThrowException_DivByZeroWithVectorLanes() throws CalculatorException {
+        int[] divisors = new int[VectorColumnInterpreter.getLaneCount() * 3];
+        Arrays.fill(divisors, 1);
+        divisors[divisors.length / 2] = 0;
+        exception.expect(ArithmeticException.class);
+        new VectorColumnInterpreter().execute(compile("div(multi(x, 2), x)", "x"), new int[][]{divisors}, new int[divisors.length]);
+    }
+
+    private Program compile(String expression, String... parameterNames) throws CalculatorException {
+        return new Compiler().compile(new ExpressionParser(expression).parse(), parameterNames);
+    }
+}
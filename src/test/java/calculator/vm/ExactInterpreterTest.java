@@ -0,0 +1,79 @@
+package calculator.vm;
+
+import calculator.exception.CalculatorException;
+import calculator.parser.ExpressionParser;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.math.BigInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test Case for
+ * ExactInterpreter class
+ */
+public class ExactInterpreterTest {
+
+    @Rule
+    public final ExpectedException exception = ExpectedException.none();
+
+    private final ExactInterpreter exactInterpreter = new ExactInterpreter();
+
+    @Test
+    public void shouldExecuteWithoutWrapping() throws CalculatorException {
+        testExecute(3L, "add(1,2)");
+        testExecute(55L, "let(a,5,let(b,multi(a,10),add(b,a)))");
+        testExecute((long) Integer.MIN_VALUE - Integer.MAX_VALUE, "sub(" + Integer.MIN_VALUE + "," + Integer.MAX_VALUE + ")");
+        testExecute(4611686014132420609L, "multi(2147483647, 2147483647)");
+        testExecute(-3L, "div(-7, 2)");
+    }
+
+    @Test
+    public void shouldPromoteToBigIntegerOnLongOverflow() throws CalculatorException {
+        BigInteger longMax = BigInteger.valueOf(Long.MAX_VALUE);
+        testExecute(longMax.add(BigInteger.ONE), "add(" + Long.MAX_VALUE + ", 1)");
+        testExecute(longMax.negate().subtract(BigInteger.TWO), "sub(" + Long.MIN_VALUE + ", 1)");
+        testExecute(longMax.add(BigInteger.ONE), "div(" + Long.MIN_VALUE + ", -1)");
+        testExecute(new BigInteger("1000000000000000000000000000000"),
+                "let(a, 1000000000000000, multi(a, a))");
+    }
+
+    @Test
+    public void shouldDemoteToLongWhenResultFits() throws CalculatorException {
+        testExecute(1L, "sub(add(" + Long.MAX_VALUE + ", 1), " + Long.MAX_VALUE + ")");
+        testExecute(10L, "div(multi(" + Long.MAX_VALUE + ", 10), " + Long.MAX_VALUE + ")");
+    }
+
+    @Test
+    public void shouldKeepLiteralsOutsideIntRangeInConstantPool() throws CalculatorException {
+        Program program = compile("add(2147483648, 99999999999999999999999)");
+
+        assertEquals("PUSH_CONSTANT 0\nPUSH_CONSTANT 1\nADD\n", program.toString());
+        assertEquals(new BigInteger("2147483648"), program.getConstants()[0]);
+        assertEquals(new BigInteger("100000000000002147483647"), exactInterpreter.execute(program));
+    }
+
+    @Test
+    public void shouldThrowException_DivByZero() throws CalculatorException {
+        exception.expect(ArithmeticException.class);
+        exception.expectMessage("/ by zero");
+        exactInterpreter.execute(compile("div(99999999999999999999999, 0)"));
+    }
+
+    @Test
+    public void shouldThrowException_LiteralOutsideIntRangeWhenNotExact() throws CalculatorException {
+        exception.expect(CalculatorException.class);
+        exception.expectMessage(CalculatorException.INPUT_EXPRESSION_INVALID + " at position 4");
+        new ExpressionParser("add(2147483648, 1)").parse();
+    }
+
+    private void testExecute(Number expectedResult, String expression) throws CalculatorException {
+        assertEquals(expectedResult, exactInterpreter.execute(compile(expression)));
+    }
+
+    private Program compile(String expression) throws CalculatorException {
+        return new Compiler(true).compile(new ExpressionParser(expression, true).parse());
+    }
+}
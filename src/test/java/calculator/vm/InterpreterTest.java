@@ -0,0 +1,91 @@
+package calculator.vm;
+
+import calculator.exception.CalculatorException;
+import calculator.parser.ExpressionParser;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Test Case for
+ * Compiler and Interpreter classes
+ */
+public class InterpreterTest {
+
+    @Rule
+    public final ExpectedException exception = ExpectedException.none();
+
+    private final Interpreter interpreter = new Interpreter();
+
+    @Test
+    public void shouldCompileToPostOrderProgram() throws CalculatorException {
+        Program program = compile("let(a, 5, add(a, 3))");
+
+        assertEquals("PUSH 5\nSTORE 0\nLOAD 0\nPUSH 3\nADD\n", program.toString());
+        assertEquals(2, program.getMaxStackDepth());
+        assertEquals(1, program.getSlotCount());
+    }
+
+    @Test
+    public void shouldReuseSlotsOfClosedLetScopes() throws CalculatorException {
+        Program program = compile("add(let(a, 1, a), let(b, 2, b))");
+
+        assertEquals(1, program.getSlotCount());
+    }
+
+    @Test
+    public void shouldExecuteProgram() throws CalculatorException {
+        testExecute(3, "add(1,2)");
+        testExecute(7, "add(1,multi(2,3))");
+        testExecute(12, "multi(add(2,2),div(9,3))");
+        testExecute(4, "sub(7,3)");
+        testExecute(10, "add(1,2,3,4)");
+        testExecute(30, "add(1,multi(2,3,4),5)");
+        testExecute(120, "multi(multi(2,3),multi(4,5))");
+        testExecute(55, "let(a,5,let(b,multi(a,10),add(b,a)))");
+        testExecute(40, "let(a,let(b,10,add(b,b)),let(b,20,add(a,b)))");
+        testExecute(12, "let(a,5,let(a,add(a,1),multi(a,2)))");
+        testExecute(Integer.MIN_VALUE - Integer.MAX_VALUE, "sub(" + Integer.MIN_VALUE + "," + Integer.MAX_VALUE + ")");
+    }
+
+    @Test
+    public void shouldFlattenChainsOfSameFunction() throws CalculatorException {
+        Program program = compile("add(1, add(2, 3), 4)");
+
+        assertEquals("PUSH 1\nPUSH 2\nADD\nPUSH 3\nADD\nPUSH 4\nADD\n", program.toString());
+        assertEquals(2, program.getMaxStackDepth());
+
+        StringBuilder chain = new StringBuilder();
+        for (int i = 0; i < 500; i++)
+            chain.append("multi(2, ");
+        chain.append('1');
+        for (int i = 0; i < 500; i++)
+            chain.append(')');
+        assertEquals(2, compile(chain.toString()).getMaxStackDepth());
+        //Different functions are not merged
+        assertEquals(4, compile("add(1, multi(2, add(3, 4)))").getMaxStackDepth());
+    }
+
+    @Test
+    public void shouldThrowException_UnboundVariable() throws CalculatorException {
+        exception.expect(CalculatorException.class);
+        exception.expectMessage(CalculatorException.INVALID_ARGUMENTS + " at position 10");
+        compile("let(a, 5, b)");
+    }
+
+    @Test
+    public void shouldThrowException_DivByZero() throws CalculatorException {
+        exception.expect(ArithmeticException.class);
+        interpreter.execute(compile("div(1, 0)"));
+    }
+
+    private void testExecute(int expectedResult, String expression) throws CalculatorException {
+        assertEquals(expectedResult, interpreter.execute(compile(expression)));
+    }
+
+    private Program compile(String expression) throws CalculatorException {
+        return new Compiler().compile(new ExpressionParser(expression).parse());
+    }
+}